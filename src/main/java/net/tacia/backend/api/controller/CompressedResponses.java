@@ -0,0 +1,163 @@
+package net.tacia.backend.api.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.tacia.backend.service.CompressedResponseCache;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * JSON responses of versioned content (documents and listings) with gzip compressed bodies
+ * taken from a {@link CompressedResponseCache}.
+ * <p>
+ * Clients that accept gzip get the cached bytes as they are; the body is only built, serialized
+ * and compressed on a cache miss. Other clients get the body as usual.
+ * <p>
+ * The compressed body is a different representation with its own strong ETag, the tag of the
+ * identity body with a {@code -gzip} suffix, and conditional requests match either tag.
+ */
+final class CompressedResponses {
+
+    private static final String GZIP = "gzip";
+
+    private static final String GZIP_ETAG_SUFFIX = "-" + GZIP;
+
+    private CompressedResponses() {
+    }
+
+    /**
+     * {@link WebRequest#checkNotModified(String)} for a JSON response of {@link #json}: an
+     * If-None-Match header with the tag of either representation matches. Otherwise the tag of
+     * the representation {@code json} will send is set, the gzip variant's if the request
+     * accepts gzip.
+     * @param eTag Tag of the identity body, or {@code null} if the content has none
+     */
+    static boolean checkNotModified(WebRequest webRequest, String eTag) {
+        return checkNotModified(webRequest, eTag, -1);
+    }
+
+    /**
+     * @see #checkNotModified(WebRequest, String)
+     */
+    static boolean checkNotModified(WebRequest webRequest, String eTag, long lastModified) {
+        if (eTag == null) {
+            return webRequest.checkNotModified(null, lastModified);
+        }
+        String gzipETag = gzipETag(eTag);
+        String ifNoneMatch = webRequest.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            // Answered with the tag the client has, so the response is 304
+            if (matches(ifNoneMatch, eTag)) {
+                return webRequest.checkNotModified(eTag, lastModified);
+            }
+            if (matches(ifNoneMatch, gzipETag)) {
+                return webRequest.checkNotModified(gzipETag, lastModified);
+            }
+        }
+        // The tag written here is the one the response goes out with
+        return webRequest.checkNotModified(acceptsGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING))
+            ? gzipETag : eTag, lastModified);
+    }
+
+    /**
+     * The tag of the gzip variant of a body, e.g. {@code "abc-gzip"} for {@code "abc"}
+     */
+    static String gzipETag(String eTag) {
+        return eTag.endsWith("\"")
+            ? eTag.substring(0, eTag.length() - 1) + GZIP_ETAG_SUFFIX + "\""
+            : "\"" + eTag + GZIP_ETAG_SUFFIX + "\"";
+    }
+
+    /**
+     * Whether one of the tags of an If-None-Match header is the given one, comparing weakly
+     * like {@link WebRequest#checkNotModified(String)} does for GET requests
+     */
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        String opaqueTag = opaqueTag(eTag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            if (opaqueTag(candidate.trim()).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaqueTag(String eTag) {
+        return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+    }
+
+    /**
+     * @param cache Cache of compressed bodies
+     * @param objectMapper Mapper the JSON message converter writes bodies with
+     * @param headers Additional response headers; Content-Encoding is replaced for compressed bodies
+     * @param key Cache key, whose version is the ETag of the identity body, or {@code null} if the
+     *            body has no version and cannot be cached
+     * @param body Builds the body, only called when it is needed
+     */
+    static ResponseEntity<?> json(WebRequest webRequest, CompressedResponseCache cache, ObjectMapper objectMapper,
+                                  HttpHeaders headers, CompressedResponseCache.Key key, Supplier<?> body)
+            throws IOException {
+        if (key == null || !acceptsGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .headers(headers)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .body(body.get());
+        }
+
+        byte[] compressed = cache.get(key).orElse(null);
+        if (compressed == null) {
+            compressed = cache.put(key, objectMapper.writeValueAsBytes(body.get()));
+        }
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .headers(headers)
+            .headers(h -> h.set(HttpHeaders.CONTENT_ENCODING, GZIP))
+            .eTag(gzipETag(key.version()))
+            .varyBy(HttpHeaders.ACCEPT_ENCODING)
+            .contentLength(compressed.length)
+            .body(compressed);
+    }
+
+    /**
+     * Whether an Accept-Encoding header allows gzip with a non-zero quality, by name or
+     * through "*" if gzip is not listed
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double anyQuality = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (name.equals(GZIP) || name.equals("x-gzip")) {
+                gzipQuality = quality(parts);
+            } else if (name.equals("*")) {
+                anyQuality = quality(parts);
+            }
+        }
+        Double quality = gzipQuality != null ? gzipQuality : anyQuality;
+        return quality != null && quality > 0;
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String param = parts[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -1,31 +1,62 @@
 package net.tacia.backend.api.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import net.tacia.backend.api.dto.BatchContentRequest;
+import net.tacia.backend.api.dto.BatchContentResponse;
 import net.tacia.backend.api.dto.ContentItemDto;
 import net.tacia.backend.api.dto.ContentListResponse;
-import net.tacia.backend.api.dto.ContentMetadataDto;
+import net.tacia.backend.api.exception.BadRequestException;
 import net.tacia.backend.api.exception.ContentNotFoundException;
+import net.tacia.backend.config.CacheConfig;
 import net.tacia.backend.model.ContentItem;
+import net.tacia.backend.model.MarkdownDocument;
+import net.tacia.backend.model.ParsedDocument;
+import net.tacia.backend.model.TocEntry;
+import net.tacia.backend.model.markdown.HeadingAnchors;
+import net.tacia.backend.repository.ContentPage;
+import net.tacia.backend.repository.DirectoryListing;
 import net.tacia.backend.repository.ContentRepository;
-import net.tacia.backend.service.MarkdownService;
+import net.tacia.backend.repository.ListingCursor;
+import net.tacia.backend.service.BatchExecutor;
+import net.tacia.backend.service.CompressedResponseCache;
+import net.tacia.backend.service.DocumentETagService;
+import net.tacia.backend.service.RenderedHtmlCache;
+import net.tacia.backend.service.RequestCoalescer;
+import net.tacia.backend.service.search.SearchService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -36,19 +67,68 @@ import java.util.stream.Collectors;
 public class ContentController {
 
     private static final Logger logger = LoggerFactory.getLogger(ContentController.class);
+    private static final String TEXT_PLAIN_UTF8 = MediaType.TEXT_PLAIN_VALUE + ";charset=UTF-8";
     private final ContentRepository contentRepository;
-    private final MarkdownService markdownService;
+    private final ObjectMapper objectMapper;
+    private final DocumentETagService documentETags;
+    private final CompressedResponseCache responseCache;
+    private final MappingJackson2HttpMessageConverter jsonConverter;
+    private final SearchService searchService;
+    private final Cache documentCache;
+    private final RequestCoalescer requestCoalescer;
+    private final RenderedHtmlCache htmlCache;
+    private final BatchExecutor batchExecutor;
 
-    public ContentController(ContentRepository contentRepository, MarkdownService markdownService) {
+    /**
+     * Key of a processed document in the content cache
+     * @param version ETag of the document the response was made from
+     */
+    private record DocumentKey(String path, String version, DocumentView view) {
+    }
+
+    /**
+     * What a document response holds
+     * @param html Whether the body is rendered to HTML ({@code format=html}) rather than markdown
+     * @param section Slug of the only section to return, or {@code null} for the whole document
+     */
+    private record DocumentView(boolean html, String section) {
+
+        /**
+         * Tells the responses for one version of a document apart, empty for the whole markdown
+         */
+        String variant() {
+            String variant = html ? "html" : "";
+            return section == null ? variant : variant + "#" + section;
+        }
+    }
+
+    public ContentController(ContentRepository contentRepository, ObjectMapper objectMapper,
+                             DocumentETagService documentETags, CompressedResponseCache responseCache,
+                             MappingJackson2HttpMessageConverter jsonConverter,
+                             SearchService searchService, CacheManager cacheManager,
+                             RequestCoalescer requestCoalescer, RenderedHtmlCache htmlCache,
+                             BatchExecutor batchExecutor) {
         this.contentRepository = contentRepository;
-        this.markdownService = markdownService;
+        this.objectMapper = objectMapper;
+        this.documentETags = documentETags;
+        this.responseCache = responseCache;
+        this.jsonConverter = jsonConverter;
+        this.searchService = searchService;
+        this.documentCache = Objects.requireNonNull(cacheManager.getCache(CacheConfig.CONTENT_CACHE),
+            "Missing cache " + CacheConfig.CONTENT_CACHE);
+        this.requestCoalescer = requestCoalescer;
+        this.htmlCache = htmlCache;
+        this.batchExecutor = batchExecutor;
     }
 
     /**
-     * Get raw file content at the specified path
+     * Get raw file content at the specified path.
+     * The file is streamed as is, without reading it into memory.
+     * Conditional requests for an unchanged file are answered with 304 Not Modified.
      */
     @GetMapping("/file-content/{*path}")
-    public ResponseEntity<String> getFileContent(@PathVariable String path) {
+    public void getFileContent(@PathVariable String path, HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
         String normalizedPath = normalizePath(path);
         logger.debug("Getting raw content for path: {}", normalizedPath);
         
@@ -60,13 +140,18 @@ public class ContentController {
             throw new ContentNotFoundException("Cannot get content of a directory: " + normalizedPath);
         }
         
-        // Get the file content using the repository
-        String content = contentRepository.getContent(normalizedPath)
+        // The file is only read for its tag the first time this version is requested
+        String eTag = documentETags.computeETag(item, normalizedPath)
+            .orElseThrow(() -> new ContentNotFoundException("Content not found for path: " + normalizedPath));
+        if (new ServletWebRequest(request, response).checkNotModified(eTag, lastModified(item))) {
+            return;
+        }
+        
+        // Find the file the content would be read from
+        Path file = contentRepository.getContentFile(normalizedPath)
             .orElseThrow(() -> new ContentNotFoundException("Content not found for path: " + normalizedPath));
         
-        return ResponseEntity.ok()
-            .contentType(MediaType.TEXT_PLAIN)
-            .body(content);
+        FileContentWriter.write(file, TEXT_PLAIN_UTF8, request, response);
     }
 
     /**
@@ -112,9 +197,24 @@ public class ContentController {
         }
     }
 
+    /**
+     * Get content at the specified path: a document, or the listing of a directory.
+     * Documents and non-recursive listings carry validators (ETag and Last-Modified for
+     * documents, ETag for listings); conditional requests that match them are answered with
+     * 304 Not Modified without reading or processing the document. Clients that accept gzip
+     * get JSON bodies of versioned content from the compressed response cache.
+     * With {@code format=html}, markdown documents are rendered to HTML on the server. With
+     * {@code section}, only the section of the document starting at the heading with that slug
+     * (see the {@code toc} of the document) is returned.
+     */
     @GetMapping("/content/**")
     public ResponseEntity<?> getContent(
-            @RequestParam(required = false, defaultValue = "false") boolean recursive) {
+            @RequestParam(required = false, defaultValue = "false") boolean recursive,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) String section,
+            WebRequest webRequest) throws IOException {
         
         String path = extractPathFromRequest();
         String normalizedPath = normalizePath(path);
@@ -126,23 +226,28 @@ public class ContentController {
             ContentItem rootItem = contentRepository.findByPath("").orElseThrow(
                 () -> new ContentNotFoundException("Root directory not found")
             );
+            Optional<DirectoryListing> rootListing = contentRepository.findListing("");
+            String eTag = listingETag(rootListing);
+            if (eTag != null && CompressedResponses.checkNotModified(webRequest, eTag)) {
+                return null;
+            }
+            if (ListingPages.isRequested(limit, cursor)) {
+                return listPage("", rootListing, limit, cursor, eTag, webRequest);
+            }
             
-            // Get children of root
-            List<ContentItem> children = contentRepository.findChildren("");
-            
-            // Convert to DTOs
-            List<ContentItemDto> childDtos = children.stream()
-                .map(child -> ContentItemDto.fromDomain(child, ""))
-                .collect(Collectors.toList());
+            return json(webRequest, cacheKey("", "", eTag), () -> {
+                // Get children of root
+                List<ContentItem> children = listingItems("", rootListing);
                 
-            // Create response with the requested path (which is already normalized)
-            ContentListResponse response = ContentListResponse.of(childDtos, "");
-            logger.debug("Returning root directory listing ({} items)", childDtos.size());
-            
-            return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_JSON)
-                .header(HttpHeaders.CONTENT_ENCODING, StandardCharsets.UTF_8.name())
-                .body(response);
+                // Convert to DTOs
+                List<ContentItemDto> childDtos = children.stream()
+                    .map(child -> ContentItemDto.fromDomain(child, ""))
+                    .collect(Collectors.toList());
+                logger.debug("Returning root directory listing ({} items)", childDtos.size());
+                
+                // Create response with the requested path (which is already normalized)
+                return ContentListResponse.of(childDtos, "");
+            });
         }
 
         // For root path, ensure we don't have a leading slash
@@ -153,100 +258,330 @@ public class ContentController {
         
         // Handle regular files
         if ("file".equals(item.type())) {
+            // Hash the file up front only when the client has a tagged copy to compare with,
+            // otherwise the tag is computed from the content read below
+            String eTag = webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                ? documentETags.computeETag(item, lookupPath).orElse(null)
+                : documentETags.getCachedETag(item).orElse(null);
+            boolean markdown = item.name().toLowerCase().endsWith(".md");
+            boolean notModified = markdown
+                ? CompressedResponses.checkNotModified(webRequest, eTag, lastModified(item))
+                : webRequest.checkNotModified(eTag, lastModified(item));
+            if (notModified) {
+                return null;
+            }
+            
             // For non-markdown files, return the raw content
-            if (!item.name().toLowerCase().endsWith(".md")) {
-                Optional<String> contentOpt = contentRepository.getContent(lookupPath);
-                if (contentOpt.isEmpty()) {
-                    throw new ContentNotFoundException("Content not found: " + lookupPath);
-                }
+            if (!markdown) {
+                String content = readContent(lookupPath);
                 return ResponseEntity.ok()
                     .contentType(MediaType.TEXT_PLAIN)
                     .header(HttpHeaders.CONTENT_ENCODING, StandardCharsets.UTF_8.name())
-                    .body(contentOpt.get());
-            } else {
-                // For markdown files, process the content
-                Optional<String> contentOpt = contentRepository.getContent(lookupPath);
-                if (contentOpt.isEmpty()) {
-                    throw new ContentNotFoundException("Content not found: " + lookupPath);
-                }
-                String content = contentOpt.get();
-                
-                // Process markdown to HTML
-                Map<String, Object> processed = markdownService.processMarkdown(content);
-                
-                // Get title from metadata if available
-                String title = null;
-                if (processed.containsKey("metadata")) {
-                    ContentMetadataDto metadata = (ContentMetadataDto) processed.get("metadata");
-                    Map<String, String> metadataMap = new HashMap<>();
-                    metadataMap.put("title", metadata.getTitle() != null ? metadata.getTitle() : "");
-                    title = metadataMap.get("title");
-                }
-                
-                // If no title in metadata, try to extract from content
-                if ((title == null || title.isEmpty()) && content.startsWith("# ")) {
-                    int endOfFirstLine = content.indexOf("\n");
-                    if (endOfFirstLine > 2) {
-                        title = content.substring(2, endOfFirstLine).trim();
-                    }
-                }
-                
-                // Fallback to filename without extension
-                if (title == null || title.isEmpty()) {
-                    title = item.name().replace(".md", "");
-                }
-                
-                // Ensure we have a non-null title
-                if (title == null) {
-                    title = "";
-                }
-                
-                // Create response with content
-                Map<String, Object> response = new LinkedHashMap<>();
-                response.put("name", item.name().replace(".md", ""));
-                response.put("path", item.path());
-                
-                // Add markdown content and metadata
-                response.put("markdown", processed.get("markdown"));
-                response.put("headings", processed.get("headings"));
-                
-                // Add metadata
-                if (processed.containsKey("metadata")) {
-                    ContentMetadataDto metadata = (ContentMetadataDto) processed.get("metadata");
-                    response.put("metadata", metadata.getProperties());
-                }
-                
-                return ResponseEntity.ok()
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .header(HttpHeaders.CONTENT_ENCODING, StandardCharsets.UTF_8.name())
-                    .body(response);
+                    .headers(headers -> addETag(headers, eTag, item, content))
+                    .body(content);
+            }
+            
+            // For markdown files, process the content. A known tag identifies the version, so a
+            // compressed body can be served without reading the document
+            DocumentView view = new DocumentView("html".equals(format), section);
+            if (eTag != null) {
+                return json(webRequest, cacheKey(lookupPath, view.variant(), eTag),
+                    () -> cachedDocumentResponse(item, lookupPath, eTag, view, () -> readDocument(lookupPath)));
             }
+            MarkdownDocument document = readDocument(lookupPath);
+            HttpHeaders headers = new HttpHeaders();
+            addETag(headers, null, item, document.content());
+            return json(webRequest, headers, cacheKey(lookupPath, view.variant(), headers.getETag()),
+                () -> cachedDocumentResponse(item, lookupPath, headers.getETag(), view, () -> document));
         }
         
         // Handle directories
-        List<ContentItem> children = recursive ? 
-            contentRepository.findDescendants(lookupPath) :
-            contentRepository.findChildren(lookupPath);
-            
-        // Convert to DTOs with full paths (relative to content root)
-        List<ContentItemDto> childDtos = new ArrayList<>();
-        for (ContentItem child : children) {
-            // Skip the current directory itself in recursive mode
-            if (recursive && child.path().equals("/" + normalizedPath)) {
-                continue;
+        Optional<DirectoryListing> directoryListing = recursive
+            ? Optional.empty()
+            : contentRepository.findListing(lookupPath);
+        String eTag = listingETag(directoryListing);
+        if (eTag != null && CompressedResponses.checkNotModified(webRequest, eTag)) {
+            return null;
+        }
+        if (ListingPages.isRequested(limit, cursor)) {
+            if (recursive) {
+                throw new BadRequestException("Recursive listings are not paginated, use format=ndjson to stream them");
             }
-            childDtos.add(ContentItemDto.fromDomain(child, ""));
+            return listPage(lookupPath, directoryListing, limit, cursor, eTag, webRequest);
         }
-            
-        // Create response with the requested path (which is already normalized)
-        ContentListResponse response = ContentListResponse.of(childDtos, normalizedPath);
-        logger.debug("Returning directory listing for: {} ({} items)", normalizedPath, childDtos.size());
         
-        // Set content type with UTF-8 encoding
-        return ResponseEntity.ok()
-            .contentType(MediaType.APPLICATION_JSON)
-            .header(HttpHeaders.CONTENT_ENCODING, "UTF-8")
-            .body(response);
+        Supplier<ContentListResponse> listing = () -> {
+            List<ContentItem> children = recursive ? 
+                contentRepository.findDescendants(lookupPath) :
+                listingItems(lookupPath, directoryListing);
+                
+            // Convert to DTOs with full paths (relative to content root)
+            List<ContentItemDto> childDtos = new ArrayList<>();
+            for (ContentItem child : children) {
+                // Skip the current directory itself in recursive mode
+                if (recursive && child.path().equals("/" + normalizedPath)) {
+                    continue;
+                }
+                childDtos.add(ContentItemDto.fromDomain(child, ""));
+            }
+            logger.debug("Returning directory listing for: {} ({} items)", normalizedPath, childDtos.size());
+                
+            // Create response with the requested path (which is already normalized)
+            return ContentListResponse.of(childDtos, normalizedPath);
+        };
+        // Walking a large tree is expensive and recursive listings are not cached: concurrent
+        // requests share one walk
+        return json(webRequest, cacheKey(lookupPath, "", eTag), recursive
+            ? () -> requestCoalescer.execute(new RequestCoalescer.Key("descendants", lookupPath, ""), listing)
+            : listing);
+    }
+
+    /**
+     * Get several documents or listings in one request, e.g. a page, its siblings and the pages
+     * it links to. Items are read in parallel on a bounded pool and come back in the order of the
+     * paths, each with the status {@code GET /content/{path}} would have: a path that fails does
+     * not fail the others. Documents come from the same caches as {@code GET /content/**}.
+     */
+    @PostMapping("/content-batch")
+    public BatchContentResponse getContentBatch(@RequestBody BatchContentRequest request) {
+        List<String> paths = request.paths();
+        if (paths == null || paths.isEmpty()) {
+            throw new BadRequestException("No paths requested");
+        }
+        if (paths.size() > batchExecutor.getMaxBatchSize()) {
+            throw new BadRequestException("Too many paths: " + paths.size()
+                + ", at most " + batchExecutor.getMaxBatchSize() + " per batch");
+        }
+        logger.debug("Getting batch of {} paths", paths.size());
+        DocumentView view = new DocumentView("html".equals(request.format()), null);
+        return BatchContentResponse.of(batchExecutor.map(paths, path -> batchItem(path, view)));
+    }
+
+    /**
+     * One item of a batch: a document with its tag, the text of another file, or the listing of
+     * a directory, or the error {@code GET /content/{path}} would have answered with
+     */
+    private BatchContentResponse.Item batchItem(String requestedPath, DocumentView view) {
+        String path = normalizePath(requestedPath);
+        try {
+            ContentItem item = contentRepository.findByPath(path)
+                .orElseThrow(() -> new ContentNotFoundException(path));
+            if (!"file".equals(item.type())) {
+                Optional<DirectoryListing> listing = contentRepository.findListing(path);
+                List<ContentItemDto> children = listingItems(path, listing).stream()
+                    .map(child -> ContentItemDto.fromDomain(child, ""))
+                    .collect(Collectors.toList());
+                return BatchContentResponse.Item.ok(requestedPath, listingETag(listing),
+                    ContentListResponse.of(children, path));
+            }
+            if (!item.name().toLowerCase().endsWith(".md")) {
+                String content = readContent(path);
+                return BatchContentResponse.Item.ok(requestedPath, documentETags.getETag(item, content), content);
+            }
+            // Like a single document: a known tag lets a cached response be used without reading the file
+            Optional<String> knownETag = documentETags.getCachedETag(item);
+            if (knownETag.isPresent()) {
+                String eTag = knownETag.get();
+                return BatchContentResponse.Item.ok(requestedPath, eTag,
+                    cachedDocumentResponse(item, path, eTag, view, () -> readDocument(path)));
+            }
+            MarkdownDocument document = readDocument(path);
+            String eTag = documentETags.getETag(item, document.content());
+            return BatchContentResponse.Item.ok(requestedPath, eTag,
+                cachedDocumentResponse(item, path, eTag, view, () -> document));
+        } catch (ContentNotFoundException e) {
+            return BatchContentResponse.Item.error(requestedPath, HttpStatus.NOT_FOUND.value(), e.getMessage());
+        } catch (BadRequestException e) {
+            return BatchContentResponse.Item.error(requestedPath, HttpStatus.BAD_REQUEST.value(), e.getMessage());
+        } catch (SecurityException e) {
+            return BatchContentResponse.Item.error(requestedPath, HttpStatus.FORBIDDEN.value(),
+                "Access denied: " + e.getMessage());
+        } catch (RequestCoalescer.WaitTimeoutException e) {
+            return BatchContentResponse.Item.error(requestedPath, HttpStatus.SERVICE_UNAVAILABLE.value(), e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Error getting {} in batch: {}", path, e.getMessage(), e);
+            return BatchContentResponse.Item.error(requestedPath, HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                "An unexpected error occurred");
+        }
+    }
+
+    /**
+     * Reads a file, or fails with 404 if it is gone
+     */
+    private String readContent(String path) {
+        return contentRepository.getContent(path)
+            .orElseThrow(() -> new ContentNotFoundException(path));
+    }
+
+    /**
+     * Reads and parses a markdown document, or fails with 404 if it is gone
+     */
+    private MarkdownDocument readDocument(String path) {
+        return contentRepository.readDocument(path)
+            .orElseThrow(() -> new ContentNotFoundException(path));
+    }
+
+    /**
+     * Response body of a markdown document from the content cache. Entries are keyed by the
+     * ETag of the document, so a changed document is never served from an older entry.
+     * @param document Reads the document on a miss
+     */
+    private Map<String, Object> cachedDocumentResponse(ContentItem item, String path, String eTag, DocumentView view,
+                                                       Supplier<MarkdownDocument> document) {
+        if (eTag == null) {
+            return documentResponse(item, path, null, view, document.get());
+        }
+        // Concurrent misses, e.g. right after the entry expired, process the document once
+        String variant = view.variant().isEmpty() ? eTag : eTag + ":" + view.variant();
+        return documentCache.get(new DocumentKey(path, eTag, view), () -> requestCoalescer.execute(
+            new RequestCoalescer.Key("document", path, variant),
+            () -> documentResponse(item, path, eTag, view, document.get())));
+    }
+
+    /**
+     * Response body of a markdown document: its markdown without frontmatter (or its HTML and the
+     * anchors of its headings), headings, table of contents and metadata, from the parsed
+     * document the repository caches per file version. For a section, only the entry of the
+     * table of contents, the markdown or HTML of the section and the metadata.
+     * @param eTag Version of the document the rendered HTML is cached for, or {@code null} not to cache it
+     */
+    private Map<String, Object> documentResponse(ContentItem item, String path, String eTag, DocumentView view,
+                                                 MarkdownDocument document) {
+        ParsedDocument parsed = document.parsed();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("name", item.name().replace(".md", ""));
+        response.put("path", item.path());
+        if (view.section() != null) {
+            TocEntry section = parsed.section(view.section())
+                .orElseThrow(() -> new ContentNotFoundException(path + "#" + view.section()));
+            response.put("section", section);
+            if (view.html()) {
+                response.put("html", htmlCache.render(new RenderedHtmlCache.Key(path, eTag, section.slug()), document));
+            } else {
+                response.put("markdown", document.body().substring(section.start(), section.end()));
+            }
+        } else {
+            if (view.html()) {
+                response.put("html", htmlCache.render(new RenderedHtmlCache.Key(path, eTag), document));
+                response.put("anchors", HeadingAnchors.of(parsed.headings()));
+            } else {
+                response.put("markdown", document.body());
+            }
+            response.put("headings", parsed.headingTexts());
+            response.put("toc", parsed.toc());
+        }
+        response.put("metadata", parsed.metadataWithTitle());
+        return response;
+    }
+
+    /**
+     * The ETag of a directory listing, or {@code null} if the path is not a directory
+     */
+    private static String listingETag(Optional<DirectoryListing> listing) {
+        return listing
+            .map(directoryListing -> "\"" + directoryListing.version() + "\"")
+            .orElse(null);
+    }
+
+    /**
+     * The entries of a directory listing, reusing the listing its tag was computed from
+     */
+    private List<ContentItem> listingItems(String path, Optional<DirectoryListing> listing) {
+        return listing
+            .map(DirectoryListing::items)
+            .orElseGet(() -> contentRepository.findChildren(path));
+    }
+
+    /**
+     * Adds the tag of a document that was not known before it was read.
+     * A tag that was known has already been set by {@code checkNotModified}.
+     */
+    private void addETag(HttpHeaders headers, String knownETag, ContentItem item, String content) {
+        if (knownETag == null) {
+            headers.setETag(documentETags.getETag(item, content));
+        }
+    }
+
+    private static long lastModified(ContentItem item) {
+        return item.lastModified() != null ? item.lastModified().toEpochMilli() : -1;
+    }
+
+    /**
+     * Key of a response of this endpoint in the compressed response cache
+     * @param version Version of the content, or {@code null} if the response is not cacheable
+     */
+    private static CompressedResponseCache.Key cacheKey(String path, String variant, String version) {
+        return version != null ? new CompressedResponseCache.Key("content", path, variant, version) : null;
+    }
+
+    private ResponseEntity<?> json(WebRequest webRequest, CompressedResponseCache.Key key, Supplier<?> body)
+            throws IOException {
+        return json(webRequest, new HttpHeaders(), key, body);
+    }
+
+    private ResponseEntity<?> json(WebRequest webRequest, HttpHeaders headers, CompressedResponseCache.Key key,
+                                   Supplier<?> body) throws IOException {
+        headers.set(HttpHeaders.CONTENT_ENCODING, StandardCharsets.UTF_8.name());
+        return CompressedResponses.json(webRequest, responseCache, jsonConverter.getObjectMapper(), headers, key, body);
+    }
+
+    /**
+     * Returns one page of a directory listing, in repository order (see {@link ListingCursor}).
+     */
+    private ResponseEntity<?> listPage(String path, Optional<DirectoryListing> listing, Integer limit,
+                                       String cursor, String eTag, WebRequest webRequest) throws IOException {
+        ListingCursor after = ListingPages.decode(cursor);
+        int pageLimit = ListingPages.limit(limit);
+        String variant = pageLimit + ":" + ListingPages.encode(after);
+        return json(webRequest, cacheKey(path, variant, eTag), () -> {
+            // A listing read for its tag already holds the page, otherwise the repository finds it
+            ContentPage page = listing.filter(DirectoryListing::isRead)
+                .map(directoryListing -> ContentPage.of(directoryListing.items(), after, pageLimit))
+                .orElseGet(() -> contentRepository.findChildren(path, after, pageLimit));
+            List<ContentItemDto> childDtos = page.items().stream()
+                .map(child -> ContentItemDto.fromDomain(child, ""))
+                .collect(Collectors.toList());
+            logger.debug("Returning page of directory listing for: {} ({} items)", path, childDtos.size());
+            return ContentListResponse.page(childDtos, path, ListingPages.encode(page.next()));
+        });
+    }
+    /**
+     * Streams a directory listing as newline delimited JSON, one item per line.
+     * Items are written while the tree is walked, in walk order rather than sorted, so
+     * memory use does not depend on the number of items.
+     */
+    @GetMapping(value = "/content/**", params = "format=ndjson")
+    public void streamContent(
+            @RequestParam(required = false, defaultValue = "false") boolean recursive,
+            HttpServletResponse response) throws IOException {
+
+        String normalizedPath = normalizePath(extractPathFromRequest());
+        logger.debug("Streaming {}listing for: '{}'", recursive ? "recursive " : "", normalizedPath);
+
+        contentRepository.findByPath(normalizedPath)
+            .orElseThrow(() -> new ContentNotFoundException("Content not found: " + normalizedPath));
+
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        ObjectWriter writer = objectMapper.writerFor(ContentItemDto.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            Consumer<ContentItem> emit = item -> {
+                try {
+                    writer.writeValue(generator, ContentItemDto.fromDomain(item));
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+            if (recursive) {
+                contentRepository.walkDescendants(normalizedPath, emit);
+            } else {
+                contentRepository.findChildren(normalizedPath).forEach(emit);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
     /**
@@ -274,6 +609,8 @@ public class ContentController {
             // Now save the file
             logger.debug("Saving content to: {}", normalizedPath);
             savedItem = contentRepository.saveContent(normalizedPath, content);
+            responseCache.invalidate(normalizedPath);
+            searchService.reindex(normalizedPath);
             logger.info("Successfully saved content to: {}", normalizedPath);
             
             ContentItemDto dto = ContentItemDto.withContent(savedItem, content, null);
@@ -300,6 +637,8 @@ public class ContentController {
         
         try {
             contentRepository.delete(normalizedPath);
+            responseCache.invalidate(normalizedPath);
+            searchService.delete(normalizedPath);
             logger.info("Successfully deleted content at: {}", normalizedPath);
             return ResponseEntity.noContent().build();
         } catch (Exception e) {
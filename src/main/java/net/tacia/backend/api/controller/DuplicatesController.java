@@ -0,0 +1,43 @@
+package net.tacia.backend.api.controller;
+
+import net.tacia.backend.api.dto.DuplicatesResponseDto;
+import net.tacia.backend.api.exception.BadRequestException;
+import net.tacia.backend.service.duplicates.DuplicateService;
+import net.tacia.backend.service.duplicates.NearDuplicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Controller for finding documents with nearly the same content
+ */
+@RestController
+@RequestMapping("/api/duplicates")
+public class DuplicatesController {
+
+    private static final Logger logger = LoggerFactory.getLogger(DuplicatesController.class);
+
+    private final DuplicateService duplicateService;
+
+    public DuplicatesController(DuplicateService duplicateService) {
+        this.duplicateService = duplicateService;
+    }
+
+    /**
+     * Get the near-duplicates of a document
+     * @param path Path of the document (required)
+     * @return The documents with nearly the same content, most similar first
+     */
+    @GetMapping
+    public ResponseEntity<DuplicatesResponseDto> getDuplicates(@RequestParam(required = false) String path) {
+        if (path == null || path.isBlank()) {
+            throw new BadRequestException("Missing document path");
+        }
+        List<NearDuplicate> duplicates = duplicateService.findDuplicates(path);
+        logger.debug("Found {} near-duplicates of {}", duplicates.size(), path);
+        return ResponseEntity.ok(DuplicatesResponseDto.of(path, duplicates));
+    }
+}
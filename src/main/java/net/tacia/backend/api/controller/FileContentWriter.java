@@ -0,0 +1,79 @@
+package net.tacia.backend.api.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes files to the response as raw bytes, without decoding them into a {@code String}.
+ * <p>
+ * Large files are handed to Tomcat's sendfile support when the connector offers it, so the
+ * bytes go from the page cache to the socket without passing through the JVM heap. Otherwise
+ * the file is copied with {@link FileChannel#transferTo}, which uses a small fixed buffer.
+ * Either way heap use does not depend on the size of the file.
+ */
+final class FileContentWriter {
+
+    /** Request attributes of Tomcat's sendfile support (see org.apache.catalina.Globals) */
+    static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_FILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_FILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    /** Smaller files are cheaper to copy than to hand over, same default as Tomcat's DefaultServlet */
+    static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    private FileContentWriter() {
+    }
+
+    /**
+     * Writes a file as the response body
+     * @param file The file to send
+     * @param contentType Content type of the response
+     */
+    static void write(Path file, String contentType, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            response.setContentType(contentType);
+            response.setContentLengthLong(size);
+            if (HttpMethod.HEAD.matches(request.getMethod())) {
+                return;
+            }
+
+            if (size >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+                // Tomcat sends the file once the request has been handled
+                request.setAttribute(SENDFILE_FILENAME_ATTR, file.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_FILE_START_ATTR, 0L);
+                request.setAttribute(SENDFILE_FILE_END_ATTR, size);
+                return;
+            }
+            transfer(channel, size, response.getOutputStream());
+        }
+    }
+
+    /**
+     * Copies the first {@code size} bytes of a file to a stream
+     * @return Number of bytes copied
+     */
+    static long transfer(FileChannel channel, long size, OutputStream out) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        long position = 0;
+        while (position < size) {
+            long transferred = channel.transferTo(position, size - position, target);
+            if (transferred <= 0) {
+                break; // The file was truncated while sending
+            }
+            position += transferred;
+        }
+        return position;
+    }
+}
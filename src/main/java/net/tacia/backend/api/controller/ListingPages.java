@@ -0,0 +1,75 @@
+package net.tacia.backend.api.controller;
+
+import net.tacia.backend.api.exception.BadRequestException;
+import net.tacia.backend.repository.ListingCursor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Request parameters of paginated directory listings ({@code limit} and {@code cursor}).
+ * <p>
+ * Cursors are opaque to clients: the position of the last item of a page, encoded as
+ * URL-safe base64.
+ */
+final class ListingPages {
+
+    static final int DEFAULT_LIMIT = 50;
+    static final int MAX_LIMIT = 1000;
+
+    private static final String VERSION = "1";
+    private static final String SEPARATOR = "\n";
+
+    private ListingPages() {
+    }
+
+    /**
+     * Whether the request asks for a single page rather than the complete listing.
+     */
+    static boolean isRequested(Integer limit, String cursor) {
+        return limit != null || cursor != null;
+    }
+
+    static int limit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        return limit;
+    }
+
+    static String encode(ListingCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        String value = String.join(SEPARATOR,
+            VERSION,
+            cursor.order() != null ? cursor.order().toString() : "",
+            cursor.directory() ? "d" : "f",
+            cursor.name());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return The decoded cursor, or {@code null} for the first page
+     * @throws BadRequestException If the cursor was not created by {@link #encode}
+     */
+    static ListingCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = value.split(SEPARATOR, 4);
+            if (parts.length != 4 || !VERSION.equals(parts[0]) || !(parts[2].equals("d") || parts[2].equals("f"))) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            Integer order = parts[1].isEmpty() ? null : Integer.valueOf(parts[1]);
+            return new ListingCursor(order, parts[2].equals("d"), parts[3]);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+}
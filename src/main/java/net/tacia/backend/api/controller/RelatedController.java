@@ -1,7 +1,8 @@
 package net.tacia.backend.api.controller;
 
 import net.tacia.backend.api.dto.RelatedDocumentDto;
-import net.tacia.backend.service.RelatedDocumentsService;
+import net.tacia.backend.service.RelatedDocumentsCache;
+import net.tacia.backend.service.duplicates.DuplicateService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
@@ -19,10 +20,12 @@ import java.util.Map;
 public class RelatedController {
     
     private static final Logger logger = LoggerFactory.getLogger(RelatedController.class);
-    private final RelatedDocumentsService relatedDocumentsService;
+    private final RelatedDocumentsCache relatedDocuments;
+    private final DuplicateService duplicateService;
     
-    public RelatedController(RelatedDocumentsService relatedDocumentsService) {
-        this.relatedDocumentsService = relatedDocumentsService;
+    public RelatedController(RelatedDocumentsCache relatedDocuments, DuplicateService duplicateService) {
+        this.relatedDocuments = relatedDocuments;
+        this.duplicateService = duplicateService;
     }
     
     /**
@@ -30,16 +33,21 @@ public class RelatedController {
      * 
      * @param path Path of the document to find related documents for (required)
      * @param limit Maximum number of related documents to return (default: 5)
-     * @param skipCache Whether to skip the cache (default: false)
+     * @param skipCache Whether to recompute the related documents even if they are cached, which
+     *                  also refreshes the cache (default: false)
+     * @param excludeDuplicates Whether to leave out near-duplicates of the document and of
+     *                          better related documents (default: false)
      * @return ResponseEntity containing related documents or an error message
      */
     @GetMapping
     public ResponseEntity<?> getRelatedDocuments(
             @RequestParam(required = false) String path,
             @RequestParam(required = false, defaultValue = "5") int limit,
-            @RequestParam(required = false, defaultValue = "false") boolean skipCache) {
+            @RequestParam(required = false, defaultValue = "false") boolean skipCache,
+            @RequestParam(required = false, defaultValue = "false") boolean excludeDuplicates) {
         
-        logger.debug("Getting related documents for path: {}, limit: {}, skipCache: {}", path, limit, skipCache);
+        logger.debug("Getting related documents for path: {}, limit: {}, skipCache: {}, excludeDuplicates: {}",
+            path, limit, skipCache, excludeDuplicates);
         
         // Validate required parameters
         if (path == null || path.trim().isEmpty()) {
@@ -51,13 +59,17 @@ public class RelatedController {
         }
         
         try {
-            // Find related documents using the service
-            List<RelatedDocumentDto> related = relatedDocumentsService.findRelatedDocuments(path, limit, skipCache);
+            // Find related documents, from the cache if they are there. With duplicates excluded,
+            // ask for more, as some will be dropped
+            RelatedDocumentsCache.Result result = relatedDocuments.find(path, excludeDuplicates ? limit * 2 : limit, skipCache);
+            List<RelatedDocumentDto> related = excludeDuplicates
+                ? duplicateService.withoutDuplicates(path, result.documents(), limit)
+                : result.documents();
             
             // Build the response
             Map<String, Object> response = new HashMap<>();
             response.put("related", related);
-            response.put("fromCache", !skipCache); // Assuming service uses cache when skipCache is false
+            response.put("fromCache", result.fromCache());
             
             return ResponseEntity.ok(response);
             
@@ -0,0 +1,49 @@
+package net.tacia.backend.api.controller;
+
+import net.tacia.backend.api.dto.SearchResponseDto;
+import net.tacia.backend.api.exception.BadRequestException;
+import net.tacia.backend.service.search.SearchResult;
+import net.tacia.backend.service.search.SearchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Controller for full-text search over the markdown documents
+ */
+@RestController
+@RequestMapping("/api/search")
+public class SearchController {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchController.class);
+    static final int MAX_LIMIT = 100;
+
+    private final SearchService searchService;
+
+    public SearchController(SearchService searchService) {
+        this.searchService = searchService;
+    }
+
+    /**
+     * Search documents by title, headings, tags and body
+     * @param q The query, free text (required)
+     * @param limit Maximum number of results (default: 10, at most 100)
+     * @return The best matching documents, most relevant first
+     */
+    @GetMapping
+    public ResponseEntity<SearchResponseDto> search(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false, defaultValue = "10") int limit) {
+        if (q == null || q.isBlank()) {
+            throw new BadRequestException("Missing search query");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_LIMIT);
+        }
+
+        SearchResult result = searchService.search(q, limit);
+        logger.debug("Search for '{}' matched {} documents", q, result.total());
+        return ResponseEntity.ok(SearchResponseDto.of(q, result, searchService.isReady()));
+    }
+}
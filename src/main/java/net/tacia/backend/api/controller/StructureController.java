@@ -3,16 +3,30 @@ package net.tacia.backend.api.controller;
 import net.tacia.backend.api.dto.ContentItemDto;
 import net.tacia.backend.api.dto.StructureResponseDto;
 import net.tacia.backend.api.exception.ContentNotFoundException;
+import net.tacia.backend.config.CacheConfig;
 import net.tacia.backend.model.ContentItem;
+import net.tacia.backend.repository.ContentPage;
 import net.tacia.backend.repository.ContentRepository;
+import net.tacia.backend.repository.DirectoryListing;
+import net.tacia.backend.repository.ListingCursor;
+import net.tacia.backend.service.CompressedResponseCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -24,19 +38,41 @@ public class StructureController {
     
     private static final Logger logger = LoggerFactory.getLogger(StructureController.class);
     private final ContentRepository contentRepository;
+    private final CompressedResponseCache responseCache;
+    private final MappingJackson2HttpMessageConverter jsonConverter;
+    private final Cache structureCache;
     
-    public StructureController(ContentRepository contentRepository) {
+    /**
+     * Key of a complete listing in the document structure cache
+     * @param version ETag of the listing
+     */
+    private record ListingKey(String path, String version) {
+    }
+    
+    public StructureController(ContentRepository contentRepository, CompressedResponseCache responseCache,
+                               MappingJackson2HttpMessageConverter jsonConverter, CacheManager cacheManager) {
         this.contentRepository = contentRepository;
+        this.responseCache = responseCache;
+        this.jsonConverter = jsonConverter;
+        this.structureCache = Objects.requireNonNull(cacheManager.getCache(CacheConfig.DOCUMENT_STRUCTURE_CACHE),
+            "Missing cache " + CacheConfig.DOCUMENT_STRUCTURE_CACHE);
     }
     
     /**
      * Get content structure at the specified path
      * @param path The path to get structure for (path parameter)
-     * @return The content item with its children if it's a directory
+     * @param limit Maximum number of children to return (optional, enables pagination)
+     * @param cursor Cursor of the page to return, from the previous page (optional)
+     * @return The content item with its children if it's a directory, or no body (304 Not
+     *         Modified) if the client's copy of the listing is current. Clients that accept gzip
+     *         get the body from the compressed response cache.
      */
     @GetMapping("/{*path}")
-    public ResponseEntity<StructureResponseDto> getStructure(
-            @PathVariable(value = "path", required = false) String path) {
+    public ResponseEntity<?> getStructure(
+            @PathVariable(value = "path", required = false) String path,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            WebRequest webRequest) throws IOException {
         
         String normalizedPath = normalizePath(path);
         logger.debug("Getting structure for path: {}", normalizedPath);
@@ -49,8 +85,48 @@ public class StructureController {
             throw new ContentNotFoundException("Path is not a directory: " + normalizedPath);
         }
         
+        // Also sets the ETag header of the response. The body reuses the listing the tag is computed from
+        Optional<DirectoryListing> directoryListing = contentRepository.findListing(normalizedPath);
+        String eTag = directoryListing
+            .map(listing -> "\"" + listing.version() + "\"")
+            .orElse(null);
+        if (eTag != null && CompressedResponses.checkNotModified(webRequest, eTag)) {
+            return null;
+        }
+        
+        if (ListingPages.isRequested(limit, cursor)) {
+            ListingCursor after = ListingPages.decode(cursor);
+            int pageLimit = ListingPages.limit(limit);
+            return json(webRequest, cacheKey(normalizedPath, pageLimit + ":" + ListingPages.encode(after), eTag), () -> {
+                // Repository order, which is the same as the sort below
+                ContentPage page = directoryListing.filter(DirectoryListing::isRead)
+                    .map(listing -> ContentPage.of(listing.items(), after, pageLimit))
+                    .orElseGet(() -> contentRepository.findChildren(normalizedPath, after, pageLimit));
+                List<ContentItemDto> childDtos = page.items().stream()
+                    .map(ContentItemDto::fromDomain)
+                    .collect(Collectors.toList());
+                return StructureResponseDto.page(
+                    normalizedPath.equals("/") ? "" : normalizedPath,
+                    childDtos,
+                    ListingPages.encode(page.next())
+                );
+            });
+        }
+        
+        // The sorted listing is cached by version, so a large directory is sorted once per change
+        return json(webRequest, cacheKey(normalizedPath, "", eTag), () -> eTag != null
+            ? structureCache.get(new ListingKey(normalizedPath, eTag), () -> listing(normalizedPath, directoryListing))
+            : listing(normalizedPath, directoryListing));
+    }
+    
+    /**
+     * The complete listing of a directory, sorted
+     */
+    private StructureResponseDto listing(String normalizedPath, Optional<DirectoryListing> directoryListing) {
         // Get all children of the directory
-        List<ContentItem> children = contentRepository.findChildren(normalizedPath);
+        List<ContentItem> children = directoryListing
+            .map(DirectoryListing::items)
+            .orElseGet(() -> contentRepository.findChildren(normalizedPath));
         
         // Sort children: first by order (if present), then by type (directories first), then by name
         List<ContentItem> sortedChildren = children.stream()
@@ -82,20 +158,35 @@ public class StructureController {
         logger.debug("Returning {} items for path: {}", childDtos.size(), normalizedPath);
             
         // Create response with the directory path and its children
-        StructureResponseDto response = StructureResponseDto.of(
+        return StructureResponseDto.of(
             normalizedPath.equals("/") ? "" : normalizedPath,
             childDtos
         );
-        
-        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Key of a response of this endpoint in the compressed response cache
+     * @param version Version of the listing, or {@code null} if the response is not cacheable
+     */
+    private static CompressedResponseCache.Key cacheKey(String path, String variant, String version) {
+        return version != null ? new CompressedResponseCache.Key("structure", path, variant, version) : null;
+    }
+    
+    private ResponseEntity<?> json(WebRequest webRequest, CompressedResponseCache.Key key,
+                                   Supplier<StructureResponseDto> body) throws IOException {
+        return CompressedResponses.json(webRequest, responseCache, jsonConverter.getObjectMapper(),
+            new HttpHeaders(), key, body);
     }
     
     /**
      * Get content structure at the root path
      */
     @GetMapping
-    public ResponseEntity<StructureResponseDto> getRootStructure() {
-        return getStructure("");
+    public ResponseEntity<?> getRootStructure(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            WebRequest webRequest) throws IOException {
+        return getStructure("", limit, cursor, webRequest);
     }
     
     /**
@@ -0,0 +1,67 @@
+package net.tacia.backend.api.controller;
+
+import net.tacia.backend.api.dto.TaggedDocumentsResponseDto;
+import net.tacia.backend.api.dto.TagsResponseDto;
+import net.tacia.backend.api.exception.BadRequestException;
+import net.tacia.backend.service.tags.TagService;
+import net.tacia.backend.service.tags.TaggedDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Controller for the frontmatter tags of the documents
+ */
+@RestController
+@RequestMapping("/api/tags")
+public class TagsController {
+
+    private static final Logger logger = LoggerFactory.getLogger(TagsController.class);
+    static final int MAX_LIMIT = 1000;
+
+    private final TagService tagService;
+
+    public TagsController(TagService tagService) {
+        this.tagService = tagService;
+    }
+
+    /**
+     * Get all tags in use
+     * @return The tags with their number of documents, most used first
+     */
+    @GetMapping
+    public ResponseEntity<TagsResponseDto> getTags() {
+        return ResponseEntity.ok(TagsResponseDto.of(tagService.findTags()));
+    }
+
+    /**
+     * Get the documents having all the given tags
+     * @param tags One tag, or several separated by commas (case insensitive)
+     * @param limit Maximum number of documents (default: 100, at most 1000)
+     * @return The matching documents, by path
+     */
+    @GetMapping("/{tags}")
+    public ResponseEntity<TaggedDocumentsResponseDto> getTaggedDocuments(
+            @PathVariable String tags,
+            @RequestParam(required = false, defaultValue = "100") int limit) {
+        List<String> requested = Arrays.stream(tags.split(","))
+            .map(String::trim)
+            .filter(tag -> !tag.isEmpty())
+            .distinct()
+            .toList();
+        if (requested.isEmpty()) {
+            throw new BadRequestException("Missing tag");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_LIMIT);
+        }
+
+        List<TaggedDocument> documents = tagService.findDocuments(requested);
+        logger.debug("Found {} documents tagged {}", documents.size(), requested);
+        return ResponseEntity.ok(TaggedDocumentsResponseDto.of(requested, documents, limit));
+    }
+}
@@ -0,0 +1,14 @@
+package net.tacia.backend.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Request DTO for getting several documents or listings at once
+ */
+public record BatchContentRequest(
+    @JsonProperty("paths") List<String> paths,  // Content paths, as in /api/content/{path}
+    @JsonProperty("format") String format  // "html" to render markdown documents to HTML
+) {
+}
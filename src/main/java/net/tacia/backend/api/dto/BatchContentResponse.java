@@ -0,0 +1,38 @@
+package net.tacia.backend.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Response DTO for a batch of documents and listings, one item per requested path, in order
+ */
+public record BatchContentResponse(
+    @JsonProperty("count") int count,
+    @JsonProperty("items") List<Item> items
+) {
+    public static BatchContentResponse of(List<Item> items) {
+        return new BatchContentResponse(items.size(), items);
+    }
+
+    /**
+     * Result of one path: its content, or the error it failed with
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Item(
+        @JsonProperty("path") String path,  // The path as requested
+        @JsonProperty("status") int status,  // HTTP status GET /api/content/{path} would have
+        @JsonProperty("etag") String etag,  // Version for conditional GET requests, if known
+        @JsonProperty("content") Object content,  // Document, listing or text of the file
+        @JsonProperty("error") String error
+    ) {
+        public static Item ok(String path, String etag, Object content) {
+            return new Item(path, 200, etag, content, null);
+        }
+
+        public static Item error(String path, int status, String error) {
+            return new Item(path, status, null, null, error);
+        }
+    }
+}
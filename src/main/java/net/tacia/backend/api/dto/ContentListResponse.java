@@ -1,8 +1,11 @@
 package net.tacia.backend.api.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import net.tacia.backend.repository.ListingCursor;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -11,9 +14,34 @@ import java.util.List;
 public record ContentListResponse(
     @JsonProperty("count") int count,
     @JsonProperty("items") List<ContentItemDto> items,
-    @JsonProperty("path") String path
+    @JsonProperty("path") String path,
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty("nextCursor") String nextCursor  // Cursor of the next page (paginated listings only)
 ) {
+    /**
+     * Order of listed items, the same as in the repository and in paginated listings: by order
+     * (nulls last), then directories first, then by name (case insensitive)
+     */
+    private static final Comparator<ContentItemDto> LISTING_ORDER = (a, b) -> ListingCursor.compare(
+        a.order(), a.isDirectory(), a.name(), b.order(), b.isDirectory(), b.name());
+
     public static ContentListResponse of(List<ContentItemDto> items, String path) {
+        // Sort items the way pages are, so that the pages of a listing add up to the full listing
+        List<ContentItemDto> sortedItems = new ArrayList<>(items);
+        sortedItems.sort(LISTING_ORDER);
+        
+        return new ContentListResponse(sortedItems.size(), sortedItems, normalizePath(path), null);
+    }
+
+    /**
+     * Creates a response for one page of a listing. Items keep the listing order.
+     * @param nextCursor Cursor of the next page, or null if this is the last page
+     */
+    public static ContentListResponse page(List<ContentItemDto> items, String path, String nextCursor) {
+        return new ContentListResponse(items.size(), items, normalizePath(path), nextCursor);
+    }
+
+    private static String normalizePath(String path) {
         // Ensure path doesn't end with a slash unless it's the root
         String normalizedPath = path;
         
@@ -28,20 +56,6 @@ public record ContentListResponse(
         } else if (normalizedPath.isEmpty()) {
             normalizedPath = "";
         }
-        
-        // Sort items: directories first, then files, both alphabetically
-        List<ContentItemDto> sortedItems = new ArrayList<>(items);
-        sortedItems.sort((a, b) -> {
-            // Directories first
-            if (a.isDirectory() && !b.isDirectory()) {
-                return -1;
-            } else if (!a.isDirectory() && b.isDirectory()) {
-                return 1;
-            }
-            // Then sort alphabetically by name (case insensitive)
-            return a.name().compareToIgnoreCase(b.name());
-        });
-        
-        return new ContentListResponse(sortedItems.size(), sortedItems, normalizedPath);
+        return normalizedPath;
     }
 }
@@ -0,0 +1,31 @@
+package net.tacia.backend.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import net.tacia.backend.service.duplicates.NearDuplicate;
+
+import java.util.List;
+
+/**
+ * Response DTO for the near-duplicates of a document
+ */
+public record DuplicatesResponseDto(
+    @JsonProperty("path") String path,
+    @JsonProperty("duplicates") List<Duplicate> duplicates
+) {
+    /**
+     * A document with nearly the same content
+     */
+    public record Duplicate(
+        @JsonProperty("path") String path,
+        @JsonProperty("title") String title,
+        @JsonProperty("similarity") double similarity  // Estimated share of common content, from 0 to 1
+    ) {
+        public static Duplicate fromDomain(NearDuplicate duplicate) {
+            return new Duplicate(duplicate.path(), duplicate.title(), duplicate.similarity());
+        }
+    }
+
+    public static DuplicatesResponseDto of(String path, List<NearDuplicate> duplicates) {
+        return new DuplicatesResponseDto(path, duplicates.stream().map(Duplicate::fromDomain).toList());
+    }
+}
@@ -13,9 +13,12 @@ public record RelatedDocumentDto(
     String title,
     
     /** 
-     * Relevance score indicating how related the document is (matching backend-js implementation)
+     * Relevance score indicating how related the document is. With the path engine (matching
+     * backend-js implementation):
      * - 2.0: Document is in the same directory
      * - 1.0: Document is in a different directory
+     * With the tfidf engine, the cosine similarity of the documents, from 0 to 1.
+     * With the tags engine, the Jaccard similarity of their tags, from 0 to 1.
      */
     @com.fasterxml.jackson.annotation.JsonProperty("relevance")
     double relevance,
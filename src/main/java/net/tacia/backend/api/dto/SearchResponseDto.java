@@ -0,0 +1,40 @@
+package net.tacia.backend.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import net.tacia.backend.service.search.SearchHit;
+import net.tacia.backend.service.search.SearchResult;
+
+import java.util.List;
+
+/**
+ * Response DTO for full-text search
+ */
+public record SearchResponseDto(
+    @JsonProperty("query") String query,
+    @JsonProperty("results") List<Result> results,
+    @JsonProperty("total") int total,     // Number of matching documents, may exceed the number of results
+    @JsonProperty("ready") boolean ready  // False while the index is being built
+) {
+    /**
+     * A matching document
+     */
+    public record Result(
+        @JsonProperty("path") String path,
+        @JsonProperty("title") String title,
+        @JsonProperty("tags") List<String> tags,
+        @JsonProperty("score") double score
+    ) {
+        public static Result fromDomain(SearchHit hit) {
+            return new Result(hit.path(), hit.title(), hit.tags(), hit.score());
+        }
+    }
+
+    public static SearchResponseDto of(String query, SearchResult result, boolean ready) {
+        return new SearchResponseDto(
+            query,
+            result.hits().stream().map(Result::fromDomain).toList(),
+            result.total(),
+            ready
+        );
+    }
+}
@@ -1,5 +1,6 @@
 package net.tacia.backend.api.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.List;
@@ -11,9 +12,15 @@ import java.util.List;
 public record StructureResponseDto(
     @JsonProperty("path") String path,
     @JsonProperty("items") List<ContentItemDto> items,
-    @JsonProperty("count") int count
+    @JsonProperty("count") int count,
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty("nextCursor") String nextCursor  // Cursor of the next page (paginated listings only)
 ) {
     public static StructureResponseDto of(String path, List<ContentItemDto> items) {
-        return new StructureResponseDto(path, items, items != null ? items.size() : 0);
+        return new StructureResponseDto(path, items, items != null ? items.size() : 0, null);
+    }
+
+    public static StructureResponseDto page(String path, List<ContentItemDto> items, String nextCursor) {
+        return new StructureResponseDto(path, items, items.size(), nextCursor);
     }
 }
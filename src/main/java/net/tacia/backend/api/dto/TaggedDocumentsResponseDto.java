@@ -0,0 +1,36 @@
+package net.tacia.backend.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import net.tacia.backend.service.tags.TaggedDocument;
+
+import java.util.List;
+
+/**
+ * Response DTO for the documents having some tags
+ */
+public record TaggedDocumentsResponseDto(
+    @JsonProperty("tags") List<String> tags,
+    @JsonProperty("documents") List<Document> documents,
+    @JsonProperty("total") int total  // Number of matching documents, may exceed the number of documents
+) {
+    /**
+     * A document having all the requested tags
+     */
+    public record Document(
+        @JsonProperty("path") String path,
+        @JsonProperty("title") String title,
+        @JsonProperty("tags") List<String> tags  // All tags of the document
+    ) {
+        public static Document fromDomain(TaggedDocument document) {
+            return new Document(document.path(), document.title(), document.tags());
+        }
+    }
+
+    public static TaggedDocumentsResponseDto of(List<String> tags, List<TaggedDocument> documents, int limit) {
+        return new TaggedDocumentsResponseDto(
+            tags,
+            documents.stream().limit(limit).map(Document::fromDomain).toList(),
+            documents.size()
+        );
+    }
+}
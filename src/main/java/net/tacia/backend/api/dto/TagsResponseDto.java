@@ -0,0 +1,29 @@
+package net.tacia.backend.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import net.tacia.backend.service.tags.TagCount;
+
+import java.util.List;
+
+/**
+ * Response DTO for the tags in use
+ */
+public record TagsResponseDto(
+    @JsonProperty("tags") List<Tag> tags
+) {
+    /**
+     * A tag and how many documents have it
+     */
+    public record Tag(
+        @JsonProperty("tag") String tag,
+        @JsonProperty("count") int count
+    ) {
+        public static Tag fromDomain(TagCount tagCount) {
+            return new Tag(tagCount.tag(), tagCount.count());
+        }
+    }
+
+    public static TagsResponseDto of(List<TagCount> tags) {
+        return new TagsResponseDto(tags.stream().map(Tag::fromDomain).toList());
+    }
+}
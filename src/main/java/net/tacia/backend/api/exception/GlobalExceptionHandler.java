@@ -1,5 +1,6 @@
 package net.tacia.backend.api.exception;
 
+import net.tacia.backend.service.RequestCoalescer;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -22,6 +23,24 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
             request);
     }
     
+    @ExceptionHandler(BadRequestException.class)
+    protected ResponseEntity<Object> handleBadRequest(BadRequestException ex, WebRequest request) {
+        return handleExceptionInternal(ex,
+            Map.of("error", ex.getMessage()),
+            new HttpHeaders(),
+            HttpStatus.BAD_REQUEST,
+            request);
+    }
+    
+    @ExceptionHandler(RequestCoalescer.WaitTimeoutException.class)
+    protected ResponseEntity<Object> handleWaitTimeout(RequestCoalescer.WaitTimeoutException ex, WebRequest request) {
+        return handleExceptionInternal(ex,
+            Map.of("error", ex.getMessage()),
+            new HttpHeaders(),
+            HttpStatus.SERVICE_UNAVAILABLE,
+            request);
+    }
+    
     @ExceptionHandler(SecurityException.class)
     protected ResponseEntity<Object> handleSecurityException(SecurityException ex, WebRequest request) {
         return handleExceptionInternal(ex,
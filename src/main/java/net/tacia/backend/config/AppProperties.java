@@ -3,6 +3,8 @@ package net.tacia.backend.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+
 /**
  * Configuration properties for the application.
  * <p>
@@ -14,9 +16,21 @@ public class AppProperties {
     
     private Content content = new Content();
     private Cache cache = new Cache();
+    private Related related = new Related();
+    private Duplicates duplicates = new Duplicates();
 
     public static class Content {
         private String rootDirectory = "./content";
+        private String repository = "filesystem"; // 'filesystem' or 'indexed'
+        private boolean watch = true; // Watch the content directory for external changes
+        private int frontmatterMaxBytes = 64 * 1024; // Max bytes read from a markdown file to find its frontmatter
+        private int metadataCacheMaxEntries = 50_000; // Max number of files with cached parsed metadata
+        private long metadataCacheMaxBytes = 64L * 1024 * 1024; // Max estimated memory of cached parsed metadata
+        private int scanParallelism = 8; // Max threads reading the file system when walking the whole tree
+        private int batchParallelism = 8; // Max threads reading the items of batch requests
+        private int batchMaxPaths = 100; // Max paths in one batch request
+        private String snapshotFile; // Index snapshot loaded at startup (indexed repository only)
+        private Duration snapshotInterval = Duration.ofMinutes(5); // How often a changed index is saved
 
         public String getRootDirectory() {
             return rootDirectory;
@@ -25,11 +39,94 @@ public class AppProperties {
         public void setRootDirectory(String rootDirectory) {
             this.rootDirectory = rootDirectory;
         }
+
+        public String getRepository() {
+            return repository;
+        }
+
+        public void setRepository(String repository) {
+            this.repository = repository;
+        }
+
+        public boolean isWatch() {
+            return watch;
+        }
+
+        public void setWatch(boolean watch) {
+            this.watch = watch;
+        }
+
+        public int getFrontmatterMaxBytes() {
+            return frontmatterMaxBytes;
+        }
+
+        public void setFrontmatterMaxBytes(int frontmatterMaxBytes) {
+            this.frontmatterMaxBytes = frontmatterMaxBytes;
+        }
+
+        public int getMetadataCacheMaxEntries() {
+            return metadataCacheMaxEntries;
+        }
+
+        public void setMetadataCacheMaxEntries(int metadataCacheMaxEntries) {
+            this.metadataCacheMaxEntries = metadataCacheMaxEntries;
+        }
+
+        public long getMetadataCacheMaxBytes() {
+            return metadataCacheMaxBytes;
+        }
+
+        public void setMetadataCacheMaxBytes(long metadataCacheMaxBytes) {
+            this.metadataCacheMaxBytes = metadataCacheMaxBytes;
+        }
+
+        public int getScanParallelism() {
+            return scanParallelism;
+        }
+
+        public void setScanParallelism(int scanParallelism) {
+            this.scanParallelism = scanParallelism;
+        }
+
+        public int getBatchParallelism() {
+            return batchParallelism;
+        }
+
+        public void setBatchParallelism(int batchParallelism) {
+            this.batchParallelism = batchParallelism;
+        }
+
+        public int getBatchMaxPaths() {
+            return batchMaxPaths;
+        }
+
+        public void setBatchMaxPaths(int batchMaxPaths) {
+            this.batchMaxPaths = batchMaxPaths;
+        }
+
+        public String getSnapshotFile() {
+            return snapshotFile;
+        }
+
+        public void setSnapshotFile(String snapshotFile) {
+            this.snapshotFile = snapshotFile;
+        }
+
+        public Duration getSnapshotInterval() {
+            return snapshotInterval;
+        }
+
+        public void setSnapshotInterval(Duration snapshotInterval) {
+            this.snapshotInterval = snapshotInterval;
+        }
     }
 
     public static class Cache {
-        private long ttl = 3600; // 1 hour in seconds
-        private int maxSize = 1000;
+        private long ttl = 3600; // Seconds entries of the related documents, structure and content caches live, 0 for no expiry
+        private int maxSize = 1000; // Max entries of each of these caches
+        private long compressedMaxBytes = 32L * 1024 * 1024; // Max total size of cached gzip response bodies
+        private long htmlMaxBytes = 32L * 1024 * 1024; // Max estimated memory of documents rendered to HTML
+        private Duration coalescingTimeout = Duration.ofSeconds(30); // How long a request waits for the same computation of another one
 
         public long getTtl() {
             return ttl;
@@ -46,6 +143,72 @@ public class AppProperties {
         public void setMaxSize(int maxSize) {
             this.maxSize = maxSize;
         }
+
+        public long getCompressedMaxBytes() {
+            return compressedMaxBytes;
+        }
+
+        public void setCompressedMaxBytes(long compressedMaxBytes) {
+            this.compressedMaxBytes = compressedMaxBytes;
+        }
+
+        public long getHtmlMaxBytes() {
+            return htmlMaxBytes;
+        }
+
+        public void setHtmlMaxBytes(long htmlMaxBytes) {
+            this.htmlMaxBytes = htmlMaxBytes;
+        }
+
+        public Duration getCoalescingTimeout() {
+            return coalescingTimeout;
+        }
+
+        public void setCoalescingTimeout(Duration coalescingTimeout) {
+            this.coalescingTimeout = coalescingTimeout;
+        }
+    }
+
+    public static class Related {
+        private String engine = "path"; // 'path' (same directory), or opt in to 'tfidf' (text similarity), 'hnsw' (approximate text similarity) or 'tags' (shared tags)
+        private int maxNeighbours = 20; // Related documents precomputed for each document
+        private int dimensions = 256; // Size of the hashed document vectors (hnsw only)
+
+        public String getEngine() {
+            return engine;
+        }
+
+        public void setEngine(String engine) {
+            this.engine = engine;
+        }
+
+        public int getMaxNeighbours() {
+            return maxNeighbours;
+        }
+
+        public void setMaxNeighbours(int maxNeighbours) {
+            this.maxNeighbours = maxNeighbours;
+        }
+
+        public int getDimensions() {
+            return dimensions;
+        }
+
+        public void setDimensions(int dimensions) {
+            this.dimensions = dimensions;
+        }
+    }
+
+    public static class Duplicates {
+        private float threshold = 0.8f; // Min estimated share of common three-word sequences of near-duplicates
+
+        public float getThreshold() {
+            return threshold;
+        }
+
+        public void setThreshold(float threshold) {
+            this.threshold = threshold;
+        }
     }
 
     public Content getContent() {
@@ -63,4 +226,20 @@ public class AppProperties {
     public void setCache(Cache cache) {
         this.cache = cache;
     }
+
+    public Related getRelated() {
+        return related;
+    }
+
+    public void setRelated(Related related) {
+        this.related = related;
+    }
+
+    public Duplicates getDuplicates() {
+        return duplicates;
+    }
+
+    public void setDuplicates(Duplicates duplicates) {
+        this.duplicates = duplicates;
+    }
 }
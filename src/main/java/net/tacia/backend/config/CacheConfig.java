@@ -1,20 +1,25 @@
 package net.tacia.backend.config;
 
-import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
-import org.springframework.cache.CacheManager;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import net.tacia.backend.service.CompressedResponseCache;
+import net.tacia.backend.service.RenderedHtmlCache;
+import net.tacia.backend.service.RequestCoalescer;
+import net.tacia.backend.service.cache.BoundedCache;
+import net.tacia.backend.service.cache.BoundedCacheManager;
+import net.tacia.backend.service.markdown.MarkdownHtmlRenderer;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.Arrays;
-
 /**
  * Configuration class for cache management.
  * <p>
- * This class configures the caching mechanism used throughout the application.
- * It sets up a simple in-memory cache with default settings that can be
- * customized via application properties.
+ * This class configures the caching mechanism used throughout the application:
+ * in-memory caches bounded by {@code app.cache.max-size} entries with a time to live
+ * of {@code app.cache.ttl} seconds, the cache of compressed responses and the cache of
+ * documents rendered to HTML.
  */
 @Configuration
 @EnableCaching
@@ -25,35 +30,141 @@ public class CacheConfig {
     public static final String CONTENT_CACHE = "content";
 
     /**
-     * Configures the cache manager with default settings.
-     *
-     * @return CacheManagerCustomizer that applies the configuration
+     * Creates the related documents, document structure and content caches, each bounded by
+     * {@code app.cache.max-size} entries that expire {@code app.cache.ttl} seconds after they
+     * were written.
      */
     @Bean
-    public CacheManagerCustomizer<ConcurrentMapCacheManager> cacheManagerCustomizer() {
-        return cacheManager -> {
-            cacheManager.setCacheNames(Arrays.asList(
-                RELATED_DOCUMENTS_CACHE,
-                DOCUMENT_STRUCTURE_CACHE,
-                CONTENT_CACHE
-            ));
-            cacheManager.setAllowNullValues(false);
+    public BoundedCacheManager cacheManager(AppProperties appProperties) {
+        AppProperties.Cache properties = appProperties.getCache();
+        return new BoundedCacheManager(properties.getMaxSize(), properties.getTtl(),
+            RELATED_DOCUMENTS_CACHE,
+            DOCUMENT_STRUCTURE_CACHE,
+            CONTENT_CACHE
+        );
+    }
+
+    /**
+     * Exposes hit, miss, eviction and expiration counts and the size of each cache as metrics,
+     * tagged with the name of the cache.
+     */
+    @Bean
+    public MeterBinder boundedCacheMetrics(BoundedCacheManager cacheManager) {
+        return registry -> {
+            for (BoundedCache cache : cacheManager.getCaches()) {
+                FunctionCounter.builder("cache.gets", cache, BoundedCache::getHitCount)
+                    .tag("cache", cache.getName())
+                    .tag("result", "hit")
+                    .description("Lookups that found a value")
+                    .register(registry);
+                FunctionCounter.builder("cache.gets", cache, BoundedCache::getMissCount)
+                    .tag("cache", cache.getName())
+                    .tag("result", "miss")
+                    .description("Lookups that found no value")
+                    .register(registry);
+                FunctionCounter.builder("cache.evictions", cache, BoundedCache::getEvictionCount)
+                    .tag("cache", cache.getName())
+                    .description("Entries dropped or not admitted to stay within the maximum size")
+                    .register(registry);
+                FunctionCounter.builder("cache.expirations", cache, BoundedCache::getExpirationCount)
+                    .tag("cache", cache.getName())
+                    .register(registry);
+                Gauge.builder("cache.size", cache, BoundedCache::size)
+                    .tag("cache", cache.getName())
+                    .register(registry);
+            }
         };
     }
 
     /**
-     * Configures the cache manager with TTL (Time To Live) settings.
-     * This is a placeholder - in a production environment, consider using
-     * a more sophisticated cache provider like Caffeine or Redis.
-     *
-     * @return Configured CacheManager
+     * Cache of gzip compressed JSON responses, bounded by {@code app.cache.compressed-max-bytes}.
      */
     @Bean
-    public CacheManager cacheManager() {
-        return new ConcurrentMapCacheManager(
-            RELATED_DOCUMENTS_CACHE,
-            DOCUMENT_STRUCTURE_CACHE,
-            CONTENT_CACHE
-        );
+    public CompressedResponseCache compressedResponseCache(AppProperties appProperties) {
+        return new CompressedResponseCache(appProperties.getCache().getCompressedMaxBytes());
+    }
+
+    /**
+     * Exposes hit, miss and eviction counts of the compressed response cache as metrics.
+     */
+    @Bean
+    public MeterBinder compressedResponseCacheMetrics(CompressedResponseCache cache) {
+        return registry -> {
+            FunctionCounter.builder("content.compressed.cache.gets", cache, CompressedResponseCache::getHitCount)
+                .tag("result", "hit")
+                .description("Compressed responses served from the cache")
+                .register(registry);
+            FunctionCounter.builder("content.compressed.cache.gets", cache, CompressedResponseCache::getMissCount)
+                .tag("result", "miss")
+                .description("Responses that were serialized and compressed")
+                .register(registry);
+            FunctionCounter.builder("content.compressed.cache.evictions", cache, CompressedResponseCache::getEvictionCount)
+                .register(registry);
+            Gauge.builder("content.compressed.cache.size", cache, CompressedResponseCache::size)
+                .register(registry);
+            Gauge.builder("content.compressed.cache.weight", cache, CompressedResponseCache::getWeight)
+                .baseUnit("bytes")
+                .register(registry);
+        };
+    }
+
+    /**
+     * Cache of documents rendered to HTML, bounded by {@code app.cache.html-max-bytes}.
+     */
+    @Bean
+    public RenderedHtmlCache renderedHtmlCache(AppProperties appProperties) {
+        return new RenderedHtmlCache(new MarkdownHtmlRenderer(), appProperties.getCache().getHtmlMaxBytes());
+    }
+
+    /**
+     * Exposes hit, miss and eviction counts of the rendered HTML cache as metrics.
+     */
+    @Bean
+    public MeterBinder renderedHtmlCacheMetrics(RenderedHtmlCache cache) {
+        return registry -> {
+            FunctionCounter.builder("content.html.cache.gets", cache, RenderedHtmlCache::getHitCount)
+                .tag("result", "hit")
+                .description("Documents served from the cache of rendered HTML")
+                .register(registry);
+            FunctionCounter.builder("content.html.cache.gets", cache, RenderedHtmlCache::getMissCount)
+                .tag("result", "miss")
+                .description("Documents that were rendered to HTML")
+                .register(registry);
+            FunctionCounter.builder("content.html.cache.evictions", cache, RenderedHtmlCache::getEvictionCount)
+                .register(registry);
+            Gauge.builder("content.html.cache.size", cache, RenderedHtmlCache::size)
+                .register(registry);
+            Gauge.builder("content.html.cache.weight", cache, RenderedHtmlCache::getWeight)
+                .baseUnit("bytes")
+                .register(registry);
+        };
+    }
+
+    /**
+     * Shares the processing of a document or recursive listing between concurrent requests,
+     * each waiting at most {@code app.cache.coalescing-timeout}.
+     */
+    @Bean
+    public RequestCoalescer requestCoalescer(AppProperties appProperties) {
+        return new RequestCoalescer(appProperties.getCache().getCoalescingTimeout());
+    }
+
+    /**
+     * Exposes how many requests were served by the computation of another one as metrics.
+     */
+    @Bean
+    public MeterBinder requestCoalescerMetrics(RequestCoalescer coalescer) {
+        return registry -> {
+            FunctionCounter.builder("content.requests.computed", coalescer, RequestCoalescer::getComputationCount)
+                .description("Documents and recursive listings computed for a request")
+                .register(registry);
+            FunctionCounter.builder("content.requests.coalesced", coalescer, RequestCoalescer::getCoalescedCount)
+                .description("Requests that waited for the same computation of another request")
+                .register(registry);
+            FunctionCounter.builder("content.requests.coalescing.timeouts", coalescer, RequestCoalescer::getTimeoutCount)
+                .register(registry);
+            Gauge.builder("content.requests.in.flight", coalescer, RequestCoalescer::getInFlightCount)
+                .register(registry);
+        };
     }
 }
@@ -1,22 +1,178 @@
 package net.tacia.backend.config;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import net.tacia.backend.repository.ContentChangeListener;
 import net.tacia.backend.repository.ContentRepository;
+import net.tacia.backend.repository.ContentTreeScanner;
+import net.tacia.backend.repository.ContentWatcher;
 import net.tacia.backend.repository.FileSystemContentRepository;
+import net.tacia.backend.repository.FrontmatterReader;
+import net.tacia.backend.repository.IndexSnapshotScheduler;
+import net.tacia.backend.repository.IndexedContentRepository;
+import net.tacia.backend.repository.MetadataCache;
+import net.tacia.backend.service.BatchExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
 @Configuration
 public class ContentRepositoryConfig {
+    private static final Logger log = LoggerFactory.getLogger(ContentRepositoryConfig.class);
     
+    /**
+     * Creates the content repository selected by {@code app.content.repository}:
+     * {@code filesystem} (default) reads the content root on every lookup,
+     * {@code indexed} serves lookups from an in-memory tree built at startup.
+     */
     @Bean
-    public ContentRepository contentRepository() {
+    public ContentRepository contentRepository(AppProperties appProperties, MetadataCache metadataCache,
+                                               ContentTreeScanner contentTreeScanner) {
         String contentDir = ContentDirProvider.contentDir();
         if (contentDir == null) {
             throw new IllegalStateException("Content directory not set. Please specify --contentDir parameter or set CONTENT_ROOT environment variable.");
         }
-        return new FileSystemContentRepository(Paths.get(contentDir));
+        Path contentRoot = Paths.get(contentDir);
+        AppProperties.Content properties = appProperties.getContent();
+        String repositoryType = properties.getRepository();
+
+        FileSystemContentRepository fileSystemRepository = new FileSystemContentRepository(
+            contentRoot,
+            new FrontmatterReader(properties.getFrontmatterMaxBytes()),
+            metadataCache,
+            contentTreeScanner
+        );
+
+        if ("indexed".equalsIgnoreCase(repositoryType)) {
+            long start = System.currentTimeMillis();
+            Path snapshotFile = StringUtils.hasText(properties.getSnapshotFile())
+                ? Paths.get(properties.getSnapshotFile())
+                : null;
+            IndexedContentRepository repository = new IndexedContentRepository(fileSystemRepository, snapshotFile);
+            log.info("{} content directory in {} ms",
+                repository.isLoadedFromSnapshot() ? "Loaded index snapshot of" : "Indexed",
+                System.currentTimeMillis() - start);
+            return repository;
+        }
+        if (repositoryType == null || "filesystem".equalsIgnoreCase(repositoryType)) {
+            return fileSystemRepository;
+        }
+        throw new IllegalStateException("Unknown content repository type: " + repositoryType
+            + ". Supported values are 'filesystem' and 'indexed'.");
+    }
+
+    /**
+     * Reconciles the index loaded from {@code app.content.snapshot-file} with the content directory
+     * and keeps the snapshot up to date, every {@code app.content.snapshot-interval} and on shutdown.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "app.content.snapshot-file")
+    public IndexSnapshotScheduler indexSnapshotScheduler(ContentRepository contentRepository,
+                                                         AppProperties appProperties) {
+        if (!(contentRepository instanceof IndexedContentRepository indexedRepository)) {
+            throw new IllegalStateException("app.content.snapshot-file requires app.content.repository=indexed");
+        }
+        AppProperties.Content properties = appProperties.getContent();
+        IndexSnapshotScheduler scheduler = new IndexSnapshotScheduler(indexedRepository,
+            Paths.get(properties.getSnapshotFile()), properties.getSnapshotInterval());
+        scheduler.start();
+        return scheduler;
+    }
+
+    /**
+     * Pool walking the content tree, bounded by {@code app.content.scan-parallelism} threads.
+     */
+    @Bean(destroyMethod = "close")
+    public ContentTreeScanner contentTreeScanner(AppProperties appProperties) {
+        return new ContentTreeScanner(appProperties.getContent().getScanParallelism());
+    }
+
+    /**
+     * Cache of parsed frontmatter and .metadata files, bounded by
+     * {@code app.content.metadata-cache-max-entries} and {@code app.content.metadata-cache-max-bytes}.
+     */
+    @Bean
+    public MetadataCache metadataCache(AppProperties appProperties) {
+        AppProperties.Content properties = appProperties.getContent();
+        return new MetadataCache(properties.getMetadataCacheMaxEntries(), properties.getMetadataCacheMaxBytes());
+    }
+
+    /**
+     * Exposes hit, miss and eviction counts of the metadata cache as metrics.
+     */
+    @Bean
+    public MeterBinder metadataCacheMetrics(MetadataCache metadataCache) {
+        return registry -> {
+            FunctionCounter.builder("content.metadata.cache.gets", metadataCache, MetadataCache::getHitCount)
+                .tag("result", "hit")
+                .description("Metadata lookups served from the cache")
+                .register(registry);
+            FunctionCounter.builder("content.metadata.cache.gets", metadataCache, MetadataCache::getMissCount)
+                .tag("result", "miss")
+                .description("Metadata lookups that read and parsed the file")
+                .register(registry);
+            FunctionCounter.builder("content.metadata.cache.evictions", metadataCache, MetadataCache::getEvictionCount)
+                .register(registry);
+            Gauge.builder("content.metadata.cache.size", metadataCache, MetadataCache::size)
+                .register(registry);
+            Gauge.builder("content.metadata.cache.weight", metadataCache, MetadataCache::getWeight)
+                .baseUnit("bytes")
+                .register(registry);
+        };
+    }
+
+    /**
+     * Pool reading the items of batch requests, bounded by {@code app.content.batch-parallelism}
+     * threads and {@code app.content.batch-max-paths} items per batch.
+     */
+    @Bean(destroyMethod = "close")
+    public BatchExecutor batchExecutor(AppProperties appProperties) {
+        AppProperties.Content properties = appProperties.getContent();
+        return new BatchExecutor(properties.getBatchParallelism(), properties.getBatchMaxPaths());
+    }
+
+    /**
+     * Exposes the number of running and queued items of batch requests as metrics.
+     */
+    @Bean
+    public MeterBinder batchExecutorMetrics(BatchExecutor batchExecutor) {
+        return registry -> {
+            Gauge.builder("content.batch.active", batchExecutor, BatchExecutor::getActiveCount)
+                .description("Items of batch requests being read on the pool")
+                .register(registry);
+            Gauge.builder("content.batch.queued", batchExecutor, BatchExecutor::getQueuedCount)
+                .description("Items of batch requests waiting for a thread of the pool")
+                .register(registry);
+        };
+    }
+
+    /**
+     * Watches the content directory for changes made outside the application.
+     * Changes are applied to the repository first (if it keeps state about the content root)
+     * and then published as {@link net.tacia.backend.repository.ContentChangeEvent} application
+     * events. Disable with {@code app.content.watch=false}.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "app.content.watch", havingValue = "true", matchIfMissing = true)
+    public ContentWatcher contentWatcher(ContentRepository contentRepository,
+                                         ApplicationEventPublisher eventPublisher) throws IOException {
+        ContentWatcher watcher = new ContentWatcher(contentRepository.getAbsolutePath(""), event -> {
+            log.debug("Content changed: {}", event);
+            if (contentRepository instanceof ContentChangeListener listener) {
+                listener.onContentChange(event);
+            }
+            eventPublisher.publishEvent(event);
+        });
+        watcher.start();
+        return watcher;
     }
 }
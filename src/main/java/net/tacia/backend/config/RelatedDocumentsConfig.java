@@ -0,0 +1,68 @@
+package net.tacia.backend.config;
+
+import net.tacia.backend.repository.ContentRepository;
+import net.tacia.backend.service.RelatedDocumentsCache;
+import net.tacia.backend.service.RelatedDocumentsService;
+import net.tacia.backend.service.RequestCoalescer;
+import net.tacia.backend.service.SimpleRelatedDocumentsService;
+import net.tacia.backend.service.cache.BoundedCacheManager;
+import net.tacia.backend.service.related.HnswRelatedDocumentsService;
+import net.tacia.backend.service.related.TfIdfRelatedDocumentsService;
+import net.tacia.backend.service.search.SearchService;
+import net.tacia.backend.service.tags.TagRelatedDocumentsService;
+import net.tacia.backend.service.tags.TagService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RelatedDocumentsConfig {
+
+    /**
+     * Creates the related documents service selected by {@code app.related.engine}:
+     * {@code path} (default) ranks the documents of the same directory tree by their location.
+     * The other engines are opt-in:
+     * {@code tfidf} compares the text of documents and keeps the
+     * {@code app.related.max-neighbours} most similar ones of each document up to date,
+     * {@code hnsw} searches a graph of hashed document vectors of {@code app.related.dimensions}
+     * when requested, for corpora too large to compare all documents in advance,
+     * {@code tags} ranks the documents sharing the most frontmatter tags.
+     */
+    @Bean
+    public RelatedDocumentsService relatedDocumentsService(AppProperties appProperties,
+                                                           ContentRepository contentRepository,
+                                                           SearchService searchService,
+                                                           TagService tagService) {
+        AppProperties.Related properties = appProperties.getRelated();
+        String engine = properties.getEngine();
+        if (engine == null || "path".equalsIgnoreCase(engine)) {
+            return new SimpleRelatedDocumentsService(contentRepository);
+        }
+        if ("tfidf".equalsIgnoreCase(engine)) {
+            return new TfIdfRelatedDocumentsService(searchService, properties.getMaxNeighbours());
+        }
+        if ("hnsw".equalsIgnoreCase(engine)) {
+            return new HnswRelatedDocumentsService(searchService, properties.getDimensions());
+        }
+        if ("tags".equalsIgnoreCase(engine)) {
+            return new TagRelatedDocumentsService(tagService);
+        }
+        throw new IllegalStateException("Unknown related documents engine: " + engine
+            + ". Supported values are 'path', 'tfidf', 'hnsw' and 'tags'.");
+    }
+
+    /**
+     * Caches the results of the related documents service in the related documents cache, and
+     * drops them when the documents they depend on change. The {@code tfidf} and {@code tags}
+     * engines keep their results up to date themselves and are not cached.
+     */
+    @Bean
+    public RelatedDocumentsCache relatedDocumentsCache(RelatedDocumentsService relatedDocumentsService,
+                                                       BoundedCacheManager cacheManager,
+                                                       RequestCoalescer requestCoalescer,
+                                                       SearchService searchService) {
+        RelatedDocumentsCache cache = new RelatedDocumentsCache(relatedDocumentsService,
+            cacheManager.getCache(CacheConfig.RELATED_DOCUMENTS_CACHE), requestCoalescer);
+        searchService.addListener(cache);
+        return cache;
+    }
+}
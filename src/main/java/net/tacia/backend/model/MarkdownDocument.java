@@ -0,0 +1,17 @@
+package net.tacia.backend.model;
+
+/**
+ * The content of a markdown file together with its parsed form
+ */
+public record MarkdownDocument(
+    String content,         // The whole file, frontmatter included
+    ParsedDocument parsed   // Parsed from this content
+) {
+
+    /**
+     * The content without the frontmatter
+     */
+    public String body() {
+        return parsed.body(content);
+    }
+}
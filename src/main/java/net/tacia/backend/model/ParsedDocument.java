@@ -0,0 +1,87 @@
+package net.tacia.backend.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A markdown document as parsed once per file version: the frontmatter metadata, what is derived
+ * from it, and the structure of the body. Only offsets into the content are kept, not the content
+ * itself, so that parsed documents can be cached for every file.
+ */
+public record ParsedDocument(
+    Map<String, Object> metadata,  // Frontmatter properties, in order (unmodifiable)
+    Integer order,                 // Sort order from the frontmatter (optional)
+    String title,                  // Title from the frontmatter, else the first heading (optional)
+    List<Heading> headings,        // Headings of the body, or null when only the frontmatter was read
+    List<TocEntry> toc,            // Table of contents built from the headings, or null like them
+    int bodyStart,                 // Offset of the body (without frontmatter) in the content, or -1
+    int bodyEnd                    // Offset of the end of the body in the content, or -1
+) {
+
+    /**
+     * A heading of the body
+     * @param level Number of {@code #} characters
+     * @param text Text of the heading, trimmed and without links
+     * @param start Offset of the heading line in the body
+     * @param end Offset of the end of the heading text in the body
+     */
+    public record Heading(int level, String text, int start, int end) {
+    }
+
+    /**
+     * Whether the body was parsed, and not only the frontmatter
+     */
+    public boolean hasBody() {
+        return headings != null;
+    }
+
+    /**
+     * The body of the content this document was parsed from
+     */
+    public String body(String content) {
+        return content.substring(bodyStart, bodyEnd);
+    }
+
+    /**
+     * The entry of the table of contents with the given slug, at any depth
+     */
+    public Optional<TocEntry> section(String slug) {
+        return find(toc, slug);
+    }
+
+    private static Optional<TocEntry> find(List<TocEntry> entries, String slug) {
+        for (TocEntry entry : entries) {
+            if (entry.slug().equals(slug)) {
+                return Optional.of(entry);
+            }
+            Optional<TocEntry> child = find(entry.children(), slug);
+            if (child.isPresent()) {
+                return child;
+            }
+        }
+        return Optional.empty();
+    }
+
+    public List<String> headingTexts() {
+        List<String> texts = new ArrayList<>(headings.size());
+        for (Heading heading : headings) {
+            texts.add(heading.text());
+        }
+        return texts;
+    }
+
+    /**
+     * The frontmatter metadata with the title of the document, when the frontmatter has none
+     */
+    public Map<String, Object> metadataWithTitle() {
+        Map<String, Object> properties = new LinkedHashMap<>(metadata);
+        Object frontmatterTitle = metadata.get("title");
+        if ((frontmatterTitle == null || frontmatterTitle.toString().isEmpty()) && title != null) {
+            properties.put("title", title);
+        }
+        return properties;
+    }
+}
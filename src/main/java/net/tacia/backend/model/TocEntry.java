@@ -0,0 +1,18 @@
+package net.tacia.backend.model;
+
+import java.util.List;
+
+/**
+ * An entry of the table of contents of a document: a heading and the section it starts, up to
+ * the next heading of the same or a higher level. Offsets are in characters of the body, the
+ * document without frontmatter.
+ */
+public record TocEntry(
+    int level,               // Number of # characters of the heading
+    String text,             // Text of the heading
+    String slug,             // Anchor of the heading, unique in the document
+    int start,               // Offset of the heading line in the body
+    int end,                 // Offset of the end of the section in the body
+    List<TocEntry> children  // Entries of the subsections (unmodifiable)
+) {
+}
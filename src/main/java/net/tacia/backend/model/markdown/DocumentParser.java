@@ -0,0 +1,222 @@
+package net.tacia.backend.model.markdown;
+
+import net.tacia.backend.model.MarkdownDocument;
+import net.tacia.backend.model.ParsedDocument;
+import net.tacia.backend.model.TocEntry;
+import org.yaml.snakeyaml.Yaml;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses markdown documents into {@link ParsedDocument}s, with the same rules whether the whole
+ * document is read (for /api/content and search) or only its frontmatter (for listings, through
+ * {@code FrontmatterReader}, and for {@code .metadata} files):
+ * <ul>
+ *   <li>The frontmatter is read as YAML. If it is not a YAML mapping, it is read as
+ *   {@code key: value} lines, see {@link MarkdownScanner#parseProperties(String)}.</li>
+ *   <li>{@code tags} given as a string ({@code a, b} or {@code [a, b]}) become a list.</li>
+ *   <li>{@code order} is taken from a number or a string holding an integer.</li>
+ *   <li>The title is the {@code title} property, or else the first heading.</li>
+ *   <li>The table of contents nests each heading under the closest previous heading of a lower
+ *   level, with the anchors of {@link HeadingAnchors} as slugs. Heading lines inside fenced code
+ *   blocks are listed in {@code headings}, but are not rendered as headings and have no entry.</li>
+ * </ul>
+ */
+public final class DocumentParser {
+
+    // Yaml instances are not thread-safe
+    private static final ThreadLocal<Yaml> YAML = ThreadLocal.withInitial(Yaml::new);
+
+    private DocumentParser() {
+    }
+
+    public static MarkdownDocument read(String content) {
+        return new MarkdownDocument(content, parse(content));
+    }
+
+    /**
+     * Parses a whole document: frontmatter, headings and body
+     */
+    public static ParsedDocument parse(String content) {
+        MarkdownScanner.Result scanned = MarkdownScanner.scan(content);
+        Map<String, Object> metadata = scanned.hasFrontmatter() ? parseMetadata(scanned.frontmatter()) : Map.of();
+        List<ParsedDocument.Heading> headings = scanned.headings();
+        String title = title(metadata);
+        if (title == null && !headings.isEmpty()) {
+            title = headings.get(0).text();
+        }
+        return new ParsedDocument(metadata, order(metadata), title, headings,
+            toc(headings, content, scanned.bodyStart(), scanned.bodyEnd()), scanned.bodyStart(), scanned.bodyEnd());
+    }
+
+    /**
+     * Parses only the frontmatter of a document, or a {@code .metadata} file
+     * @param frontmatter The text between the frontmatter markers
+     * @return A document without headings and body offsets
+     */
+    public static ParsedDocument parseFrontmatter(String frontmatter) {
+        Map<String, Object> metadata = parseMetadata(frontmatter);
+        return new ParsedDocument(metadata, order(metadata), title(metadata), null, null, -1, -1);
+    }
+
+    /**
+     * Parses frontmatter into unmodifiable metadata, in order
+     */
+    public static Map<String, Object> parseMetadata(String frontmatter) {
+        if (frontmatter.isBlank()) {
+            return Map.of();
+        }
+        Map<String, Object> metadata;
+        Object parsed;
+        try {
+            parsed = YAML.get().load(frontmatter);
+        } catch (RuntimeException e) {
+            // Not YAML, read as key: value lines below
+            parsed = null;
+        }
+        if (parsed instanceof Map<?, ?> yaml) {
+            metadata = new LinkedHashMap<>();
+            yaml.forEach((key, value) -> metadata.put(String.valueOf(key), value));
+        } else {
+            metadata = MarkdownScanner.parseProperties(frontmatter);
+        }
+
+        // Special handling for tags if it's a string
+        if (metadata.get("tags") instanceof String tags) {
+            metadata.put("tags", splitTags(tags));
+        }
+        return Collections.unmodifiableMap(metadata);
+    }
+
+    /**
+     * Builds the table of contents of the headings outside fenced code blocks: a section ends
+     * where the next of them of the same or a higher level starts, or at the end of the body.
+     * Slugs are the anchors of all headings, which the rendered headings have as their id.
+     */
+    static List<TocEntry> toc(List<ParsedDocument.Heading> headings, String content, int bodyStart, int bodyEnd) {
+        List<String> anchors = HeadingAnchors.of(headings);
+        BitSet fenced = inFencedCode(headings, content, bodyStart, bodyEnd);
+        List<ParsedDocument.Heading> tocHeadings = new ArrayList<>(headings.size());
+        List<String> slugs = new ArrayList<>(headings.size());
+        for (int i = 0; i < headings.size(); i++) {
+            if (!fenced.get(i)) {
+                tocHeadings.add(headings.get(i));
+                slugs.add(anchors.get(i));
+            }
+        }
+        List<TocEntry> entries = new ArrayList<>();
+        tocEntries(tocHeadings, slugs, 0, 0, bodyEnd - bodyStart, entries);
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Finds the headings on lines of fenced code blocks: from a line of three or more backticks
+     * or tildes, indented by less than four spaces, to a line of at least as many of the same
+     * character or the end of the body, the way CommonMark reads them
+     * @return Indexes of those headings
+     */
+    private static BitSet inFencedCode(List<ParsedDocument.Heading> headings, String content, int bodyStart,
+                                       int bodyEnd) {
+        BitSet fenced = new BitSet();
+        char fence = 0;
+        int fenceLength = 0;
+        int next = 0;
+        int lineStart = bodyStart;
+        while (lineStart < bodyEnd && next < headings.size()) {
+            int lineEnd = lineStart;
+            while (lineEnd < bodyEnd && content.charAt(lineEnd) != '\n' && content.charAt(lineEnd) != '\r') {
+                lineEnd++;
+            }
+            while (next < headings.size() && bodyStart + headings.get(next).start() < lineEnd) {
+                if (fence != 0) {
+                    fenced.set(next);
+                }
+                next++;
+            }
+
+            int i = lineStart;
+            while (i < lineEnd && i - lineStart < 4 && content.charAt(i) == ' ') {
+                i++;
+            }
+            char c = i < lineEnd && i - lineStart < 4 ? content.charAt(i) : 0;
+            if (c == '`' || c == '~') {
+                int runEnd = i;
+                while (runEnd < lineEnd && content.charAt(runEnd) == c) {
+                    runEnd++;
+                }
+                int length = runEnd - i;
+                String rest = content.substring(runEnd, lineEnd);
+                if (fence == 0 && length >= 3 && (c == '~' || rest.indexOf('`') < 0)) {
+                    // The info string of a backtick fence cannot contain backticks
+                    fence = c;
+                    fenceLength = length;
+                } else if (c == fence && length >= fenceLength && rest.isBlank()) {
+                    fence = 0;
+                }
+            }
+
+            // Lines end with \n, \r\n or \r
+            lineStart = content.startsWith("\r\n", lineEnd) ? lineEnd + 2 : lineEnd + 1;
+        }
+        return fenced;
+    }
+
+    /**
+     * Adds the entries of the headings from {@code from} that are deeper than {@code parentLevel}
+     * @return Index of the first heading that is not
+     */
+    private static int tocEntries(List<ParsedDocument.Heading> headings, List<String> slugs, int from,
+                                  int parentLevel, int bodyLength, List<TocEntry> entries) {
+        int i = from;
+        while (i < headings.size() && headings.get(i).level() > parentLevel) {
+            ParsedDocument.Heading heading = headings.get(i);
+            List<TocEntry> children = new ArrayList<>();
+            int next = tocEntries(headings, slugs, i + 1, heading.level(), bodyLength, children);
+            int end = next < headings.size() ? headings.get(next).start() : bodyLength;
+            entries.add(new TocEntry(heading.level(), heading.text(), slugs.get(i), heading.start(), end,
+                Collections.unmodifiableList(children)));
+            i = next;
+        }
+        return i;
+    }
+
+    private static List<String> splitTags(String tags) {
+        String tagsStr = tags.trim();
+        if (tagsStr.startsWith("[") && tagsStr.endsWith("]")) {
+            tagsStr = tagsStr.substring(1, tagsStr.length() - 1);
+        }
+        List<String> tagList = new ArrayList<>();
+        for (String tag : tagsStr.split(",")) {
+            tag = tag.trim();
+            if (!tag.isEmpty()) {
+                tagList.add(tag);
+            }
+        }
+        return tagList;
+    }
+
+    private static Integer order(Map<String, Object> metadata) {
+        Object order = metadata.get("order");
+        if (order instanceof Number number) {
+            return number.intValue();
+        }
+        if (order instanceof String string) {
+            try {
+                return Integer.parseInt(string);
+            } catch (NumberFormatException e) {
+                // Ignore invalid order values
+            }
+        }
+        return null;
+    }
+
+    private static String title(Map<String, Object> metadata) {
+        Object title = metadata.get("title");
+        return title == null || title.toString().isEmpty() ? null : title.toString();
+    }
+}
@@ -0,0 +1,53 @@
+package net.tacia.backend.model.markdown;
+
+import net.tacia.backend.model.ParsedDocument.Heading;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Anchors of the headings of a document, the way GitHub makes them: the heading text in lower
+ * case, without punctuation, with spaces replaced by hyphens. Repeated anchors get a {@code -1},
+ * {@code -2}... suffix in document order.
+ */
+public final class HeadingAnchors {
+
+    private HeadingAnchors() {
+    }
+
+    /**
+     * The anchors of the headings, in the same order
+     */
+    public static List<String> of(List<Heading> headings) {
+        List<String> anchors = new ArrayList<>(headings.size());
+        Set<String> used = new HashSet<>();
+        for (Heading heading : headings) {
+            String slug = slug(heading.text());
+            String anchor = slug;
+            for (int n = 1; !used.add(anchor); n++) {
+                anchor = slug + "-" + n;
+            }
+            anchors.add(anchor);
+        }
+        return anchors;
+    }
+
+    /**
+     * The anchor of a heading text, before making it unique
+     */
+    public static String slug(String text) {
+        StringBuilder slug = new StringBuilder(text.length());
+        text.toLowerCase(Locale.ROOT).codePoints().forEach(c -> {
+            if (Character.isLetterOrDigit(c) || c == '-' || c == '_') {
+                slug.appendCodePoint(c);
+            } else if (c == ' ') {
+                slug.append('-');
+            }
+        });
+        // An empty id is not valid HTML
+        return slug.isEmpty() ? "section" : slug.toString();
+    }
+}
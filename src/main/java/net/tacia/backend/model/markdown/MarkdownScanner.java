@@ -0,0 +1,411 @@
+package net.tacia.backend.model.markdown;
+
+import net.tacia.backend.model.ParsedDocument.Heading;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the frontmatter, the body and the headings of a markdown document in one pass over its
+ * characters.
+ * <p>
+ * The rules are those of the regular expressions {@code MarkdownService} used before, down to
+ * their corner cases:
+ * <ul>
+ *   <li>The frontmatter starts with {@code ---} at the very beginning of the document, followed
+ *   by whitespace up to a line break, and ends at the first line starting with {@code ---}
+ *   followed by whitespace up to a line break or the end of the document. The body is what
+ *   follows, trimmed; without frontmatter, it is the whole document as is.</li>
+ *   <li>Headings are lines of the body starting with {@code #} characters and whitespace. Links
+ *   in their text are replaced by their label.</li>
+ * </ul>
+ * {@code FrontmatterReader}, which reads the frontmatter of a file without the body, follows the
+ * same rules. Frontmatter that is not a YAML mapping is read as {@code key: value} lines by
+ * {@link #parseProperties(String)}.
+ * <p>
+ * Nothing but the heading texts is allocated.
+ */
+public final class MarkdownScanner {
+
+    private MarkdownScanner() {
+    }
+
+    /**
+     * A scanned document
+     * @param source The whole document
+     * @param frontmatterStart Offset of the frontmatter in the document, or -1 if there is none
+     * @param frontmatterEnd Offset of the end of the frontmatter in the document, or -1
+     * @param bodyStart Offset of the body in the document
+     * @param bodyEnd Offset of the end of the body in the document
+     * @param headings Headings of the body, in order, with offsets in the body
+     */
+    public record Result(String source, int frontmatterStart, int frontmatterEnd,
+                         int bodyStart, int bodyEnd, List<Heading> headings) {
+
+        public boolean hasFrontmatter() {
+            return frontmatterStart >= 0;
+        }
+
+        /**
+         * The text between the frontmatter markers, or null if there is none
+         */
+        public String frontmatter() {
+            return hasFrontmatter() ? source.substring(frontmatterStart, frontmatterEnd) : null;
+        }
+
+        /**
+         * The document without the frontmatter
+         */
+        public String body() {
+            return source.substring(bodyStart, bodyEnd);
+        }
+    }
+
+    public static Result scan(String markdown) {
+        int length = markdown.length();
+        int frontmatterStart = -1;
+        int frontmatterEnd = -1;
+        int bodyStart = 0;
+        int bodyEnd = length;
+
+        int[] bounds = findFrontmatter(markdown);
+        if (bounds != null) {
+            frontmatterStart = bounds[0];
+            frontmatterEnd = bounds[1];
+            bodyStart = bounds[2];
+            while (bodyStart < length && markdown.charAt(bodyStart) <= ' ') {
+                bodyStart++;
+            }
+            while (bodyEnd > bodyStart && markdown.charAt(bodyEnd - 1) <= ' ') {
+                bodyEnd--;
+            }
+        }
+
+        return new Result(markdown, frontmatterStart, frontmatterEnd, bodyStart, bodyEnd,
+            scanHeadings(markdown, bodyStart, bodyEnd));
+    }
+
+    /**
+     * Parses frontmatter as {@code key: value} lines, where values are converted to booleans,
+     * {@code null}, integers, decimals or lists of strings ({@code [a, b]}). Empty lines and
+     * comments are skipped.
+     * @param frontmatter The text between the frontmatter markers
+     * @return The properties, in order
+     */
+    public static Map<String, Object> parseProperties(String frontmatter) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        parseFrontmatter(frontmatter, 0, frontmatter.length(), properties);
+        return properties;
+    }
+
+    /**
+     * Finds the frontmatter the way {@code ^---\s*\n(.*?)\n---\s*(\n.*)?\z} would: the opening
+     * line break is the last one of the whitespace after the opening {@code ---} for which there
+     * is a closing line
+     * @return Start and end of the frontmatter and offset after the closing {@code ---}, or null
+     */
+    private static int[] findFrontmatter(String s) {
+        if (!s.startsWith("---")) {
+            return null;
+        }
+        int afterSpace = skipSpace(s, 3, s.length());
+        int open = s.lastIndexOf('\n', afterSpace - 1);
+        if (open < 3) {
+            return null;
+        }
+        for (int close = s.indexOf("\n---", open + 1); close >= 0; close = s.indexOf("\n---", close + 1)) {
+            if (isClosing(s, close)) {
+                return new int[] {open + 1, close, close + 4};
+            }
+        }
+        // The opening whitespace may contain both line breaks of an empty frontmatter
+        if (open == afterSpace - 1 && isClosing(s, open)) {
+            int previous = s.lastIndexOf('\n', open - 1);
+            if (previous >= 3) {
+                return new int[] {previous + 1, open, open + 4};
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether the line break at the offset, followed by {@code ---}, closes the frontmatter
+     */
+    private static boolean isClosing(String s, int lineBreak) {
+        if (!s.startsWith("---", lineBreak + 1)) {
+            return false;
+        }
+        int end = skipSpace(s, lineBreak + 4, s.length());
+        return end == s.length() || indexOf(s, '\n', lineBreak + 4, end) >= 0;
+    }
+
+    private static void parseFrontmatter(String s, int start, int end, Map<String, Object> properties) {
+        int lineStart = start;
+        while (lineStart <= end) {
+            int lineEnd = indexOf(s, '\n', lineStart, end);
+            if (lineEnd < 0) {
+                lineEnd = end;
+            }
+            parseFrontmatterLine(s, lineStart, lineEnd, properties);
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    private static void parseFrontmatterLine(String s, int start, int end, Map<String, Object> properties) {
+        while (start < end && s.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && s.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end || s.charAt(start) == '#') {
+            return;
+        }
+        // The line pattern was multiline, so a key may also follow a line terminator other than \n
+        for (int segment = start; segment < end; ) {
+            int colon = segment;
+            while (colon < end && isKeyChar(s.charAt(colon))) {
+                colon++;
+            }
+            if (colon > segment && colon < end && s.charAt(colon) == ':') {
+                int valueStart = skipSpace(s, colon + 1, end);
+                int valueEnd = valueStart;
+                while (valueEnd < end && !isLineTerminator(s.charAt(valueEnd))) {
+                    valueEnd++;
+                }
+                while (valueStart < valueEnd && s.charAt(valueStart) <= ' ') {
+                    valueStart++;
+                }
+                while (valueEnd > valueStart && s.charAt(valueEnd - 1) <= ' ') {
+                    valueEnd--;
+                }
+                properties.put(s.substring(segment, colon), parseValue(s.substring(valueStart, valueEnd)));
+                return;
+            }
+            int terminator = segment;
+            while (terminator < end && !isLineTerminator(s.charAt(terminator))) {
+                terminator++;
+            }
+            segment = terminator + 1;
+        }
+    }
+
+    private static Object parseValue(String value) {
+        // Remove surrounding quotes if present
+        if (value.length() >= 2 && ((value.startsWith("\"") && value.endsWith("\"")) ||
+            (value.startsWith("'") && value.endsWith("'")))) {
+            value = value.substring(1, value.length() - 1);
+        }
+
+        if (value.equalsIgnoreCase("true")) {
+            return true;
+        } else if (value.equalsIgnoreCase("false")) {
+            return false;
+        } else if (value.equalsIgnoreCase("null") || value.isEmpty()) {
+            return null;
+        } else if (isNumber(value, false)) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                // Keep as string if parsing fails
+            }
+        } else if (isNumber(value, true)) {
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                // Keep as string if parsing fails
+            }
+        } else if (value.startsWith("[") && value.endsWith("]")) {
+            return parseList(value, 1, value.length() - 1);
+        }
+        return value;
+    }
+
+    /**
+     * Whether the value is {@code -?\d+}, or {@code -?\d+\.\d+} if decimal
+     */
+    private static boolean isNumber(String value, boolean decimal) {
+        int i = value.startsWith("-") ? 1 : 0;
+        int digits = 0;
+        boolean point = false;
+        for (; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            } else if (c == '.' && decimal && !point && digits > 0) {
+                point = true;
+                digits = 0;
+            } else {
+                return false;
+            }
+        }
+        return digits > 0 && point == decimal;
+    }
+
+    /**
+     * Items between the offsets, separated by commas, trimmed and without surrounding quotes
+     */
+    private static List<String> parseList(String value, int start, int end) {
+        List<String> items = new ArrayList<>();
+        int itemStart = start;
+        while (itemStart <= end) {
+            int itemEnd = value.indexOf(',', itemStart);
+            if (itemEnd < 0 || itemEnd > end) {
+                itemEnd = end;
+            }
+            String item = unquote(value.substring(itemStart, itemEnd).trim());
+            if (!item.isEmpty()) {
+                items.add(item);
+            }
+            itemStart = itemEnd + 1;
+        }
+        return items;
+    }
+
+    /**
+     * Removes a leading and a trailing quote as {@code replaceAll("^['\"]|['\"]$", "")} did; the
+     * trailing one may be followed by a final line terminator
+     */
+    private static String unquote(String item) {
+        int length = item.length();
+        if (length == 0) {
+            return item;
+        }
+        int start = isQuote(item.charAt(0)) ? 1 : 0;
+        int last = isLineTerminator(item.charAt(length - 1)) ? length - 2 : length - 1;
+        if (last >= start && isQuote(item.charAt(last))) {
+            return item.substring(start, last) + item.substring(last + 1);
+        }
+        return start == 0 ? item : item.substring(start);
+    }
+
+    /**
+     * Finds the headings the way the multiline pattern {@code ^#+\s+(.+)$} did, including
+     * whitespace that spans line breaks between the {@code #} characters and the text
+     */
+    private static List<Heading> scanHeadings(String s, int start, int end) {
+        List<Heading> headings = new ArrayList<>();
+        int line = start;
+        while (line < end) {
+            int next = line;
+            int hashes = line;
+            while (hashes < end && s.charAt(hashes) == '#') {
+                hashes++;
+            }
+            int space = skipSpace(s, hashes, end);
+            if (hashes > line && space > hashes) {
+                int textStart = -1;
+                if (space < end && !isLineTerminator(s.charAt(space))) {
+                    textStart = space;
+                } else {
+                    // The text must be at least one character, taken back from the whitespace
+                    for (int i = space - 1; i > hashes; i--) {
+                        if (!isLineTerminator(s.charAt(i))) {
+                            textStart = i;
+                            break;
+                        }
+                    }
+                }
+                if (textStart >= 0) {
+                    int textEnd = textStart;
+                    while (textEnd < end && !isLineTerminator(s.charAt(textEnd))) {
+                        textEnd++;
+                    }
+                    headings.add(new Heading(hashes - line, headingText(s, textStart, textEnd),
+                        line - start, textEnd - start));
+                    next = textEnd;
+                }
+            }
+            line = nextLineStart(s, next, end);
+        }
+        return headings;
+    }
+
+    /**
+     * Trimmed text with links replaced by their label, as
+     * {@code replaceAll("\\[(.*?)\\]\\(.*?\\)", "$1")} did
+     */
+    private static String headingText(String s, int start, int end) {
+        while (start < end && s.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && s.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int bracket = indexOf(s, '[', start, end);
+        if (bracket < 0) {
+            return s.substring(start, end);
+        }
+        StringBuilder text = new StringBuilder(end - start);
+        int copied = start;
+        while (bracket >= 0) {
+            int label = indexOf(s, ']', bracket + 1, end - 1);
+            while (label >= 0 && s.charAt(label + 1) != '(') {
+                label = indexOf(s, ']', label + 1, end - 1);
+            }
+            int close = label >= 0 ? indexOf(s, ')', label + 2, end) : -1;
+            if (close < 0) {
+                // A later bracket cannot match if this one does not
+                break;
+            }
+            text.append(s, copied, bracket).append(s, bracket + 1, label);
+            copied = close + 1;
+            bracket = indexOf(s, '[', copied, end);
+        }
+        return text.append(s, copied, end).toString();
+    }
+
+    /**
+     * Offset of the first line start after the offset, where {@code ^} matched in multiline mode,
+     * or the end
+     */
+    private static int nextLineStart(String s, int from, int end) {
+        for (int i = from + 1; i < end; i++) {
+            char previous = s.charAt(i - 1);
+            if (isLineTerminator(previous) && !(previous == '\r' && s.charAt(i) == '\n')) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static int indexOf(String s, char c, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipSpace(String s, int from, int end) {
+        while (from < end && isSpace(s.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * Characters of {@code \s}
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Characters that {@code .} does not match and that end a line for {@code ^} and {@code $}
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean isKeyChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '-';
+    }
+
+    private static boolean isQuote(char c) {
+        return c == '\'' || c == '"';
+    }
+}
@@ -0,0 +1,42 @@
+package net.tacia.backend.repository;
+
+/**
+ * Notification that something changed under the content root.
+ *
+ * @param path Content path of the changed entry, with a leading slash ("/" for the root)
+ * @param kind What happened to the entry
+ */
+public record ContentChangeEvent(String path, Kind kind) {
+
+    public enum Kind {
+        /** A file or directory was created */
+        CREATED,
+        /** A file was modified */
+        MODIFIED,
+        /** A file or directory was deleted */
+        DELETED,
+        /** Events were lost; the whole subtree at the path must be considered changed */
+        OVERFLOW
+    }
+
+    /**
+     * Checks whether the given content path is the changed entry, lies below it,
+     * or is one of its ancestor directories.
+     */
+    public boolean affects(String contentPath) {
+        String changed = trimSlashes(path);
+        String other = trimSlashes(contentPath);
+        return isSameOrBelow(changed, other) || isSameOrBelow(other, changed);
+    }
+
+    private static boolean isSameOrBelow(String ancestor, String path) {
+        return ancestor.isEmpty() || path.equals(ancestor) || path.startsWith(ancestor + "/");
+    }
+
+    private static String trimSlashes(String path) {
+        if (path == null) {
+            return "";
+        }
+        return path.replaceAll("^/+|/+$", "");
+    }
+}
@@ -0,0 +1,14 @@
+package net.tacia.backend.repository;
+
+/**
+ * Receives notifications about changes under the content root.
+ */
+@FunctionalInterface
+public interface ContentChangeListener {
+
+    /**
+     * Called after a file or directory under the content root changed
+     * @param event The change
+     */
+    void onContentChange(ContentChangeEvent event);
+}
@@ -0,0 +1,45 @@
+package net.tacia.backend.repository;
+
+import net.tacia.backend.model.ContentItem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of a directory listing.
+ *
+ * @param items the items of this page, in listing order
+ * @param next  cursor for the next page, or {@code null} if this is the last page
+ */
+public record ContentPage(List<ContentItem> items, ListingCursor next) {
+
+    /**
+     * Cuts a page out of a complete listing
+     * @param listing All items of the directory in listing order
+     * @param after Position to continue after, or {@code null} for the first page
+     * @param limit Maximum number of items
+     */
+    public static ContentPage of(List<ContentItem> listing, ListingCursor after, int limit) {
+        int from = 0;
+        if (after != null) {
+            // Binary search for the first item after the cursor
+            int low = 0;
+            int high = listing.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (after.isBefore(listing.get(mid))) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            from = low;
+        }
+        int to = Math.min(listing.size(), from + limit);
+        List<ContentItem> items = new ArrayList<>(listing.subList(from, to));
+        ListingCursor next = to < listing.size() && !items.isEmpty()
+            ? ListingCursor.after(items.get(items.size() - 1))
+            : null;
+        return new ContentPage(items, next);
+    }
+}
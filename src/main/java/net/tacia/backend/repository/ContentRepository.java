@@ -1,11 +1,13 @@
 package net.tacia.backend.repository;
 
 import net.tacia.backend.model.ContentItem;
+import net.tacia.backend.model.MarkdownDocument;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface ContentRepository {
     /**
@@ -17,7 +19,42 @@ public interface ContentRepository {
      * Get all direct children of the specified path
      */
     List<ContentItem> findChildren(String path);
-    
+
+    /**
+     * Get one page of the direct children of the specified path, in the same order as
+     * {@link #findChildren(String)}
+     * @param path The directory to list
+     * @param after Position to continue after (from a previous page), or {@code null} for the first page
+     * @param limit Maximum number of items in the page
+     * @return The page and the cursor for the next one
+     */
+    default ContentPage findChildren(String path, ListingCursor after, int limit) {
+        return ContentPage.of(findChildren(path), after, limit);
+    }
+
+    /**
+     * Get a version of the listing returned by {@link #findChildren(String)}, which changes
+     * whenever any listed entry is added, removed or modified
+     * @param path The directory to list
+     * @return Optional containing the version if the path is a directory, empty otherwise
+     */
+    default Optional<String> getListingVersion(String path) {
+        return findListing(path).map(DirectoryListing::version);
+    }
+
+    /**
+     * Get the listing returned by {@link #findChildren(String)} together with its version,
+     * reading the directory once. Callers that need both, e.g. for the ETag and the body of a
+     * response, use this rather than {@link #getListingVersion} and {@link #findChildren(String)}.
+     * @param path The directory to list
+     * @return Optional containing the listing if the path is a directory, empty otherwise
+     */
+    default Optional<DirectoryListing> findListing(String path) {
+        return findByPath(path)
+            .filter(item -> "directory".equals(item.type()))
+            .map(item -> DirectoryListing.of(findChildren(path)));
+    }
+
     /**
      * Get all descendants (recursive) of the specified path
      * @param path The parent path to search under
@@ -25,6 +62,16 @@ public interface ContentRepository {
      */
     List<ContentItem> findDescendants(String path);
 
+    /**
+     * Visit all descendants of the specified path, in the same order as {@link #findDescendants},
+     * without collecting them. Implementations keep memory proportional to the depth of the tree.
+     * @param path The parent path to search under
+     * @param visitor Called for every descendant content item
+     */
+    default void walkDescendants(String path, Consumer<ContentItem> visitor) {
+        findDescendants(path).forEach(visitor);
+    }
+
     /**
      * Save or update a content item
      */
@@ -66,6 +113,21 @@ public interface ContentRepository {
      * @return Optional containing the content as string if it exists, empty otherwise
      */
     Optional<String> getContent(String path);
+
+    /**
+     * Get the content for the given path with its parsed form, looked up like {@link #getContent}.
+     * The parse is cached per file version, and shared with the metadata of listings.
+     * @param path Path to the content
+     * @return Optional containing the document if it exists, empty otherwise
+     */
+    Optional<MarkdownDocument> readDocument(String path);
+
+    /**
+     * Get the file that {@link #getContent} reads for the given path, for streaming it without decoding
+     * @param path Path to the content
+     * @return Optional containing the file if it exists, empty otherwise
+     */
+    Optional<Path> getContentFile(String path);
     
     /**
      * Get all markdown files in the content directory
@@ -0,0 +1,196 @@
+package net.tacia.backend.repository;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
+
+/**
+ * Walks a file tree with a fork/join pool, fanning out per directory.
+ * <p>
+ * Results come back in exactly the order {@link Files#walkFileTree} would visit the entries:
+ * depth first, pre-order, each directory's entries in directory iteration order. Symbolic links
+ * are not followed. Entries whose attributes or contents cannot be read are skipped.
+ * <p>
+ * Reading attributes and mapping entries runs in parallel, so the mapping function may do I/O
+ * of its own (such as reading frontmatter) and must be thread-safe. Large directories are split
+ * into chunks so that they are processed in parallel too.
+ */
+public class ContentTreeScanner implements AutoCloseable {
+
+    /** Entries of a single directory handled by one task */
+    private static final int CHUNK_SIZE = 256;
+
+    private static final ContentTreeScanner COMMON = new ContentTreeScanner(ForkJoinPool.commonPool());
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a scanner with its own pool, shut down by {@link #close()}
+     * @param parallelism Maximum number of threads reading the file system at the same time
+     */
+    public ContentTreeScanner(int parallelism) {
+        this(new ForkJoinPool(parallelism));
+    }
+
+    private ContentTreeScanner(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Scanner that runs on the common fork/join pool.
+     */
+    public static ContentTreeScanner common() {
+        return COMMON;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Walks the tree at the given path, including the start path itself
+     * @param start File or directory to start at
+     * @param mapper Called for every entry; {@code null} results are left out
+     * @return Mapped entries in walk order, or an empty list if start cannot be read
+     */
+    public <T> List<T> scan(Path start, BiFunction<Path, BasicFileAttributes, T> mapper) {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(start, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            return new ArrayList<>();
+        }
+        if (!attrs.isDirectory()) {
+            List<T> result = new ArrayList<>(1);
+            addIfPresent(result, mapper.apply(start, attrs));
+            return result;
+        }
+        return pool.invoke(new DirectoryTask<>(start, attrs, mapper));
+    }
+
+    private static <T> void addIfPresent(List<T> list, T value) {
+        if (value != null) {
+            list.add(value);
+        }
+    }
+
+    /**
+     * Shuts down the pool of a scanner created with its own pool; scans still running are
+     * interrupted. The common scanner is left running.
+     */
+    @Override
+    public void close() {
+        if (pool != ForkJoinPool.commonPool()) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * An entry whose attributes have been read.
+     */
+    private record Visited<T>(Path path, BasicFileAttributes attrs, T mapped) {
+    }
+
+    /**
+     * Visits a directory and everything below it.
+     */
+    private static final class DirectoryTask<T> extends RecursiveTask<List<T>> {
+        private final Path dir;
+        private final BasicFileAttributes attrs;
+        private final BiFunction<Path, BasicFileAttributes, T> mapper;
+
+        DirectoryTask(Path dir, BasicFileAttributes attrs, BiFunction<Path, BasicFileAttributes, T> mapper) {
+            this.dir = dir;
+            this.attrs = attrs;
+            this.mapper = mapper;
+        }
+
+        @Override
+        protected List<T> compute() {
+            List<T> result = new ArrayList<>();
+            addIfPresent(result, mapper.apply(dir, attrs));
+
+            List<Path> entries = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path entry : stream) {
+                    entries.add(entry);
+                }
+            } catch (IOException e) {
+                // Skip directories we can't list
+                return result;
+            }
+
+            // Read attributes and map files in chunks, in parallel for large directories
+            List<Visited<T>> visited = new ArrayList<>(entries.size());
+            if (entries.size() <= CHUNK_SIZE) {
+                visited.addAll(new ChunkTask<>(entries, mapper).compute());
+            } else {
+                List<ChunkTask<T>> chunks = new ArrayList<>();
+                for (int from = 0; from < entries.size(); from += CHUNK_SIZE) {
+                    int to = Math.min(from + CHUNK_SIZE, entries.size());
+                    chunks.add(new ChunkTask<>(entries.subList(from, to), mapper));
+                }
+                for (ChunkTask<T> chunk : ForkJoinTask.invokeAll(chunks)) {
+                    visited.addAll(chunk.join());
+                }
+            }
+
+            // Fork all subdirectories, then assemble the results in walk order
+            List<DirectoryTask<T>> subdirectories = new ArrayList<>();
+            for (Visited<T> entry : visited) {
+                if (entry.attrs().isDirectory()) {
+                    DirectoryTask<T> task = new DirectoryTask<>(entry.path(), entry.attrs(), mapper);
+                    task.fork();
+                    subdirectories.add(task);
+                }
+            }
+            int next = 0;
+            for (Visited<T> entry : visited) {
+                if (entry.attrs().isDirectory()) {
+                    result.addAll(subdirectories.get(next++).join());
+                } else {
+                    addIfPresent(result, entry.mapped());
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Reads the attributes of a slice of directory entries and maps the files among them.
+     */
+    private static final class ChunkTask<T> extends RecursiveTask<List<Visited<T>>> {
+        private final List<Path> entries;
+        private final BiFunction<Path, BasicFileAttributes, T> mapper;
+
+        ChunkTask(List<Path> entries, BiFunction<Path, BasicFileAttributes, T> mapper) {
+            this.entries = entries;
+            this.mapper = mapper;
+        }
+
+        @Override
+        protected List<Visited<T>> compute() {
+            List<Visited<T>> visited = new ArrayList<>(entries.size());
+            for (Path entry : entries) {
+                try {
+                    BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class,
+                        LinkOption.NOFOLLOW_LINKS);
+                    T mapped = attrs.isDirectory() ? null : mapper.apply(entry, attrs);
+                    visited.add(new Visited<>(entry, attrs, mapped));
+                } catch (IOException e) {
+                    // Skip entries we can't read
+                }
+            }
+            return visited;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package net.tacia.backend.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches the content root for changes made outside the application (editors, git sync, ...).
+ * <p>
+ * Every directory under the root is registered with a {@link WatchService}; directories created
+ * later are registered as they appear. Events are delivered to a {@link ContentChangeListener}
+ * from a single background thread. Events that arrive together are de-duplicated before they are
+ * delivered. When the watch service reports an overflow, a single {@link ContentChangeEvent.Kind#OVERFLOW}
+ * event for the affected directory is delivered instead, so the listener can rescan that subtree.
+ * <p>
+ * Note that some network file systems do not report changes made on other hosts.
+ */
+public class ContentWatcher implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(ContentWatcher.class);
+
+    private final Path contentRoot;
+    private final ContentChangeListener listener;
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private WatchService watchService;
+    private Thread thread;
+
+    public ContentWatcher(Path contentRoot, ContentChangeListener listener) {
+        this.contentRoot = contentRoot.toAbsolutePath().normalize();
+        this.listener = listener;
+    }
+
+    /**
+     * Registers the content tree and starts delivering events.
+     */
+    public synchronized void start() throws IOException {
+        if (thread != null) {
+            return;
+        }
+        watchService = contentRoot.getFileSystem().newWatchService();
+        registerTree(contentRoot);
+        thread = new Thread(this::processEvents, "content-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Watching {} directories under {}", watchedDirectories.size(), contentRoot);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    /**
+     * Number of directories currently registered with the watch service.
+     */
+    public int getWatchedDirectoryCount() {
+        return watchedDirectories.size();
+    }
+
+    private void processEvents() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            // Collect everything that is already queued so bursts are delivered once
+            Set<ContentChangeEvent> events = new LinkedHashSet<>();
+            while (key != null) {
+                collectEvents(key, events);
+                try {
+                    key = watchService.poll();
+                } catch (ClosedWatchServiceException e) {
+                    return;
+                }
+            }
+
+            for (ContentChangeEvent event : events) {
+                try {
+                    listener.onContentChange(event);
+                } catch (Exception e) {
+                    log.error("Failed to handle content change {}", event, e);
+                }
+            }
+        }
+    }
+
+    private void collectEvents(WatchKey key, Set<ContentChangeEvent> events) {
+        Path dir = watchedDirectories.get(key);
+        if (dir == null) {
+            key.cancel();
+            return;
+        }
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            WatchEvent.Kind<?> kind = event.kind();
+
+            if (kind == OVERFLOW) {
+                // Events were lost: make sure new subdirectories are watched and rescan the subtree
+                registerTree(dir);
+                events.add(new ContentChangeEvent(toContentPath(dir), ContentChangeEvent.Kind.OVERFLOW));
+                continue;
+            }
+
+            Path child = dir.resolve((Path) event.context());
+            if (kind == ENTRY_CREATE) {
+                if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                    registerTree(child);
+                }
+                events.add(new ContentChangeEvent(toContentPath(child), ContentChangeEvent.Kind.CREATED));
+            } else if (kind == ENTRY_MODIFY) {
+                events.add(new ContentChangeEvent(toContentPath(child), ContentChangeEvent.Kind.MODIFIED));
+            } else if (kind == ENTRY_DELETE) {
+                events.add(new ContentChangeEvent(toContentPath(child), ContentChangeEvent.Kind.DELETED));
+            }
+        }
+
+        if (!key.reset()) {
+            // The directory is gone
+            watchedDirectories.remove(key);
+        }
+    }
+
+    /**
+     * Registers the given directory and all directories below it.
+     */
+    private void registerTree(Path start) {
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    try {
+                        WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                        watchedDirectories.put(key, dir);
+                        return FileVisitResult.CONTINUE;
+                    } catch (IOException e) {
+                        log.warn("Failed to watch {}: {}", dir, e.getMessage());
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    // Directory vanished or is not readable
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Failed to watch {}: {}", start, e.getMessage());
+        }
+    }
+
+    private String toContentPath(Path path) {
+        return "/" + contentRoot.relativize(path).toString().replace("\\", "/");
+    }
+}
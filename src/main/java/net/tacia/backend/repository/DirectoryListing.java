@@ -0,0 +1,63 @@
+package net.tacia.backend.repository;
+
+import net.tacia.backend.model.ContentItem;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The listing of a directory, as returned by {@link ContentRepository#findChildren(String)},
+ * together with its version (see {@link ContentRepository#getListingVersion}).
+ * <p>
+ * The directory is read at most once for both. Repositories that keep the version up to date
+ * create the items on first use, so a request that only needs the version, e.g. to answer
+ * 304 Not Modified, does not pay for them.
+ */
+public final class DirectoryListing {
+
+    private final String version;
+    private Supplier<List<ContentItem>> source;
+    private List<ContentItem> items;
+
+    private DirectoryListing(String version, List<ContentItem> items, Supplier<List<ContentItem>> source) {
+        this.version = version;
+        this.items = items;
+        this.source = source;
+    }
+
+    /**
+     * A listing that has already been read
+     * @param items The entries in listing order
+     */
+    public static DirectoryListing of(List<ContentItem> items) {
+        return new DirectoryListing(ListingVersions.of(items), items, null);
+    }
+
+    /**
+     * A listing whose items are created when they are first needed
+     * @param version Version of the listing the items are created from
+     * @param items Creates the entries in listing order, called at most once
+     */
+    public static DirectoryListing lazy(String version, Supplier<List<ContentItem>> items) {
+        return new DirectoryListing(version, null, items);
+    }
+
+    public String version() {
+        return version;
+    }
+
+    public synchronized List<ContentItem> items() {
+        if (items == null) {
+            items = source.get();
+            source = null;
+        }
+        return items;
+    }
+
+    /**
+     * Whether the items have been created, so that a page can be cut out of them for free
+     */
+    public synchronized boolean isRead() {
+        return items != null;
+    }
+}
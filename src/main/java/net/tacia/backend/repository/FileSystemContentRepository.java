@@ -1,7 +1,9 @@
 package net.tacia.backend.repository;
 
 import net.tacia.backend.model.ContentItem;
-import org.yaml.snakeyaml.Yaml;
+import net.tacia.backend.model.MarkdownDocument;
+import net.tacia.backend.model.ParsedDocument;
+import net.tacia.backend.model.markdown.DocumentParser;
 
 import java.io.IOException;
 import java.nio.file.*;
@@ -9,18 +11,46 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
 import java.util.*;
 import java.nio.file.StandardOpenOption;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.HashMap;
 
 public class FileSystemContentRepository implements ContentRepository {
-    private static final Pattern FRONTMATTER_PATTERN = Pattern.compile("^---\\s*\\n([\\s\\S]*?)\\n---");
     private static final Set<String> MARKDOWN_EXTENSIONS = Set.of(".md", ".markdown");
-    private final Yaml yaml = new Yaml();
+
+    /**
+     * Sort order of directory listings: by order (nulls last), then by type
+     * (directories first), then by name (case insensitive).
+     * See {@link ListingCursor} for positions in this order.
+     */
+    static final Comparator<ContentItem> CHILD_ORDER = (a, b) -> ListingCursor.compare(
+        a.order(), "directory".equals(a.type()), a.name(),
+        b.order(), "directory".equals(b.type()), b.name());
+
     private final Path contentRoot;
+    private final FrontmatterReader frontmatterReader;
+    private final MetadataCache metadataCache;
+    private final ContentTreeScanner treeScanner;
 
     public FileSystemContentRepository(Path contentRoot) {
+        this(contentRoot, new FrontmatterReader());
+    }
+
+    public FileSystemContentRepository(Path contentRoot, FrontmatterReader frontmatterReader) {
+        this(contentRoot, frontmatterReader, new MetadataCache());
+    }
+
+    public FileSystemContentRepository(Path contentRoot, FrontmatterReader frontmatterReader,
+                                       MetadataCache metadataCache) {
+        this(contentRoot, frontmatterReader, metadataCache, ContentTreeScanner.common());
+    }
+
+    public FileSystemContentRepository(Path contentRoot, FrontmatterReader frontmatterReader,
+                                       MetadataCache metadataCache, ContentTreeScanner treeScanner) {
         this.contentRoot = contentRoot.toAbsolutePath().normalize();
+        this.frontmatterReader = frontmatterReader;
+        this.metadataCache = metadataCache;
+        this.treeScanner = treeScanner;
         createDirectoriesIfNotExists(this.contentRoot);
     }
 
@@ -49,7 +79,7 @@ public class FileSystemContentRepository implements ContentRepository {
             if (Files.isDirectory(fullPath)) {
                 item = loadDirectoryMetadata(fullPath, item);
             } else if (isMarkdownFile(fullPath.getFileName().toString())) {
-                item = loadMarkdownMetadata(fullPath, item);
+                item = loadMarkdownMetadata(fullPath, attrs, item);
             }
             
             return Optional.of(item);
@@ -60,54 +90,71 @@ public class FileSystemContentRepository implements ContentRepository {
 
     @Override
     public List<ContentItem> findDescendants(String path) {
-        List<ContentItem> descendants = new ArrayList<>();
         Path startPath = resolvePath(path);
 
         if (!Files.exists(startPath)) {
-            return descendants;
+            return new ArrayList<>();
+        }
+
+        return treeScanner.scan(startPath, (entry, attrs) -> toDescendant(startPath, entry, attrs));
+    }
+
+    /**
+     * Walks the tree sequentially with {@link Files#walkFileTree}, which only keeps one open
+     * directory per level. Entries that cannot be read are skipped, as in findDescendants.
+     */
+    @Override
+    public void walkDescendants(String path, Consumer<ContentItem> visitor) {
+        Path startPath = resolvePath(path);
+
+        if (!Files.exists(startPath)) {
+            return;
         }
 
         try {
-            Files.walkFileTree(startPath, new SimpleFileVisitor<Path>() {
+            Files.walkFileTree(startPath, new SimpleFileVisitor<>() {
                 @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                    try {
-                        String relativePath = "/" + contentRoot.relativize(file).toString().replace("\\", "/");
-                        String name = getFileName(file);
-                        String type = "file";
-                        long size = attrs.size();
-                        Instant lastModified = attrs.lastModifiedTime().toInstant();
-
-                        descendants.add(new ContentItem(name, type, relativePath, size, lastModified, null, new HashMap<>()));
-                    } catch (Exception e) {
-                        // Skip files we can't process
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    ContentItem item = toDescendant(startPath, dir, attrs);
+                    if (item != null) {
+                        visitor.accept(item);
                     }
                     return FileVisitResult.CONTINUE;
                 }
 
                 @Override
-                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-                    if (!dir.equals(startPath)) { // Don't include the starting directory itself
-                        try {
-                            String relativePath = "/" + contentRoot.relativize(dir).toString().replace("\\", "/") + "/";
-                            String name = getFileName(dir);
-                            String type = "directory";
-                            long size = 0; // Directories don't have size
-                            Instant lastModified = attrs.lastModifiedTime().toInstant();
-
-                            descendants.add(new ContentItem(name, type, relativePath, size, lastModified, null, new HashMap<>()));
-                        } catch (Exception e) {
-                            // Skip directories we can't process
-                        }
-                    }
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    visitor.accept(toDescendant(startPath, file, attrs));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
                     return FileVisitResult.CONTINUE;
                 }
             });
         } catch (IOException e) {
-            throw new RuntimeException("Failed to walk directory tree: " + path, e);
+            throw new RuntimeException("Failed to walk directory: " + path, e);
         }
+    }
 
-        return descendants;
+    /**
+     * Item as returned by findDescendants, without order and metadata, or {@code null} for the
+     * directory the walk started at.
+     */
+    private ContentItem toDescendant(Path startPath, Path entry, BasicFileAttributes attrs) {
+        if (attrs.isDirectory()) {
+            if (entry.equals(startPath)) {
+                return null; // Don't include the starting directory itself
+            }
+            String relativePath = "/" + contentRoot.relativize(entry).toString().replace("\\", "/") + "/";
+            long size = 0; // Directories don't have size
+            return new ContentItem(getFileName(entry), "directory", relativePath, size,
+                attrs.lastModifiedTime().toInstant(), null, new HashMap<>());
+        }
+        String relativePath = "/" + contentRoot.relativize(entry).toString().replace("\\", "/");
+        return new ContentItem(getFileName(entry), "file", relativePath, attrs.size(),
+            attrs.lastModifiedTime().toInstant(), null, new HashMap<>());
     }
 
     @Override
@@ -173,7 +220,7 @@ public class FileSystemContentRepository implements ContentRepository {
                     if (isDirectory) {
                         item = loadDirectoryMetadata(childPath, item);
                     } else if (isMarkdownFile(name)) {
-                        item = loadMarkdownMetadata(childPath, item);
+                        item = loadMarkdownMetadata(childPath, attrs, item);
                     }
                     
                     // Skip .metadata files from the result
@@ -187,25 +234,7 @@ public class FileSystemContentRepository implements ContentRepository {
             }
             
             // Sort items by order (nulls last), then by type (directories first), then by name
-            children.sort((a, b) -> {
-                // First compare by order (nulls last)
-                if (a.order() != null && b.order() != null) {
-                    int orderCompare = Integer.compare(a.order(), b.order());
-                    if (orderCompare != 0) return orderCompare;
-                } else if (a.order() != null) {
-                    return -1;
-                } else if (b.order() != null) {
-                    return 1;
-                }
-                
-                // Then by type (directories first)
-                if (!a.type().equals(b.type())) {
-                    return a.type().equals("directory") ? -1 : 1;
-                }
-                
-                // Finally by name (case insensitive)
-                return a.name().compareToIgnoreCase(b.name());
-            });
+            children.sort(CHILD_ORDER);
                 
         } catch (IOException e) {
             throw new RuntimeException("Failed to list directory: " + path, e);
@@ -305,6 +334,52 @@ public class FileSystemContentRepository implements ContentRepository {
         }
     }
     
+    @Override
+    public Optional<MarkdownDocument> readDocument(String path) {
+        Optional<Path> file = getContentFile(path);
+        if (file.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            BasicFileAttributes before = Files.readAttributes(file.get(), BasicFileAttributes.class);
+            String content = Files.readString(file.get());
+            BasicFileAttributes after = Files.readAttributes(file.get(), BasicFileAttributes.class);
+
+            // Only a version read without a concurrent change is cached
+            boolean unchanged = before.size() == after.size()
+                && before.lastModifiedTime().equals(after.lastModifiedTime());
+            if (!unchanged) {
+                return Optional.of(DocumentParser.read(content));
+            }
+            Optional<ParsedDocument> cached = metadataCache.get(file.get(), after, true);
+            if (cached.isPresent()) {
+                return Optional.of(new MarkdownDocument(content, cached.get()));
+            }
+            ParsedDocument parsed = DocumentParser.parse(content);
+            metadataCache.put(file.get(), after, parsed, parsedLength(parsed));
+            return Optional.of(new MarkdownDocument(content, parsed));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read content: " + path, e);
+        }
+    }
+
+    @Override
+    public Optional<Path> getContentFile(String path) {
+        // Same lookup as getContent: with .md extension first, then as given
+        String normalizedPath = path;
+        if (normalizedPath.endsWith(".md")) {
+            normalizedPath = normalizedPath.substring(0, normalizedPath.length() - 3);
+        }
+        Path markdownFile = resolvePath(normalizedPath + ".md");
+        if (Files.isRegularFile(markdownFile)) {
+            return Optional.of(markdownFile);
+        }
+        Path file = resolvePath(normalizedPath);
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
     @Override
     public ContentItem saveContent(String path, String content) throws IOException {
         Path fullPath = resolvePath(path);
@@ -362,25 +437,19 @@ public class FileSystemContentRepository implements ContentRepository {
      * @return List of paths to markdown files
      */
     public List<String> getAllMarkdownFiles() {
-        List<String> markdownFiles = new ArrayList<>();
-        try {
-            Files.walkFileTree(contentRoot, new SimpleFileVisitor<Path>() {
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                    if (file.toString().toLowerCase().endsWith(".md")) {
-                        String relativePath = "/" + contentRoot.relativize(file).toString().replace("\\", "/");
-                        markdownFiles.add(relativePath);
-                    }
-                    return FileVisitResult.CONTINUE;
-                }
-            });
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to find markdown files", e);
-        }
-        return markdownFiles;
+        return treeScanner.scan(contentRoot, (file, attrs) -> {
+            if (!attrs.isDirectory() && file.toString().toLowerCase().endsWith(".md")) {
+                return "/" + contentRoot.relativize(file).toString().replace("\\", "/");
+            }
+            return null;
+        });
     }
 
-    private String getFileName(Path path) {
+    ContentTreeScanner getTreeScanner() {
+        return treeScanner;
+    }
+
+    String getFileName(Path path) {
         return path.getFileName() != null ? path.getFileName().toString() : "";
     }
     
@@ -395,7 +464,7 @@ public class FileSystemContentRepository implements ContentRepository {
     /**
      * Checks if a file is a markdown file based on its extension.
      */
-    private boolean isMarkdownFile(String filename) {
+    boolean isMarkdownFile(String filename) {
         if (filename == null) {
             return false;
         }
@@ -406,16 +475,20 @@ public class FileSystemContentRepository implements ContentRepository {
     /**
      * Loads metadata from a directory's .metadata file if it exists.
      */
-    private ContentItem loadDirectoryMetadata(Path dirPath, ContentItem item) {
+    ContentItem loadDirectoryMetadata(Path dirPath, ContentItem item) {
         Path metadataPath = dirPath.resolve(".metadata");
-        if (!Files.exists(metadataPath)) {
-            return item;
-        }
-        
         try {
+            BasicFileAttributes attrs = Files.readAttributes(metadataPath, BasicFileAttributes.class);
+            Optional<ParsedDocument> cached = metadataCache.get(metadataPath, attrs);
+            if (cached.isPresent()) {
+                return applyMetadataToItem(item, cached.get());
+            }
+
             String content = Files.readString(metadataPath);
-            Map<String, Object> metadata = parseMetadata(content);
-            return applyMetadataToItem(item, metadata);
+            return applyMetadataToItem(item, cacheFrontmatter(metadataPath, attrs, content));
+        } catch (NoSuchFileException e) {
+            // No .metadata file
+            return item;
         } catch (IOException e) {
             // If we can't read the metadata file, just return the original item
             return item;
@@ -424,132 +497,62 @@ public class FileSystemContentRepository implements ContentRepository {
     
     /**
      * Loads metadata from a markdown file's frontmatter.
+     * Only the frontmatter block is read, not the whole document.
      */
-    private ContentItem loadMarkdownMetadata(Path filePath, ContentItem item) {
+    ContentItem loadMarkdownMetadata(Path filePath, BasicFileAttributes attrs, ContentItem item) {
+        Optional<ParsedDocument> cached = metadataCache.get(filePath, attrs);
+        if (cached.isPresent()) {
+            return applyMetadataToItem(item, cached.get());
+        }
+
         try {
-            String content = Files.readString(filePath);
-            var matcher = FRONTMATTER_PATTERN.matcher(content);
-            
-            if (matcher.find()) {
-                String yamlContent = matcher.group(1);
-                Map<String, Object> metadata = parseMetadata(yamlContent);
-                return applyMetadataToItem(item, metadata);
-            }
-            return item;
+            Optional<String> frontmatter = frontmatterReader.read(filePath);
+            return applyMetadataToItem(item, cacheFrontmatter(filePath, attrs, frontmatter.orElse("")));
         } catch (IOException e) {
             // If we can't read the file, just return the original item
             return item;
         }
     }
-    
+
     /**
-     * Parses YAML metadata content into a Map.
+     * Parses frontmatter and stores the result in the metadata cache.
      */
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> parseMetadata(String content) {
-        try {
-            // Try to parse as YAML first
-            Object parsed = yaml.load(content);
-            if (parsed instanceof Map) {
-                return (Map<String, Object>) parsed;
-            }
-            
-            // Fallback to simple key:value parsing if YAML parsing fails
-            return parseSimpleKeyValue(content);
-        } catch (Exception e) {
-            // If YAML parsing fails, fall back to simple key:value parsing
-            return parseSimpleKeyValue(content);
-        }
+    private ParsedDocument cacheFrontmatter(Path file, BasicFileAttributes attrs, String frontmatter) {
+        ParsedDocument parsed = DocumentParser.parseFrontmatter(frontmatter);
+        metadataCache.put(file, attrs, parsed, frontmatter.length());
+        return parsed;
     }
-    
+
     /**
-     * Simple key:value parser as a fallback when YAML parsing fails.
+     * Length of the text a whole document's metadata, headings and table of contents were parsed
+     * from, for the cache weight: the frontmatter, and the heading texts and their slugs, not the
+     * body in between.
      */
-    private Map<String, Object> parseSimpleKeyValue(String content) {
-        Map<String, Object> result = new HashMap<>();
-        if (content == null || content.trim().isEmpty()) {
-            return result;
+    private static int parsedLength(ParsedDocument parsed) {
+        int length = parsed.bodyStart();
+        for (ParsedDocument.Heading heading : parsed.headings()) {
+            length += 2 * heading.text().length();
         }
-        
-        String[] lines = content.split("\n");
-        for (String line : lines) {
-            line = line.trim();
-            // Skip empty lines and comments
-            if (line.isEmpty() || line.startsWith("#")) {
-                continue;
-            }
-            
-            // Match key: value pattern
-            int colonIndex = line.indexOf(':');
-            if (colonIndex > 0) {
-                String key = line.substring(0, colonIndex).trim();
-                String value = line.substring(colonIndex + 1).trim();
-                
-                // Remove surrounding quotes if present
-                if ((value.startsWith("\"") && value.endsWith("\"")) || 
-                    (value.startsWith("'") && value.endsWith("'"))) {
-                    value = value.substring(1, value.length() - 1);
-                }
-                
-                // Try to parse values appropriately
-                Object parsedValue = value;
-                if ("true".equalsIgnoreCase(value)) {
-                    parsedValue = true;
-                } else if ("false".equalsIgnoreCase(value)) {
-                    parsedValue = false;
-                } else if ("null".equalsIgnoreCase(value) || value.isEmpty()) {
-                    parsedValue = null;
-                } else {
-                    try {
-                        // Try to parse as number
-                        if (value.contains(".")) {
-                            parsedValue = Double.parseDouble(value);
-                        } else {
-                            parsedValue = Long.parseLong(value);
-                        }
-                    } catch (NumberFormatException e) {
-                        // Not a number, keep as string
-                    }
-                }
-                
-                result.put(key, parsedValue);
-            }
-        }
-        
-        return result;
+        return length;
     }
-    
+
     /**
      * Applies metadata to a content item, setting order and other metadata fields.
      */
-    private ContentItem applyMetadataToItem(ContentItem item, Map<String, Object> metadata) {
-        if (metadata == null || metadata.isEmpty()) {
+    private ContentItem applyMetadataToItem(ContentItem item, ParsedDocument parsed) {
+        Map<String, Object> metadata = parsed.metadata();
+        if (metadata.isEmpty()) {
             return item;
         }
         
-        // Extract order if present
-        Integer order = null;
-        if (metadata.containsKey("order")) {
-            Object orderObj = metadata.get("order");
-            if (orderObj instanceof Number) {
-                order = ((Number) orderObj).intValue();
-            } else if (orderObj instanceof String) {
-                try {
-                    order = Integer.parseInt((String) orderObj);
-                } catch (NumberFormatException e) {
-                    // Ignore invalid order values
-                }
-            }
-        }
-        
         // Create a copy of metadata without special fields
         Map<String, Object> filteredMetadata = new HashMap<>(metadata);
         filteredMetadata.remove("order");
         
         // Apply updates
         ContentItem updatedItem = item;
-        if (order != null) {
-            updatedItem = updatedItem.withOrder(order);
+        if (parsed.order() != null) {
+            updatedItem = updatedItem.withOrder(parsed.order());
         }
         if (!filteredMetadata.isEmpty()) {
             updatedItem = updatedItem.withMetadata(filteredMetadata);
@@ -0,0 +1,198 @@
+package net.tacia.backend.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads the YAML frontmatter block at the start of a markdown file without reading the rest of it.
+ * <p>
+ * The file is streamed in small chunks and reading stops at the closing {@code ---} line, or once
+ * {@code maxBytes} bytes have been read. Frontmatter that does not end within that limit is ignored.
+ * The closing marker is {@code ---} at the start of a line, followed by whitespace up to a line
+ * break or the end of the file: the same rules as {@code MarkdownScanner} for whole documents, and
+ * the same result as matching {@code ^---\s*\n([\s\S]*?)\n---\s*(?:\n|\z)} against the whole file.
+ * <p>
+ * The markers and whitespace are plain ASCII, so the file is scanned as UTF-8 bytes and only the
+ * frontmatter block itself is decoded.
+ */
+public class FrontmatterReader {
+
+    /** Default limit for the number of bytes read from a single file */
+    public static final int DEFAULT_MAX_BYTES = 64 * 1024;
+
+    private static final int CHUNK_SIZE = 4096;
+
+    private final int maxBytes;
+    private final LongAdder bytesRead = new LongAdder();
+
+    public FrontmatterReader() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    public FrontmatterReader(int maxBytes) {
+        if (maxBytes < 8) {
+            throw new IllegalArgumentException("maxBytes must be at least 8: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Reads the frontmatter block of a file
+     * @param file Path to the markdown file
+     * @return The text between the opening and closing markers, or empty if there is none
+     * @throws IOException If the file cannot be read or the frontmatter is not valid UTF-8
+     */
+    public Optional<String> read(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads the frontmatter block from the start of a stream
+     * @param in Stream positioned at the start of the document
+     * @return The text between the opening and closing markers, or empty if there is none
+     * @throws IOException If the stream cannot be read or the frontmatter is not valid UTF-8
+     */
+    public Optional<String> read(InputStream in) throws IOException {
+        Buffer buffer = new Buffer(in);
+
+        if (!buffer.ensure(3) || buffer.get(0) != '-' || buffer.get(1) != '-' || buffer.get(2) != '-') {
+            return Optional.empty();
+        }
+
+        // Whitespace after the opening marker; remember the last two line breaks in it
+        int lastNewline = -1;
+        int previousNewline = -1;
+        int pos = 3;
+        while (buffer.ensure(pos + 1) && isWhitespace(buffer.get(pos))) {
+            if (buffer.get(pos) == '\n') {
+                previousNewline = lastNewline;
+                lastNewline = pos;
+            }
+            pos++;
+        }
+        if (lastNewline < 0) {
+            return Optional.empty();
+        }
+
+        // The block starts after the last line break and ends at the first closing marker
+        int start = lastNewline + 1;
+        for (int i = start; buffer.ensure(i + 4); i++) {
+            if (buffer.get(i) == '\n' && isClosing(buffer, i)) {
+                return Optional.of(buffer.decode(start, i));
+            }
+        }
+
+        // No closing marker after the last line break: with an empty line after the opening
+        // marker, that line break may itself start the closing marker
+        if (previousNewline >= 0 && isClosing(buffer, lastNewline)) {
+            return Optional.of(buffer.decode(previousNewline + 1, lastNewline));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Whether the line break at the index is followed by {@code ---} and whitespace up to a line
+     * break or the end of the file
+     */
+    private static boolean isClosing(Buffer buffer, int lineBreak) throws IOException {
+        if (!buffer.ensure(lineBreak + 4) || buffer.get(lineBreak + 1) != '-'
+            || buffer.get(lineBreak + 2) != '-' || buffer.get(lineBreak + 3) != '-') {
+            return false;
+        }
+        int pos = lineBreak + 4;
+        while (buffer.ensure(pos + 1)) {
+            byte b = buffer.get(pos++);
+            if (b == '\n') {
+                return true;
+            }
+            if (!isWhitespace(b)) {
+                return false;
+            }
+        }
+        return buffer.atEnd(pos);
+    }
+
+    /**
+     * Total number of bytes read from files by this reader
+     */
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Same characters as {@code \s} in java.util.regex.
+     */
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+    }
+
+    /**
+     * Growable byte buffer that pulls chunks from the stream on demand, up to maxBytes.
+     */
+    private final class Buffer {
+        private final InputStream in;
+        private byte[] data = new byte[Math.min(CHUNK_SIZE, maxBytes)];
+        private int length;
+        private boolean exhausted;
+        private boolean endOfStream;
+
+        Buffer(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * Makes sure at least {@code count} bytes are available
+         * @return false if the stream or the byte limit ends before that
+         */
+        boolean ensure(int count) throws IOException {
+            while (length < count && !exhausted) {
+                if (length == data.length) {
+                    if (length >= maxBytes) {
+                        exhausted = true;
+                        break;
+                    }
+                    data = Arrays.copyOf(data, Math.min(data.length * 2, maxBytes));
+                }
+                int read = in.read(data, length, Math.min(CHUNK_SIZE, data.length - length));
+                if (read < 0) {
+                    exhausted = true;
+                    endOfStream = true;
+                } else {
+                    length += read;
+                    bytesRead.add(read);
+                }
+            }
+            return length >= count;
+        }
+
+        /**
+         * Whether the stream ends at the index, rather than the byte limit
+         */
+        boolean atEnd(int index) throws IOException {
+            return !ensure(index + 1) && endOfStream;
+        }
+
+        byte get(int index) {
+            return data[index];
+        }
+
+        String decode(int from, int to) throws IOException {
+            return StandardCharsets.UTF_8.newDecoder()
+                .decode(ByteBuffer.wrap(data, from, to - from))
+                .toString();
+        }
+    }
+}
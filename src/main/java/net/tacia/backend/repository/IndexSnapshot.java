@@ -0,0 +1,374 @@
+package net.tacia.backend.repository;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of an index of the content root, used to skip the full scan on startup.
+ * <p>
+ * Layout: magic, format version, absolute content root, entry count, the entries in
+ * walk order (each parent before its children) and a CRC32 of everything before it.
+ * An entry holds the path relative to the content root, attributes, order and parsed
+ * metadata. Metadata values are stored with their YAML types (strings, numbers, booleans,
+ * dates, lists and maps); entries with other values are stored without metadata and
+ * flagged so they are re-read from disk.
+ * <p>
+ * Snapshots are written to a temporary file and moved into place, and read through a
+ * memory mapping. Snapshots that are truncated, corrupt, of another format version or
+ * of another content root are rejected with an {@link InvalidSnapshotException}.
+ */
+public final class IndexSnapshot {
+
+    private static final int MAGIC = 0x54434958; // "TCIX"
+    static final int VERSION = 2;
+
+    private static final int FLAG_DIRECTORY = 1;
+    private static final int FLAG_ORDER = 2;
+    private static final int FLAG_METADATA_OMITTED = 4;
+    private static final int FLAG_LINK = 8;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte BOOLEAN = 2;
+    private static final byte INTEGER = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte BIG_INTEGER = 6;
+    private static final byte BIG_DECIMAL = 7;
+    private static final byte DATE = 8;
+    private static final byte LIST = 9;
+    private static final byte SET = 10;
+    private static final byte MAP = 11;
+
+    /**
+     * A snapshot entry.
+     *
+     * @param key              path relative to the content root ("" for the root)
+     * @param metadataComplete false if the metadata could not be stored and must be re-read
+     * @param link             true for a symbolic link, whose attributes are those of the link itself
+     */
+    public record Entry(
+        String key,
+        boolean directory,
+        long size,
+        Instant lastModified,
+        Integer order,
+        Map<String, Object> metadata,
+        boolean metadataComplete,
+        boolean link
+    ) {
+    }
+
+    /**
+     * Thrown when a snapshot file exists but cannot be used.
+     */
+    public static class InvalidSnapshotException extends IOException {
+        public InvalidSnapshotException(String message) {
+            super(message);
+        }
+    }
+
+    private IndexSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot, replacing the file atomically where the file system supports it
+     * @param file Snapshot file
+     * @param contentRoot Content root the entries belong to
+     * @param entries Entries in walk order, starting with the root
+     */
+    public static void write(Path file, Path contentRoot, List<Entry> entries) throws IOException {
+        Path absolute = file.toAbsolutePath();
+        if (absolute.getParent() != null) {
+            Files.createDirectories(absolute.getParent());
+        }
+        Path temp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+
+        CRC32 crc = new CRC32();
+        try (OutputStream fileOut = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new CheckedOutputStream(fileOut, crc)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, rootOf(contentRoot));
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                writeEntry(out, entry);
+            }
+            out.flush();
+            out.writeLong(crc.getValue());
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        try {
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a snapshot
+     * @param file Snapshot file
+     * @param contentRoot Content root the snapshot must have been taken of
+     * @return Entries in walk order, starting with the root
+     * @throws java.nio.file.NoSuchFileException If there is no snapshot
+     * @throws InvalidSnapshotException If the snapshot is corrupt or cannot be used
+     */
+    public static List<Entry> read(Path file, Path contentRoot) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 4 + 4 + 8) {
+                throw new InvalidSnapshotException("Snapshot is truncated");
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new InvalidSnapshotException("Snapshot is too large to map: " + size + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (buffer.getInt(0) != MAGIC) {
+                throw new InvalidSnapshotException("Not an index snapshot");
+            }
+            int version = buffer.getInt(4);
+            if (version != VERSION) {
+                throw new InvalidSnapshotException("Unsupported snapshot version " + version + ", expected " + VERSION);
+            }
+            int checksumOffset = (int) size - 8;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(0).limit(checksumOffset));
+            if (crc.getValue() != buffer.getLong(checksumOffset)) {
+                throw new InvalidSnapshotException("Snapshot checksum mismatch");
+            }
+
+            ByteBuffer payload = buffer.duplicate().position(8).limit(checksumOffset);
+            return readPayload(payload, contentRoot);
+        }
+    }
+
+    private static List<Entry> readPayload(ByteBuffer in, Path contentRoot) throws InvalidSnapshotException {
+        try {
+            String root = readString(in);
+            if (!root.equals(rootOf(contentRoot))) {
+                throw new InvalidSnapshotException("Snapshot was taken of another content root: " + root);
+            }
+            int count = in.getInt();
+            if (count < 0) {
+                throw new InvalidSnapshotException("Invalid entry count " + count);
+            }
+            List<Entry> entries = new ArrayList<>(Math.min(count, in.remaining()));
+            for (int i = 0; i < count; i++) {
+                entries.add(readEntry(in));
+            }
+            if (in.hasRemaining()) {
+                throw new InvalidSnapshotException("Unexpected data after the last entry");
+            }
+            return entries;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new InvalidSnapshotException("Snapshot is corrupt: " + e);
+        }
+    }
+
+    private static String rootOf(Path contentRoot) {
+        return contentRoot.toAbsolutePath().normalize().toString();
+    }
+
+    private static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+        boolean storeMetadata = entry.metadataComplete() && isSupported(entry.metadata());
+        int flags = (entry.directory() ? FLAG_DIRECTORY : 0)
+            | (entry.order() != null ? FLAG_ORDER : 0)
+            | (storeMetadata ? 0 : FLAG_METADATA_OMITTED)
+            | (entry.link() ? FLAG_LINK : 0);
+
+        writeString(out, entry.key());
+        out.writeByte(flags);
+        out.writeLong(entry.size());
+        out.writeLong(entry.lastModified().getEpochSecond());
+        out.writeInt(entry.lastModified().getNano());
+        if (entry.order() != null) {
+            out.writeInt(entry.order());
+        }
+        writeValue(out, storeMetadata ? entry.metadata() : Map.of());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Entry readEntry(ByteBuffer in) throws InvalidSnapshotException {
+        String key = readString(in);
+        int flags = in.get();
+        long size = in.getLong();
+        Instant lastModified = Instant.ofEpochSecond(in.getLong(), in.getInt());
+        Integer order = (flags & FLAG_ORDER) != 0 ? in.getInt() : null;
+        Object metadata = readValue(in);
+        if (!(metadata instanceof Map)) {
+            throw new InvalidSnapshotException("Invalid metadata of " + key);
+        }
+        return new Entry(key, (flags & FLAG_DIRECTORY) != 0, size, lastModified, order,
+            (Map<String, Object>) metadata, (flags & FLAG_METADATA_OMITTED) == 0, (flags & FLAG_LINK) != 0);
+    }
+
+    private static boolean isSupported(Object value) {
+        if (value == null || value instanceof String || value instanceof Boolean || value instanceof Integer
+            || value instanceof Long || value instanceof Double || value instanceof BigInteger
+            || value instanceof BigDecimal || value instanceof Date) {
+            return true;
+        }
+        if (value instanceof List<?> list) {
+            return list.stream().allMatch(IndexSnapshot::isSupported);
+        }
+        if (value instanceof Set<?> set) {
+            return set.stream().allMatch(IndexSnapshot::isSupported);
+        }
+        if (value instanceof Map<?, ?> map) {
+            return map.entrySet().stream().allMatch(e -> isSupported(e.getKey()) && isSupported(e.getValue()));
+        }
+        return false;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String s) {
+            out.writeByte(STRING);
+            writeString(out, s);
+        } else if (value instanceof Boolean b) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean(b);
+        } else if (value instanceof Integer i) {
+            out.writeByte(INTEGER);
+            out.writeInt(i);
+        } else if (value instanceof Long l) {
+            out.writeByte(LONG);
+            out.writeLong(l);
+        } else if (value instanceof Double d) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(d);
+        } else if (value instanceof BigInteger b) {
+            out.writeByte(BIG_INTEGER);
+            writeString(out, b.toString());
+        } else if (value instanceof BigDecimal b) {
+            out.writeByte(BIG_DECIMAL);
+            writeString(out, b.toString());
+        } else if (value instanceof Date d) {
+            out.writeByte(DATE);
+            out.writeLong(d.getTime());
+        } else if (value instanceof List<?> list) {
+            out.writeByte(LIST);
+            out.writeInt(list.size());
+            for (Object element : list) {
+                writeValue(out, element);
+            }
+        } else if (value instanceof Set<?> set) {
+            out.writeByte(SET);
+            out.writeInt(set.size());
+            for (Object element : set) {
+                writeValue(out, element);
+            }
+        } else if (value instanceof Map<?, ?> map) {
+            out.writeByte(MAP);
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                writeValue(out, e.getKey());
+                writeValue(out, e.getValue());
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported metadata value: " + value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(ByteBuffer in) throws InvalidSnapshotException {
+        byte type = in.get();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case BOOLEAN:
+                return in.get() != 0;
+            case INTEGER:
+                return in.getInt();
+            case LONG:
+                return in.getLong();
+            case DOUBLE:
+                return in.getDouble();
+            case BIG_INTEGER:
+                return new BigInteger(readString(in));
+            case BIG_DECIMAL:
+                return new BigDecimal(readString(in));
+            case DATE:
+                return new Date(in.getLong());
+            case LIST: {
+                int size = readSize(in);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            case SET: {
+                int size = readSize(in);
+                Set<Object> set = new LinkedHashSet<>();
+                for (int i = 0; i < size; i++) {
+                    set.add(readValue(in));
+                }
+                return set;
+            }
+            case MAP: {
+                int size = readSize(in);
+                Map<Object, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    Object key = readValue(in);
+                    map.put(key, readValue(in));
+                }
+                return map;
+            }
+            default:
+                throw new InvalidSnapshotException("Unknown value type " + type);
+        }
+    }
+
+    private static int readSize(ByteBuffer in) throws InvalidSnapshotException {
+        int size = in.getInt();
+        if (size < 0 || size > in.remaining()) {
+            throw new InvalidSnapshotException("Invalid collection size " + size);
+        }
+        return size;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) throws InvalidSnapshotException {
+        int length = readSize(in);
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
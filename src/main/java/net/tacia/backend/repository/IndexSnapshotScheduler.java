@@ -0,0 +1,99 @@
+package net.tacia.backend.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the snapshot of an {@link IndexedContentRepository} up to date.
+ * <p>
+ * On {@link #start()} a tree loaded from a snapshot is reconciled with the content root in the
+ * background. After that the snapshot is rewritten periodically if the tree has changed, and
+ * once more on {@link #close()}.
+ */
+public class IndexSnapshotScheduler implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(IndexSnapshotScheduler.class);
+
+    private final IndexedContentRepository repository;
+    private final Path snapshotFile;
+    private final Duration interval;
+    private final ScheduledExecutorService executor;
+    private long writtenModificationCount = -1;
+
+    public IndexSnapshotScheduler(IndexedContentRepository repository, Path snapshotFile, Duration interval) {
+        this.repository = repository;
+        this.snapshotFile = snapshotFile;
+        this.interval = interval;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "index-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts reconciling (if needed) and the periodic snapshot writes.
+     */
+    public void start() {
+        if (repository.isLoadedFromSnapshot()) {
+            executor.execute(() -> {
+                long start = System.currentTimeMillis();
+                try {
+                    repository.reconcile();
+                    log.info("Reconciled index snapshot with content directory in {} ms",
+                        System.currentTimeMillis() - start);
+                } catch (RuntimeException e) {
+                    log.error("Failed to reconcile index snapshot, rescanning content directory", e);
+                    repository.refresh("/");
+                }
+            });
+        }
+        executor.execute(this::writeIfChanged);
+        long millis = interval.toMillis();
+        if (millis > 0) {
+            executor.scheduleWithFixedDelay(this::writeIfChanged, millis, millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the periodic writes and writes a final snapshot.
+     */
+    @Override
+    public void close() throws IOException {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Index snapshot task did not finish in time");
+                executor.shutdownNow();
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        writeIfChanged();
+    }
+
+    private synchronized void writeIfChanged() {
+        long modificationCount = repository.getModificationCount();
+        if (modificationCount == writtenModificationCount) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            int entries = repository.writeSnapshot(snapshotFile);
+            writtenModificationCount = modificationCount;
+            log.debug("Wrote index snapshot with {} entries to {} in {} ms", entries, snapshotFile,
+                System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to write index snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,833 @@
+package net.tacia.backend.repository;
+
+import net.tacia.backend.model.ContentItem;
+import net.tacia.backend.model.MarkdownDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Content repository that answers lookups from an in-memory tree of the content root.
+ * <p>
+ * The tree is built once when the repository is created. Attributes, order and metadata of
+ * every entry are loaded up front, so {@link #findByPath}, {@link #findChildren} and
+ * {@link #findDescendants} never touch the filesystem. Listings follow the same rules as
+ * {@link FileSystemContentRepository}, which is also used for reading file bodies and for
+ * writes. After a write the affected part of the tree is rescanned.
+ * <p>
+ * Changes made outside the application are picked up when they are reported through
+ * {@link #onContentChange}, typically by a {@link ContentWatcher}.
+ * <p>
+ * Symbolic links are not followed while scanning, which matches {@code findDescendants}
+ * of the filesystem implementation. Listings show a link with the attributes and metadata of
+ * its target, like {@code findChildren} of the filesystem implementation, and lookups of a link
+ * or of entries under a linked directory are answered by the filesystem implementation: they
+ * are not indexed, and changes made there are not watched.
+ * <p>
+ * The tree can be saved as an {@link IndexSnapshot} and loaded from one instead of scanning
+ * the content root. A tree loaded from a snapshot is served as is until {@link #reconcile()}
+ * has compared it with the content root.
+ */
+public class IndexedContentRepository implements ContentRepository, ContentChangeListener {
+    private static final Logger log = LoggerFactory.getLogger(IndexedContentRepository.class);
+
+    private final FileSystemContentRepository delegate;
+    private final Path contentRoot;
+
+    /** Indexed entries keyed by their path relative to the content root ("" for the root). */
+    private final Map<String, Node> nodes = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+
+    /** Entries loaded from a snapshot without their metadata, re-read by reconcile */
+    private final Set<String> unverified = ConcurrentHashMap.newKeySet();
+    private final boolean loadedFromSnapshot;
+    private volatile long modificationCount;
+
+    /**
+     * A single indexed file or directory.
+     *
+     * @param children keys of all entries of a directory in directory iteration order
+     * @param listing  the entries returned by findChildren
+     * @param link     whether the entry is a symbolic link, whose own attributes are kept here
+     * @param target   what the link points to, as listed with its parent directory, or
+     *                 {@code null} for a dangling link or an entry that is not a link
+     */
+    private record Node(
+        String name,
+        boolean directory,
+        long size,
+        Instant lastModified,
+        Integer order,
+        Map<String, Object> metadata,
+        List<String> children,
+        Listing listing,
+        boolean link,
+        Node target
+    ) {
+        Node withChildren(List<String> newChildren, Listing newListing) {
+            return new Node(name, directory, size, lastModified, order, metadata, newChildren, newListing, link, target);
+        }
+
+        /**
+         * The entry as findChildren lists it: the target of a link
+         */
+        Node resolved() {
+            return link ? target : this;
+        }
+    }
+
+    /**
+     * The listing of a directory.
+     *
+     * @param keys    keys of the listed entries, already sorted
+     * @param version version of the listing, see {@link ListingVersions}
+     */
+    private record Listing(List<String> keys, String version) {
+        static final Listing NONE = new Listing(List.of(), null);
+    }
+
+    public IndexedContentRepository(Path contentRoot) {
+        this(new FileSystemContentRepository(contentRoot));
+    }
+
+    public IndexedContentRepository(FileSystemContentRepository delegate) {
+        this(delegate, null);
+    }
+
+    /**
+     * Creates the tree from a snapshot if there is a usable one, and by scanning the content
+     * root otherwise. Snapshots that are corrupt or were written by another version are deleted.
+     *
+     * @param snapshotFile Snapshot to load, or {@code null} to always scan
+     */
+    public IndexedContentRepository(FileSystemContentRepository delegate, Path snapshotFile) {
+        this.delegate = delegate;
+        this.contentRoot = delegate.getAbsolutePath("");
+        synchronized (writeLock) {
+            loadedFromSnapshot = snapshotFile != null && loadSnapshot(snapshotFile);
+            if (!loadedFromSnapshot) {
+                scan(contentRoot, false);
+            }
+        }
+    }
+
+    /**
+     * Whether the tree was loaded from a snapshot rather than by scanning the content root.
+     */
+    public boolean isLoadedFromSnapshot() {
+        return loadedFromSnapshot;
+    }
+
+    /**
+     * Number of changes applied to the tree so far, used to skip writing unchanged snapshots.
+     */
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
+    @Override
+    public Optional<ContentItem> findByPath(String path) {
+        String key = keyOf(delegate.getAbsolutePath(path));
+        Node node = nodes.get(key);
+        if (isThroughLink(key, node)) {
+            return delegate.findByPath(path);
+        }
+        if (node == null) {
+            return Optional.empty();
+        }
+        return Optional.of(toItem(node, "/" + key + (node.directory() ? "/" : "")));
+    }
+
+    @Override
+    public List<ContentItem> findChildren(String path) {
+        String key = keyOf(delegate.getAbsolutePath(path));
+        Node dir = nodes.get(key);
+        if (isThroughLink(key, dir)) {
+            return delegate.findChildren(path);
+        }
+        if (dir == null || !dir.directory()) {
+            return new ArrayList<>();
+        }
+        return toChildItems(path, dir.listing().keys());
+    }
+
+    /**
+     * The version is kept up to date with the listing, so this does not touch the filesystem.
+     */
+    @Override
+    public Optional<String> getListingVersion(String path) {
+        String key = keyOf(delegate.getAbsolutePath(path));
+        Node dir = nodes.get(key);
+        if (isThroughLink(key, dir)) {
+            return delegate.getListingVersion(path);
+        }
+        if (dir == null || !dir.directory()) {
+            return Optional.empty();
+        }
+        return Optional.of(dir.listing().version());
+    }
+
+    /**
+     * The items are only created if they are used.
+     */
+    @Override
+    public Optional<DirectoryListing> findListing(String path) {
+        String key = keyOf(delegate.getAbsolutePath(path));
+        Node dir = nodes.get(key);
+        if (isThroughLink(key, dir)) {
+            return delegate.findListing(path);
+        }
+        if (dir == null || !dir.directory()) {
+            return Optional.empty();
+        }
+        Listing listing = dir.listing();
+        return Optional.of(DirectoryListing.lazy(listing.version(), () -> toChildItems(path, listing.keys())));
+    }
+
+    /**
+     * Pages through the already sorted listing: the start of the page is found with a binary
+     * search, so a page costs O(log n + limit) regardless of the size of the directory.
+     */
+    @Override
+    public ContentPage findChildren(String path, ListingCursor after, int limit) {
+        String key = keyOf(delegate.getAbsolutePath(path));
+        Node dir = nodes.get(key);
+        if (isThroughLink(key, dir)) {
+            return delegate.findChildren(path, after, limit);
+        }
+        if (dir == null || !dir.directory()) {
+            return new ContentPage(new ArrayList<>(), null);
+        }
+
+        List<String> listing = dir.listing().keys();
+        int from = 0;
+        if (after != null) {
+            int low = 0;
+            int high = listing.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                Node child = resolved(listing.get(mid));
+                // A child removed concurrently is treated as if it came before the cursor
+                if (child != null && ListingCursor.compare(after.order(), after.directory(), after.name(),
+                        child.order(), child.directory(), child.name()) < 0) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            from = low;
+        }
+        int to = Math.min(listing.size(), from + limit);
+
+        List<ContentItem> items = toChildItems(path, listing.subList(from, to));
+        ListingCursor next = to < listing.size() && !items.isEmpty()
+            ? ListingCursor.after(items.get(items.size() - 1))
+            : null;
+        return new ContentPage(items, next);
+    }
+
+    private List<ContentItem> toChildItems(String path, List<String> childKeys) {
+        List<ContentItem> children = new ArrayList<>(childKeys.size());
+
+        // Normalize the parent path the same way as the filesystem implementation
+        String parentPath = path;
+        if (parentPath.endsWith("/")) {
+            parentPath = parentPath.substring(0, parentPath.length() - 1);
+        }
+        if (parentPath.isEmpty()) {
+            parentPath = "/";
+        } else if (!parentPath.startsWith("/")) {
+            parentPath = "/" + parentPath;
+        }
+
+        for (String childKey : childKeys) {
+            Node child = resolved(childKey);
+            if (child == null) {
+                continue;
+            }
+            String childPath = parentPath.equals("/")
+                ? "/" + child.name()
+                : parentPath + "/" + child.name();
+            if (child.directory() && !childPath.endsWith("/")) {
+                childPath += "/";
+            }
+            children.add(toItem(child, childPath));
+        }
+        return children;
+    }
+
+    @Override
+    public List<ContentItem> findDescendants(String path) {
+        List<ContentItem> descendants = new ArrayList<>();
+        walkDescendants(path, descendants::add);
+        return descendants;
+    }
+
+    @Override
+    public void walkDescendants(String path, Consumer<ContentItem> visitor) {
+        String startKey = keyOf(delegate.getAbsolutePath(path));
+        Node start = nodes.get(startKey);
+        if (isThroughLink(startKey, start)) {
+            delegate.walkDescendants(path, visitor);
+            return;
+        }
+        if (start == null) {
+            return;
+        }
+        if (!start.directory()) {
+            visitor.accept(toPlainItem(startKey, start));
+            return;
+        }
+
+        // Depth-first, pre-order walk in directory iteration order (same as Files.walkFileTree)
+        Deque<Iterator<String>> stack = new ArrayDeque<>();
+        stack.push(start.children().iterator());
+        while (!stack.isEmpty()) {
+            Iterator<String> it = stack.peek();
+            if (!it.hasNext()) {
+                stack.pop();
+                continue;
+            }
+            String key = it.next();
+            Node node = nodes.get(key);
+            if (node == null) {
+                continue;
+            }
+            visitor.accept(toPlainItem(key, node));
+            if (node.directory()) {
+                stack.push(node.children().iterator());
+            }
+        }
+    }
+
+    @Override
+    public ContentItem save(ContentItem item, String content) {
+        ContentItem saved = delegate.save(item, content);
+        refresh(item.path());
+        return saved;
+    }
+
+    @Override
+    public boolean delete(String path) {
+        try {
+            return delegate.delete(path);
+        } finally {
+            refresh(path);
+        }
+    }
+
+    @Override
+    public boolean exists(String path) {
+        String key = keyOf(delegate.getAbsolutePath(path));
+        Node node = nodes.get(key);
+        return isThroughLink(key, node) ? delegate.exists(path) : node != null;
+    }
+
+    @Override
+    public Path getAbsolutePath(String path) {
+        return delegate.getAbsolutePath(path);
+    }
+
+    @Override
+    public String getRelativePath(Path path) {
+        return delegate.getRelativePath(path);
+    }
+
+    @Override
+    public String readContent(String path) throws IOException {
+        return delegate.readContent(path);
+    }
+
+    @Override
+    public Optional<String> getContent(String path) {
+        return delegate.getContent(path);
+    }
+
+    @Override
+    public Optional<Path> getContentFile(String path) {
+        return delegate.getContentFile(path);
+    }
+
+    @Override
+    public Optional<MarkdownDocument> readDocument(String path) {
+        return delegate.readDocument(path);
+    }
+
+    @Override
+    public List<String> getAllMarkdownFiles() {
+        List<String> markdownFiles = new ArrayList<>();
+        for (ContentItem item : findDescendants("")) {
+            if ("file".equals(item.type()) && item.name().toLowerCase().endsWith(".md")) {
+                markdownFiles.add(item.path());
+            }
+        }
+        return markdownFiles;
+    }
+
+    @Override
+    public ContentItem saveContent(String path, String content) throws IOException {
+        ContentItem saved = delegate.saveContent(path, content);
+        refresh(path);
+        return saved;
+    }
+
+    /**
+     * Updates the tree for a change reported by the file watcher. Created, modified and deleted
+     * entries are rescanned individually; on overflow the whole subtree is rescanned.
+     */
+    @Override
+    public void onContentChange(ContentChangeEvent event) {
+        refresh(event.path());
+    }
+
+    /**
+     * Rescans the entry at the given content path and updates its parent directory.
+     * Missing parent directories are indexed as well, and entries that no longer exist
+     * on disk are dropped from the tree. Lookups are served from the previous entries until
+     * the rescanned ones replace them, so an entry that exists is never missing meanwhile.
+     *
+     * @param path Content path of the changed file or directory
+     */
+    public void refresh(String path) {
+        String requestedKey = keyOf(delegate.getAbsolutePath(path));
+        synchronized (writeLock) {
+            // Entries under a linked directory are not indexed, the link is rescanned instead
+            String link = linkAbove(requestedKey);
+            String key = link != null ? link : requestedKey;
+            if (key.isEmpty()) {
+                // Rescan everything, then drop whatever is gone
+                Set<String> indexed = scan(contentRoot, false);
+                nodes.keySet().retainAll(indexed);
+                modificationCount++;
+                return;
+            }
+
+            // Start at the topmost ancestor that is not indexed yet
+            String target = key;
+            while (!nodes.containsKey(parentKey(target))) {
+                target = parentKey(target);
+            }
+
+            Set<String> stale = new HashSet<>();
+            collectSubtree(target, stale);
+            Path targetPath = contentRoot.resolve(target);
+            if (Files.exists(targetPath, LinkOption.NOFOLLOW_LINKS)) {
+                stale.removeAll(scan(targetPath, false));
+            }
+            updateDirectory(parentKey(target));
+            nodes.keySet().removeAll(stale);
+            modificationCount++;
+        }
+    }
+
+    /**
+     * Brings a tree loaded from a snapshot up to date with the content root. Files whose size
+     * and last modified time are unchanged keep their indexed metadata; everything else is
+     * re-read, and entries that no longer exist are dropped. Lookups are served from the
+     * previous tree until the new one is complete.
+     */
+    public void reconcile() {
+        synchronized (writeLock) {
+            Set<String> indexed = scan(contentRoot, true);
+            nodes.keySet().retainAll(indexed);
+            unverified.clear();
+            modificationCount++;
+        }
+    }
+
+    /**
+     * Writes the current tree to a snapshot file.
+     *
+     * @return Number of entries written
+     */
+    public int writeSnapshot(Path snapshotFile) throws IOException {
+        List<IndexSnapshot.Entry> entries = new ArrayList<>();
+        synchronized (writeLock) {
+            Node root = nodes.get("");
+            if (root == null) {
+                return 0;
+            }
+            entries.add(toSnapshotEntry("", root));
+
+            // Walk order, so that every directory is written before its entries
+            Deque<Iterator<String>> stack = new ArrayDeque<>();
+            stack.push(root.children().iterator());
+            while (!stack.isEmpty()) {
+                Iterator<String> it = stack.peek();
+                if (!it.hasNext()) {
+                    stack.pop();
+                    continue;
+                }
+                String key = it.next();
+                Node node = nodes.get(key);
+                if (node == null) {
+                    continue;
+                }
+                entries.add(toSnapshotEntry(key, node));
+                if (node.directory()) {
+                    stack.push(node.children().iterator());
+                }
+            }
+        }
+        IndexSnapshot.write(snapshotFile, contentRoot, entries);
+        return entries.size();
+    }
+
+    private IndexSnapshot.Entry toSnapshotEntry(String key, Node node) {
+        return new IndexSnapshot.Entry(key, node.directory(), node.size(), node.lastModified(), node.order(),
+            node.metadata(), !unverified.contains(key), node.link());
+    }
+
+    /**
+     * Replaces the tree with the one in a snapshot. Returns false, leaving the tree empty, if
+     * there is no usable snapshot.
+     */
+    private boolean loadSnapshot(Path snapshotFile) {
+        List<IndexSnapshot.Entry> entries;
+        try {
+            entries = IndexSnapshot.read(snapshotFile, contentRoot);
+        } catch (NoSuchFileException e) {
+            log.info("No index snapshot at {}, scanning {}", snapshotFile, contentRoot);
+            return false;
+        } catch (IOException e) {
+            log.warn("Discarding index snapshot {}: {}", snapshotFile, e.getMessage());
+            try {
+                Files.deleteIfExists(snapshotFile);
+            } catch (IOException deleteFailed) {
+                log.warn("Failed to delete index snapshot {}: {}", snapshotFile, deleteFailed.getMessage());
+            }
+            return false;
+        }
+
+        if (entries.isEmpty() || !entries.get(0).key().isEmpty() || !entries.get(0).directory()) {
+            log.warn("Discarding index snapshot {}: it does not start with the content root", snapshotFile);
+            return false;
+        }
+        Set<String> seen = new HashSet<>();
+        List<Map.Entry<String, Node>> loaded = new ArrayList<>(entries.size());
+        for (IndexSnapshot.Entry entry : entries) {
+            String key = entry.key();
+            if (!key.isEmpty() && !seen.contains(parentKey(key)) || !seen.add(key)) {
+                log.warn("Discarding index snapshot {}: entries out of order at {}", snapshotFile, key);
+                return false;
+            }
+            if (!entry.metadataComplete()) {
+                unverified.add(key);
+            }
+            if (entry.link()) {
+                // What the link points to is not part of the snapshot
+                loaded.add(Map.entry(key, createLinkNode(contentRoot.resolve(key), entry.size(), entry.lastModified())));
+                continue;
+            }
+            int slash = key.lastIndexOf('/');
+            String name = key.isEmpty() ? delegate.getFileName(contentRoot) : key.substring(slash + 1);
+            loaded.add(Map.entry(key, new Node(name, entry.directory(), entry.size(), entry.lastModified(),
+                entry.order(), Collections.unmodifiableMap(entry.metadata()), List.of(), Listing.NONE, false, null)));
+        }
+        publish(loaded);
+        return true;
+    }
+
+    /**
+     * Re-reads the attributes, metadata and entries of an indexed directory. Entries that
+     * appeared on disk are scanned, vanished ones are removed.
+     */
+    private void updateDirectory(String dirKey) {
+        Path dirPath = contentRoot.resolve(dirKey);
+        if (!Files.isDirectory(dirPath, LinkOption.NOFOLLOW_LINKS)) {
+            refresh("/" + dirKey);
+            return;
+        }
+
+        List<String> children = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dirPath)) {
+            for (Path child : stream) {
+                String childKey = keyOf(child);
+                if (!nodes.containsKey(childKey)) {
+                    scan(child, false);
+                }
+                children.add(childKey);
+            }
+            BasicFileAttributes attrs = Files.readAttributes(dirPath, BasicFileAttributes.class,
+                LinkOption.NOFOLLOW_LINKS);
+            Node old = nodes.put(dirKey, createNode(dirPath, attrs, children));
+
+            // Dropped once the directory no longer lists them
+            if (old != null) {
+                Set<String> current = new HashSet<>(children);
+                for (String oldChild : old.children()) {
+                    if (!current.contains(oldChild)) {
+                        removeSubtree(oldChild);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to index directory: " + dirPath, e);
+        }
+
+        // The directory's own order or metadata may have changed
+        if (!dirKey.isEmpty()) {
+            resort(parentKey(dirKey));
+        }
+    }
+
+    /**
+     * Indexes the file or directory tree at the given path. Entries are read and their metadata
+     * loaded in parallel; the finished nodes are published once the whole subtree is ready.
+     *
+     * @param reuseUnchanged Keep the indexed metadata of files whose size and last modified
+     *                       time have not changed instead of reading it again
+     * @return Keys of all entries that were indexed
+     */
+    private Set<String> scan(Path start, boolean reuseUnchanged) {
+        List<Map.Entry<String, Node>> scanned = delegate.getTreeScanner().scan(start, (path, attrs) -> {
+            String key = keyOf(path);
+            // Links are always re-read: what they point to may have changed
+            if (reuseUnchanged && !attrs.isDirectory() && !attrs.isSymbolicLink() && !unverified.contains(key)) {
+                Node indexed = nodes.get(key);
+                if (indexed != null && !indexed.directory() && indexed.size() == attrs.size()
+                    && indexed.lastModified().equals(attrs.lastModifiedTime().toInstant())) {
+                    return Map.entry(key, indexed);
+                }
+            }
+            return Map.entry(key, createNode(path, attrs, List.of()));
+        });
+        return publish(scanned);
+    }
+
+    /**
+     * Links the children of freshly created nodes and publishes them
+     *
+     * @param scanned Nodes of a subtree in walk order, starting with the root of the subtree
+     * @return Keys of the published nodes
+     */
+    private Set<String> publish(List<Map.Entry<String, Node>> scanned) {
+        if (scanned.isEmpty()) {
+            return Set.of();
+        }
+
+        // Walk order is pre-order, so appending to the parent keeps directory iteration order
+        Map<String, List<String>> childrenByDirectory = new HashMap<>();
+        String startKey = scanned.get(0).getKey();
+        for (Map.Entry<String, Node> entry : scanned) {
+            if (!entry.getKey().equals(startKey)) {
+                childrenByDirectory.computeIfAbsent(parentKey(entry.getKey()), k -> new ArrayList<>())
+                    .add(entry.getKey());
+            }
+        }
+
+        Map<String, Node> subtree = new HashMap<>();
+        for (Map.Entry<String, Node> entry : scanned) {
+            List<String> children = childrenByDirectory.getOrDefault(entry.getKey(), List.of());
+            subtree.put(entry.getKey(), entry.getValue().withChildren(List.copyOf(children), Listing.NONE));
+        }
+        for (Map.Entry<String, Node> entry : subtree.entrySet()) {
+            Node node = entry.getValue();
+            if (node.directory()) {
+                entry.setValue(node.withChildren(node.children(), sortListing(node.children(), subtree::get)));
+            }
+        }
+
+        // Entries before their directories, so that a directory never lists an entry that is not published yet
+        for (int i = scanned.size() - 1; i >= 0; i--) {
+            String key = scanned.get(i).getKey();
+            nodes.put(key, subtree.get(key));
+        }
+        return subtree.keySet();
+    }
+
+    /**
+     * Creates a node with its metadata loaded. The children of a directory must already be indexed.
+     */
+    private Node createNode(Path path, BasicFileAttributes attrs, List<String> children) {
+        if (attrs.isSymbolicLink()) {
+            return createLinkNode(path, attrs.size(), attrs.lastModifiedTime().toInstant());
+        }
+        String name = delegate.getFileName(path);
+        boolean directory = attrs.isDirectory();
+        ContentItem item = new ContentItem(
+            name,
+            directory ? "directory" : "file",
+            "",
+            attrs.size(),
+            attrs.lastModifiedTime().toInstant(),
+            null,
+            new HashMap<>()
+        );
+        if (directory) {
+            item = delegate.loadDirectoryMetadata(path, item);
+        } else if (delegate.isMarkdownFile(name)) {
+            item = delegate.loadMarkdownMetadata(path, attrs, item);
+        }
+
+        List<String> childKeys = List.copyOf(children);
+        return new Node(
+            name,
+            directory,
+            attrs.size(),
+            attrs.lastModifiedTime().toInstant(),
+            item.order(),
+            Collections.unmodifiableMap(new HashMap<>(item.metadata())),
+            childKeys,
+            directory ? sortListing(childKeys, nodes::get) : Listing.NONE,
+            false,
+            null
+        );
+    }
+
+    /**
+     * Creates the node of a symbolic link, with the attributes of the link itself and the
+     * entry it points to
+     */
+    private Node createLinkNode(Path path, long size, Instant lastModified) {
+        Node target = null;
+        try {
+            target = createNode(path, Files.readAttributes(path, BasicFileAttributes.class), List.of());
+        } catch (IOException e) {
+            // Dangling link: not listed, like in the filesystem implementation
+        }
+        return new Node(delegate.getFileName(path), false, size, lastModified, null, Map.of(), List.of(),
+            Listing.NONE, true, target);
+    }
+
+    /**
+     * Recomputes the sorted listing of a directory from the indexed entries.
+     */
+    private void resort(String dirKey) {
+        Node dir = nodes.get(dirKey);
+        if (dir != null && dir.directory()) {
+            nodes.put(dirKey, dir.withChildren(dir.children(), sortListing(dir.children(), nodes::get)));
+        }
+    }
+
+    private Listing sortListing(List<String> childKeys, Function<String, Node> lookup) {
+        Map<ContentItem, String> keysByItem = new IdentityHashMap<>();
+        List<ContentItem> items = new ArrayList<>();
+        for (String childKey : childKeys) {
+            Node child = lookup.apply(childKey);
+            if (child == null || !isListed(child)) {
+                continue;
+            }
+            ContentItem item = toItem(child.resolved(), childKey);
+            keysByItem.put(item, childKey);
+            items.add(item);
+        }
+        items.sort(FileSystemContentRepository.CHILD_ORDER);
+
+        List<String> keys = new ArrayList<>(items.size());
+        for (ContentItem item : items) {
+            keys.add(keysByItem.get(item));
+        }
+        return new Listing(List.copyOf(keys), ListingVersions.of(items));
+    }
+
+    /**
+     * Whether an entry shows up in findChildren: hidden files (including .metadata) and
+     * non-markdown files are left out.
+     */
+    private boolean isListed(Node node) {
+        if (node.name().startsWith(".") || node.resolved() == null) {
+            return false;
+        }
+        return node.resolved().directory() || delegate.isMarkdownFile(node.name());
+    }
+
+    /**
+     * The indexed entry as listed, see {@link Node#resolved()}
+     */
+    private Node resolved(String key) {
+        Node node = nodes.get(key);
+        return node != null ? node.resolved() : null;
+    }
+
+    /**
+     * Whether the entry is a link or lies under a linked directory, which the filesystem
+     * implementation answers for
+     * @param node The indexed entry at the key, or {@code null}
+     */
+    private boolean isThroughLink(String key, Node node) {
+        return node != null ? node.link() : linkAbove(key) != null;
+    }
+
+    /**
+     * The key of the closest link among the ancestors of a key that is not indexed, or {@code null}
+     */
+    private String linkAbove(String key) {
+        for (String ancestor = key; !ancestor.isEmpty(); ) {
+            ancestor = parentKey(ancestor);
+            Node node = nodes.get(ancestor);
+            if (node != null && node.link()) {
+                return ancestor;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds the keys of the indexed entry and all entries below it
+     */
+    private void collectSubtree(String key, Set<String> keys) {
+        Node node = nodes.get(key);
+        if (node != null && keys.add(key)) {
+            for (String child : node.children()) {
+                collectSubtree(child, keys);
+            }
+        }
+    }
+
+    private void removeSubtree(String key) {
+        Node node = nodes.remove(key);
+        if (node != null) {
+            for (String child : node.children()) {
+                removeSubtree(child);
+            }
+        }
+    }
+
+    /**
+     * Item as returned by findByPath and findChildren, including order and metadata.
+     */
+    private ContentItem toItem(Node node, String path) {
+        return new ContentItem(
+            node.name(),
+            node.directory() ? "directory" : "file",
+            path,
+            node.size(),
+            node.lastModified(),
+            node.order(),
+            new HashMap<>(node.metadata())
+        );
+    }
+
+    /**
+     * Item as returned by findDescendants, without order and metadata.
+     */
+    private ContentItem toPlainItem(String key, Node node) {
+        return new ContentItem(
+            node.name(),
+            node.directory() ? "directory" : "file",
+            "/" + key + (node.directory() ? "/" : ""),
+            node.directory() ? 0 : node.size(),
+            node.lastModified(),
+            null,
+            new HashMap<>()
+        );
+    }
+
+    private String keyOf(Path path) {
+        return delegate.getRelativePath(path);
+    }
+
+    private static String parentKey(String key) {
+        int lastSlash = key.lastIndexOf('/');
+        return lastSlash > 0 ? key.substring(0, lastSlash) : "";
+    }
+}
@@ -0,0 +1,63 @@
+package net.tacia.backend.repository;
+
+import net.tacia.backend.model.ContentItem;
+
+/**
+ * Position in a directory listing, used to continue a listing after a given item.
+ * <p>
+ * Listings are sorted by order (nulls last), then by type (directories first), then by name
+ * (case insensitive, ties broken by the exact name). Names are unique within a directory, so
+ * the position of an item is fully described by these three values and stays valid when
+ * other entries are added or removed.
+ *
+ * @param order     order of the last item returned, or {@code null}
+ * @param directory whether the last item returned is a directory
+ * @param name      name of the last item returned
+ */
+public record ListingCursor(Integer order, boolean directory, String name) {
+
+    public ListingCursor {
+        if (name == null) {
+            throw new IllegalArgumentException("name is required");
+        }
+    }
+
+    /**
+     * Cursor that continues after the given item.
+     */
+    public static ListingCursor after(ContentItem item) {
+        return new ListingCursor(item.order(), "directory".equals(item.type()), item.name());
+    }
+
+    /**
+     * Whether an item comes after this position in a listing.
+     */
+    public boolean isBefore(ContentItem item) {
+        return compare(order, directory, name, item.order(), "directory".equals(item.type()), item.name()) < 0;
+    }
+
+    /**
+     * Compares two listing positions.
+     */
+    public static int compare(Integer order1, boolean directory1, String name1,
+                       Integer order2, boolean directory2, String name2) {
+        // First compare by order (nulls last)
+        if (order1 != null && order2 != null) {
+            int orderCompare = Integer.compare(order1, order2);
+            if (orderCompare != 0) return orderCompare;
+        } else if (order1 != null) {
+            return -1;
+        } else if (order2 != null) {
+            return 1;
+        }
+
+        // Then by type (directories first)
+        if (directory1 != directory2) {
+            return directory1 ? -1 : 1;
+        }
+
+        // Finally by name (case insensitive, then exact so that the order is total)
+        int nameCompare = name1.compareToIgnoreCase(name2);
+        return nameCompare != 0 ? nameCompare : name1.compareTo(name2);
+    }
+}
@@ -0,0 +1,53 @@
+package net.tacia.backend.repository;
+
+import net.tacia.backend.model.ContentItem;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Versions of directory listings, used as validators for conditional requests.
+ * <p>
+ * The version is a digest of everything a listing shows about its entries (name, type, size,
+ * last modified time, order and metadata) in listing order. It only depends on the content,
+ * so it is the same across restarts and across instances serving the same content root.
+ */
+final class ListingVersions {
+
+    /** Digest bytes kept in the version, 128 bits */
+    private static final int LENGTH = 16;
+
+    private ListingVersions() {
+    }
+
+    /**
+     * @param items The entries of a listing, in listing order
+     * @return Hex encoded version of the listing
+     */
+    static String of(List<ContentItem> items) {
+        MessageDigest digest = newDigest();
+        for (ContentItem item : items) {
+            StringBuilder entry = new StringBuilder(64)
+                .append(item.type()).append('\0')
+                .append(item.name()).append('\0')
+                .append(item.size()).append('\0')
+                .append(item.lastModified() != null ? item.lastModified().toEpochMilli() : "").append('\0')
+                .append(item.order() != null ? item.order() : "").append('\0')
+                .append(item.metadata()).append('\n');
+            digest.update(entry.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] hash = digest.digest();
+        return HexFormat.of().formatHex(hash, 0, LENGTH);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // Required on every JVM
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package net.tacia.backend.repository;
+
+import net.tacia.backend.model.ParsedDocument;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of parsed documents: markdown files and .metadata files, as {@link ParsedDocument}s.
+ * Listings only need the frontmatter, documents served whole also need their headings and body
+ * offsets; both share the entry of a file, which holds whatever was parsed last.
+ * <p>
+ * Entries are keyed by the file's {@link BasicFileAttributes#fileKey() file key} where the platform
+ * provides one, and by its path otherwise. An entry is only used while the file's last modified
+ * time and size are unchanged, so a hit skips both reading the file and parsing it.
+ * <p>
+ * The cache is bounded by number of entries and by an estimate of the memory held by the parsed
+ * values; the least recently used entries are evicted first.
+ */
+public class MetadataCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 50_000;
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    /** Rough per-entry overhead of key, entry and map objects */
+    private static final int ENTRY_OVERHEAD = 256;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private record Entry(FileTime lastModified, long size, ParsedDocument document, long weight) {
+    }
+
+    public MetadataCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+    }
+
+    public MetadataCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets the cached metadata of a file if the file has not changed since it was cached
+     * @param file Path of the file
+     * @param attrs Current attributes of the file
+     * @return The cached document, possibly without body, or empty on a miss
+     */
+    public Optional<ParsedDocument> get(Path file, BasicFileAttributes attrs) {
+        return get(file, attrs, false);
+    }
+
+    /**
+     * Gets the cached document of a file if the file has not changed since it was cached
+     * @param file Path of the file
+     * @param attrs Current attributes of the file
+     * @param withBody Whether only a document parsed whole is a hit, not one parsed from the
+     *                 frontmatter alone
+     * @return The cached document, or empty on a miss
+     */
+    public Optional<ParsedDocument> get(Path file, BasicFileAttributes attrs, boolean withBody) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(keyOf(file, attrs));
+        }
+        if (entry != null && entry.size() == attrs.size() && entry.lastModified().equals(attrs.lastModifiedTime())
+                && (!withBody || entry.document().hasBody())) {
+            hits.increment();
+            return Optional.of(entry.document());
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Caches the document parsed from a file
+     * @param file Path of the file
+     * @param attrs Attributes of the file at the time it was read
+     * @param document The parsed document
+     * @param sourceLength Length of the text the metadata and headings were parsed from, used to
+     *                     estimate their size
+     */
+    public void put(Path file, BasicFileAttributes attrs, ParsedDocument document, int sourceLength) {
+        long entryWeight = ENTRY_OVERHEAD + 2L * sourceLength;
+        if (maxEntries <= 0 || entryWeight > maxBytes) {
+            return;
+        }
+        Entry entry = new Entry(attrs.lastModifiedTime(), attrs.size(), document, entryWeight);
+
+        synchronized (this) {
+            Entry previous = entries.put(keyOf(file, attrs), entry);
+            weight += entryWeight - (previous != null ? previous.weight() : 0);
+
+            Iterator<Entry> eldest = entries.values().iterator();
+            while ((entries.size() > maxEntries || weight > maxBytes) && eldest.hasNext()) {
+                weight -= eldest.next().weight();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Estimated memory held by the cached documents, in bytes
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private static Object keyOf(Path file, BasicFileAttributes attrs) {
+        Object fileKey = attrs.fileKey();
+        return fileKey != null ? fileKey : file.toAbsolutePath().normalize();
+    }
+}
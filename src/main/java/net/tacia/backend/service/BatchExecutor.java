@@ -0,0 +1,105 @@
+package net.tacia.backend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs the items of batch requests in parallel on a bounded pool of threads.
+ * <p>
+ * At most {@code parallelism} items of all batches run on the pool at the same time, so a burst
+ * of batches does not read more files at once than the pool has threads. The request thread
+ * runs the first item of its batch itself instead of only waiting. Items waiting for a pool
+ * thread are queued up to a bound; beyond it, an item also runs on the thread of its request,
+ * which slows that request down rather than letting the queue grow.
+ */
+public class BatchExecutor implements AutoCloseable {
+
+    /** Items queued per pool thread before requests run their items themselves */
+    private static final int QUEUED_PER_THREAD = 4;
+
+    private final ThreadPoolExecutor executor;
+    private final int maxBatchSize;
+
+    /**
+     * @param parallelism Maximum number of items running on the pool at the same time
+     * @param maxBatchSize Maximum number of items in one batch
+     */
+    public BatchExecutor(int parallelism, int maxBatchSize) {
+        if (parallelism < 1 || maxBatchSize < 1) {
+            throw new IllegalArgumentException("parallelism and maxBatchSize must be positive: "
+                + parallelism + ", " + maxBatchSize);
+        }
+        this.maxBatchSize = maxBatchSize;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(parallelism * QUEUED_PER_THREAD),
+            runnable -> {
+                Thread thread = new Thread(runnable, "content-batch-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        // Threads are only kept while batches come in
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public int getParallelism() {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * Items of batches running on the pool right now
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Items of batches waiting for a pool thread
+     */
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Applies the task to every item in parallel and waits for all of them.
+     * @param task Must be thread-safe. Failures of an item should be reported in its result:
+     *             an exception fails the whole batch
+     * @return The results, in the order of the items
+     */
+    public <T, R> List<R> map(List<T> items, Function<? super T, ? extends R> task) {
+        if (items.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<CompletableFuture<R>> others = new ArrayList<>(items.size() - 1);
+        for (T item : items.subList(1, items.size())) {
+            others.add(CompletableFuture.<R>supplyAsync(() -> task.apply(item), executor));
+        }
+        List<R> results = new ArrayList<>(items.size());
+        results.add(task.apply(items.get(0)));
+        for (CompletableFuture<R> other : others) {
+            try {
+                results.add(other.join());
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,169 @@
+package net.tacia.backend.service;
+
+import net.tacia.backend.repository.ContentChangeEvent;
+import org.springframework.context.event.EventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of gzip compressed response bodies.
+ * <p>
+ * Entries are keyed by endpoint, content path, request variant and the version of the content
+ * the body was made from (the ETag of the document or listing). A changed document or directory
+ * has a new version, so an outdated body is never served; entries are also dropped as soon as a
+ * change under their path is reported, to free the memory.
+ * <p>
+ * The cache is bounded by the total size of the compressed bodies; the least recently used
+ * entries are evicted first.
+ */
+public class CompressedResponseCache {
+
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    /** Rough per-entry overhead of key, entry and map objects */
+    private static final int ENTRY_OVERHEAD = 256;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param endpoint Name of the endpoint that produced the body
+     * @param path Content path the body is about
+     * @param variant Request parameters that change the body (empty if none)
+     * @param version Version of the content, e.g. its ETag
+     */
+    public record Key(String endpoint, String path, String variant, String version) {
+    }
+
+    public CompressedResponseCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    public CompressedResponseCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets a cached compressed body
+     * @return The gzip compressed body, or empty on a miss
+     */
+    public Optional<byte[]> get(Key key) {
+        byte[] body;
+        synchronized (this) {
+            body = entries.get(key);
+        }
+        if (body == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(body);
+    }
+
+    /**
+     * Compresses a body and caches the result
+     * @param key The key to cache the body under
+     * @param body The uncompressed body
+     * @return The gzip compressed body
+     */
+    public byte[] put(Key key, byte[] body) {
+        byte[] compressed = gzip(body);
+        long entryWeight = weightOf(key, compressed);
+        if (entryWeight > maxBytes) {
+            return compressed;
+        }
+        synchronized (this) {
+            byte[] previous = entries.put(key, compressed);
+            if (previous != null) {
+                weight -= weightOf(key, previous);
+            }
+            weight += entryWeight;
+
+            Iterator<Map.Entry<Key, byte[]>> it = entries.entrySet().iterator();
+            while (weight > maxBytes && it.hasNext()) {
+                Map.Entry<Key, byte[]> eldest = it.next();
+                weight -= weightOf(eldest.getKey(), eldest.getValue());
+                it.remove();
+                evictions.increment();
+            }
+        }
+        return compressed;
+    }
+
+    /**
+     * Drops all entries for the given content path, its ancestors and its descendants
+     */
+    public void invalidate(String contentPath) {
+        invalidate(new ContentChangeEvent(contentPath, ContentChangeEvent.Kind.MODIFIED));
+    }
+
+    /**
+     * Drops the entries affected by a change under the content root
+     */
+    @EventListener
+    public void onContentChange(ContentChangeEvent event) {
+        invalidate(event);
+    }
+
+    private synchronized void invalidate(ContentChangeEvent event) {
+        Iterator<Map.Entry<Key, byte[]>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, byte[]> entry = it.next();
+            if (event.affects(entry.getKey().path())) {
+                weight -= weightOf(entry.getKey(), entry.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Estimated memory held by the cached bodies, in bytes
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private static long weightOf(Key key, byte[] compressed) {
+        return ENTRY_OVERHEAD + compressed.length + 2L * (key.path().length() + key.variant().length()
+            + key.version().length());
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Not thrown by in-memory streams
+        }
+        return out.toByteArray();
+    }
+}
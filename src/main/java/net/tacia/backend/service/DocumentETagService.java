@@ -0,0 +1,127 @@
+package net.tacia.backend.service;
+
+import net.tacia.backend.model.ContentItem;
+import net.tacia.backend.repository.ContentRepository;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Strong entity tags of documents, for conditional requests.
+ * <p>
+ * A tag is made of the size, the last modified time and a hash of the content of the file.
+ * The hash of each file version (path, size and last modified time) is remembered, so a
+ * request for an unchanged document can be validated without reading the file again.
+ */
+@Service
+public class DocumentETagService {
+
+    /** Max number of file versions whose hash is remembered */
+    static final int MAX_ENTRIES = 10_000;
+    private static final int HASH_BYTES = 8;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ContentRepository contentRepository;
+
+    private record Version(long size, long lastModified, String eTag) {
+    }
+
+    private final Map<String, Version> versions = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Version> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    public DocumentETagService(ContentRepository contentRepository) {
+        this.contentRepository = contentRepository;
+    }
+
+    /**
+     * Get the tag of a document if it is known without reading the file
+     * @param item The document, as returned by the repository
+     * @return Optional containing the tag if the current version has been hashed before
+     */
+    public Optional<String> getCachedETag(ContentItem item) {
+        Version version;
+        synchronized (versions) {
+            version = versions.get(item.path());
+        }
+        if (version == null || version.size() != item.size() || version.lastModified() != lastModified(item)) {
+            return Optional.empty();
+        }
+        return Optional.of(version.eTag());
+    }
+
+    /**
+     * Get the tag of a document from content that has already been read
+     * @param item The document, as returned by the repository
+     * @param content The content of the document
+     * @return The tag, quoted
+     */
+    public String getETag(ContentItem item, String content) {
+        MessageDigest digest = newDigest();
+        digest.update(content.getBytes(StandardCharsets.UTF_8));
+        return remember(item, digest);
+    }
+
+    /**
+     * Get the tag of a document, reading the file if its current version has not been hashed yet.
+     * The file is hashed as a stream, it is never held in memory.
+     * @param item The document, as returned by the repository
+     * @param contentPath Path the document was requested with
+     * @return Optional containing the tag, empty if there is no file for the path
+     * @throws IOException If the file cannot be read
+     */
+    public Optional<String> computeETag(ContentItem item, String contentPath) throws IOException {
+        Optional<String> cached = getCachedETag(item);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        Optional<Path> file = contentRepository.getContentFile(contentPath);
+        if (file.isEmpty()) {
+            return Optional.empty();
+        }
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file.get()), digest)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (in.read(buffer) != -1) {
+                // Digested while reading
+            }
+        }
+        return Optional.of(remember(item, digest));
+    }
+
+    private String remember(ContentItem item, MessageDigest digest) {
+        long lastModified = lastModified(item);
+        String eTag = "\"" + Long.toHexString(item.size()) + "-" + Long.toHexString(lastModified) + "-"
+            + HexFormat.of().formatHex(digest.digest(), 0, HASH_BYTES) + "\"";
+        synchronized (versions) {
+            versions.put(item.path(), new Version(item.size(), lastModified, eTag));
+        }
+        return eTag;
+    }
+
+    private static long lastModified(ContentItem item) {
+        return item.lastModified() != null ? item.lastModified().toEpochMilli() : 0;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // Required on every JVM
+        }
+    }
+}
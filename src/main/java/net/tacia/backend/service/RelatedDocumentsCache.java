@@ -0,0 +1,145 @@
+package net.tacia.backend.service;
+
+import net.tacia.backend.api.dto.RelatedDocumentDto;
+import net.tacia.backend.repository.ContentChangeEvent;
+import net.tacia.backend.service.cache.BoundedCache;
+import net.tacia.backend.service.search.SearchDocument;
+import net.tacia.backend.service.search.SearchDocumentListener;
+import org.springframework.cache.Cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Caches the related documents of each document and limit, in front of the
+ * {@link RelatedDocumentsService} selected by {@code app.related.engine}.
+ * <p>
+ * An entry depends on the directory tree of its document, where the {@code path} engine looks
+ * for related documents, and on the documents it lists. It is dropped as soon as anything in
+ * that tree or any of those documents changes, as reported by the {@code SearchService} for
+ * changes made through the API and outside the application alike. Engines comparing content
+ * may also rank a new document of another directory among the related ones; such changes only
+ * show once the entry expires or is refreshed.
+ * <p>
+ * Results of engines that are not {@link RelatedDocumentsService#cacheable() cacheable} are
+ * passed through and never cached, so that they stay as current as the engine keeps them.
+ * <p>
+ * A computation that overlaps with a change is not cached, since it may have read the content
+ * before the change. Concurrent misses for the same entry share one computation.
+ */
+public class RelatedDocumentsCache implements SearchDocumentListener {
+
+    private final RelatedDocumentsService engine;
+    private final BoundedCache cache;
+    private final RequestCoalescer requestCoalescer;
+
+    /** Incremented by every invalidation, guarded by this */
+    private long generation;
+
+    private record Key(String path, int limit) {
+    }
+
+    /**
+     * @param paths Content paths of the related documents
+     */
+    private record Entry(List<RelatedDocumentDto> documents, List<String> paths) {
+    }
+
+    /**
+     * Related documents and where they came from
+     * @param fromCache Whether they were cached, rather than computed for this request
+     */
+    public record Result(List<RelatedDocumentDto> documents, boolean fromCache) {
+    }
+
+    public RelatedDocumentsCache(RelatedDocumentsService engine, BoundedCache cache, RequestCoalescer requestCoalescer) {
+        this.engine = engine;
+        this.cache = cache;
+        this.requestCoalescer = requestCoalescer;
+    }
+
+    /**
+     * Find documents related to the specified document
+     * @param documentPath Path of the document, with or without extension
+     * @param limit Maximum number of related documents
+     * @param skipCache Compute them even if they are cached, and cache the result
+     */
+    public Result find(String documentPath, int limit, boolean skipCache) {
+        if (!engine.cacheable()) {
+            return new Result(engine.findRelatedDocuments(documentPath, limit, skipCache), false);
+        }
+        Key key = new Key(SearchDocument.contentPath(documentPath), limit);
+        if (skipCache) {
+            return new Result(compute(key, documentPath), false);
+        }
+        Cache.ValueWrapper cached = cache.get(key);
+        if (cached != null) {
+            return new Result(((Entry) cached.get()).documents(), true);
+        }
+        List<RelatedDocumentDto> documents = requestCoalescer.execute(
+            new RequestCoalescer.Key("related", key.path(), String.valueOf(limit)),
+            () -> compute(key, documentPath));
+        return new Result(documents, false);
+    }
+
+    /**
+     * Drops the entries affected by a change of the given content path
+     */
+    public void invalidate(String contentPath) {
+        invalidate(List.of(contentPath));
+    }
+
+    @Override
+    public synchronized void documentsRebuilt(Collection<SearchDocument> documents) {
+        generation++;
+        cache.clear();
+    }
+
+    @Override
+    public void documentsReplaced(String path, Collection<SearchDocument> documents) {
+        List<String> changed = new ArrayList<>(documents.size() + 1);
+        if (path != null) {
+            changed.add(path);
+        }
+        documents.forEach(document -> changed.add(document.path()));
+        invalidate(changed);
+    }
+
+    private List<RelatedDocumentDto> compute(Key key, String documentPath) {
+        long computedAt;
+        synchronized (this) {
+            computedAt = generation;
+        }
+        List<RelatedDocumentDto> documents = engine.findRelatedDocuments(documentPath, key.limit(), true);
+        List<String> paths = documents.stream()
+            .map(document -> SearchDocument.contentPath(document.path()))
+            .toList();
+        synchronized (this) {
+            if (generation == computedAt) {
+                cache.put(key, new Entry(documents, paths));
+            }
+        }
+        return documents;
+    }
+
+    private synchronized void invalidate(List<String> contentPaths) {
+        if (contentPaths.isEmpty()) {
+            return;
+        }
+        generation++;
+        List<ContentChangeEvent> changes = contentPaths.stream()
+            .map(path -> new ContentChangeEvent(path, ContentChangeEvent.Kind.MODIFIED))
+            .toList();
+        cache.evictIf((key, value) -> {
+            String directory = parent(((Key) key).path());
+            List<String> related = ((Entry) value).paths();
+            return changes.stream().anyMatch(change -> change.affects(directory) || related.stream().anyMatch(change::affects));
+        });
+    }
+
+    private static String parent(String path) {
+        int slash = path.lastIndexOf('/');
+        return slash > 0 ? path.substring(0, slash) : "/";
+    }
+}
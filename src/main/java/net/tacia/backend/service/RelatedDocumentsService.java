@@ -18,4 +18,13 @@ public interface RelatedDocumentsService {
      * @return List of related documents with relevance scores
      */
     List<RelatedDocumentDto> findRelatedDocuments(String documentPath, int limit, boolean skipCache);
+
+    /**
+     * Whether results are worth caching in the {@link RelatedDocumentsCache}. Engines that keep
+     * their results up to date as documents change answer from memory, and a cache would only
+     * serve them stale until its entries are dropped.
+     */
+    default boolean cacheable() {
+        return true;
+    }
 }
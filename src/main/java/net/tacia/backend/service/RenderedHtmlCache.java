@@ -0,0 +1,170 @@
+package net.tacia.backend.service;
+
+import net.tacia.backend.model.MarkdownDocument;
+import net.tacia.backend.repository.ContentChangeEvent;
+import net.tacia.backend.service.markdown.MarkdownHtmlRenderer;
+import org.springframework.context.event.EventListener;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of documents rendered to HTML ({@code format=html}).
+ * <p>
+ * Entries are keyed by content path, the version of the document they were rendered from (its
+ * ETag) and the section, if only one was rendered, so a changed document is never served from an
+ * older rendering; entries are also dropped as soon as a change under their path is reported, to
+ * free the memory.
+ * <p>
+ * The cache is bounded by an estimate of the memory held by the rendered HTML; the least
+ * recently used entries are evicted first.
+ */
+public class RenderedHtmlCache {
+
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    /** Rough per-entry overhead of key, entry and map objects */
+    private static final int ENTRY_OVERHEAD = 256;
+
+    private final MarkdownHtmlRenderer renderer;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, String> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param path Content path of the document
+     * @param version Version of the document, e.g. its ETag, or {@code null} if it is not known
+     *                (the document is then rendered without caching)
+     * @param section Slug of the section to render, or {@code null} for the whole document
+     */
+    public record Key(String path, String version, String section) {
+
+        public Key(String path, String version) {
+            this(path, version, null);
+        }
+    }
+
+    public RenderedHtmlCache() {
+        this(new MarkdownHtmlRenderer(), DEFAULT_MAX_BYTES);
+    }
+
+    public RenderedHtmlCache(MarkdownHtmlRenderer renderer, long maxBytes) {
+        this.renderer = renderer;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets the HTML of a document version, rendering and caching it on a miss
+     * @param key Path and version of the document, and the section to render
+     * @param document The document, which must be the version of the key
+     * @return The rendered body or section of the document
+     * @throws IllegalArgumentException If the document has no section with the slug of the key
+     */
+    public String render(Key key, MarkdownDocument document) {
+        if (key.version() == null) {
+            return renderUncached(key, document);
+        }
+        String html;
+        synchronized (this) {
+            html = entries.get(key);
+        }
+        if (html != null) {
+            hits.increment();
+            return html;
+        }
+        misses.increment();
+        html = renderUncached(key, document);
+        put(key, html);
+        return html;
+    }
+
+    private String renderUncached(Key key, MarkdownDocument document) {
+        if (key.section() == null) {
+            return renderer.render(document);
+        }
+        return renderer.render(document, document.parsed().section(key.section())
+            .orElseThrow(() -> new IllegalArgumentException("No section " + key.section() + " in " + key.path())));
+    }
+
+    private void put(Key key, String html) {
+        long entryWeight = weightOf(key, html);
+        if (entryWeight > maxBytes) {
+            return;
+        }
+        synchronized (this) {
+            String previous = entries.put(key, html);
+            if (previous != null) {
+                weight -= weightOf(key, previous);
+            }
+            weight += entryWeight;
+
+            Iterator<Map.Entry<Key, String>> it = entries.entrySet().iterator();
+            while (weight > maxBytes && it.hasNext()) {
+                Map.Entry<Key, String> eldest = it.next();
+                weight -= weightOf(eldest.getKey(), eldest.getValue());
+                it.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Drops all entries for the given content path, its ancestors and its descendants
+     */
+    public void invalidate(String contentPath) {
+        invalidate(new ContentChangeEvent(contentPath, ContentChangeEvent.Kind.MODIFIED));
+    }
+
+    /**
+     * Drops the entries affected by a change under the content root
+     */
+    @EventListener
+    public void onContentChange(ContentChangeEvent event) {
+        invalidate(event);
+    }
+
+    private synchronized void invalidate(ContentChangeEvent event) {
+        Iterator<Map.Entry<Key, String>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, String> entry = it.next();
+            if (event.affects(entry.getKey().path())) {
+                weight -= weightOf(entry.getKey(), entry.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Estimated memory held by the rendered HTML, in bytes
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private static long weightOf(Key key, String html) {
+        int sectionLength = key.section() != null ? key.section().length() : 0;
+        return ENTRY_OVERHEAD + 2L * (html.length() + key.path().length() + key.version().length() + sectionLength);
+    }
+}
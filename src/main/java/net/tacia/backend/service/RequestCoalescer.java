@@ -0,0 +1,136 @@
+package net.tacia.backend.service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs an expensive computation once for all the requests that need it at the same time.
+ * <p>
+ * When a popular cache entry expires or is invalidated, every request arriving before it is
+ * cached again would otherwise read and process the same content. Here, the first request for a
+ * key computes the result on its own thread, and the requests for the same key arriving while it
+ * runs wait for it and share its result, or its exception. Nothing is kept once the computation
+ * is over: caching the result is up to the caller.
+ * <p>
+ * Waiting is bounded: a request still waiting after the timeout fails with a
+ * {@link WaitTimeoutException}, while the computation goes on for the others.
+ */
+public class RequestCoalescer {
+
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+
+    private final long timeoutNanos;
+    private final ConcurrentMap<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder computations = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    /**
+     * @param operation What is computed, e.g. {@code "document"}
+     * @param path Normalized content path the computation is about
+     * @param variant Anything else the result depends on, such as the version of the content
+     *                (empty if nothing)
+     */
+    public record Key(String operation, String path, String variant) {
+    }
+
+    /**
+     * Thrown to a request that waited longer than the timeout for the computation of another one
+     */
+    public static class WaitTimeoutException extends RuntimeException {
+        public WaitTimeoutException(Key key, Duration timeout) {
+            super("Timed out after " + timeout.toMillis() + " ms waiting for " + key.operation() + " of " + key.path());
+        }
+    }
+
+    public RequestCoalescer() {
+        this(DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * @param timeout How long a request waits for the computation of another one
+     */
+    public RequestCoalescer(Duration timeout) {
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    /**
+     * Computes a result, or waits for the computation of the same key already in flight
+     * @param key What is computed
+     * @param computation Computes the result, on the calling thread
+     * @return The result of this or of the concurrent computation
+     * @throws WaitTimeoutException If the concurrent computation did not finish in time
+     * @throws RuntimeException The exception thrown by the computation, in every request that
+     *                          waited for it
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Key key, Supplier<T> computation) {
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, own);
+        if (running == null) {
+            computations.increment();
+            try {
+                T result = computation.get();
+                own.complete(result);
+                return result;
+            } catch (RuntimeException | Error e) {
+                own.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, own);
+            }
+        }
+
+        coalesced.increment();
+        try {
+            return (T) running.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw (Error) e.getCause();
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            throw new WaitTimeoutException(key, Duration.ofNanos(timeoutNanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + key.operation() + " of " + key.path(), e);
+        }
+    }
+
+    /**
+     * Number of computations that were run
+     */
+    public long getComputationCount() {
+        return computations.sum();
+    }
+
+    /**
+     * Number of requests that waited for the computation of another one instead of computing
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Number of requests that gave up waiting
+     */
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    /**
+     * Number of computations running now
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -5,8 +5,6 @@ import net.tacia.backend.model.ContentItem;
 import net.tacia.backend.repository.ContentRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -14,66 +12,63 @@ import java.util.stream.Collectors;
 /**
  * Implementation of RelatedDocumentsService that finds related documents based on path similarity.
  * This matches the behavior of the backend-js implementation.
+ * Selected with {@code app.related.engine=path}.
+ * <p>
+ * Every call lists the whole directory tree of the document; results are cached by
+ * {@link RelatedDocumentsCache}. Errors are thrown rather than answered with no documents, so
+ * that they are not cached.
  */
-@Service
 public class SimpleRelatedDocumentsService implements RelatedDocumentsService {
     
     private static final Logger log = LoggerFactory.getLogger(SimpleRelatedDocumentsService.class);
     
     private final ContentRepository contentRepository;
     
-    @Autowired
     public SimpleRelatedDocumentsService(ContentRepository contentRepository) {
         this.contentRepository = contentRepository;
     }
     
     @Override
     public List<RelatedDocumentDto> findRelatedDocuments(String documentPath, int limit, boolean skipCache) {
-        try {
-            // Normalize the path (similar to the JS implementation)
-            String normalizedPath = normalizePath(documentPath);
-            log.debug("Finding related documents for: {}", normalizedPath);
-            
-            // Get the parent directory of the current document
-            String parentPath = getParentPath(normalizedPath);
-            
-            // Get all markdown files in the same directory
-            List<ContentItem> allDocs = contentRepository.findDescendants(parentPath);
-            
-            // Get the current document's directory for relevance calculation
-            String currentDir = getParentPath(normalizedPath);
-            
-            // Process each file to check for path similarity
-            List<RelatedDocumentDto> relatedDocs = allDocs.stream()
-                .filter(doc -> !doc.path().equals(normalizedPath)) // Skip the current document
-                .filter(doc -> isMarkdownFile(doc.path()))
-                .map(doc -> {
-                    // Calculate relevance based on directory similarity
-                    // Files in the same directory are more relevant (relevance = 2)
-                    // Files in subdirectories are less relevant (relevance = 1)
-                    String docDir = getParentPath(doc.path());
-                    double relevance = currentDir.equals(docDir) ? 2.0 : 1.0;
-                    
-                    // Format the title from the filename (capitalize words, replace hyphens/underscores with spaces)
-                    String title = formatTitle(doc.name());
-                    
-                    return new RelatedDocumentDto(
-                        doc.path().replace(".md", ""),
-                        title,
-                        relevance
-                    );
-                })
-                .sorted((a, b) -> Double.compare(b.relevance(), a.relevance())) // Sort by relevance (highest first)
-                .limit(limit)
-                .collect(Collectors.toList());
-            
-            log.debug("Found {} related documents for: {}", relatedDocs.size(), normalizedPath);
-            return relatedDocs;
-            
-        } catch (Exception e) {
-            log.error("Error finding related documents for: " + documentPath, e);
-            return Collections.emptyList();
-        }
+        // Normalize the path (similar to the JS implementation)
+        String normalizedPath = normalizePath(documentPath);
+        log.debug("Finding related documents for: {}", normalizedPath);
+        
+        // Get the parent directory of the current document
+        String parentPath = getParentPath(normalizedPath);
+        
+        // Get all markdown files in the same directory
+        List<ContentItem> allDocs = contentRepository.findDescendants(parentPath);
+        
+        // Get the current document's directory for relevance calculation
+        String currentDir = getParentPath(normalizedPath);
+        
+        // Process each file to check for path similarity
+        List<RelatedDocumentDto> relatedDocs = allDocs.stream()
+            .filter(doc -> !doc.path().equals(normalizedPath)) // Skip the current document
+            .filter(doc -> isMarkdownFile(doc.path()))
+            .map(doc -> {
+                // Calculate relevance based on directory similarity
+                // Files in the same directory are more relevant (relevance = 2)
+                // Files in subdirectories are less relevant (relevance = 1)
+                String docDir = getParentPath(doc.path());
+                double relevance = currentDir.equals(docDir) ? 2.0 : 1.0;
+                
+                // Format the title from the filename (capitalize words, replace hyphens/underscores with spaces)
+                String title = formatTitle(doc.name());
+                
+                return new RelatedDocumentDto(
+                    doc.path().replace(".md", ""),
+                    title,
+                    relevance
+                );
+            })
+            .sorted((a, b) -> Double.compare(b.relevance(), a.relevance())) // Sort by relevance (highest first)
+            .limit(limit)
+            .toList();
+        
+        log.debug("Found {} related documents for: {}", relatedDocs.size(), normalizedPath);
+        return relatedDocs;
     }
     
     private String normalizePath(String path) {
@@ -0,0 +1,256 @@
+package net.tacia.backend.service.cache;
+
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+import java.util.function.LongSupplier;
+
+/**
+ * A cache bounded by number of entries, whose entries expire a fixed time after they were
+ * written.
+ * <p>
+ * Entries are admitted with the W-TinyLFU policy. New entries go to a small LRU window of 1% of
+ * the entries; the entry leaving the window only replaces the least recently used entry of the
+ * main area if its key was requested more often recently, as estimated by a
+ * {@link FrequencySketch} of all lookups. A burst of keys requested once, such as a crawl
+ * of all documents, thus cannot flush the popular entries, while a key that becomes popular
+ * gets in as soon as it is requested more than the entry it replaces.
+ * <p>
+ * Expired entries are dropped when they are looked up, and by a sweep of all entries at most
+ * every half of the time to live.
+ * <p>
+ * Exceptions of the value loader of {@link #get(Object, Callable)} that are unchecked are thrown
+ * as is, so that e.g. a not found error while computing a value keeps its meaning.
+ */
+public class BoundedCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier ticker;
+
+    // Guarded by this
+    private final int windowMax;
+    private final LinkedHashMap<Object, Entry> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Object, Entry> main = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long lastSweep;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    private record Entry(Object value, long written) {
+    }
+
+    /**
+     * @param name Name of the cache
+     * @param maxSize Maximum number of entries
+     * @param ttlSeconds Time to live of entries after they were written, or 0 for no expiry
+     */
+    public BoundedCache(String name, int maxSize, long ttlSeconds) {
+        this(name, maxSize, ttlSeconds, System::nanoTime);
+    }
+
+    BoundedCache(String name, int maxSize, long ttlSeconds, LongSupplier ticker) {
+        super(false);
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlSeconds > 0 ? ttlSeconds * 1_000_000_000L : 0;
+        this.ticker = ticker;
+        this.windowMax = Math.max(1, maxSize / 100);
+        this.sketch = new FrequencySketch(maxSize);
+        this.lastSweep = ticker.getAsLong();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object value;
+        synchronized (this) {
+            sketch.increment(key);
+            Entry entry = window.get(key);
+            if (entry == null) {
+                entry = main.get(key);
+            }
+            if (entry != null && isExpired(entry, ticker.getAsLong())) {
+                window.remove(key);
+                main.remove(key);
+                expirations.increment();
+                entry = null;
+            }
+            value = entry != null ? entry.value() : null;
+        }
+        (value != null ? hits : misses).increment();
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (T) fromStoreValue(cached);
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        Object stored = toStoreValue(value);
+        synchronized (this) {
+            long now = ticker.getAsLong();
+            sweepExpired(now);
+            Entry entry = new Entry(stored, now);
+            if (main.containsKey(key)) {
+                main.put(key, entry);
+                return;
+            }
+            window.put(key, entry);
+            if (window.size() > windowMax) {
+                admit(evictEldest(window));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void evict(Object key) {
+        if (window.remove(key) == null) {
+            main.remove(key);
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        window.clear();
+        main.clear();
+    }
+
+    /**
+     * Drops the entries matching a filter
+     * @param filter Tests the key and the value of an entry
+     * @return Number of entries dropped
+     */
+    public synchronized int evictIf(BiPredicate<Object, Object> filter) {
+        int count = 0;
+        for (LinkedHashMap<Object, Entry> entries : List.of(window, main)) {
+            Iterator<Map.Entry<Object, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Object, Entry> entry = iterator.next();
+                if (filter.test(entry.getKey(), entry.getValue().value())) {
+                    iterator.remove();
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    public synchronized int size() {
+        return window.size() + main.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Number of entries dropped, or not admitted, to stay within the maximum size
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Number of entries dropped because they outlived the time to live
+     */
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    /**
+     * Moves the entry that left the window to the main area if there is room, or if its key is
+     * more popular than the one it would replace
+     */
+    private void admit(Map.Entry<Object, Entry> candidate) {
+        int mainMax = maxSize - windowMax;
+        if (main.size() < mainMax) {
+            main.put(candidate.getKey(), candidate.getValue());
+            return;
+        }
+        if (mainMax > 0) {
+            Object victim = main.keySet().iterator().next();
+            if (sketch.frequency(candidate.getKey()) > sketch.frequency(victim)) {
+                main.remove(victim);
+                main.put(candidate.getKey(), candidate.getValue());
+            }
+        }
+        evictions.increment();
+    }
+
+    private static Map.Entry<Object, Entry> evictEldest(LinkedHashMap<Object, Entry> entries) {
+        Iterator<Map.Entry<Object, Entry>> iterator = entries.entrySet().iterator();
+        Map.Entry<Object, Entry> eldest = iterator.next();
+        Map.Entry<Object, Entry> removed = Map.entry(eldest.getKey(), eldest.getValue());
+        iterator.remove();
+        return removed;
+    }
+
+    private void sweepExpired(long now) {
+        if (ttlNanos == 0 || now - lastSweep < ttlNanos / 2) {
+            return;
+        }
+        lastSweep = now;
+        for (LinkedHashMap<Object, Entry> entries : List.of(window, main)) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (isExpired(iterator.next(), now)) {
+                    iterator.remove();
+                    expirations.increment();
+                }
+            }
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return ttlNanos > 0 && now - entry.written() >= ttlNanos;
+    }
+}
@@ -0,0 +1,47 @@
+package net.tacia.backend.service.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache manager of a fixed set of {@link BoundedCache}s, each with the same maximum size and
+ * time to live. Unknown cache names have no cache, so a misspelled name fails fast rather than
+ * creating an unbounded cache nobody evicts.
+ */
+public class BoundedCacheManager implements CacheManager {
+
+    private final Map<String, BoundedCache> caches = new LinkedHashMap<>();
+
+    /**
+     * @param maxSize Maximum number of entries of each cache
+     * @param ttlSeconds Time to live of entries after they were written, or 0 for no expiry
+     * @param names Names of the caches
+     */
+    public BoundedCacheManager(int maxSize, long ttlSeconds, String... names) {
+        for (String name : names) {
+            caches.put(name, new BoundedCache(name, maxSize, ttlSeconds));
+        }
+    }
+
+    @Override
+    public BoundedCache getCache(String name) {
+        return caches.get(name);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    /**
+     * All caches, for reporting their statistics
+     */
+    public Collection<BoundedCache> getCaches() {
+        return Collections.unmodifiableCollection(caches.values());
+    }
+}
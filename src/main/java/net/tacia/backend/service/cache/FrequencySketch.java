@@ -0,0 +1,100 @@
+package net.tacia.backend.service.cache;
+
+/**
+ * Approximate access counts of keys, as a count-min sketch of 4-bit counters.
+ * <p>
+ * Every key is hashed to four counters, and its frequency is the smallest of them: collisions
+ * can only make a key look more popular than it is. Counters saturate at 15, and once the
+ * number of recorded accesses reaches ten times the number of keys the cache holds, all counters
+ * are halved, so that the counts follow the recent popularity of the keys rather than their
+ * popularity since startup. The sketch takes 8 bytes per cache entry, whatever the number of
+ * distinct keys seen.
+ * <p>
+ * Not thread safe.
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+        0xc3a5_c85c_97cb_3127L, 0xb492_b66f_be98_f273L, 0x9ae1_6a3b_2f90_404fL, 0xcbf2_9ce4_8422_2325L
+    };
+    private static final long RESET_MASK = 0x7777_7777_7777_7777L;
+    private static final int MAX_COUNT = 15;
+
+    /** Sixteen 4-bit counters per long */
+    private final long[] table;
+    /** Number of bits of a counter index */
+    private final int indexBits;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedKeys Number of keys whose frequency should be told apart, e.g. the maximum
+     *                     size of the cache
+     */
+    FrequencySketch(int expectedKeys) {
+        int words = Integer.highestOneBit(Math.max(2, expectedKeys) - 1) << 1;
+        this.table = new long[words];
+        this.indexBits = Integer.numberOfTrailingZeros(words) + 4;
+        this.sampleSize = 10 * Math.max(1, expectedKeys);
+    }
+
+    /**
+     * @return The estimated number of recent accesses to the key, at most 15
+     */
+    int frequency(Object key) {
+        long hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, count(index(hash, i)));
+        }
+        return frequency;
+    }
+
+    /**
+     * Records an access to the key. Only the counters at the minimum are incremented, which
+     * keeps the estimates of keys sharing counters closer to their true counts.
+     */
+    void increment(Object key) {
+        long hash = spread(key.hashCode());
+        int[] indexes = new int[SEEDS.length];
+        int min = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            indexes[i] = index(hash, i);
+            min = Math.min(min, count(indexes[i]));
+        }
+        if (min == MAX_COUNT) {
+            return;
+        }
+        for (int index : indexes) {
+            if (count(index) == min) {
+                table[index >>> 4] += 1L << ((index & 15) << 2);
+            }
+        }
+        if (++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Halves all counters
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private int count(int index) {
+        return (int) (table[index >>> 4] >>> ((index & 15) << 2)) & 0xf;
+    }
+
+    private int index(long hash, int i) {
+        return (int) ((hash * SEEDS[i]) >>> (64 - indexBits));
+    }
+
+    private static long spread(int hash) {
+        long h = hash * 0x9e37_79b9_7f4a_7c15L;
+        return h ^ (h >>> 32);
+    }
+}
@@ -0,0 +1,105 @@
+package net.tacia.backend.service.duplicates;
+
+import net.tacia.backend.api.dto.RelatedDocumentDto;
+import net.tacia.backend.config.AppProperties;
+import net.tacia.backend.service.search.SearchDocument;
+import net.tacia.backend.service.search.SearchDocumentListener;
+import net.tacia.backend.service.search.SearchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Finds documents with nearly the same content, such as copied pages that were edited apart.
+ * <p>
+ * A MinHash signature of the headings and body of every document is computed as the
+ * {@link SearchService} indexes it (see {@link MinHashIndex}). Documents are near-duplicates
+ * when their estimated similarity reaches {@code app.duplicates.threshold}.
+ */
+@Service
+public class DuplicateService implements SearchDocumentListener {
+
+    private static final Logger log = LoggerFactory.getLogger(DuplicateService.class);
+
+    private final float threshold;
+    private volatile MinHashIndex index = new MinHashIndex();
+
+    public DuplicateService(SearchService searchService, AppProperties appProperties) {
+        this.threshold = appProperties.getDuplicates().getThreshold();
+        searchService.addListener(this);
+    }
+
+    /**
+     * The near-duplicates of a document, most similar first
+     * @param documentPath Path of the document, with or without extension
+     */
+    public List<NearDuplicate> findDuplicates(String documentPath) {
+        return index.duplicatesOf(SearchDocument.contentPath(documentPath), threshold).stream()
+            .map(match -> new NearDuplicate(match.path(), match.title(), match.similarity()))
+            .toList();
+    }
+
+    /**
+     * Drops the related documents that are near-duplicates of the document or of a related
+     * document ranked before them
+     * @param documentPath Path of the document the related documents are for
+     * @param related Related documents, best first
+     * @param limit Maximum number of related documents to keep
+     */
+    public List<RelatedDocumentDto> withoutDuplicates(String documentPath, List<RelatedDocumentDto> related, int limit) {
+        MinHashIndex current = index;
+        List<String> kept = new ArrayList<>();
+        kept.add(SearchDocument.contentPath(documentPath));
+        List<RelatedDocumentDto> result = new ArrayList<>(Math.min(limit, related.size()));
+        for (RelatedDocumentDto document : related) {
+            if (result.size() == limit) {
+                break;
+            }
+            String path = SearchDocument.contentPath(document.path());
+            if (kept.stream().noneMatch(other -> current.similarity(path, other) >= threshold)) {
+                kept.add(path);
+                result.add(document);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void documentsRebuilt(Collection<SearchDocument> documents) {
+        long start = System.nanoTime();
+        MinHashIndex rebuilt = new MinHashIndex();
+        for (SearchDocument document : documents) {
+            add(rebuilt, document);
+        }
+        index = rebuilt;
+        log.info("Computed duplicate signatures of {} documents in {} ms", rebuilt.size(),
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void documentsReplaced(String path, Collection<SearchDocument> documents) {
+        MinHashIndex current = index;
+        if (path != null) {
+            current.removeAtOrBelow(path);
+        }
+        for (SearchDocument document : documents) {
+            add(current, document);
+        }
+    }
+
+    private static void add(MinHashIndex target, SearchDocument document) {
+        List<String> terms = new ArrayList<>();
+        document.forEachContentTerm(terms::add);
+        int[] signature = MinHashIndex.signature(terms);
+        if (signature != null) {
+            target.put(document.path(), document.title(), signature);
+        } else {
+            // Empty documents are not duplicates of each other
+            target.removeAtOrBelow(document.path());
+        }
+    }
+}
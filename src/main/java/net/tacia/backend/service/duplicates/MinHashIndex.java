@@ -0,0 +1,333 @@
+package net.tacia.backend.service.duplicates;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * MinHash signatures of documents with locality sensitive hashing (LSH) by bands.
+ * <p>
+ * A signature is the minimum of each of {@value #HASHES} hash functions over the shingles of a
+ * document; the share of equal positions in two signatures estimates the Jaccard similarity of
+ * their shingle sets. Signatures are cut into {@value #BANDS} bands of {@value #ROWS} rows, and
+ * documents with an identical band share a bucket. Two documents with Jaccard similarity
+ * {@code s} share at least one bucket with probability {@code 1 - (1 - s^8)^16}: 0.04 at
+ * {@code s = 0.5}, 0.80 at {@code s = 0.75}, 0.999 at {@code s = 0.9}. Finding the duplicates of
+ * a document only looks at its {@value #BANDS} buckets, whatever the size of the corpus.
+ * <p>
+ * All signatures are kept in one int array, and buckets hold document numbers in int arrays.
+ * Removed documents are dropped from their buckets and their numbers are reused only after
+ * {@link #compact()}. A replaced document keeps its number, so saving a document again does not
+ * grow the arrays.
+ */
+final class MinHashIndex {
+
+    static final int HASHES = 128;
+    static final int BANDS = 16;
+    static final int ROWS = HASHES / BANDS;
+    /** Consecutive terms hashed together into a shingle */
+    static final int SHINGLE_TERMS = 3;
+
+    private static final int[] MULTIPLIERS = new int[HASHES];
+    private static final int[] OFFSETS = new int[HASHES];
+
+    static {
+        Random random = new Random(0x5eed);
+        for (int i = 0; i < HASHES; i++) {
+            MULTIPLIERS[i] = random.nextInt() | 1;
+            OFFSETS[i] = random.nextInt();
+        }
+    }
+
+    /**
+     * A document similar to another one
+     * @param similarity Estimated Jaccard similarity of the shingles, from 0 to 1
+     */
+    record Match(String path, String title, float similarity) {
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private int[] signatures = new int[16 * HASHES];
+    private String[] paths = new String[16];
+    private String[] titles = new String[16];
+    private int docCount;
+    private final Map<String, Integer> docs = new HashMap<>();
+    private final BitSet removed = new BitSet();
+    /** Document numbers by band key, one map per band */
+    private final List<Map<Long, int[]>> buckets = new ArrayList<>(BANDS);
+
+    MinHashIndex() {
+        for (int band = 0; band < BANDS; band++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Computes the signature of a document from the hashes of its shingles
+     * @param terms Terms of the document, in order
+     * @return The signature, or {@code null} if the document has no terms
+     */
+    static int[] signature(List<String> terms) {
+        if (terms.isEmpty()) {
+            return null;
+        }
+        int[] signature = new int[HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        int shingles = Math.max(1, terms.size() - SHINGLE_TERMS + 1);
+        for (int start = 0; start < shingles; start++) {
+            int shingle = 0;
+            for (int i = start; i < Math.min(terms.size(), start + SHINGLE_TERMS); i++) {
+                shingle = shingle * 31 + terms.get(i).hashCode();
+            }
+            for (int h = 0; h < HASHES; h++) {
+                int value = mix(shingle * MULTIPLIERS[h] + OFFSETS[h]);
+                if (value < signature[h]) {
+                    signature[h] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of document numbers in use, including those of removed documents
+     */
+    int slots() {
+        lock.readLock().lock();
+        try {
+            return docCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a document, or replaces the document with the same path
+     * @param signature Signature from {@link #signature(List)}
+     */
+    void put(String path, String title, int[] signature) {
+        lock.writeLock().lock();
+        try {
+            Integer previous = docs.get(path);
+            int doc;
+            if (previous != null) {
+                doc = previous;
+                removeFromBuckets(doc);
+            } else {
+                doc = docCount++;
+                ensureCapacity(docCount);
+            }
+            System.arraycopy(signature, 0, signatures, doc * HASHES, HASHES);
+            paths[doc] = path;
+            titles[doc] = title;
+            docs.put(path, doc);
+            for (int band = 0; band < BANDS; band++) {
+                buckets.get(band).merge(bandKey(doc, band), new int[] {doc}, MinHashIndex::append);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the document with the given path and all documents below it
+     */
+    void removeAtOrBelow(String path) {
+        lock.writeLock().lock();
+        try {
+            String prefix = path.endsWith("/") ? path : path + "/";
+            List<Integer> matching = new ArrayList<>();
+            docs.forEach((docPath, doc) -> {
+                if (docPath.equals(path) || docPath.startsWith(prefix)) {
+                    matching.add(doc);
+                }
+            });
+            matching.forEach(this::removeDoc);
+            if (removed.cardinality() > Math.max(1024, docs.size())) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the documents whose estimated similarity with a document reaches a threshold
+     * @return Matches, most similar first, or nothing if the document is unknown
+     */
+    List<Match> duplicatesOf(String path, float threshold) {
+        lock.readLock().lock();
+        try {
+            Integer doc = docs.get(path);
+            if (doc == null) {
+                return List.of();
+            }
+            BitSet seen = new BitSet();
+            seen.set(doc);
+            List<Match> matches = new ArrayList<>();
+            for (int band = 0; band < BANDS; band++) {
+                for (int other : buckets.get(band).getOrDefault(bandKey(doc, band), new int[0])) {
+                    if (seen.get(other)) {
+                        continue;
+                    }
+                    seen.set(other);
+                    float similarity = similarity(doc, other);
+                    if (similarity >= threshold) {
+                        matches.add(new Match(paths[other], titles[other], similarity));
+                    }
+                }
+            }
+            matches.sort((a, b) -> a.similarity() != b.similarity()
+                ? Float.compare(b.similarity(), a.similarity())
+                : a.path().compareTo(b.path()));
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Estimated similarity of two documents
+     * @return The similarity, or 0 if one of them is unknown
+     */
+    float similarity(String path, String otherPath) {
+        lock.readLock().lock();
+        try {
+            Integer doc = docs.get(path);
+            Integer other = docs.get(otherPath);
+            return doc != null && other != null ? similarity(doc, other) : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Renumbers the documents that were not removed, to reclaim the space of removed ones
+     */
+    void compact() {
+        lock.writeLock().lock();
+        try {
+            int[] oldSignatures = signatures;
+            String[] oldPaths = paths;
+            String[] oldTitles = titles;
+            int oldCount = docCount;
+            BitSet oldRemoved = (BitSet) removed.clone();
+            int capacity = Math.max(16, docs.size());
+            signatures = new int[capacity * HASHES];
+            paths = new String[capacity];
+            titles = new String[capacity];
+            docCount = 0;
+            docs.clear();
+            removed.clear();
+            buckets.forEach(Map::clear);
+            for (int doc = 0; doc < oldCount; doc++) {
+                if (!oldRemoved.get(doc)) {
+                    put(oldPaths[doc], oldTitles[doc], Arrays.copyOfRange(oldSignatures, doc * HASHES, (doc + 1) * HASHES));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeDoc(int doc) {
+        removeFromBuckets(doc);
+        docs.remove(paths[doc]);
+        paths[doc] = null;
+        titles[doc] = null;
+        removed.set(doc);
+    }
+
+    private void removeFromBuckets(int doc) {
+        for (int band = 0; band < BANDS; band++) {
+            Map<Long, int[]> bandBuckets = buckets.get(band);
+            long key = bandKey(doc, band);
+            int[] bucket = bandBuckets.get(key);
+            int[] remaining = without(bucket, doc);
+            if (remaining.length == 0) {
+                bandBuckets.remove(key);
+            } else {
+                bandBuckets.put(key, remaining);
+            }
+        }
+    }
+
+    private float similarity(int doc, int other) {
+        int equal = 0;
+        int offset = doc * HASHES;
+        int otherOffset = other * HASHES;
+        for (int h = 0; h < HASHES; h++) {
+            if (signatures[offset + h] == signatures[otherOffset + h]) {
+                equal++;
+            }
+        }
+        return (float) equal / HASHES;
+    }
+
+    /**
+     * Key of the bucket of a document in a band: a hash of its rows in that band
+     */
+    private long bandKey(int doc, int band) {
+        long key = band;
+        int offset = doc * HASHES + band * ROWS;
+        for (int row = 0; row < ROWS; row++) {
+            key = key * 0x9e37_79b9_7f4a_7c15L + signatures[offset + row];
+        }
+        return key;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > paths.length) {
+            int newCapacity = Math.max(capacity, paths.length * 2);
+            signatures = Arrays.copyOf(signatures, newCapacity * HASHES);
+            paths = Arrays.copyOf(paths, newCapacity);
+            titles = Arrays.copyOf(titles, newCapacity);
+        }
+    }
+
+    private static int[] append(int[] bucket, int[] added) {
+        int[] result = Arrays.copyOf(bucket, bucket.length + added.length);
+        System.arraycopy(added, 0, result, bucket.length, added.length);
+        return result;
+    }
+
+    private static int[] without(int[] bucket, int doc) {
+        int[] result = new int[bucket.length - 1];
+        int i = 0;
+        for (int value : bucket) {
+            if (value != doc) {
+                result[i++] = value;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Murmur3 finalizer
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85eb_ca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2_ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
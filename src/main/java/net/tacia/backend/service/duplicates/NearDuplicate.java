@@ -0,0 +1,11 @@
+package net.tacia.backend.service.duplicates;
+
+/**
+ * A document whose content is nearly the same as another one
+ *
+ * @param path       Content path of the document
+ * @param title      Title of the document
+ * @param similarity Estimated share of the three-word sequences the documents have in common, from 0 to 1
+ */
+public record NearDuplicate(String path, String title, double similarity) {
+}
@@ -0,0 +1,123 @@
+package net.tacia.backend.service.markdown;
+
+import net.tacia.backend.model.MarkdownDocument;
+import net.tacia.backend.model.ParsedDocument;
+import net.tacia.backend.model.TocEntry;
+import net.tacia.backend.model.markdown.HeadingAnchors;
+import org.commonmark.node.Heading;
+import org.commonmark.node.Link;
+import org.commonmark.node.Node;
+import org.commonmark.parser.IncludeSourceSpans;
+import org.commonmark.parser.Parser;
+import org.commonmark.renderer.html.HtmlRenderer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders the body of markdown documents to HTML (CommonMark).
+ * <p>
+ * Headings get the anchors of {@link HeadingAnchors} as their {@code id}, computed from the
+ * {@code headings} of the parsed document, so that clients can link the entries of that list to
+ * the rendered page. A rendered heading is matched to an entry by its line and level; headings
+ * that are not in the list (setext headings, for example) get no {@code id}, and entries that
+ * are not rendered as headings (lines of code blocks) have no element.
+ * <p>
+ * Link URLs are sanitized, but links are not marked {@code rel="nofollow"}.
+ */
+public class MarkdownHtmlRenderer {
+
+    /** Anchors by line of the body being rendered on this thread, read by {@link #renderer} */
+    private static final ThreadLocal<Map<Integer, Anchor>> ANCHORS_BY_LINE = new ThreadLocal<>();
+
+    // Parsers are thread-safe; source spans give the line each heading starts on
+    private final Parser parser = Parser.builder()
+        .includeSourceSpans(IncludeSourceSpans.BLOCKS)
+        .build();
+
+    // Renderers are thread-safe and create the attribute provider for every rendering
+    private final HtmlRenderer renderer = HtmlRenderer.builder()
+        .sanitizeUrls(true)
+        .attributeProviderFactory(context -> {
+            Map<Integer, Anchor> anchorsByLine = ANCHORS_BY_LINE.get();
+            return (node, tagName, attributes) -> {
+                // Sanitizing marks every link nofollow, which is meant for links of untrusted
+                // authors rather than the links between documents of the content tree
+                if (node instanceof Link) {
+                    attributes.remove("rel");
+                }
+                if (node instanceof Heading heading && !node.getSourceSpans().isEmpty()) {
+                    Anchor anchor = anchorsByLine.get(node.getSourceSpans().get(0).getLineIndex());
+                    if (anchor != null && anchor.level() == heading.getLevel()) {
+                        attributes.put("id", anchor.id());
+                    }
+                }
+            };
+        })
+        .build();
+
+    /**
+     * Renders the body of a document, without its frontmatter
+     */
+    public String render(MarkdownDocument document) {
+        List<ParsedDocument.Heading> headings = document.parsed().headings();
+        return render(document.body(), headings, HeadingAnchors.of(headings));
+    }
+
+    /**
+     * Renders one section of a document, with the anchors its headings have in the whole document
+     * @param section An entry of the table of contents of the document
+     */
+    public String render(MarkdownDocument document, TocEntry section) {
+        List<ParsedDocument.Heading> headings = document.parsed().headings();
+        List<String> anchors = HeadingAnchors.of(headings);
+        List<ParsedDocument.Heading> sectionHeadings = new ArrayList<>();
+        List<String> sectionAnchors = new ArrayList<>();
+        for (int i = 0; i < headings.size(); i++) {
+            ParsedDocument.Heading heading = headings.get(i);
+            if (heading.start() >= section.start() && heading.start() < section.end()) {
+                sectionHeadings.add(new ParsedDocument.Heading(heading.level(), heading.text(),
+                    heading.start() - section.start(), heading.end() - section.start()));
+                sectionAnchors.add(anchors.get(i));
+            }
+        }
+        return render(document.body().substring(section.start(), section.end()), sectionHeadings, sectionAnchors);
+    }
+
+    private String render(String body, List<ParsedDocument.Heading> headings, List<String> anchors) {
+        Node root = parser.parse(body);
+        ANCHORS_BY_LINE.set(anchorsByLine(body, headings, anchors));
+        try {
+            return renderer.render(root);
+        } finally {
+            ANCHORS_BY_LINE.remove();
+        }
+    }
+
+    private record Anchor(int level, String id) {
+    }
+
+    /**
+     * Anchors of the headings by the index of the line they start on, counting lines the way
+     * CommonMark does (ended by {@code \n}, {@code \r\n} or {@code \r})
+     */
+    private static Map<Integer, Anchor> anchorsByLine(String body, List<ParsedDocument.Heading> headings,
+                                                      List<String> anchors) {
+        Map<Integer, Anchor> byLine = new HashMap<>();
+        int line = 0;
+        int pos = 0;
+        for (int i = 0; i < headings.size(); i++) {
+            ParsedDocument.Heading heading = headings.get(i);
+            for (; pos < heading.start(); pos++) {
+                char c = body.charAt(pos);
+                if (c == '\n' || (c == '\r' && (pos + 1 >= body.length() || body.charAt(pos + 1) != '\n'))) {
+                    line++;
+                }
+            }
+            byLine.put(line, new Anchor(heading.level(), anchors.get(i)));
+        }
+        return byLine;
+    }
+}
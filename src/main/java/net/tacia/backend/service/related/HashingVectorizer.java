@@ -0,0 +1,83 @@
+package net.tacia.backend.service.related;
+
+import net.tacia.backend.service.search.SearchDocument;
+
+import java.util.Set;
+
+/**
+ * Turns documents into fixed-size vectors with the hashing trick: every term is hashed to one
+ * of the dimensions and adds {@code ±(1 + log tf)} to it, the sign coming from another bit of
+ * the hash so that collisions cancel out on average. Vectors are normalized to unit length, so
+ * their dot product is the cosine similarity.
+ * <p>
+ * Nothing is learned from the corpus: the vector of a document does not depend on the other
+ * documents, so documents can be added and removed without recomputing anything else. Without
+ * document frequencies, very common words would dominate, so a short list of English stop words
+ * and terms shorter than three characters are left out.
+ */
+public final class HashingVectorizer {
+
+    private static final int MIN_TERM_LENGTH = 3;
+    private static final Set<String> STOP_WORDS = Set.of(
+        "the", "and", "for", "are", "but", "not", "you", "your", "all", "can", "was", "were", "has",
+        "have", "had", "with", "this", "that", "these", "those", "from", "they", "them", "their",
+        "will", "would", "there", "then", "than", "what", "when", "which", "who", "how", "into",
+        "about", "also", "its", "our", "out", "use", "used", "using", "may", "more", "most", "some",
+        "such", "only", "other", "each", "any", "one", "two", "does", "did", "been", "being", "here",
+        "where", "why", "should", "could", "must", "very", "just", "over", "after", "before"
+    );
+
+    private final int dimensions;
+
+    /**
+     * @param dimensions Size of the vectors
+     */
+    public HashingVectorizer(int dimensions) {
+        if (dimensions <= 0) {
+            throw new IllegalArgumentException("dimensions must be positive: " + dimensions);
+        }
+        this.dimensions = dimensions;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * @return The unit vector of the document, or all zeros if it has no usable term
+     */
+    public float[] vectorize(SearchDocument document) {
+        float[] vector = new float[dimensions];
+        document.weightedTermCounts().forEach((term, count) -> {
+            if (term.length() < MIN_TERM_LENGTH || STOP_WORDS.contains(term)) {
+                return;
+            }
+            int hash = mix(term.hashCode());
+            float weight = (float) (1 + Math.log(count));
+            vector[Math.floorMod(hash, dimensions)] += (hash & 0x4000_0000) == 0 ? weight : -weight;
+        });
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < dimensions; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    /**
+     * Murmur3 finalizer, so that similar strings land on unrelated dimensions
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85eb_ca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2_ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
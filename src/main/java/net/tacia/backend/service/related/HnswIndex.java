@@ -0,0 +1,450 @@
+package net.tacia.backend.service.related;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Approximate nearest neighbour search over unit vectors with a hierarchical navigable small
+ * world graph (HNSW, Malkov and Yashunin).
+ * <p>
+ * Every vector is a node on layer 0 and, with exponentially decreasing probability, on the
+ * layers above. Each node is linked to at most {@code m} close nodes per layer ({@code 2m} on
+ * layer 0), chosen with the diversity heuristic of the paper. A search descends greedily from
+ * the single node of the top layer and explores layer 0 with a bounded candidate list, so it
+ * visits a number of nodes roughly logarithmic in the size of the index.
+ * <p>
+ * Vectors are stored in one primitive array and compared by dot product, which is the cosine
+ * similarity of unit vectors. Removed nodes stay in the graph as waypoints but are never
+ * returned; once they make up a quarter of the nodes, {@link #compacted()} builds a new graph
+ * from the live vectors. Searches run concurrently; changes wait for searches and lock them out
+ * while they link a node.
+ */
+public class HnswIndex {
+
+    /**
+     * A vector found by a search
+     * @param key Key the vector was added with
+     * @param score Dot product with the query
+     */
+    public record Match(String key, float score) {
+    }
+
+    private record Candidate(int node, float score) {
+    }
+
+    private static final Comparator<Candidate> BEST_FIRST = Comparator.comparingDouble(Candidate::score).reversed();
+    private static final Comparator<Candidate> WORST_FIRST = Comparator.comparingDouble(Candidate::score);
+
+    private final int dimensions;
+    private final int m;
+    private final int efConstruction;
+    private final double levelFactor;
+    private final Random random;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private float[] vectors;
+    private String[] keys;
+    /** Links of every node, by node and layer */
+    private int[][][] links;
+    private int nodeCount;
+    private final Map<String, Integer> nodes = new HashMap<>();
+    private final BitSet removed = new BitSet();
+    private int entryPoint = -1;
+    private int topLevel = -1;
+
+    /**
+     * @param dimensions Size of the vectors
+     * @param m Links per node and layer; more links give better recall, slower inserts and more memory
+     * @param efConstruction Candidates considered when linking a new node
+     */
+    public HnswIndex(int dimensions, int m, int efConstruction) {
+        this(dimensions, m, efConstruction, new Random(42));
+    }
+
+    HnswIndex(int dimensions, int m, int efConstruction, Random random) {
+        this.dimensions = dimensions;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.levelFactor = 1 / Math.log(m);
+        this.random = random;
+        this.vectors = new float[16 * dimensions];
+        this.keys = new String[16];
+        this.links = new int[16][][];
+    }
+
+    /**
+     * Number of vectors that can be found
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of removed vectors still in the graph
+     */
+    public int removedCount() {
+        lock.readLock().lock();
+        try {
+            return removed.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a vector, or replaces the vector with the same key
+     * @param vector Unit vector; it is copied
+     */
+    public void put(String key, float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions, got " + vector.length);
+        }
+        lock.writeLock().lock();
+        try {
+            Integer previous = nodes.remove(key);
+            if (previous != null) {
+                removed.set(previous);
+            }
+            insert(key, vector);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the vector with the given key
+     * @return Whether there was one
+     */
+    public boolean remove(String key) {
+        lock.writeLock().lock();
+        try {
+            Integer node = nodes.remove(key);
+            if (node == null) {
+                return false;
+            }
+            removed.set(node);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Whether removed vectors make up enough of the graph to be worth a {@link #compacted()} copy
+     */
+    public boolean needsCompaction() {
+        lock.readLock().lock();
+        try {
+            return removed.cardinality() * 4 > nodeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Builds a new index from the vectors that were not removed. Only copying the vectors holds
+     * the lock of this index, so it keeps serving searches and changes while the new graph is
+     * built; changes made meanwhile are not in the copy.
+     */
+    public HnswIndex compacted() {
+        String[] liveKeys;
+        float[] liveVectors;
+        lock.readLock().lock();
+        try {
+            liveKeys = new String[nodes.size()];
+            liveVectors = new float[nodes.size() * dimensions];
+            int live = 0;
+            for (int node = 0; node < nodeCount; node++) {
+                if (!removed.get(node)) {
+                    liveKeys[live] = keys[node];
+                    System.arraycopy(vectors, node * dimensions, liveVectors, live * dimensions, dimensions);
+                    live++;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        HnswIndex compacted = new HnswIndex(dimensions, m, efConstruction, new Random(random.nextLong()));
+        compacted.ensureCapacity(liveKeys.length);
+        for (int i = 0; i < liveKeys.length; i++) {
+            compacted.put(liveKeys[i], Arrays.copyOfRange(liveVectors, i * dimensions, (i + 1) * dimensions));
+        }
+        return compacted;
+    }
+
+    /**
+     * The stored vector of a key
+     * @return A copy of the vector, or {@code null} if there is none
+     */
+    public float[] vector(String key) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodes.get(key);
+            return node != null ? Arrays.copyOfRange(vectors, node * dimensions, (node + 1) * dimensions) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the vectors closest to a query
+     * @param k Maximum number of matches
+     * @param ef Size of the candidate list on layer 0, at least {@code k}; larger is slower and more accurate
+     * @return Matches, highest score first
+     */
+    public List<Match> search(float[] query, int k, int ef) {
+        return search(query, k, ef, null);
+    }
+
+    /**
+     * Finds the vectors closest to the vector of a key, without the key itself
+     * @return Matches, highest score first, or nothing if the key is unknown
+     */
+    public List<Match> neighbours(String key, int k, int ef) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodes.get(key);
+            if (node == null) {
+                return List.of();
+            }
+            return search(Arrays.copyOfRange(vectors, node * dimensions, (node + 1) * dimensions), k, ef, key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Match> search(float[] query, int k, int ef, String excluded) {
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || k <= 0) {
+                return List.of();
+            }
+            int entry = entryPoint;
+            for (int level = topLevel; level > 0; level--) {
+                entry = searchLayer(query, entry, 1, level).peek().node();
+            }
+            PriorityQueue<Candidate> found = searchLayer(query, entry, Math.max(ef, k + 1), 0);
+            List<Candidate> sorted = new ArrayList<>(found);
+            sorted.sort(BEST_FIRST);
+            List<Match> matches = new ArrayList<>(k);
+            for (Candidate candidate : sorted) {
+                if (matches.size() == k) {
+                    break;
+                }
+                String key = keys[candidate.node()];
+                if (!removed.get(candidate.node()) && !key.equals(excluded)) {
+                    matches.add(new Match(key, candidate.score()));
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(String key, float[] vector) {
+        int node = nodeCount;
+        ensureCapacity(node + 1);
+        System.arraycopy(vector, 0, vectors, node * dimensions, dimensions);
+        keys[node] = key;
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelFactor);
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[0];
+        }
+        nodeCount++;
+        nodes.put(key, node);
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            topLevel = level;
+            return;
+        }
+        int entry = entryPoint;
+        for (int l = topLevel; l > level; l--) {
+            entry = searchLayer(vector, entry, 1, l).peek().node();
+        }
+        for (int l = Math.min(level, topLevel); l >= 0; l--) {
+            PriorityQueue<Candidate> candidates = searchLayer(vector, entry, efConstruction, l);
+            List<Candidate> sorted = new ArrayList<>(candidates);
+            sorted.sort(BEST_FIRST);
+            entry = sorted.get(0).node();
+            int[] selected = selectNeighbours(sorted, maxLinks(l));
+            links[node][l] = selected;
+            for (int neighbour : selected) {
+                link(neighbour, node, l);
+            }
+        }
+        if (level > topLevel) {
+            entryPoint = node;
+            topLevel = level;
+        }
+    }
+
+    /**
+     * Adds a link from a node. If the node then has too many links, the farthest link that is
+     * closer to another linked node than to this one is dropped (or else the farthest link), so
+     * the links stay diverse without running the full heuristic again.
+     */
+    private void link(int from, int to, int level) {
+        int[] current = links[from][level];
+        int[] extended = Arrays.copyOf(current, current.length + 1);
+        extended[current.length] = to;
+        if (extended.length <= maxLinks(level)) {
+            links[from][level] = extended;
+            return;
+        }
+        List<Candidate> candidates = new ArrayList<>(extended.length);
+        for (int neighbour : extended) {
+            candidates.add(new Candidate(neighbour, dot(from, neighbour)));
+        }
+        candidates.sort(BEST_FIRST);
+        candidates.remove(worstNonDiverse(candidates));
+        int[] kept = new int[candidates.size()];
+        for (int i = 0; i < kept.length; i++) {
+            kept[i] = candidates.get(i).node();
+        }
+        links[from][level] = kept;
+    }
+
+    /**
+     * @param candidates Links, closest first
+     * @return Index of the farthest link that is closer to a closer link than to the node, or
+     *         of the farthest link if all are diverse
+     */
+    private int worstNonDiverse(List<Candidate> candidates) {
+        for (int i = candidates.size() - 1; i > 0; i--) {
+            Candidate candidate = candidates.get(i);
+            for (int j = 0; j < i; j++) {
+                if (dot(candidate.node(), candidates.get(j).node()) > candidate.score()) {
+                    return i;
+                }
+            }
+        }
+        return candidates.size() - 1;
+    }
+
+    /**
+     * Diversity heuristic: a candidate is kept only if it is closer to the base than to every
+     * neighbour kept so far, so links point in different directions. Remaining slots are
+     * filled with the closest pruned candidates.
+     * @param candidates Candidates, closest to the base first
+     */
+    private int[] selectNeighbours(List<Candidate> candidates, int max) {
+        int[] selected = new int[Math.min(max, candidates.size())];
+        int count = 0;
+        List<Candidate> pruned = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (count == selected.length) {
+                break;
+            }
+            boolean diverse = true;
+            for (int i = 0; i < count && diverse; i++) {
+                diverse = dot(candidate.node(), selected[i]) < candidate.score();
+            }
+            if (diverse) {
+                selected[count++] = candidate.node();
+            } else {
+                pruned.add(candidate);
+            }
+        }
+        for (int i = 0; count < selected.length && i < pruned.size(); i++) {
+            selected[count++] = pruned.get(i).node();
+        }
+        return selected;
+    }
+
+    /**
+     * Best-first search of one layer
+     * @return Up to {@code ef} closest nodes found, worst at the head
+     */
+    private PriorityQueue<Candidate> searchLayer(float[] query, int entry, int ef, int level) {
+        BitSet visited = new BitSet(nodeCount);
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(BEST_FIRST);
+        PriorityQueue<Candidate> found = new PriorityQueue<>(ef + 1, WORST_FIRST);
+        Candidate start = new Candidate(entry, dot(query, entry));
+        visited.set(entry);
+        candidates.add(start);
+        found.add(start);
+        while (!candidates.isEmpty()) {
+            Candidate current = candidates.poll();
+            if (found.size() >= ef && current.score() < found.peek().score()) {
+                break;
+            }
+            for (int neighbour : links[current.node()][level]) {
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float score = dot(query, neighbour);
+                if (found.size() < ef || score > found.peek().score()) {
+                    Candidate candidate = new Candidate(neighbour, score);
+                    candidates.add(candidate);
+                    found.add(candidate);
+                    if (found.size() > ef) {
+                        found.poll();
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private int maxLinks(int level) {
+        return level == 0 ? 2 * m : m;
+    }
+
+    private float dot(float[] query, int node) {
+        return dot(query, 0, vectors, node * dimensions);
+    }
+
+    private float dot(int a, int b) {
+        return dot(vectors, a * dimensions, vectors, b * dimensions);
+    }
+
+    /**
+     * Dot product with four independent sums, which the JIT can pipeline
+     */
+    private float dot(float[] a, int offsetA, float[] b, int offsetB) {
+        float sum0 = 0;
+        float sum1 = 0;
+        float sum2 = 0;
+        float sum3 = 0;
+        int i = 0;
+        for (; i + 3 < dimensions; i += 4) {
+            sum0 += a[offsetA + i] * b[offsetB + i];
+            sum1 += a[offsetA + i + 1] * b[offsetB + i + 1];
+            sum2 += a[offsetA + i + 2] * b[offsetB + i + 2];
+            sum3 += a[offsetA + i + 3] * b[offsetB + i + 3];
+        }
+        for (; i < dimensions; i++) {
+            sum0 += a[offsetA + i] * b[offsetB + i];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > keys.length) {
+            int newCapacity = Math.max(capacity, keys.length * 2);
+            vectors = Arrays.copyOf(vectors, newCapacity * dimensions);
+            keys = Arrays.copyOf(keys, newCapacity);
+            links = Arrays.copyOf(links, newCapacity);
+        }
+    }
+}
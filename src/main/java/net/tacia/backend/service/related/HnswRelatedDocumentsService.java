@@ -0,0 +1,169 @@
+package net.tacia.backend.service.related;
+
+import net.tacia.backend.api.dto.RelatedDocumentDto;
+import net.tacia.backend.service.RelatedDocumentsService;
+import net.tacia.backend.service.search.SearchDocument;
+import net.tacia.backend.service.search.SearchDocumentListener;
+import net.tacia.backend.service.search.SearchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Finds related documents by approximate nearest neighbour search over hashed term vectors
+ * (see {@link HashingVectorizer} and {@link HnswIndex}).
+ * <p>
+ * Unlike the TF-IDF engine, nothing is computed for pairs of documents in advance: indexing a
+ * document costs a logarithmic number of comparisons, and related documents are searched for
+ * when requested. This scales to corpora where precomputing all similarities does not.
+ * Documents are taken from the {@link SearchService} as it indexes them. {@code skipCache}
+ * has no effect, as nothing is cached.
+ */
+public class HnswRelatedDocumentsService implements RelatedDocumentsService, SearchDocumentListener, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(HnswRelatedDocumentsService.class);
+
+    static final int M = 16;
+    static final int EF_CONSTRUCTION = 100;
+    static final int MIN_EF = 64;
+
+    private final HashingVectorizer vectorizer;
+    private final ExecutorService compactionExecutor;
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private final Map<String, String> titles = new ConcurrentHashMap<>();
+    private volatile HnswIndex index;
+    /** Keys changed while a compacted index is built, or {@code null}; guarded by this */
+    private Set<String> changedDuringCompaction;
+
+    /**
+     * @param searchService Source of the indexed documents
+     * @param dimensions Size of the document vectors
+     */
+    public HnswRelatedDocumentsService(SearchService searchService, int dimensions) {
+        this.vectorizer = new HashingVectorizer(dimensions);
+        this.index = new HnswIndex(dimensions, M, EF_CONSTRUCTION);
+        this.compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "related-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        searchService.addListener(this);
+    }
+
+    @Override
+    public List<RelatedDocumentDto> findRelatedDocuments(String documentPath, int limit, boolean skipCache) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        return index.neighbours(SearchDocument.contentPath(documentPath), limit, Math.max(MIN_EF, limit))
+            .stream()
+            .filter(match -> match.score() > 0)
+            .map(match -> new RelatedDocumentDto(
+                match.key().replaceAll("\\.md$", ""),
+                titles.getOrDefault(match.key(), ""),
+                match.score()))
+            .toList();
+    }
+
+    @Override
+    public void documentsRebuilt(Collection<SearchDocument> documents) {
+        long start = System.nanoTime();
+        HnswIndex rebuilt = new HnswIndex(vectorizer.dimensions(), M, EF_CONSTRUCTION);
+        for (SearchDocument document : documents) {
+            add(rebuilt, document);
+        }
+        synchronized (this) {
+            index = rebuilt;
+            titles.keySet().retainAll(documents.stream().map(SearchDocument::path).toList());
+        }
+        log.info("Indexed {} documents for related documents in {} ms", rebuilt.size(),
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public synchronized void documentsReplaced(String path, Collection<SearchDocument> documents) {
+        HnswIndex current = index;
+        if (path != null) {
+            String prefix = path.endsWith("/") ? path : path + "/";
+            titles.keySet().removeIf(key -> {
+                boolean below = key.equals(path) || key.startsWith(prefix);
+                if (below) {
+                    current.remove(key);
+                    if (changedDuringCompaction != null) {
+                        changedDuringCompaction.add(key);
+                    }
+                }
+                return below;
+            });
+        }
+        for (SearchDocument document : documents) {
+            add(current, document);
+            if (changedDuringCompaction != null) {
+                changedDuringCompaction.add(document.path());
+            }
+        }
+        if (current.needsCompaction() && compactionScheduled.compareAndSet(false, true)) {
+            compactionExecutor.execute(this::compact);
+        }
+    }
+
+    /**
+     * Replaces the index with a compacted copy. The copy is built while the current index keeps
+     * serving searches and changes; the changes are then replayed on the copy before it is
+     * swapped in.
+     */
+    private void compact() {
+        HnswIndex current;
+        synchronized (this) {
+            current = index;
+            changedDuringCompaction = new HashSet<>();
+        }
+        long start = System.nanoTime();
+        HnswIndex compacted = current.compacted();
+        synchronized (this) {
+            // A rebuild replaces the index that was compacted
+            if (index == current) {
+                for (String key : changedDuringCompaction) {
+                    float[] vector = current.vector(key);
+                    if (vector != null) {
+                        compacted.put(key, vector);
+                    } else {
+                        compacted.remove(key);
+                    }
+                }
+                index = compacted;
+            }
+            changedDuringCompaction = null;
+            compactionScheduled.set(false);
+        }
+        log.debug("Compacted the related documents index to {} documents in {} ms", compacted.size(),
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void close() {
+        compactionExecutor.shutdownNow();
+    }
+
+    private void add(HnswIndex target, SearchDocument document) {
+        titles.put(document.path(), document.title());
+        float[] vector = vectorizer.vectorize(document);
+        for (float value : vector) {
+            if (value != 0) {
+                target.put(document.path(), vector);
+                return;
+            }
+        }
+        // Nothing to compare with
+        target.remove(document.path());
+    }
+}
@@ -0,0 +1,73 @@
+package net.tacia.backend.service.related;
+
+import net.tacia.backend.api.dto.RelatedDocumentDto;
+import net.tacia.backend.service.RelatedDocumentsService;
+import net.tacia.backend.service.search.SearchDocument;
+import net.tacia.backend.service.search.SearchDocumentListener;
+import net.tacia.backend.service.search.SearchService;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Finds related documents by the similarity of their TF-IDF vectors.
+ * <p>
+ * The documents are taken from the {@link SearchService} as it indexes them, and the most
+ * similar documents of each one are kept up to date as they change (see
+ * {@link TfIdfRelatedIndex}). A request is a lookup of the precomputed list, so results are
+ * not {@link #cacheable() cached}, which would only make them stale, and {@code skipCache} has
+ * no effect. Until the search index has been built,
+ * no related documents are found.
+ */
+public class TfIdfRelatedDocumentsService implements RelatedDocumentsService, SearchDocumentListener, AutoCloseable {
+
+    private final ExecutorService refreshExecutor;
+    private final TfIdfRelatedIndex index;
+
+    /**
+     * @param searchService Source of the indexed documents
+     * @param maxNeighbours Number of related documents kept for each document
+     */
+    public TfIdfRelatedDocumentsService(SearchService searchService, int maxNeighbours) {
+        this.refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "related-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.index = new TfIdfRelatedIndex(maxNeighbours, refreshExecutor);
+        searchService.addListener(this);
+    }
+
+    @Override
+    public boolean cacheable() {
+        return false;
+    }
+
+    @Override
+    public List<RelatedDocumentDto> findRelatedDocuments(String documentPath, int limit, boolean skipCache) {
+        return index.neighbours(SearchDocument.contentPath(documentPath)).stream()
+            .limit(Math.max(0, limit))
+            .map(neighbour -> new RelatedDocumentDto(
+                neighbour.path().replaceAll("\\.md$", ""),
+                neighbour.title(),
+                neighbour.score()))
+            .toList();
+    }
+
+    @Override
+    public void documentsRebuilt(Collection<SearchDocument> documents) {
+        index.rebuild(documents);
+    }
+
+    @Override
+    public void documentsReplaced(String path, Collection<SearchDocument> documents) {
+        index.replace(path, documents);
+    }
+
+    @Override
+    public void close() {
+        refreshExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,504 @@
+package net.tacia.backend.service.related;
+
+import net.tacia.backend.service.search.SearchDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * TF-IDF vectors of documents and, for every document, its most similar documents by cosine
+ * similarity, computed in advance.
+ * <p>
+ * A vector keeps the {@value #MAX_TERMS} terms with the highest weight
+ * {@code (1 + log tf) * log(N / df)} and is normalized to unit length. Terms that occur in every
+ * document weigh nothing and are dropped. Similar documents are found through postings of the
+ * vector terms, so only documents that share a term are compared.
+ * <p>
+ * When documents change, only their vectors are computed again, and the neighbour lists of the
+ * documents sharing a term with their old or new version are updated. The vectors of the other
+ * documents keep the document frequencies they were computed with; once the changes exceed a
+ * fifth of the documents, everything is recomputed in the background.
+ * <p>
+ * Lookups read a concurrent map and never wait for changes.
+ */
+final class TfIdfRelatedIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(TfIdfRelatedIndex.class);
+
+    /** Terms kept in a document vector */
+    static final int MAX_TERMS = 64;
+    /** Changes that always trigger a refresh of all vectors, whatever the size of the corpus */
+    private static final int MIN_REFRESH_CHANGES = 100;
+
+    /**
+     * A similar document
+     * @param score Cosine similarity of the vectors, from 0 (exclusive) to 1
+     */
+    record Neighbour(String path, String title, float score) {
+    }
+
+    /**
+     * A document with its term counts and, once computed, its vector and neighbours. Term ids
+     * are sorted in both the counts and the vector.
+     */
+    private static final class Doc {
+        final String path;
+        final String title;
+        final int[] countTerms;
+        final float[] counts;
+        int[] terms = new int[0];
+        float[] weights = new float[0];
+        int[] neighbours = new int[0];
+        float[] neighbourScores = new float[0];
+
+        Doc(String path, String title, int[] countTerms, float[] counts) {
+            this.path = path;
+            this.title = title;
+            this.countTerms = countTerms;
+            this.counts = counts;
+        }
+    }
+
+    /** Documents whose vector contains a term, with the weight of the term */
+    private static final class Postings {
+        int[] docs = new int[4];
+        float[] weights = new float[4];
+        int size;
+
+        void add(int doc, float weight) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            docs[size] = doc;
+            weights[size] = weight;
+            size++;
+        }
+
+        void remove(int doc) {
+            for (int i = 0; i < size; i++) {
+                if (docs[i] == doc) {
+                    size--;
+                    docs[i] = docs[size];
+                    weights[i] = weights[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    private final int maxNeighbours;
+    private final Executor refreshExecutor;
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+    private final Map<String, List<Neighbour>> related = new ConcurrentHashMap<>();
+
+    // Guarded by this
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private int[] docFreqs = new int[1024];
+    private Postings[] postings = new Postings[1024];
+    private final Map<String, Integer> docIds = new HashMap<>();
+    private final List<Doc> docs = new ArrayList<>();
+    private int liveCount;
+    private int changesSinceRefresh;
+    private float[] scratchScores = new float[0];
+
+    /**
+     * @param maxNeighbours Number of similar documents kept for each document
+     * @param refreshExecutor Runs the recomputation of all vectors after many changes
+     */
+    TfIdfRelatedIndex(int maxNeighbours, Executor refreshExecutor) {
+        this.maxNeighbours = maxNeighbours;
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    /**
+     * The documents most similar to a document, most similar first
+     * @param path Content path of the document, with a leading slash
+     */
+    List<Neighbour> neighbours(String path) {
+        return related.getOrDefault(path, List.of());
+    }
+
+    synchronized int size() {
+        return liveCount;
+    }
+
+    /**
+     * Replaces all documents with the given ones
+     */
+    synchronized void rebuild(Collection<SearchDocument> documents) {
+        termIds.clear();
+        docFreqs = new int[1024];
+        postings = new Postings[1024];
+        List<Doc> added = new ArrayList<>(documents.size());
+        for (SearchDocument document : documents) {
+            added.add(toDoc(document));
+        }
+        reindexAll(added);
+        related.keySet().retainAll(docIds.keySet());
+    }
+
+    /**
+     * Replaces the documents at or below a path with the given ones and updates the neighbours
+     * of the documents similar to the old or new versions
+     * @param path Path of a document or a directory, or {@code null} to only add or replace
+     */
+    synchronized void replace(String path, Collection<SearchDocument> documents) {
+        Set<Integer> removed = new HashSet<>();
+        if (path != null) {
+            collectAtOrBelow(path, removed);
+        }
+        for (SearchDocument document : documents) {
+            Integer id = docIds.get(document.path());
+            if (id != null) {
+                removed.add(id);
+            }
+        }
+
+        Set<Integer> affected = new HashSet<>();
+        List<String> removedPaths = new ArrayList<>(removed.size());
+        for (int id : removed) {
+            Doc doc = docs.get(id);
+            collectCandidates(doc, affected);
+            removePostings(id, doc);
+            updateDocFreqs(doc, -1);
+            docs.set(id, null);
+            docIds.remove(doc.path);
+            removedPaths.add(doc.path);
+            liveCount--;
+        }
+
+        Set<Integer> added = new LinkedHashSet<>();
+        Map<String, SearchDocument> latest = new HashMap<>();
+        for (SearchDocument document : documents) {
+            latest.put(document.path(), document);
+        }
+        for (SearchDocument document : latest.values()) {
+            Doc doc = toDoc(document);
+            int id = docs.size();
+            docs.add(doc);
+            docIds.put(doc.path, id);
+            updateDocFreqs(doc, 1);
+            liveCount++;
+            added.add(id);
+        }
+        for (int id : added) {
+            Doc doc = docs.get(id);
+            computeVector(doc);
+            addPostings(id, doc);
+        }
+        for (int id : added) {
+            Doc doc = docs.get(id);
+            collectCandidates(doc, affected);
+            computeNeighbours(id);
+        }
+
+        for (int id : affected) {
+            Doc doc = docs.get(id);
+            if (doc == null || added.contains(id)) {
+                continue;
+            }
+            if (containsAny(doc.neighbours, removed)) {
+                // A neighbour is gone or changed; any document may take its place
+                computeNeighbours(id);
+                continue;
+            }
+            boolean changed = false;
+            for (int other : added) {
+                changed |= offerNeighbour(doc, other, dot(doc, docs.get(other)));
+            }
+            if (changed) {
+                publish(doc);
+            }
+        }
+        for (String removedPath : removedPaths) {
+            if (!docIds.containsKey(removedPath)) {
+                related.remove(removedPath);
+            }
+        }
+
+        changesSinceRefresh += removed.size() + added.size();
+        if (changesSinceRefresh > Math.max(MIN_REFRESH_CHANGES, liveCount / 5)
+            && refreshScheduled.compareAndSet(false, true)) {
+            refreshExecutor.execute(this::refresh);
+        }
+    }
+
+    /**
+     * Recomputes all vectors and neighbours with the current document frequencies
+     */
+    void refresh() {
+        refreshScheduled.set(false);
+        long start = System.nanoTime();
+        synchronized (this) {
+            List<Doc> current = new ArrayList<>(liveCount);
+            for (Doc doc : docs) {
+                if (doc != null) {
+                    current.add(doc);
+                }
+            }
+            reindexAll(current);
+        }
+        log.debug("Recomputed related documents in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Numbers the documents from 0 and computes all document frequencies, vectors and neighbours.
+     * Term ids are kept.
+     */
+    private void reindexAll(List<Doc> current) {
+        Arrays.fill(docFreqs, 0);
+        Arrays.fill(postings, null);
+        // The last document with a path wins
+        Map<String, Doc> byPath = new LinkedHashMap<>();
+        for (Doc doc : current) {
+            byPath.remove(doc.path);
+            byPath.put(doc.path, doc);
+        }
+        docIds.clear();
+        docs.clear();
+        for (Doc doc : byPath.values()) {
+            docIds.put(doc.path, docs.size());
+            docs.add(doc);
+        }
+        liveCount = docs.size();
+        for (Doc doc : docs) {
+            updateDocFreqs(doc, 1);
+        }
+        for (int id = 0; id < docs.size(); id++) {
+            computeVector(docs.get(id));
+            addPostings(id, docs.get(id));
+        }
+        for (int id = 0; id < docs.size(); id++) {
+            computeNeighbours(id);
+        }
+        changesSinceRefresh = 0;
+    }
+
+    private Doc toDoc(SearchDocument document) {
+        Map<String, Float> counts = document.weightedTermCounts();
+        int[] terms = new int[counts.size()];
+        int i = 0;
+        for (String term : counts.keySet()) {
+            terms[i++] = termIds.computeIfAbsent(term, t -> termIds.size());
+        }
+        Arrays.sort(terms);
+        Map<Integer, Float> byId = new HashMap<>(counts.size() * 4 / 3 + 1);
+        counts.forEach((term, count) -> byId.put(termIds.get(term), count));
+        float[] values = new float[terms.length];
+        for (i = 0; i < terms.length; i++) {
+            values[i] = byId.get(terms[i]);
+        }
+        ensureTermCapacity(termIds.size());
+        return new Doc(document.path(), document.title(), terms, values);
+    }
+
+    private void ensureTermCapacity(int termCount) {
+        if (termCount > docFreqs.length) {
+            int capacity = Math.max(termCount, docFreqs.length * 2);
+            docFreqs = Arrays.copyOf(docFreqs, capacity);
+            postings = Arrays.copyOf(postings, capacity);
+        }
+    }
+
+    private void updateDocFreqs(Doc doc, int delta) {
+        for (int term : doc.countTerms) {
+            docFreqs[term] += delta;
+        }
+    }
+
+    /**
+     * Keeps the terms with the highest TF-IDF weight, normalized to unit length
+     */
+    private void computeVector(Doc doc) {
+        int n = doc.countTerms.length;
+        float[] weights = new float[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            int docFreq = Math.max(1, docFreqs[doc.countTerms[i]]);
+            weights[i] = (float) ((1 + Math.log(doc.counts[i])) * Math.log((double) liveCount / docFreq));
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(weights[b], weights[a]));
+        int kept = 0;
+        while (kept < Math.min(n, MAX_TERMS) && weights[order[kept]] > 0) {
+            kept++;
+        }
+        Integer[] selected = Arrays.copyOf(order, kept);
+        Arrays.sort(selected);
+        double norm = 0;
+        for (int i : selected) {
+            norm += weights[i] * weights[i];
+        }
+        norm = Math.sqrt(norm);
+        doc.terms = new int[kept];
+        doc.weights = new float[kept];
+        for (int j = 0; j < kept; j++) {
+            doc.terms[j] = doc.countTerms[selected[j]];
+            doc.weights[j] = (float) (weights[selected[j]] / norm);
+        }
+    }
+
+    private void addPostings(int id, Doc doc) {
+        for (int i = 0; i < doc.terms.length; i++) {
+            int term = doc.terms[i];
+            if (postings[term] == null) {
+                postings[term] = new Postings();
+            }
+            postings[term].add(id, doc.weights[i]);
+        }
+    }
+
+    private void removePostings(int id, Doc doc) {
+        for (int term : doc.terms) {
+            postings[term].remove(id);
+        }
+    }
+
+    /**
+     * Adds the documents sharing a vector term with the given one
+     */
+    private void collectCandidates(Doc doc, Set<Integer> candidates) {
+        for (int term : doc.terms) {
+            Postings termPostings = postings[term];
+            for (int i = 0; i < termPostings.size; i++) {
+                candidates.add(termPostings.docs[i]);
+            }
+        }
+    }
+
+    /**
+     * Finds the most similar documents by accumulating the products of the weights of shared
+     * terms over the postings
+     */
+    private void computeNeighbours(int id) {
+        Doc doc = docs.get(id);
+        if (scratchScores.length < docs.size()) {
+            scratchScores = new float[Math.max(docs.size(), scratchScores.length * 2)];
+        }
+        float[] scores = scratchScores;
+        List<Integer> touched = new ArrayList<>();
+        for (int i = 0; i < doc.terms.length; i++) {
+            Postings termPostings = postings[doc.terms[i]];
+            float weight = doc.weights[i];
+            for (int p = 0; p < termPostings.size; p++) {
+                int other = termPostings.docs[p];
+                if (other == id) {
+                    continue;
+                }
+                if (scores[other] == 0) {
+                    touched.add(other);
+                }
+                scores[other] += weight * termPostings.weights[p];
+            }
+        }
+        doc.neighbours = new int[0];
+        doc.neighbourScores = new float[0];
+        for (int other : touched) {
+            offerNeighbour(doc, other, scores[other]);
+            scores[other] = 0;
+        }
+        publish(doc);
+    }
+
+    /**
+     * Inserts a document into the neighbours of another if it is similar enough
+     * @return Whether the neighbours changed
+     */
+    private boolean offerNeighbour(Doc doc, int other, float score) {
+        if (score <= 0) {
+            return false;
+        }
+        int size = doc.neighbours.length;
+        int position = size;
+        while (position > 0 && isBefore(score, other, doc.neighbourScores[position - 1], doc.neighbours[position - 1])) {
+            position--;
+        }
+        if (position >= maxNeighbours) {
+            return false;
+        }
+        int newSize = Math.min(size + 1, maxNeighbours);
+        int[] neighbours = new int[newSize];
+        float[] scores = new float[newSize];
+        System.arraycopy(doc.neighbours, 0, neighbours, 0, position);
+        System.arraycopy(doc.neighbourScores, 0, scores, 0, position);
+        neighbours[position] = other;
+        scores[position] = score;
+        System.arraycopy(doc.neighbours, position, neighbours, position + 1, newSize - position - 1);
+        System.arraycopy(doc.neighbourScores, position, scores, position + 1, newSize - position - 1);
+        doc.neighbours = neighbours;
+        doc.neighbourScores = scores;
+        return true;
+    }
+
+    /**
+     * Order of neighbours: higher score first, then by path
+     */
+    private boolean isBefore(float score, int doc, float otherScore, int other) {
+        if (score != otherScore) {
+            return score > otherScore;
+        }
+        return docs.get(doc).path.compareTo(docs.get(other).path) < 0;
+    }
+
+    private void publish(Doc doc) {
+        List<Neighbour> neighbours = new ArrayList<>(doc.neighbours.length);
+        for (int i = 0; i < doc.neighbours.length; i++) {
+            Doc other = docs.get(doc.neighbours[i]);
+            neighbours.add(new Neighbour(other.path, other.title, doc.neighbourScores[i]));
+        }
+        related.put(doc.path, List.copyOf(neighbours));
+    }
+
+    private void collectAtOrBelow(String path, Set<Integer> ids) {
+        String trimmed = path.endsWith("/") && path.length() > 1 ? path.substring(0, path.length() - 1) : path;
+        Integer id = docIds.get(trimmed);
+        if (id != null) {
+            ids.add(id);
+        }
+        String prefix = trimmed.endsWith("/") ? trimmed : trimmed + "/";
+        docIds.forEach((docPath, docId) -> {
+            if (docPath.startsWith(prefix)) {
+                ids.add(docId);
+            }
+        });
+    }
+
+    private static float dot(Doc a, Doc b) {
+        float sum = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.terms.length && j < b.terms.length) {
+            if (a.terms[i] == b.terms[j]) {
+                sum += a.weights[i++] * b.weights[j++];
+            } else if (a.terms[i] < b.terms[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return sum;
+    }
+
+    private static boolean containsAny(int[] ids, Set<Integer> set) {
+        for (int id : ids) {
+            if (set.contains(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
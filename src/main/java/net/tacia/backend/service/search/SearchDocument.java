@@ -0,0 +1,98 @@
+package net.tacia.backend.service.search;
+
+import net.tacia.backend.api.dto.ContentMetadataDto;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The searchable parts of a markdown document.
+ *
+ * @param path     Content path of the document, with a leading slash
+ * @param title    Title from the frontmatter, the first heading or the file name
+ * @param headings Text of all headings
+ * @param tags     Tags from the frontmatter
+ * @param body     Markdown without the frontmatter
+ */
+public record SearchDocument(String path, String title, List<String> headings, List<String> tags, String body) {
+
+    public SearchDocument {
+        headings = headings != null ? List.copyOf(headings) : List.of();
+        tags = tags != null ? List.copyOf(tags) : List.of();
+        body = body != null ? body : "";
+    }
+
+    /**
+     * Creates the document from the result of {@code MarkdownService.processMarkdown}
+     * @param path Content path of the document
+     * @param processed Markdown, headings and metadata of the document
+     */
+    @SuppressWarnings("unchecked")
+    public static SearchDocument of(String path, Map<String, Object> processed) {
+        ContentMetadataDto metadata = processed.get("metadata") instanceof ContentMetadataDto dto
+            ? dto
+            : ContentMetadataDto.empty();
+        Object titleValue = metadata.getProperties().get("title");
+        String title = titleValue != null ? titleValue.toString() : null;
+        if (title == null || title.isEmpty()) {
+            String name = path.substring(path.lastIndexOf('/') + 1);
+            title = name.endsWith(".md") ? name.substring(0, name.length() - 3) : name;
+        }
+        Object headings = processed.get("headings");
+        return new SearchDocument(
+            path,
+            title,
+            headings instanceof List<?> list ? (List<String>) list : List.of(),
+            metadata.getTags(),
+            (String) processed.get("markdown")
+        );
+    }
+
+    /**
+     * Path of a markdown document as indexed, from a path with or without leading and trailing
+     * slashes and extension
+     */
+    public static String contentPath(String documentPath) {
+        if (documentPath == null) {
+            return "";
+        }
+        return "/" + documentPath.replace("\\", "/")
+            .replaceAll("^/+|/+$", "")
+            .replaceAll("\\.(md|markdown)$", "") + ".md";
+    }
+
+    /**
+     * Calls the action with every term of the headings and the body, in order
+     */
+    public void forEachContentTerm(Consumer<String> action) {
+        Tokenizer.tokenize(text(SearchField.HEADINGS), action);
+        Tokenizer.tokenize(body, action);
+    }
+
+    /**
+     * Occurrences of every term of the document, each weighted by the
+     * {@link SearchField#boost() boost} of the field it occurs in
+     */
+    public Map<String, Float> weightedTermCounts() {
+        Map<String, Float> counts = new HashMap<>();
+        for (SearchField field : SearchField.VALUES) {
+            float boost = field.boost();
+            Tokenizer.tokenize(text(field), term -> counts.merge(term, boost, Float::sum));
+        }
+        return counts;
+    }
+
+    /**
+     * Text of a field, for tokenizing
+     */
+    String text(SearchField field) {
+        return switch (field) {
+            case TITLE -> title;
+            case HEADINGS -> String.join("\n", headings);
+            case TAGS -> String.join("\n", tags);
+            case BODY -> body;
+        };
+    }
+}
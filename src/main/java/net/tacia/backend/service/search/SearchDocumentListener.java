@@ -0,0 +1,24 @@
+package net.tacia.backend.service.search;
+
+import java.util.Collection;
+
+/**
+ * Receives the documents indexed by the {@link SearchService}, so other indexes can be kept in
+ * sync without loading and parsing the documents again.
+ */
+public interface SearchDocumentListener {
+
+    /**
+     * Called after all documents were indexed again
+     * @param documents All indexed documents
+     */
+    void documentsRebuilt(Collection<SearchDocument> documents);
+
+    /**
+     * Called after documents were added, replaced or removed
+     * @param path Path of a document or a directory whose documents were all replaced by the
+     *             given ones, or {@code null} if documents were only added or replaced
+     * @param documents New versions of documents
+     */
+    void documentsReplaced(String path, Collection<SearchDocument> documents);
+}
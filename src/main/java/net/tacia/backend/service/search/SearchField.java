@@ -0,0 +1,48 @@
+package net.tacia.backend.service.search;
+
+/**
+ * Indexed fields of a document and how much a match in each of them counts.
+ * <p>
+ * The occurrences of a term in all fields of a document are packed into one int; each field
+ * has a fixed range of bits, and counts beyond its maximum are capped (BM25 saturates long
+ * before that).
+ */
+public enum SearchField {
+    TITLE(3.0f, 0, 5),
+    HEADINGS(2.0f, 5, 6),
+    TAGS(2.0f, 11, 5),
+    BODY(1.0f, 16, 16);
+
+    static final SearchField[] VALUES = values();
+
+    private final float boost;
+    private final int shift;
+    private final int mask;
+
+    SearchField(float boost, int shift, int bits) {
+        this.boost = boost;
+        this.shift = shift;
+        this.mask = (1 << bits) - 1;
+    }
+
+    /**
+     * Occurrences in this field, from packed counts
+     */
+    int freq(int packed) {
+        return (packed >>> shift) & mask;
+    }
+
+    /**
+     * Adds one occurrence in this field to packed counts
+     */
+    int increment(int packed) {
+        return freq(packed) < mask ? packed + (1 << shift) : packed;
+    }
+
+    /**
+     * Weight of a term occurrence in this field relative to the body
+     */
+    public float boost() {
+        return boost;
+    }
+}
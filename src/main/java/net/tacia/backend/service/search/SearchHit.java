@@ -0,0 +1,14 @@
+package net.tacia.backend.service.search;
+
+import java.util.List;
+
+/**
+ * A document matching a search query.
+ *
+ * @param path  Content path of the document
+ * @param title Title of the document
+ * @param tags  Tags of the document
+ * @param score BM25 relevance, only comparable between hits of the same query
+ */
+public record SearchHit(String path, String title, List<String> tags, double score) {
+}
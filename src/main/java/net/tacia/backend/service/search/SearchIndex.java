@@ -0,0 +1,403 @@
+package net.tacia.backend.service.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory full-text index of markdown documents, ranked with BM25F.
+ * <p>
+ * A query is split into terms like the indexed text. Documents containing any of the terms
+ * match; each term adds {@code idf * tf / (k1 + tf)} to the score of a document, where tf is
+ * the sum of the term's occurrences in every field, weighted by the field's
+ * {@link SearchField#boost() boost} and normalized by the length of the field relative to
+ * its average. Rare terms and matches in short fields (titles, headings) count the most.
+ * <p>
+ * The index is made of immutable {@link SearchSegment segments}. Added or updated documents go
+ * into a new segment, and the previous version of a document is marked as deleted in its
+ * segment. Every change publishes a new list of segments and deletions at once, so queries read
+ * a consistent state without locking and never wait for writers; writers only wait for each
+ * other. Like in Lucene, deleted documents still count for term and length statistics until
+ * their segment is merged.
+ * <p>
+ * Small segments are merged in the background, {@value #MERGE_FACTOR} of similar size at a
+ * time, so their number stays logarithmic in the size of the index. Segments where more than
+ * half of the documents are deleted are rewritten on their own.
+ */
+public class SearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndex.class);
+
+    static final float K1 = 1.2f;
+    static final float B = 0.75f;
+    /** Number of segments of the same tier that are merged into one */
+    static final int MERGE_FACTOR = 10;
+
+    private static final BitSet NO_DELETIONS = new BitSet();
+    private static final Comparator<Candidate> WORST_FIRST = Comparator
+        .comparingDouble(Candidate::score)
+        .thenComparing(Candidate::path, Comparator.reverseOrder());
+
+    private final Executor mergeExecutor;
+    private final AtomicBoolean mergeScheduled = new AtomicBoolean();
+    private final Object writeLock = new Object();
+    private volatile List<LiveSegment> segments = List.of();
+
+    /**
+     * A segment with its deleted documents. The deletions are never modified once published;
+     * deleting more documents creates a new instance.
+     */
+    private record LiveSegment(SearchSegment segment, BitSet deleted, int deletedCount) {
+
+        LiveSegment(SearchSegment segment) {
+            this(segment, NO_DELETIONS, 0);
+        }
+
+        int liveCount() {
+            return segment.size() - deletedCount;
+        }
+
+        /**
+         * @return This segment with the documents at or below the path deleted
+         */
+        LiveSegment delete(String path) {
+            BitSet[] copy = new BitSet[1];
+            segment.forEachAtOrBelow(path, doc -> {
+                if (!deleted.get(doc)) {
+                    if (copy[0] == null) {
+                        copy[0] = (BitSet) deleted.clone();
+                    }
+                    copy[0].set(doc);
+                }
+            });
+            return copy[0] == null ? this : new LiveSegment(segment, copy[0], copy[0].cardinality());
+        }
+    }
+
+    private record Candidate(SearchSegment segment, int doc, float score) {
+        String path() {
+            return segment.path(doc);
+        }
+    }
+
+    /**
+     * Creates an index that merges segments on the thread that changed the index
+     */
+    public SearchIndex() {
+        this(Runnable::run);
+    }
+
+    /**
+     * @param mergeExecutor Runs segment merges
+     */
+    public SearchIndex(Executor mergeExecutor) {
+        this.mergeExecutor = mergeExecutor;
+    }
+
+    /**
+     * Replaces the whole index with the given documents
+     */
+    public void rebuild(Collection<SearchDocument> documents) {
+        SearchSegment segment = SearchSegment.build(List.copyOf(latestByPath(documents)));
+        synchronized (writeLock) {
+            segments = segment.size() > 0 ? List.of(new LiveSegment(segment)) : List.of();
+        }
+    }
+
+    /**
+     * Adds or replaces a document
+     */
+    public void update(SearchDocument document) {
+        updateAll(List.of(document));
+    }
+
+    /**
+     * Adds or replaces documents, as one change. If several documents have the same path, the
+     * last one is kept.
+     */
+    public void updateAll(Collection<SearchDocument> documents) {
+        replace(null, documents);
+    }
+
+    /**
+     * Replaces all documents at or below a path with the given ones, as one change
+     * @param path Path of a document or a directory, or {@code null} to only add or replace
+     */
+    public void replace(String path, Collection<SearchDocument> documents) {
+        Collection<SearchDocument> latest = latestByPath(documents);
+        if (path == null && latest.isEmpty()) {
+            return;
+        }
+        // Tokenize before taking the lock
+        SearchSegment segment = latest.isEmpty() ? null : SearchSegment.build(List.copyOf(latest));
+        synchronized (writeLock) {
+            List<LiveSegment> updated = new ArrayList<>(segments.size() + 1);
+            for (LiveSegment current : segments) {
+                if (path != null) {
+                    current = current.delete(path);
+                }
+                for (SearchDocument document : latest) {
+                    current = current.delete(document.path());
+                }
+                addIfLive(updated, current);
+            }
+            if (segment != null) {
+                updated.add(new LiveSegment(segment));
+            }
+            segments = List.copyOf(updated);
+        }
+        scheduleMerge();
+    }
+
+    /**
+     * Removes the document with the given path and all documents below it
+     * @param path Path of a document or a directory
+     */
+    public void delete(String path) {
+        replace(path, List.of());
+    }
+
+    /**
+     * Number of indexed documents
+     */
+    public int size() {
+        int size = 0;
+        for (LiveSegment segment : segments) {
+            size += segment.liveCount();
+        }
+        return size;
+    }
+
+    /**
+     * Number of segments the index currently consists of
+     */
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Finds the documents matching a query
+     * @param query Free text
+     * @param limit Maximum number of hits to return
+     * @return The best hits and the number of matching documents
+     */
+    public SearchResult search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>();
+        Tokenizer.tokenize(query, terms::add);
+        List<LiveSegment> current = segments;
+        if (terms.isEmpty() || current.isEmpty() || limit <= 0) {
+            return SearchResult.EMPTY;
+        }
+
+        // Collection statistics over all segments
+        long docCount = 0;
+        float[] averageLengths = new float[SearchField.VALUES.length];
+        for (LiveSegment live : current) {
+            docCount += live.segment().size();
+            for (SearchField field : SearchField.VALUES) {
+                averageLengths[field.ordinal()] += live.segment().totalFieldLength(field);
+            }
+        }
+        if (docCount == 0) {
+            return SearchResult.EMPTY;
+        }
+        for (int field = 0; field < averageLengths.length; field++) {
+            averageLengths[field] = Math.max(1f, averageLengths[field] / docCount);
+        }
+        List<String> termList = new ArrayList<>(terms);
+        float[] idf = new float[termList.size()];
+        for (int t = 0; t < idf.length; t++) {
+            long docFreq = 0;
+            for (LiveSegment live : current) {
+                docFreq += live.segment().docFreq(termList.get(t));
+            }
+            idf[t] = (float) Math.log(1 + (docCount - docFreq + 0.5) / (docFreq + 0.5));
+        }
+
+        int total = 0;
+        PriorityQueue<Candidate> best = new PriorityQueue<>(limit + 1, WORST_FIRST);
+        for (LiveSegment live : current) {
+            SearchSegment segment = live.segment();
+            BitSet deleted = live.deleted();
+            float[] scores = new float[segment.size()];
+            int[] matched = new int[16];
+            int matchCount = 0;
+            for (int t = 0; t < idf.length; t++) {
+                SearchSegment.Postings postings = segment.postings(termList.get(t));
+                if (postings == null) {
+                    continue;
+                }
+                int[] docs = postings.docs();
+                int[] freqs = postings.freqs();
+                for (int i = 0; i < docs.length; i++) {
+                    int doc = docs[i];
+                    if (deleted.get(doc)) {
+                        continue;
+                    }
+                    float tf = 0;
+                    for (SearchField field : SearchField.VALUES) {
+                        int freq = field.freq(freqs[i]);
+                        if (freq > 0) {
+                            float norm = 1 - B + B * segment.fieldLength(field, doc) / averageLengths[field.ordinal()];
+                            tf += field.boost() * freq / norm;
+                        }
+                    }
+                    if (scores[doc] == 0) {
+                        if (matchCount == matched.length) {
+                            matched = Arrays.copyOf(matched, matchCount * 2);
+                        }
+                        matched[matchCount++] = doc;
+                    }
+                    scores[doc] += idf[t] * tf / (K1 + tf);
+                }
+            }
+
+            total += matchCount;
+            for (int i = 0; i < matchCount; i++) {
+                int doc = matched[i];
+                if (best.size() == limit && scores[doc] < best.peek().score()) {
+                    continue;
+                }
+                Candidate candidate = new Candidate(segment, doc, scores[doc]);
+                if (best.size() < limit) {
+                    best.add(candidate);
+                } else if (WORST_FIRST.compare(candidate, best.peek()) > 0) {
+                    best.poll();
+                    best.add(candidate);
+                }
+            }
+        }
+
+        List<SearchHit> hits = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            Candidate candidate = best.poll();
+            SearchSegment segment = candidate.segment();
+            hits.add(new SearchHit(segment.path(candidate.doc()), segment.title(candidate.doc()),
+                segment.tags(candidate.doc()), candidate.score()));
+        }
+        Collections.reverse(hits);
+        return new SearchResult(total, hits);
+    }
+
+    private void scheduleMerge() {
+        if (findMerge(segments) != null && mergeScheduled.compareAndSet(false, true)) {
+            mergeExecutor.execute(this::runMerges);
+        }
+    }
+
+    private void runMerges() {
+        try {
+            List<LiveSegment> sources;
+            while ((sources = findMerge(segments)) != null) {
+                merge(sources);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to merge search index segments", e);
+            return;
+        } finally {
+            mergeScheduled.set(false);
+        }
+        // A change may have come in after the last check, while the merge was still scheduled
+        scheduleMerge();
+    }
+
+    /**
+     * Merges segments without holding the write lock, then swaps them for the merged segment,
+     * carrying over documents deleted in the meantime
+     */
+    private void merge(List<LiveSegment> sources) {
+        List<SearchSegment> sourceSegments = sources.stream().map(LiveSegment::segment).toList();
+        SearchSegment.Merged merged = SearchSegment.merge(sourceSegments,
+            sources.stream().map(LiveSegment::deleted).toList());
+        synchronized (writeLock) {
+            List<LiveSegment> current = segments;
+            BitSet deleted = new BitSet();
+            List<LiveSegment> updated = new ArrayList<>(current.size());
+            int position = -1;
+            for (LiveSegment live : current) {
+                int source = sourceSegments.indexOf(live.segment());
+                if (source < 0) {
+                    updated.add(live);
+                    continue;
+                }
+                if (position < 0) {
+                    position = updated.size();
+                }
+                int[] docMap = merged.docMaps()[source];
+                BitSet newlyDeleted = (BitSet) live.deleted().clone();
+                newlyDeleted.andNot(sources.get(source).deleted());
+                newlyDeleted.stream().forEach(doc -> deleted.set(docMap[doc]));
+            }
+            if (position < 0 || updated.size() != current.size() - sources.size()) {
+                // The index was rebuilt in the meantime
+                return;
+            }
+            addIfLive(updated.subList(0, position),
+                new LiveSegment(merged.segment(), deleted.isEmpty() ? NO_DELETIONS : deleted, deleted.cardinality()));
+            segments = List.copyOf(updated);
+        }
+    }
+
+    /**
+     * Picks the segments to merge next: the smallest tier with {@value #MERGE_FACTOR} segments,
+     * or else a segment that is mostly deleted
+     * @return The segments, or {@code null} if nothing needs merging
+     */
+    private static List<LiveSegment> findMerge(List<LiveSegment> segments) {
+        Map<Integer, List<LiveSegment>> tiers = new HashMap<>();
+        for (LiveSegment live : segments) {
+            List<LiveSegment> tier = tiers.computeIfAbsent(tier(live.liveCount()), t -> new ArrayList<>());
+            tier.add(live);
+            if (tier.size() == MERGE_FACTOR) {
+                return tier;
+            }
+        }
+        for (LiveSegment live : segments) {
+            if (live.deletedCount() * 2 > live.segment().size()) {
+                return List.of(live);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tier of a segment: segments with fewer than 10 documents are in tier 0, up to 99 in tier 1, ...
+     */
+    private static int tier(int liveCount) {
+        int tier = 0;
+        for (int size = liveCount; size >= MERGE_FACTOR; size /= MERGE_FACTOR) {
+            tier++;
+        }
+        return tier;
+    }
+
+    private static void addIfLive(List<LiveSegment> segments, LiveSegment segment) {
+        if (segment.liveCount() > 0) {
+            segments.add(segment);
+        }
+    }
+
+    private static Collection<SearchDocument> latestByPath(Collection<SearchDocument> documents) {
+        Map<String, SearchDocument> latest = new LinkedHashMap<>();
+        for (SearchDocument document : documents) {
+            latest.remove(document.path());
+            latest.put(document.path(), document);
+        }
+        return latest.values();
+    }
+}
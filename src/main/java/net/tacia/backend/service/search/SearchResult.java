@@ -0,0 +1,14 @@
+package net.tacia.backend.service.search;
+
+import java.util.List;
+
+/**
+ * Result of a search query.
+ *
+ * @param total Number of matching documents
+ * @param hits  The best matching documents, most relevant first
+ */
+public record SearchResult(int total, List<SearchHit> hits) {
+
+    static final SearchResult EMPTY = new SearchResult(0, List.of());
+}
@@ -0,0 +1,256 @@
+package net.tacia.backend.service.search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable inverted index of a batch of documents.
+ * <p>
+ * Documents are numbered from 0 in the order they were added. For every term the segment keeps
+ * the sorted numbers of the documents containing it and the number of occurrences in each
+ * field (packed, see {@link SearchField}), in primitive arrays: 8 bytes per posting. Field
+ * lengths (in terms) are kept per document for length normalization.
+ * <p>
+ * Segments are never modified. Deleting documents is up to the {@link SearchIndex}, which
+ * keeps a set of deleted documents per segment and drops them when segments are
+ * {@link #merge merged}.
+ */
+final class SearchSegment {
+
+    private static final int FIELDS = SearchField.VALUES.length;
+
+    /**
+     * Documents containing a term
+     *
+     * @param docs  document numbers, ascending
+     * @param freqs packed occurrences of the term in each field, by position in {@code docs}
+     */
+    record Postings(int[] docs, int[] freqs) {
+    }
+
+    /**
+     * Result of merging segments
+     *
+     * @param segment the merged segment
+     * @param docMaps for every source segment, the new number of each of its documents, or -1 if it was deleted
+     */
+    record Merged(SearchSegment segment, int[][] docMaps) {
+    }
+
+    private final String[] paths;
+    /** Document numbers sorted by path, for lookups by path */
+    private final int[] byPath;
+    private final String[] titles;
+    private final List<String>[] tags;
+    /** Length of every field of every document, indexed by field ordinal and document */
+    private final int[][] fieldLengths;
+    private final long[] totalFieldLengths;
+    private final Map<String, Postings> postings;
+
+    private SearchSegment(String[] paths, String[] titles, List<String>[] tags, int[][] fieldLengths,
+                          Map<String, Postings> postings) {
+        this.paths = paths;
+        this.titles = titles;
+        this.tags = tags;
+        this.fieldLengths = fieldLengths;
+        this.postings = postings;
+        this.byPath = IntStream.range(0, paths.length).boxed()
+            .sorted(Comparator.comparing(doc -> paths[doc]))
+            .mapToInt(Integer::intValue)
+            .toArray();
+        this.totalFieldLengths = new long[FIELDS];
+        for (int field = 0; field < FIELDS; field++) {
+            long total = 0;
+            for (int length : fieldLengths[field]) {
+                total += length;
+            }
+            totalFieldLengths[field] = total;
+        }
+    }
+
+    /**
+     * Indexes a batch of documents
+     */
+    @SuppressWarnings("unchecked")
+    static SearchSegment build(List<SearchDocument> documents) {
+        int size = documents.size();
+        String[] paths = new String[size];
+        String[] titles = new String[size];
+        List<String>[] tags = new List[size];
+        int[][] fieldLengths = new int[FIELDS][size];
+        Map<String, PostingsBuilder> builders = new HashMap<>();
+
+        Map<String, int[]> docFreqs = new HashMap<>();  // Packed counts of the current document
+        for (int doc = 0; doc < size; doc++) {
+            SearchDocument document = documents.get(doc);
+            paths[doc] = document.path();
+            titles[doc] = document.title();
+            tags[doc] = document.tags();
+
+            docFreqs.clear();
+            for (SearchField field : SearchField.VALUES) {
+                fieldLengths[field.ordinal()][doc] = Tokenizer.tokenize(document.text(field), term -> {
+                    int[] packed = docFreqs.computeIfAbsent(term, t -> new int[1]);
+                    packed[0] = field.increment(packed[0]);
+                });
+            }
+            for (Map.Entry<String, int[]> entry : docFreqs.entrySet()) {
+                builders.computeIfAbsent(entry.getKey(), t -> new PostingsBuilder()).add(doc, entry.getValue()[0]);
+            }
+        }
+
+        Map<String, Postings> postings = new HashMap<>(builders.size() * 4 / 3 + 1);
+        builders.forEach((term, builder) -> postings.put(term, builder.build()));
+        return new SearchSegment(paths, titles, tags, fieldLengths, postings);
+    }
+
+    /**
+     * Merges the documents of several segments that are not deleted into a new segment.
+     * Postings are copied with their documents renumbered; nothing is tokenized again.
+     *
+     * @param sources   segments to merge
+     * @param deletions deleted documents of each source segment
+     */
+    @SuppressWarnings("unchecked")
+    static Merged merge(List<SearchSegment> sources, List<BitSet> deletions) {
+        int[][] docMaps = new int[sources.size()][];
+        int size = 0;
+        for (int s = 0; s < sources.size(); s++) {
+            SearchSegment source = sources.get(s);
+            BitSet deleted = deletions.get(s);
+            int[] docMap = new int[source.size()];
+            for (int doc = 0; doc < docMap.length; doc++) {
+                docMap[doc] = deleted.get(doc) ? -1 : size++;
+            }
+            docMaps[s] = docMap;
+        }
+
+        String[] paths = new String[size];
+        String[] titles = new String[size];
+        List<String>[] tags = new List[size];
+        int[][] fieldLengths = new int[FIELDS][size];
+        Map<String, PostingsBuilder> builders = new HashMap<>();
+        for (int s = 0; s < sources.size(); s++) {
+            SearchSegment source = sources.get(s);
+            int[] docMap = docMaps[s];
+            for (int doc = 0; doc < docMap.length; doc++) {
+                int target = docMap[doc];
+                if (target < 0) {
+                    continue;
+                }
+                paths[target] = source.paths[doc];
+                titles[target] = source.titles[doc];
+                tags[target] = source.tags[doc];
+                for (int field = 0; field < FIELDS; field++) {
+                    fieldLengths[field][target] = source.fieldLengths[field][doc];
+                }
+            }
+            // Sources are numbered one after the other, so the postings stay sorted
+            source.postings.forEach((term, postings) -> {
+                PostingsBuilder builder = null;
+                for (int i = 0; i < postings.docs().length; i++) {
+                    int target = docMap[postings.docs()[i]];
+                    if (target >= 0) {
+                        if (builder == null) {
+                            builder = builders.computeIfAbsent(term, t -> new PostingsBuilder());
+                        }
+                        builder.add(target, postings.freqs()[i]);
+                    }
+                }
+            });
+        }
+
+        Map<String, Postings> postings = new HashMap<>(builders.size() * 4 / 3 + 1);
+        builders.forEach((term, builder) -> postings.put(term, builder.build()));
+        return new Merged(new SearchSegment(paths, titles, tags, fieldLengths, postings), docMaps);
+    }
+
+    int size() {
+        return paths.length;
+    }
+
+    String path(int doc) {
+        return paths[doc];
+    }
+
+    /**
+     * Calls the action with every document whose path is the given one or lies below it
+     */
+    void forEachAtOrBelow(String path, IntConsumer action) {
+        String prefix = path.endsWith("/") ? path : path + "/";
+        int low = 0;
+        int high = byPath.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (paths[byPath[mid]].compareTo(path) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        // Every path starting with the given one follows it in sort order
+        for (int i = low; i < byPath.length && paths[byPath[i]].startsWith(path); i++) {
+            String candidate = paths[byPath[i]];
+            if (candidate.equals(path) || candidate.startsWith(prefix)) {
+                action.accept(byPath[i]);
+            }
+        }
+    }
+
+    String title(int doc) {
+        return titles[doc];
+    }
+
+    List<String> tags(int doc) {
+        return tags[doc];
+    }
+
+    int fieldLength(SearchField field, int doc) {
+        return fieldLengths[field.ordinal()][doc];
+    }
+
+    long totalFieldLength(SearchField field) {
+        return totalFieldLengths[field.ordinal()];
+    }
+
+    /**
+     * @return The postings of a term, or {@code null} if no document contains it
+     */
+    Postings postings(String term) {
+        return postings.get(term);
+    }
+
+    int docFreq(String term) {
+        Postings p = postings.get(term);
+        return p != null ? p.docs().length : 0;
+    }
+
+    /**
+     * Collects the postings of one term while documents are added in order
+     */
+    private static final class PostingsBuilder {
+        private int[] docs = new int[2];
+        private int[] freqs = new int[2];
+        private int size;
+
+        void add(int doc, int packedFreqs) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = packedFreqs;
+            size++;
+        }
+
+        Postings build() {
+            return new Postings(Arrays.copyOf(docs, size), Arrays.copyOf(freqs, size));
+        }
+    }
+}
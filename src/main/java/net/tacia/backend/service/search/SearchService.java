@@ -0,0 +1,226 @@
+package net.tacia.backend.service.search;
+
+import net.tacia.backend.model.ContentItem;
+import net.tacia.backend.repository.ContentChangeEvent;
+import net.tacia.backend.repository.ContentRepository;
+import net.tacia.backend.service.MarkdownService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Full-text search over the markdown documents of the content root.
+ * <p>
+ * The index is built in the background once the application has started; until it is ready,
+ * searches return no hits. After that, documents saved or deleted through the API and files
+ * changed outside the application are indexed one by one, and index segments are merged on a
+ * background thread.
+ */
+@Service
+public class SearchService implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchService.class);
+
+    private final ContentRepository contentRepository;
+    private final MarkdownService markdownService;
+    private final ExecutorService mergeExecutor;
+    private final SearchIndex index;
+    private final List<SearchDocumentListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean ready;
+    /** Paths changed while the index is being rebuilt, reindexed once the rebuild is done */
+    private Set<String> changedDuringRebuild;
+
+    public SearchService(ContentRepository contentRepository, MarkdownService markdownService) {
+        this.contentRepository = contentRepository;
+        this.markdownService = markdownService;
+        this.mergeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-merge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.index = new SearchIndex(mergeExecutor);
+    }
+
+    /**
+     * Starts building the index without delaying startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startIndexing() {
+        Thread thread = new Thread(this::rebuild, "search-index");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Indexes all markdown documents, replacing the current index
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        synchronized (this) {
+            changedDuringRebuild = new LinkedHashSet<>();
+        }
+        List<SearchDocument> documents = new ArrayList<>();
+        for (String path : contentRepository.getAllMarkdownFiles()) {
+            if (isHidden(path)) {
+                continue;
+            }
+            load(path).ifPresent(documents::add);
+        }
+        Set<String> changed;
+        synchronized (this) {
+            index.rebuild(documents);
+            for (SearchDocumentListener listener : listeners) {
+                try {
+                    listener.documentsRebuilt(documents);
+                } catch (RuntimeException e) {
+                    log.warn("Search document listener failed on rebuild", e);
+                }
+            }
+            changed = changedDuringRebuild;
+            changedDuringRebuild = null;
+        }
+        // The rebuild may have read these before they changed
+        changed.forEach(this::reindex);
+        ready = true;
+        log.info("Indexed {} documents for search in {} ms", documents.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Indexes the current version of a document or of all documents in a directory, or removes
+     * them from the index if they no longer exist
+     * @param path Content path, with or without a leading slash
+     */
+    public void reindex(String path) {
+        String contentPath = path.startsWith("/") ? path : "/" + path;
+        if (deferIfRebuilding(contentPath)) {
+            return;
+        }
+        Optional<ContentItem> item = contentRepository.findByPath(contentPath);
+        if (item.isEmpty()) {
+            replace(contentPath, List.of());
+        } else if ("directory".equals(item.get().type())) {
+            List<SearchDocument> documents = new ArrayList<>();
+            contentRepository.walkDescendants(contentPath, descendant -> {
+                if (isIndexed(descendant.path()) && "file".equals(descendant.type())) {
+                    load(descendant.path()).ifPresent(documents::add);
+                }
+            });
+            // Documents that are gone from the directory must not stay in the index
+            replace(contentPath, documents);
+        } else if (isIndexed(contentPath)) {
+            load(contentPath).ifPresentOrElse(
+                document -> replace(null, List.of(document)),
+                () -> replace(contentPath, List.of()));
+        }
+    }
+
+    /**
+     * Removes a document, or all documents in a directory, from the index
+     * @param path Content path, with or without a leading slash
+     */
+    public void delete(String path) {
+        String contentPath = path.startsWith("/") ? path : "/" + path;
+        if (!deferIfRebuilding(contentPath)) {
+            replace(contentPath, List.of());
+        }
+    }
+
+    /**
+     * Registers a listener for the documents indexed from now on
+     */
+    public void addListener(SearchDocumentListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Applies changes made outside the application
+     */
+    @EventListener
+    public void onContentChange(ContentChangeEvent event) {
+        if (event.kind() == ContentChangeEvent.Kind.DELETED) {
+            delete(event.path());
+        } else {
+            reindex(event.path());
+        }
+    }
+
+    /**
+     * Finds the documents matching a query, most relevant first
+     * @param query Free text
+     * @param limit Maximum number of hits
+     */
+    public SearchResult search(String query, int limit) {
+        return index.search(query, limit);
+    }
+
+    /**
+     * Whether the index has been built
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Number of indexed documents
+     */
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public void close() {
+        mergeExecutor.shutdownNow();
+    }
+
+    private void replace(String path, Collection<SearchDocument> documents) {
+        index.replace(path, documents);
+        for (SearchDocumentListener listener : listeners) {
+            try {
+                listener.documentsReplaced(path, documents);
+            } catch (RuntimeException e) {
+                log.warn("Search document listener failed on change of {}", path, e);
+            }
+        }
+    }
+
+    private synchronized boolean deferIfRebuilding(String path) {
+        if (changedDuringRebuild == null) {
+            return false;
+        }
+        changedDuringRebuild.add(path);
+        return true;
+    }
+
+    private Optional<SearchDocument> load(String path) {
+        try {
+            return contentRepository.getContent(path)
+                .map(content -> SearchDocument.of(path, markdownService.processMarkdown(content)));
+        } catch (RuntimeException e) {
+            log.warn("Failed to index {} for search: {}", path, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Hidden files and files in hidden directories are not listed, so they are not searched either
+     */
+    private static boolean isHidden(String path) {
+        return path.startsWith(".") || path.contains("/.");
+    }
+
+    private static boolean isIndexed(String path) {
+        return path.toLowerCase().endsWith(".md") && !isHidden(path);
+    }
+}
@@ -0,0 +1,46 @@
+package net.tacia.backend.service.search;
+
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Splits text into lower case terms: runs of letters and digits. Markdown syntax, punctuation
+ * and whitespace separate terms and are dropped.
+ */
+final class Tokenizer {
+
+    /** Longer runs (hashes, base64 blobs) are not useful as search terms */
+    static final int MAX_TERM_LENGTH = 64;
+
+    private Tokenizer() {
+    }
+
+    /**
+     * @param text The text to split
+     * @param terms Called for every term, in order of occurrence
+     * @return Number of terms
+     */
+    static int tokenize(String text, Consumer<String> terms) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int count = 0;
+        int length = text.length();
+        int start = -1;
+        for (int i = 0; i <= length; ) {
+            int codePoint = i < length ? text.codePointAt(i) : ' ';
+            boolean termChar = i < length && Character.isLetterOrDigit(codePoint);
+            if (termChar && start < 0) {
+                start = i;
+            } else if (!termChar && start >= 0) {
+                if (i - start <= MAX_TERM_LENGTH) {
+                    terms.accept(text.substring(start, i).toLowerCase(Locale.ROOT));
+                    count++;
+                }
+                start = -1;
+            }
+            i += i < length ? Character.charCount(codePoint) : 1;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,287 @@
+package net.tacia.backend.service.tags;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed set of document numbers, in the layout of Roaring bitmaps.
+ * <p>
+ * Numbers are split by their upper 16 bits into chunks of 65536. A chunk holding up to
+ * {@value #ARRAY_MAX} numbers stores their lower 16 bits in a sorted char array, two bytes per
+ * number; a fuller chunk is a plain 8 KB bitmap. A tag on a handful of documents thus costs a
+ * few bytes, and a tag on most documents one bit per document. Intersections only look at the
+ * chunks both sides have, and merge, probe or AND them depending on their kinds.
+ * <p>
+ * Not thread safe.
+ */
+final class DocBitmap {
+
+    /** Largest array chunk, above which a bitmap chunk is smaller */
+    static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 65536 / 64;
+
+    /** Upper 16 bits of the numbers of each chunk, ascending */
+    private char[] keys = new char[0];
+    /** Chunks, each a char[] of sorted lower bits or a long[] bitmap */
+    private Object[] chunks = new Object[0];
+    /** Numbers in each chunk */
+    private int[] sizes = new int[0];
+    private int chunkCount;
+    private int cardinality;
+
+    int cardinality() {
+        return cardinality;
+    }
+
+    boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    boolean contains(int doc) {
+        int index = chunkIndex((char) (doc >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) doc;
+        return chunks[index] instanceof long[] bits
+            ? (bits[low >>> 6] & (1L << low)) != 0
+            : Arrays.binarySearch((char[]) chunks[index], 0, sizes[index], low) >= 0;
+    }
+
+    /**
+     * @return Whether the number was not in the set yet
+     */
+    boolean add(int doc) {
+        char key = (char) (doc >>> 16);
+        char low = (char) doc;
+        int index = chunkIndex(key);
+        if (index < 0) {
+            index = -index - 1;
+            insertChunk(index, key, new char[4]);
+        }
+        if (chunks[index] instanceof long[] bits) {
+            long bit = 1L << low;
+            if ((bits[low >>> 6] & bit) != 0) {
+                return false;
+            }
+            bits[low >>> 6] |= bit;
+        } else {
+            char[] values = (char[]) chunks[index];
+            int size = sizes[index];
+            int position = Arrays.binarySearch(values, 0, size, low);
+            if (position >= 0) {
+                return false;
+            }
+            position = -position - 1;
+            if (size == ARRAY_MAX) {
+                long[] bits = toBits(values, size);
+                bits[low >>> 6] |= 1L << low;
+                chunks[index] = bits;
+            } else {
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, Math.min(ARRAY_MAX, size * 2));
+                    chunks[index] = values;
+                }
+                System.arraycopy(values, position, values, position + 1, size - position);
+                values[position] = low;
+            }
+        }
+        sizes[index]++;
+        cardinality++;
+        return true;
+    }
+
+    /**
+     * @return Whether the number was in the set
+     */
+    boolean remove(int doc) {
+        int index = chunkIndex((char) (doc >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) doc;
+        int size = sizes[index];
+        if (chunks[index] instanceof long[] bits) {
+            long bit = 1L << low;
+            if ((bits[low >>> 6] & bit) == 0) {
+                return false;
+            }
+            bits[low >>> 6] &= ~bit;
+            if (size - 1 == ARRAY_MAX) {
+                chunks[index] = toValues(bits, ARRAY_MAX);
+            }
+        } else {
+            char[] values = (char[]) chunks[index];
+            int position = Arrays.binarySearch(values, 0, size, low);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(values, position + 1, values, position, size - position - 1);
+        }
+        cardinality--;
+        if (--sizes[index] == 0) {
+            removeChunk(index);
+        }
+        return true;
+    }
+
+    /**
+     * @return A new set of the numbers in both sets
+     */
+    DocBitmap and(DocBitmap other) {
+        DocBitmap result = new DocBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < chunkCount && j < other.chunkCount) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.appendIntersection(keys[i], chunks[i], sizes[i], other.chunks[j], other.sizes[j]);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Calls the action with every number in the set, in ascending order
+     */
+    void forEach(IntConsumer action) {
+        for (int i = 0; i < chunkCount; i++) {
+            int high = keys[i] << 16;
+            if (chunks[i] instanceof long[] bits) {
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    long remaining = bits[word];
+                    while (remaining != 0) {
+                        action.accept(high | word << 6 | Long.numberOfTrailingZeros(remaining));
+                        remaining &= remaining - 1;
+                    }
+                }
+            } else {
+                char[] values = (char[]) chunks[i];
+                for (int v = 0; v < sizes[i]; v++) {
+                    action.accept(high | values[v]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The numbers in the set, ascending
+     */
+    int[] toArray() {
+        int[] result = new int[cardinality];
+        int[] position = new int[1];
+        forEach(doc -> result[position[0]++] = doc);
+        return result;
+    }
+
+    private void appendIntersection(char key, Object chunk, int size, Object otherChunk, int otherSize) {
+        if (chunk instanceof long[] bits && otherChunk instanceof long[] otherBits) {
+            long[] common = new long[BITMAP_WORDS];
+            int count = 0;
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                common[word] = bits[word] & otherBits[word];
+                count += Long.bitCount(common[word]);
+            }
+            if (count > ARRAY_MAX) {
+                appendChunk(key, common, count);
+            } else if (count > 0) {
+                appendChunk(key, toValues(common, count), count);
+            }
+            return;
+        }
+        if (chunk instanceof long[]) {
+            // Probe the bitmap with the values of the array
+            appendIntersection(key, otherChunk, otherSize, chunk, size);
+            return;
+        }
+        char[] values = (char[]) chunk;
+        char[] common = new char[Math.min(size, otherSize)];
+        int count = 0;
+        if (otherChunk instanceof long[] otherBits) {
+            for (int v = 0; v < size; v++) {
+                char low = values[v];
+                if ((otherBits[low >>> 6] & (1L << low)) != 0) {
+                    common[count++] = low;
+                }
+            }
+        } else {
+            char[] otherValues = (char[]) otherChunk;
+            int i = 0;
+            int j = 0;
+            while (i < size && j < otherSize) {
+                if (values[i] < otherValues[j]) {
+                    i++;
+                } else if (values[i] > otherValues[j]) {
+                    j++;
+                } else {
+                    common[count++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        if (count > 0) {
+            appendChunk(key, common, count);
+        }
+    }
+
+    private int chunkIndex(char key) {
+        return Arrays.binarySearch(keys, 0, chunkCount, key);
+    }
+
+    private void appendChunk(char key, Object chunk, int size) {
+        insertChunk(chunkCount, key, chunk);
+        sizes[chunkCount - 1] = size;
+        cardinality += size;
+    }
+
+    private void insertChunk(int index, char key, Object chunk) {
+        if (chunkCount == keys.length) {
+            int capacity = Math.max(4, chunkCount * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            chunks = Arrays.copyOf(chunks, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, chunkCount - index);
+        System.arraycopy(chunks, index, chunks, index + 1, chunkCount - index);
+        System.arraycopy(sizes, index, sizes, index + 1, chunkCount - index);
+        keys[index] = key;
+        chunks[index] = chunk;
+        sizes[index] = 0;
+        chunkCount++;
+    }
+
+    private void removeChunk(int index) {
+        System.arraycopy(keys, index + 1, keys, index, chunkCount - index - 1);
+        System.arraycopy(chunks, index + 1, chunks, index, chunkCount - index - 1);
+        System.arraycopy(sizes, index + 1, sizes, index, chunkCount - index - 1);
+        chunkCount--;
+        chunks[chunkCount] = null;
+    }
+
+    private static long[] toBits(char[] values, int size) {
+        long[] bits = new long[BITMAP_WORDS];
+        for (int v = 0; v < size; v++) {
+            bits[values[v] >>> 6] |= 1L << values[v];
+        }
+        return bits;
+    }
+
+    private static char[] toValues(long[] bits, int size) {
+        char[] values = new char[size];
+        int count = 0;
+        for (int word = 0; word < BITMAP_WORDS; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                values[count++] = (char) (word << 6 | Long.numberOfTrailingZeros(remaining));
+                remaining &= remaining - 1;
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,7 @@
+package net.tacia.backend.service.tags;
+
+/**
+ * A tag and the number of documents having it
+ */
+public record TagCount(String tag, int count) {
+}
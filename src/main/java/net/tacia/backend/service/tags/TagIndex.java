@@ -0,0 +1,300 @@
+package net.tacia.backend.service.tags;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Documents by tag, as a {@link DocBitmap} of document numbers for each tag.
+ * <p>
+ * Tags are compared ignoring case and surrounding whitespace, and interned: every tag is stored
+ * once with a number, and documents hold the sorted numbers of their tags. The spelling first
+ * seen is the one reported. Listing the documents with several tags intersects their bitmaps,
+ * smallest first, and tag overlap between documents is computed on the tag numbers.
+ * <p>
+ * The numbers of removed documents are reused by the next added ones.
+ */
+final class TagIndex {
+
+    /**
+     * A document sharing tags with another one
+     * @param similarity Jaccard similarity of the tags: shared tags over distinct tags of both
+     */
+    record Match(String path, String title, float similarity) {
+    }
+
+    private static final int[] NO_TAGS = new int[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private final Map<String, Integer> tagNumbers = new HashMap<>();
+    private final List<String> tagNames = new ArrayList<>();
+    private final List<DocBitmap> tagDocs = new ArrayList<>();
+    private final Map<String, Integer> docs = new HashMap<>();
+    private String[] paths = new String[16];
+    private String[] titles = new String[16];
+    private int[][] docTags = new int[16][];
+    private final BitSet free = new BitSet();
+    private int docCount;
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a document, or replaces the document with the same path. Documents without tags are
+     * not kept.
+     */
+    void put(String path, String title, List<?> tags) {
+        lock.writeLock().lock();
+        try {
+            Integer previous = docs.get(path);
+            if (previous != null) {
+                removeDoc(previous);
+            }
+            int[] numbers = intern(tags);
+            if (numbers.length == 0) {
+                return;
+            }
+            int doc = free.isEmpty() ? docCount++ : free.nextSetBit(0);
+            free.clear(doc);
+            ensureCapacity(docCount);
+            paths[doc] = path;
+            titles[doc] = title;
+            docTags[doc] = numbers;
+            docs.put(path, doc);
+            for (int tag : numbers) {
+                tagDocs.get(tag).add(doc);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the document with the given path and all documents below it
+     */
+    void removeAtOrBelow(String path) {
+        lock.writeLock().lock();
+        try {
+            String prefix = path.endsWith("/") ? path : path + "/";
+            List<Integer> matching = new ArrayList<>();
+            docs.forEach((docPath, doc) -> {
+                if (docPath.equals(path) || docPath.startsWith(prefix)) {
+                    matching.add(doc);
+                }
+            });
+            matching.forEach(this::removeDoc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Number of documents of every tag in use
+     * @return Tags, most used first, then by name
+     */
+    List<TagCount> counts() {
+        lock.readLock().lock();
+        try {
+            List<TagCount> counts = new ArrayList<>();
+            for (int tag = 0; tag < tagNames.size(); tag++) {
+                int count = tagDocs.get(tag).cardinality();
+                if (count > 0) {
+                    counts.add(new TagCount(tagNames.get(tag), count));
+                }
+            }
+            counts.sort(Comparator.comparingInt(TagCount::count).reversed()
+                .thenComparing(TagCount::tag, String.CASE_INSENSITIVE_ORDER));
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The documents having all the given tags
+     * @return Matching documents by path, nothing if a tag is unknown or no tag is given
+     */
+    List<TaggedDocument> documentsWithAll(List<String> tags) {
+        lock.readLock().lock();
+        try {
+            List<DocBitmap> bitmaps = new ArrayList<>(tags.size());
+            for (String tag : tags) {
+                Integer number = tagNumbers.get(key(tag));
+                if (number == null) {
+                    return List.of();
+                }
+                bitmaps.add(tagDocs.get(number));
+            }
+            if (bitmaps.isEmpty()) {
+                return List.of();
+            }
+            // Smallest first, so that every intersection is at most as large as it
+            bitmaps.sort(Comparator.comparingInt(DocBitmap::cardinality));
+            DocBitmap result = bitmaps.get(0);
+            for (int i = 1; i < bitmaps.size() && !result.isEmpty(); i++) {
+                result = result.and(bitmaps.get(i));
+            }
+            List<TaggedDocument> documents = new ArrayList<>(result.cardinality());
+            result.forEach(doc -> documents.add(document(doc)));
+            documents.sort(Comparator.comparing(TaggedDocument::path));
+            return documents;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Tag overlap of two documents
+     * @return The Jaccard similarity of their tags, or 0 if one of them has no tags
+     */
+    float similarity(String path, String otherPath) {
+        lock.readLock().lock();
+        try {
+            Integer doc = docs.get(path);
+            Integer other = docs.get(otherPath);
+            return doc != null && other != null ? jaccard(docTags[doc], docTags[other]) : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The documents sharing the most tags with a document, relative to their number of tags
+     * @param limit Maximum number of documents
+     * @return Matches, most similar first, or nothing if the document has no tags
+     */
+    List<Match> similarTo(String path, int limit) {
+        lock.readLock().lock();
+        try {
+            Integer doc = docs.get(path);
+            if (doc == null || limit <= 0) {
+                return List.of();
+            }
+            int[] tags = docTags[doc];
+            int[] shared = new int[docCount];
+            BitSet candidates = new BitSet(docCount);
+            for (int tag : tags) {
+                tagDocs.get(tag).forEach(other -> {
+                    shared[other]++;
+                    candidates.set(other);
+                });
+            }
+            candidates.clear(doc);
+            PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, TagIndex::worseFirst);
+            for (int other = candidates.nextSetBit(0); other >= 0; other = candidates.nextSetBit(other + 1)) {
+                // |A ∪ B| = |A| + |B| - |A ∩ B|
+                float similarity = (float) shared[other] / (tags.length + docTags[other].length - shared[other]);
+                best.add(new Match(paths[other], titles[other], similarity));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+            List<Match> matches = new ArrayList<>(best);
+            matches.sort((a, b) -> worseFirst(b, a));
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int worseFirst(Match a, Match b) {
+        return a.similarity() != b.similarity()
+            ? Float.compare(a.similarity(), b.similarity())
+            : b.path().compareTo(a.path());
+    }
+
+    private TaggedDocument document(int doc) {
+        List<String> tags = new ArrayList<>(docTags[doc].length);
+        for (int tag : docTags[doc]) {
+            tags.add(tagNames.get(tag));
+        }
+        return new TaggedDocument(paths[doc], titles[doc], tags);
+    }
+
+    /**
+     * @return The sorted numbers of the distinct tags, assigning numbers to new tags
+     */
+    private int[] intern(List<?> tags) {
+        if (tags == null || tags.isEmpty()) {
+            return NO_TAGS;
+        }
+        int[] numbers = new int[tags.size()];
+        int count = 0;
+        for (Object tag : tags) {
+            if (tag == null) {
+                continue;
+            }
+            String name = tag.toString().trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            numbers[count++] = tagNumbers.computeIfAbsent(key(name), key -> {
+                tagNames.add(name);
+                tagDocs.add(new DocBitmap());
+                return tagNames.size() - 1;
+            });
+        }
+        return Arrays.stream(numbers, 0, count).sorted().distinct().toArray();
+    }
+
+    private void removeDoc(int doc) {
+        for (int tag : docTags[doc]) {
+            tagDocs.get(tag).remove(doc);
+        }
+        docs.remove(paths[doc]);
+        paths[doc] = null;
+        titles[doc] = null;
+        docTags[doc] = null;
+        free.set(doc);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > paths.length) {
+            int newCapacity = Math.max(capacity, paths.length * 2);
+            paths = Arrays.copyOf(paths, newCapacity);
+            titles = Arrays.copyOf(titles, newCapacity);
+            docTags = Arrays.copyOf(docTags, newCapacity);
+        }
+    }
+
+    private static String key(String tag) {
+        return tag.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Jaccard similarity of two sorted sets of tag numbers
+     */
+    private static float jaccard(int[] tags, int[] otherTags) {
+        int shared = 0;
+        int i = 0;
+        int j = 0;
+        while (i < tags.length && j < otherTags.length) {
+            if (tags[i] < otherTags[j]) {
+                i++;
+            } else if (tags[i] > otherTags[j]) {
+                j++;
+            } else {
+                shared++;
+                i++;
+                j++;
+            }
+        }
+        return (float) shared / (tags.length + otherTags.length - shared);
+    }
+}
@@ -0,0 +1,36 @@
+package net.tacia.backend.service.tags;
+
+import net.tacia.backend.api.dto.RelatedDocumentDto;
+import net.tacia.backend.service.RelatedDocumentsService;
+
+import java.util.List;
+
+/**
+ * Finds related documents by the overlap of their tags: the score of a document is the Jaccard
+ * similarity of its tags with those of the requested document. Documents without tags have no
+ * related documents. Lookups intersect the tag bitmaps of the {@link TagService}, so results are
+ * not {@link #cacheable() cached} and {@code skipCache} has no effect.
+ */
+public class TagRelatedDocumentsService implements RelatedDocumentsService {
+
+    private final TagService tagService;
+
+    public TagRelatedDocumentsService(TagService tagService) {
+        this.tagService = tagService;
+    }
+
+    @Override
+    public boolean cacheable() {
+        return false;
+    }
+
+    @Override
+    public List<RelatedDocumentDto> findRelatedDocuments(String documentPath, int limit, boolean skipCache) {
+        return tagService.findSimilar(documentPath, limit).stream()
+            .map(match -> new RelatedDocumentDto(
+                match.path().replaceAll("\\.md$", ""),
+                match.title(),
+                match.similarity()))
+            .toList();
+    }
+}
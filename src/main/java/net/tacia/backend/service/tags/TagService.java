@@ -0,0 +1,88 @@
+package net.tacia.backend.service.tags;
+
+import net.tacia.backend.service.search.SearchDocument;
+import net.tacia.backend.service.search.SearchDocumentListener;
+import net.tacia.backend.service.search.SearchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Lists the tags of the documents and the documents by tag.
+ * <p>
+ * The tags are taken from the frontmatter of the documents as the {@link SearchService} indexes
+ * them, and kept up to date as documents change (see {@link TagIndex}). Until the search index
+ * has been built, no tags are found.
+ */
+@Service
+public class TagService implements SearchDocumentListener {
+
+    private static final Logger log = LoggerFactory.getLogger(TagService.class);
+
+    private volatile TagIndex index = new TagIndex();
+
+    public TagService(SearchService searchService) {
+        searchService.addListener(this);
+    }
+
+    /**
+     * All tags in use, most used first
+     */
+    public List<TagCount> findTags() {
+        return index.counts();
+    }
+
+    /**
+     * The documents having all the given tags, by path
+     * @param tags Tags, compared ignoring case
+     */
+    public List<TaggedDocument> findDocuments(List<String> tags) {
+        return index.documentsWithAll(tags);
+    }
+
+    /**
+     * The documents sharing the most tags with a document, most similar first
+     * @param documentPath Path of the document, with or without extension
+     * @param limit Maximum number of documents
+     * @return Matches scored by the Jaccard similarity of their tags with those of the document
+     */
+    List<TagIndex.Match> findSimilar(String documentPath, int limit) {
+        return index.similarTo(SearchDocument.contentPath(documentPath), limit);
+    }
+
+    /**
+     * Jaccard similarity of the tags of two documents: shared tags over distinct tags of both
+     * @param documentPath Path of a document, with or without extension
+     * @param otherPath Path of the other document, with or without extension
+     * @return The similarity from 0 to 1, 0 if one of them has no tags
+     */
+    public float similarity(String documentPath, String otherPath) {
+        return index.similarity(SearchDocument.contentPath(documentPath), SearchDocument.contentPath(otherPath));
+    }
+
+    @Override
+    public void documentsRebuilt(Collection<SearchDocument> documents) {
+        long start = System.nanoTime();
+        TagIndex rebuilt = new TagIndex();
+        for (SearchDocument document : documents) {
+            rebuilt.put(document.path(), document.title(), document.tags());
+        }
+        index = rebuilt;
+        log.info("Indexed the tags of {} documents in {} ms", rebuilt.size(),
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void documentsReplaced(String path, Collection<SearchDocument> documents) {
+        TagIndex current = index;
+        if (path != null) {
+            current.removeAtOrBelow(path);
+        }
+        for (SearchDocument document : documents) {
+            current.put(document.path(), document.title(), document.tags());
+        }
+    }
+}
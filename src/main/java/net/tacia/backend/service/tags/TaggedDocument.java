@@ -0,0 +1,13 @@
+package net.tacia.backend.service.tags;
+
+import java.util.List;
+
+/**
+ * A document and its tags
+ *
+ * @param path  Content path of the document, with a leading slash
+ * @param title Title of the document
+ * @param tags  Tags of the document, as first spelled in the content
+ */
+public record TaggedDocument(String path, String title, List<String> tags) {
+}
@@ -2,9 +2,11 @@ package net.tacia.backend;
 
 import net.tacia.backend.repository.ContentRepository;
 import net.tacia.backend.model.ContentItem;
+import net.tacia.backend.service.CompressedResponseCache;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -17,6 +19,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(net.tacia.backend.api.controller.StructureController.class)
+@Import(CompressedResponseCache.class)
 class MxcBackendApplicationTests {
 
     @Autowired
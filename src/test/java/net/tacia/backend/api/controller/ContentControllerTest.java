@@ -1,7 +1,16 @@
 package net.tacia.backend.api.controller;
 
+import com.jayway.jsonpath.JsonPath;
 import net.tacia.backend.model.ContentItem;
+import net.tacia.backend.model.markdown.DocumentParser;
+import net.tacia.backend.repository.ContentPage;
 import net.tacia.backend.repository.ContentRepository;
+import net.tacia.backend.repository.DirectoryListing;
+import net.tacia.backend.repository.FileSystemContentRepository;
+import net.tacia.backend.repository.ListingCursor;
+import net.tacia.backend.service.DocumentETagService;
+import net.tacia.backend.service.cache.BoundedCache;
+import net.tacia.backend.service.cache.BoundedCacheManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,29 +19,40 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.ContextConfiguration;
 import net.tacia.backend.api.exception.GlobalExceptionHandler;
+import net.tacia.backend.config.CacheConfig;
 import net.tacia.backend.config.TestConfig;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Instant;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.nio.charset.StandardCharsets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static org.hamcrest.Matchers.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(ContentController.class)
-@ContextConfiguration(classes = {ContentController.class, TestConfig.class, GlobalExceptionHandler.class})
+@ContextConfiguration(classes = {ContentController.class, DocumentETagService.class, TestConfig.class, GlobalExceptionHandler.class})
 @AutoConfigureMockMvc(addFilters = true)
 class ContentControllerTest {
     private static final Logger logger = LoggerFactory.getLogger(ContentControllerTest.class);
@@ -44,14 +64,19 @@ class ContentControllerTest {
     private ContentRepository contentRepository;
 
     @MockitoBean
-    private net.tacia.backend.service.MarkdownService markdownService;
+    private net.tacia.backend.service.search.SearchService searchService;
+
+    @Autowired
+    private BoundedCacheManager cacheManager;
+
+    @TempDir
+    Path tempDir;
 
     @BeforeEach
     void setUp() {
-        // Reset mocks before each test
-        reset(contentRepository, markdownService);
-        // Default stub for MarkdownService
-        when(markdownService.processMarkdown(anyString())).thenReturn(new HashMap<>());
+        // Reset mocks and caches before each test
+        reset(contentRepository);
+        cacheManager.getCaches().forEach(BoundedCache::clear);
     }
 
     /**
@@ -145,6 +170,385 @@ class ContentControllerTest {
                 .andExpect(content().string("Test content"));
     }
     
+    @Test
+    void getFileContent_shouldStreamFileWithoutDecodingIt() throws Exception {
+        // Given
+        byte[] bytes = "# Ünïcödé\n\nBody".getBytes(StandardCharsets.UTF_8);
+        Path file = Files.write(tempDir.resolve("page.md"), bytes);
+        when(contentRepository.findByPath("docs/page.md"))
+            .thenReturn(Optional.of(ContentItem.file("page.md", "/docs/page.md", bytes.length, Instant.now())));
+        when(contentRepository.getContentFile("docs/page.md")).thenReturn(Optional.of(file));
+
+        // When/Then
+        mockMvc.perform(get("/api/file-content/docs/page.md"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/plain;charset=UTF-8"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, bytes.length))
+                .andExpect(content().bytes(bytes));
+        verify(contentRepository, never()).getContent(anyString());
+    }
+
+    @Test
+    void getFileContent_shouldHandLargeFilesToSendfile() throws Exception {
+        // Given
+        byte[] bytes = new byte[(int) FileContentWriter.SENDFILE_MIN_SIZE];
+        Path file = Files.write(tempDir.resolve("large.md"), bytes);
+        when(contentRepository.findByPath("large.md"))
+            .thenReturn(Optional.of(ContentItem.file("large.md", "/large.md", bytes.length, Instant.now())));
+        when(contentRepository.getContentFile("large.md")).thenReturn(Optional.of(file));
+
+        // When/Then: the container sends the file, nothing is written by the application
+        mockMvc.perform(get("/api/file-content/large.md")
+                .requestAttr(FileContentWriter.SENDFILE_SUPPORTED_ATTR, true))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, bytes.length))
+                .andExpect(request().attribute(FileContentWriter.SENDFILE_FILENAME_ATTR, file.toAbsolutePath().toString()))
+                .andExpect(request().attribute(FileContentWriter.SENDFILE_FILE_END_ATTR, (long) bytes.length))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void getFileContent_conditionalRequest_shouldReturn304WithoutReadingTheFile() throws Exception {
+        // Given
+        Path file = Files.writeString(tempDir.resolve("cached.md"), "# Cached");
+        when(contentRepository.findByPath("cached.md"))
+            .thenReturn(Optional.of(ContentItem.file("cached.md", "/cached.md", 8, Instant.parse("2024-05-01T10:00:00Z"))));
+        when(contentRepository.getContentFile("cached.md")).thenReturn(Optional.of(file));
+        String eTag = mockMvc.perform(get("/api/file-content/cached.md"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        clearInvocations(contentRepository);
+
+        // When/Then
+        mockMvc.perform(get("/api/file-content/cached.md").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().bytes(new byte[0]));
+        verify(contentRepository, never()).getContentFile(anyString());
+        verify(contentRepository, never()).getContent(anyString());
+    }
+
+    @Test
+    void getContent_conditionalRequest_shouldReturn304WithoutReadingOrProcessingTheDocument() throws Exception {
+        // Given
+        Instant lastModified = Instant.parse("2024-05-01T10:00:00Z");
+        String markdown = "# Title\n\nBody";
+        ContentItem document = ContentItem.file("etag.md", "/docs/etag.md", markdown.length(), lastModified);
+        when(contentRepository.findByPath("docs/etag.md")).thenReturn(Optional.of(document));
+        when(contentRepository.readDocument("docs/etag.md")).thenReturn(Optional.of(DocumentParser.read(markdown)));
+        String eTag = mockMvc.perform(get("/api/content/docs/etag.md"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().dateValue(HttpHeaders.LAST_MODIFIED, lastModified.toEpochMilli()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        clearInvocations(contentRepository);
+
+        // When/Then: matching tag
+        mockMvc.perform(get("/api/content/docs/etag.md").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+
+        // When/Then: unchanged since the client's copy
+        mockMvc.perform(get("/api/content/docs/etag.md")
+                .header(HttpHeaders.IF_MODIFIED_SINCE, "Wed, 01 May 2024 10:00:00 GMT"))
+                .andExpect(status().isNotModified());
+
+        verify(contentRepository, never()).readDocument(anyString());
+        verify(contentRepository, never()).getContent(anyString());
+        verify(contentRepository, never()).readContent(anyString());
+        verify(contentRepository, never()).getContentFile(anyString());
+
+        // When/Then: a stale tag gets the document
+        mockMvc.perform(get("/api/content/docs/etag.md").header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(jsonPath("$.name", is("etag")))
+                .andExpect(jsonPath("$.markdown", is(markdown)))
+                .andExpect(jsonPath("$.headings[0]", is("Title")))
+                .andExpect(jsonPath("$.metadata.title", is("Title")));
+    }
+
+    @Test
+    void getContent_formatHtml_shouldRenderDocumentWithHeadingAnchors() throws Exception {
+        // Given
+        String markdown = "---\ntitle: Guide\n---\n# Intro\n\nSome *text*\n\n## Intro\n";
+        ContentItem document = ContentItem.file("guide.md", "/docs/guide.md", markdown.length(),
+            Instant.parse("2024-05-01T10:00:00Z"));
+        when(contentRepository.findByPath("docs/guide.md")).thenReturn(Optional.of(document));
+        when(contentRepository.readDocument("docs/guide.md")).thenReturn(Optional.of(DocumentParser.read(markdown)));
+
+        // When/Then
+        String html = mockMvc.perform(get("/api/content/docs/guide.md").param("format", "html"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.markdown").doesNotExist())
+                .andExpect(jsonPath("$.headings", contains("Intro", "Intro")))
+                .andExpect(jsonPath("$.anchors", contains("intro", "intro-1")))
+                .andExpect(jsonPath("$.metadata.title", is("Guide")))
+                .andReturn().getResponse().getContentAsString();
+        String rendered = JsonPath.read(html, "$.html");
+        assertTrue(rendered.contains("<h1 id=\"intro\">Intro</h1>"), rendered);
+        assertTrue(rendered.contains("<p>Some <em>text</em></p>"), rendered);
+        assertTrue(rendered.contains("<h2 id=\"intro-1\">Intro</h2>"), rendered);
+
+        // The markdown response of the same version is a separate entry
+        mockMvc.perform(get("/api/content/docs/guide.md"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.html").doesNotExist())
+                .andExpect(jsonPath("$.markdown", is("# Intro\n\nSome *text*\n\n## Intro")));
+    }
+
+    @Test
+    void getContentBatch_shouldReturnEachItemWithItsOwnStatus() throws Exception {
+        // Given
+        Instant now = Instant.parse("2024-05-01T10:00:00Z");
+        String markdown = "---\ntitle: Guide\n---\n# Install\nSteps";
+        when(contentRepository.findByPath("docs/guide.md"))
+            .thenReturn(Optional.of(ContentItem.file("guide.md", "/docs/guide.md", markdown.length(), now)));
+        when(contentRepository.readDocument("docs/guide.md")).thenReturn(Optional.of(DocumentParser.read(markdown)));
+        when(contentRepository.findByPath("docs")).thenReturn(Optional.of(ContentItem.directory("docs", "/docs", now)));
+        when(contentRepository.findChildren("docs"))
+            .thenReturn(List.of(ContentItem.file("guide.md", "/docs/guide.md", markdown.length(), now)));
+        when(contentRepository.findByPath("missing.md")).thenReturn(Optional.empty());
+        when(contentRepository.findByPath("../secret.md")).thenThrow(new SecurityException("outside the content root"));
+
+        // When/Then
+        mockMvc.perform(post("/api/content-batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"paths\": [\"/docs/guide.md\", \"docs\", \"missing.md\", \"../secret.md\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count", is(4)))
+                .andExpect(jsonPath("$.items[*].path", contains("/docs/guide.md", "docs", "missing.md", "../secret.md")))
+                .andExpect(jsonPath("$.items[*].status", contains(200, 200, 404, 403)))
+                .andExpect(jsonPath("$.items[0].etag", org.hamcrest.Matchers.startsWith("\"")))
+                .andExpect(jsonPath("$.items[0].content.markdown", is("# Install\nSteps")))
+                .andExpect(jsonPath("$.items[0].content.toc[0].slug", is("install")))
+                .andExpect(jsonPath("$.items[0].content.metadata.title", is("Guide")))
+                .andExpect(jsonPath("$.items[0].error").doesNotExist())
+                .andExpect(jsonPath("$.items[1].content.items[0].name", is("guide.md")))
+                .andExpect(jsonPath("$.items[2].error", is("Content not found: missing.md")))
+                .andExpect(jsonPath("$.items[2].content").doesNotExist())
+                .andExpect(jsonPath("$.items[3].error", is("Access denied: outside the content root")));
+
+        // A second batch reuses the processed document
+        mockMvc.perform(post("/api/content-batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"paths\": [\"docs/guide.md\"], \"format\": \"html\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].content.html", is("<h1 id=\"install\">Install</h1>\n<p>Steps</p>\n")));
+        mockMvc.perform(post("/api/content-batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"paths\": [\"docs/guide.md\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].content.markdown", is("# Install\nSteps")));
+        verify(contentRepository, times(2)).readDocument("docs/guide.md");
+    }
+
+    @Test
+    void getContentBatch_withoutPathsOrTooManyPaths_shouldReturn400() throws Exception {
+        mockMvc.perform(post("/api/content-batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"paths\": []}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/content-batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"paths\": [" + "\"a.md\",".repeat(10) + "\"b.md\"]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", is("Too many paths: 11, at most 10 per batch")));
+        verify(contentRepository, never()).findByPath(anyString());
+    }
+
+    @Test
+    void getContent_section_shouldReturnOnlyThatSection() throws Exception {
+        // Given
+        String markdown = "# Guide\nIntro\n## Install\nSteps\n### Linux\napt\n## Usage\nRun";
+        ContentItem document = ContentItem.file("guide.md", "/docs/guide.md", markdown.length(),
+            Instant.parse("2024-05-01T10:00:00Z"));
+        when(contentRepository.findByPath("docs/guide.md")).thenReturn(Optional.of(document));
+        when(contentRepository.readDocument("docs/guide.md")).thenReturn(Optional.of(DocumentParser.read(markdown)));
+
+        // When/Then: the whole document has the table of contents
+        mockMvc.perform(get("/api/content/docs/guide.md"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.toc[0].slug", is("guide")))
+                .andExpect(jsonPath("$.toc[0].children[*].slug", contains("install", "usage")))
+                .andExpect(jsonPath("$.toc[0].children[0].children[0].slug", is("linux")))
+                .andExpect(jsonPath("$.toc[0].children[0].start", is(14)));
+
+        // When/Then: one section
+        mockMvc.perform(get("/api/content/docs/guide.md").param("section", "install"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.section.level", is(2)))
+                .andExpect(jsonPath("$.section.text", is("Install")))
+                .andExpect(jsonPath("$.markdown", is("## Install\nSteps\n### Linux\napt\n")))
+                .andExpect(jsonPath("$.headings").doesNotExist())
+                .andExpect(jsonPath("$.toc").doesNotExist());
+        mockMvc.perform(get("/api/content/docs/guide.md").param("section", "usage").param("format", "html"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.html", is("<h2 id=\"usage\">Usage</h2>\n<p>Run</p>\n")));
+        mockMvc.perform(get("/api/content/docs/guide.md").param("section", "missing"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error", is("Content not found: docs/guide.md#missing")));
+    }
+
+    @Test
+    void getContent_conditionalRequestForListing_shouldReturn304WithoutListing() throws Exception {
+        // Given
+        when(contentRepository.findByPath("docs")).thenReturn(Optional.of(ContentItem.directory("docs", "/docs", Instant.now())));
+        when(contentRepository.findListing("docs")).thenAnswer(invocation -> Optional.of(
+            DirectoryListing.lazy("v1", () -> contentRepository.findChildren("docs"))));
+        when(contentRepository.findChildren("docs")).thenReturn(List.of());
+        mockMvc.perform(get("/api/content/docs"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v1\""));
+        clearInvocations(contentRepository);
+
+        // When/Then
+        mockMvc.perform(get("/api/content/docs").header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/content/docs").param("limit", "10").header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+                .andExpect(status().isNotModified());
+        verify(contentRepository, never()).findChildren(anyString());
+        verify(contentRepository, never()).findChildren(anyString(), any(), anyInt());
+    }
+
+    @Test
+    void listContent_shouldListDirectoryOnceForTagAndBody() throws Exception {
+        // Given: a listing read to compute its tag
+        when(contentRepository.findByPath("docs")).thenReturn(Optional.of(ContentItem.directory("docs", "/docs", Instant.now())));
+        DirectoryListing listing = DirectoryListing.of(List.of(
+            ContentItem.file("a.md", "/docs/a.md", 1, Instant.now()),
+            ContentItem.file("b.md", "/docs/b.md", 1, Instant.now())));
+        when(contentRepository.findListing("docs")).thenReturn(Optional.of(listing));
+
+        // When/Then: the full listing and its pages are made from it
+        mockMvc.perform(get("/api/content/docs"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + listing.version() + "\""))
+                .andExpect(jsonPath("$.items[*].name", contains("a.md", "b.md")));
+        mockMvc.perform(get("/api/content/docs").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].name", org.hamcrest.Matchers.contains("a.md")))
+                .andExpect(jsonPath("$.nextCursor").exists());
+        verify(contentRepository, never()).findChildren(anyString());
+        verify(contentRepository, never()).findChildren(anyString(), any(), anyInt());
+    }
+
+    @Test
+    void getContent_acceptingGzip_shouldServeCachedCompressedBody() throws Exception {
+        // Given
+        String markdown = "# Gzip\n\nBody";
+        ContentItem document = ContentItem.file("gzip.md", "/docs/gzip.md", markdown.length(),
+            Instant.parse("2024-05-01T10:00:00Z"));
+        when(contentRepository.findByPath("docs/gzip.md")).thenReturn(Optional.of(document));
+        when(contentRepository.readDocument("docs/gzip.md")).thenReturn(Optional.of(DocumentParser.read(markdown)));
+        MockHttpServletResponse identity = mockMvc.perform(get("/api/content/docs/gzip.md"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT_ENCODING)))
+                .andReturn().getResponse();
+        String plain = identity.getContentAsString();
+        String eTag = identity.getHeader(HttpHeaders.ETAG);
+        String gzipETag = eTag.substring(0, eTag.length() - 1) + "-gzip\"";
+
+        // When/Then: the first compressed response is made from the document, later ones are cached
+        for (int i = 0; i < 2; i++) {
+            byte[] compressed = mockMvc.perform(get("/api/content/docs/gzip.md")
+                    .header(HttpHeaders.ACCEPT_ENCODING, "br, gzip;q=0.8"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                    .andExpect(header().string(HttpHeaders.ETAG, gzipETag))
+                    .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                    .andReturn().getResponse().getContentAsByteArray();
+            try (var in = new java.util.zip.GZIPInputStream(new java.io.ByteArrayInputStream(compressed))) {
+                assertEquals(plain, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            clearInvocations(contentRepository);
+        }
+        verify(contentRepository, never()).readDocument(anyString());
+
+        // A copy of either representation is current
+        for (String current : List.of(eTag, gzipETag)) {
+            mockMvc.perform(get("/api/content/docs/gzip.md")
+                    .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                    .header(HttpHeaders.IF_NONE_MATCH, current))
+                    .andExpect(status().isNotModified());
+            mockMvc.perform(get("/api/content/docs/gzip.md").header(HttpHeaders.IF_NONE_MATCH, current))
+                    .andExpect(status().isNotModified());
+        }
+    }
+
+    @Test
+    void getContent_knownVersion_shouldServeProcessedDocumentFromContentCache() throws Exception {
+        // Given
+        String markdown = "# Cached\n\nBody";
+        ContentItem document = ContentItem.file("cached.md", "/docs/cached.md", markdown.length(),
+            Instant.parse("2024-05-01T10:00:00Z"));
+        when(contentRepository.findByPath("docs/cached.md")).thenReturn(Optional.of(document));
+        when(contentRepository.readDocument("docs/cached.md")).thenReturn(Optional.of(DocumentParser.read(markdown)));
+        String first = mockMvc.perform(get("/api/content/docs/cached.md"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        clearInvocations(contentRepository);
+        long hits = cacheManager.getCache(CacheConfig.CONTENT_CACHE).getHitCount();
+
+        // When
+        String second = mockMvc.perform(get("/api/content/docs/cached.md"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // Then: the version is known, so the document is neither read nor processed again
+        assertEquals(first, second);
+        verify(contentRepository, never()).readDocument(anyString());
+        assertEquals(hits + 1, cacheManager.getCache(CacheConfig.CONTENT_CACHE).getHitCount());
+    }
+
+    @Test
+    void listContent_acceptingGzip_shouldServeCachedListingUntilItChanges() throws Exception {
+        // Given
+        when(contentRepository.findByPath("zipped")).thenReturn(Optional.of(ContentItem.directory("zipped", "/zipped", Instant.now())));
+        when(contentRepository.findListing("zipped")).thenAnswer(invocation -> Optional.of(
+            DirectoryListing.lazy("v1", () -> contentRepository.findChildren("zipped"))));
+        when(contentRepository.findChildren("zipped"))
+            .thenReturn(List.of(ContentItem.file("a.md", "/zipped/a.md", 1, Instant.now())));
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/api/content/zipped").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"));
+        }
+        // A file in the directory is saved, and the listing gets a new version
+        when(contentRepository.saveContent("zipped/a.md", "changed"))
+            .thenReturn(ContentItem.file("a.md", "/zipped/a.md", 7, Instant.now()));
+        mockMvc.perform(post("/api/content/zipped/a.md").content("changed")).andExpect(status().isOk());
+        when(contentRepository.findListing("zipped")).thenAnswer(invocation -> Optional.of(
+            DirectoryListing.lazy("v2", () -> contentRepository.findChildren("zipped"))));
+        mockMvc.perform(get("/api/content/zipped").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v2-gzip\""));
+        mockMvc.perform(get("/api/content/zipped"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v2\""));
+        mockMvc.perform(get("/api/content/zipped")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"v2-gzip\""))
+                .andExpect(status().isNotModified());
+
+        // Then: one compressed body per version, and the uncompressed body
+        verify(contentRepository, times(3)).findChildren("zipped");
+    }
+
+    @Test
+    void getFileContent_directory_shouldReturn404() throws Exception {
+        when(contentRepository.findByPath("docs")).thenReturn(Optional.of(ContentItem.directory("docs", "/docs", Instant.now())));
+
+        mockMvc.perform(get("/api/file-content/docs"))
+                .andExpect(status().isNotFound());
+        verify(contentRepository, never()).getContentFile(anyString());
+    }
+
     @Test
     void getContent_shouldReturnDirectoryContentRecursively() throws Exception {
         // Given
@@ -170,6 +574,122 @@ class ContentControllerTest {
                 .andExpect(jsonPath("$.items[2].name", is("file2.txt")));
     }
     
+    @Test
+    void streamContent_shouldWriteOneItemPerLineWhileWalking() throws Exception {
+        // Given
+        Instant now = Instant.parse("2024-01-01T00:00:00Z");
+        when(contentRepository.findByPath("parent")).thenReturn(Optional.of(ContentItem.directory("parent", "/parent", now)));
+        doAnswer(invocation -> {
+            Consumer<ContentItem> visitor = invocation.getArgument(1);
+            visitor.accept(ContentItem.directory("child", "/parent/child/", now));
+            visitor.accept(ContentItem.file("page.md", "/parent/child/page.md", 20, now));
+            return null;
+        }).when(contentRepository).walkDescendants(eq("parent"), any());
+
+        // When
+        String body = mockMvc.perform(get("/api/content/parent?recursive=true&format=ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        // Then
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(body.endsWith("\n"));
+        assertTrue(lines[0].contains("\"path\":\"parent/child\""), lines[0]);
+        assertTrue(lines[1].contains("\"path\":\"parent/child/page.md\""), lines[1]);
+        assertTrue(lines[1].contains("\"title\":\"page\""), lines[1]);
+        verify(contentRepository, never()).findDescendants(anyString());
+    }
+
+    @Test
+    void streamContent_missingDirectory_shouldReturn404() throws Exception {
+        when(contentRepository.findByPath("missing")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/content/missing?recursive=true&format=ndjson"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void listContent_withLimit_shouldReturnPageInRepositoryOrder() throws Exception {
+        // Given
+        Instant now = Instant.now();
+        ContentItem zeta = ContentItem.file("zeta.md", "/docs/zeta.md", 10, now, 1, Map.of());
+        ContentItem alpha = ContentItem.directory("alpha", "/docs/alpha/", now);
+        when(contentRepository.findByPath("docs")).thenReturn(Optional.of(ContentItem.directory("docs", "/docs", now)));
+        when(contentRepository.findChildren("docs", null, 2))
+            .thenReturn(new ContentPage(List.of(zeta, alpha), ListingCursor.after(alpha)));
+        when(contentRepository.findChildren("docs", ListingCursor.after(alpha), 2))
+            .thenReturn(new ContentPage(List.of(), null));
+
+        // When
+        String nextCursor = JsonPath.read(
+            mockMvc.perform(get("/api/content/docs?limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count", is(2)))
+                .andExpect(jsonPath("$.items[0].name", is("zeta.md")))
+                .andExpect(jsonPath("$.items[1].name", is("alpha")))
+                .andReturn().getResponse().getContentAsString(), "$.nextCursor");
+
+        // Then
+        mockMvc.perform(get("/api/content/docs").param("limit", "2").param("cursor", nextCursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(0)))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+        verify(contentRepository, never()).findChildren("docs");
+    }
+
+    @Test
+    void listContent_pagesJoined_shouldMatchFullListing() throws Exception {
+        // Given: a directory on disk whose order metadata differs from the type and name order
+        Path docs = tempDir.resolve("docs");
+        Files.createDirectories(docs.resolve("guides"));
+        Files.createDirectories(docs.resolve("api"));
+        Files.writeString(docs.resolve("api/.metadata"), "order: 2");
+        Files.writeString(docs.resolve("zeta.md"), "---\norder: 1\n---\n# Zeta");
+        Files.writeString(docs.resolve("Beta.md"), "# Beta");
+        Files.writeString(docs.resolve("alpha.md"), "# Alpha");
+        Files.writeString(docs.resolve("gamma.md"), "---\norder: 2\n---\n# Gamma");
+        FileSystemContentRepository repository = new FileSystemContentRepository(tempDir);
+        when(contentRepository.findByPath("docs")).thenAnswer(call -> repository.findByPath("docs"));
+        when(contentRepository.findChildren("docs")).thenAnswer(call -> repository.findChildren("docs"));
+        when(contentRepository.findChildren(eq("docs"), any(), anyInt())).thenAnswer(
+            call -> repository.findChildren("docs", call.getArgument(1), call.getArgument(2)));
+
+        // When
+        List<String> full = JsonPath.read(mockMvc.perform(get("/api/content/docs"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString(), "$.items[*].name");
+        List<String> joined = new ArrayList<>();
+        String cursor = null;
+        do {
+            var request = get("/api/content/docs").param("limit", "2");
+            String page = mockMvc.perform(cursor == null ? request : request.param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+            joined.addAll(JsonPath.read(page, "$.items[*].name"));
+            // Absent on the last page
+            cursor = (String) JsonPath.<Map<String, Object>>read(page, "$").get("nextCursor");
+        } while (cursor != null);
+
+        // Then
+        assertEquals(List.of("zeta.md", "api", "gamma.md", "guides", "alpha.md", "Beta.md"), full);
+        assertEquals(full, joined);
+    }
+
+    @Test
+    void listContent_withInvalidPageParameters_shouldReturn400() throws Exception {
+        when(contentRepository.findByPath("docs"))
+            .thenReturn(Optional.of(ContentItem.directory("docs", "/docs", Instant.now())));
+
+        mockMvc.perform(get("/api/content/docs?cursor=not-a-cursor"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/content/docs?limit=0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/content/docs?limit=10&recursive=true"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void listContent_shouldNormalizePaths() throws Exception {
         // Given
@@ -220,6 +740,7 @@ class ContentControllerTest {
 
         // Verify that the save method was called with the correct arguments.
         verify(contentRepository).saveContent(normalizedPath, content);
+        verify(searchService).reindex(normalizedPath);
     }
     
     @Test
@@ -231,6 +752,7 @@ class ContentControllerTest {
         // When/Then
         mockMvc.perform(delete("/api/content/test.txt"))
                 .andExpect(status().isNoContent());
+        verify(searchService).delete(path);
     }
     
     @Test
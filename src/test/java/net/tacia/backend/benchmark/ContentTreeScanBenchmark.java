@@ -0,0 +1,131 @@
+package net.tacia.backend.benchmark;
+
+import net.tacia.backend.model.ContentItem;
+import net.tacia.backend.repository.ContentTreeScanner;
+import net.tacia.backend.repository.FileSystemContentRepository;
+import net.tacia.backend.repository.FrontmatterReader;
+import net.tacia.backend.repository.IndexedContentRepository;
+import net.tacia.backend.repository.MetadataCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Full recursive listing of a synthetic tree with 100k markdown files, comparing the sequential
+ * {@link Files#walkFileTree} walk the repository used before with {@link ContentTreeScanner}, and
+ * building the in-memory index (with {@code parallelism = 1} as the sequential baseline).
+ * The baseline does not depend on {@code parallelism}; it is repeated per parameter for comparison.
+ * Run with:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:$(cat target/cp.txt) org.openjdk.jmh.Main ContentTreeScanBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ContentTreeScanBenchmark {
+
+    private static final int DIRECTORIES = 1_000;
+    private static final int FILES_PER_DIRECTORY = 100;
+
+    @Param({"1", "4", "8", "16"})
+    public int parallelism;
+
+    private Path contentRoot;
+    private ContentTreeScanner scanner;
+    private FileSystemContentRepository repository;
+
+    @Setup(Level.Trial)
+    public void createTree() throws IOException {
+        contentRoot = Files.createTempDirectory("content-tree-bench");
+        for (int d = 0; d < DIRECTORIES; d++) {
+            // Two levels so the tree has some depth: section/topic/page.md
+            Path dir = Files.createDirectories(contentRoot.resolve("section" + d / 50).resolve("topic" + d));
+            Files.writeString(dir.resolve(".metadata"), "title: Topic " + d + "\norder: " + d);
+            for (int f = 0; f < FILES_PER_DIRECTORY; f++) {
+                String content = "---\ntitle: Page " + f + "\norder: " + f + "\n---\n# Page " + f + "\n\nBody text.\n";
+                Files.write(dir.resolve("page" + f + ".md"), content.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        scanner = new ContentTreeScanner(parallelism);
+        repository = new FileSystemContentRepository(contentRoot, new FrontmatterReader(), new MetadataCache(),
+            scanner);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteTree() throws IOException {
+        scanner.close();
+        try (Stream<Path> paths = Files.walk(contentRoot)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<ContentItem> walkFileTree() throws IOException {
+        // The findDescendants implementation before the parallel scanner
+        List<ContentItem> result = new ArrayList<>();
+        Files.walkFileTree(contentRoot, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!dir.equals(contentRoot)) {
+                    String relativePath = "/" + contentRoot.relativize(dir).toString().replace("\\", "/") + "/";
+                    result.add(new ContentItem(dir.getFileName().toString(), "directory", relativePath, 0,
+                        attrs.lastModifiedTime().toInstant(), null, new HashMap<>()));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                String relativePath = "/" + contentRoot.relativize(file).toString().replace("\\", "/");
+                result.add(new ContentItem(file.getFileName().toString(), "file", relativePath, attrs.size(),
+                    attrs.lastModifiedTime().toInstant(), null, new HashMap<>()));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return result;
+    }
+
+    @Benchmark
+    public List<ContentItem> scanner() {
+        return repository.findDescendants("");
+    }
+
+    @Benchmark
+    public IndexedContentRepository buildIndex() {
+        // Reads attributes and frontmatter of every entry; the cache is disabled so nothing is reused
+        return new IndexedContentRepository(new FileSystemContentRepository(contentRoot, new FrontmatterReader(),
+            new MetadataCache(0, 0), scanner));
+    }
+}
@@ -0,0 +1,91 @@
+package net.tacia.backend.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serving a file body for /api/file-content: decoding it into a {@code String} and encoding it
+ * again (the previous implementation) versus copying the bytes with {@link FileChannel#transferTo}
+ * (the fallback used when the connector has no sendfile support). The response is written to a
+ * stream that discards its input, so the numbers cover the server side work only.
+ * <p>
+ * Run with {@code -prof gc} to see the allocation per request ({@code gc.alloc.rate.norm}):
+ * <pre>
+ * java -cp target/test-classes:$(cat target/cp.txt) org.openjdk.jmh.Main FileContentBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileContentBenchmark {
+
+    @Param({"4096", "1048576", "16777216"})
+    public int fileSize;
+
+    private Path file;
+    private final OutputStream responseBody = OutputStream.nullOutputStream();
+
+    @Setup(Level.Trial)
+    public void createFile() throws IOException {
+        file = Files.createTempFile("file-content-bench", ".md");
+        String line = "Lorem ipsum dolor sit amet, consectetur adipiscing elit. Ünïcödé ✓\n";
+        StringBuilder content = new StringBuilder(fileSize + line.length());
+        while (content.length() < fileSize) {
+            content.append(line);
+        }
+        Files.writeString(file, content);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public int readString() throws IOException {
+        // getContent followed by StringHttpMessageConverter writing the body
+        String content = Files.readString(file);
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        responseBody.write(bytes);
+        return bytes.length;
+    }
+
+    @Benchmark
+    public long transferTo() throws IOException {
+        // FileContentWriter without sendfile
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            WritableByteChannel target = Channels.newChannel(responseBody);
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+            return position;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package net.tacia.backend.benchmark;
+
+import net.tacia.backend.service.MarkdownService;
+import net.tacia.backend.service.RegexMarkdownProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processing a markdown document for /api/content: the regular expressions MarkdownService used
+ * before versus the single pass MarkdownScanner, on a small page (2 KB), a medium one (64 KB)
+ * and a very large one (5 MB), each with frontmatter and a heading every few paragraphs.
+ * <p>
+ * Run with {@code -prof gc} for the allocation per document ({@code gc.alloc.rate.norm}, in
+ * bytes/op) next to the time per document:
+ * <pre>
+ * java -cp target/test-classes:$(cat target/cp.txt) org.openjdk.jmh.Main MarkdownBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarkdownBenchmark {
+
+    @Param({"2048", "65536", "5242880"})
+    public int documentSize;
+
+    private String markdown;
+    private final RegexMarkdownProcessor regex = new RegexMarkdownProcessor();
+    private final MarkdownService scanner = new MarkdownService();
+
+    @Setup(Level.Trial)
+    public void createDocument() {
+        markdown = document(documentSize, new Random(42));
+    }
+
+    @Benchmark
+    public Map<String, Object> regex() {
+        return regex.processMarkdown(markdown);
+    }
+
+    @Benchmark
+    public Map<String, Object> scanner() {
+        return scanner.processMarkdown(markdown);
+    }
+
+    /**
+     * A document of about the given size, with the kind of frontmatter the content uses
+     */
+    static String document(int size, Random random) {
+        StringBuilder document = new StringBuilder(size + 200);
+        document.append("""
+            ---
+            title: "Deploying the backend"
+            order: 4
+            draft: false
+            weight: 1.5
+            tags: [deployment, java, 'spring boot']
+            description: How the backend is built, configured and rolled out
+            ---
+
+            """);
+        int section = 0;
+        while (document.length() < size) {
+            if (section % 3 == 0) {
+                document.append("# Part ").append(section / 3 + 1).append("\n\n");
+            }
+            document.append("## Step ").append(++section).append(": see [the guide](guide.md)\n\n");
+            for (int paragraph = 0; paragraph < 3; paragraph++) {
+                for (int word = 0; word < 60; word++) {
+                    document.append(WORDS[random.nextInt(WORDS.length)]).append(word % 12 == 11 ? ".\n" : " ");
+                }
+                document.append("\n\n");
+            }
+        }
+        return document.toString();
+    }
+
+    private static final String[] WORDS = {
+        "the", "backend", "serves", "markdown", "documents", "from", "a", "content", "directory", "and",
+        "caches", "processed", "responses", "by", "version", "while", "clients", "render", "pages", "with",
+        "`code`", "**bold**", "links", "to", "other", "sections", "of", "guide"
+    };
+}
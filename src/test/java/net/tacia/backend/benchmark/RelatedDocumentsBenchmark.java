@@ -0,0 +1,141 @@
+package net.tacia.backend.benchmark;
+
+import net.tacia.backend.service.related.HashingVectorizer;
+import net.tacia.backend.service.related.HnswIndex;
+import net.tacia.backend.service.search.SearchDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Related documents over 200k generated documents: query latency of the HNSW graph against an
+ * exact scan of all vectors, and recall@5 of the graph against exact cosine similarity.
+ * Every document mixes words of one of 2,000 topics with Zipf-distributed background words, so
+ * documents of the same topic are the true neighbours. Recall is printed once the index is built;
+ * it does not depend on the benchmark mode.
+ * <pre>
+ * java -Xmx4g -cp target/test-classes:$(cat target/cp.txt) org.openjdk.jmh.Main RelatedDocumentsBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RelatedDocumentsBenchmark {
+
+    private static final int TOPICS = 2_000;
+    private static final int TOPIC_WORDS = 40;
+    private static final int VOCABULARY = 30_000;
+    private static final int DIMENSIONS = 256;
+    private static final int K = 5;
+    private static final int RECALL_QUERIES = 200;
+
+    @Param({"200000"})
+    public int documents;
+
+    @Param({"64"})
+    public int ef;
+
+    private HnswIndex index;
+    private float[][] vectors;
+    private String[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void buildIndex() {
+        Random random = new Random(42);
+        HashingVectorizer vectorizer = new HashingVectorizer(DIMENSIONS);
+        index = new HnswIndex(DIMENSIONS, 16, 100);
+        vectors = new float[documents][];
+        long start = System.nanoTime();
+        for (int i = 0; i < documents; i++) {
+            int topic = random.nextInt(TOPICS);
+            StringBuilder body = new StringBuilder();
+            for (int w = 0; w < 150; w++) {
+                if (random.nextInt(3) == 0) {
+                    body.append("t").append(topic).append('x').append(random.nextInt(TOPIC_WORDS));
+                } else {
+                    body.append('w').append(Integer.toString((int) Math.pow(VOCABULARY, random.nextDouble()), 36));
+                }
+                body.append(' ');
+            }
+            vectors[i] = vectorizer.vectorize(new SearchDocument(key(i), "Page " + i, List.of(), List.of(), body.toString()));
+            index.put(key(i), vectors[i]);
+        }
+        System.out.printf("%nIndexed %d documents in %d ms%n", documents, (System.nanoTime() - start) / 1_000_000);
+
+        queries = new String[256];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = key(random.nextInt(documents));
+        }
+        int found = 0;
+        for (int q = 0; q < RECALL_QUERIES; q++) {
+            String query = queries[q];
+            Set<String> approximate = new HashSet<>();
+            index.neighbours(query, K, ef).forEach(match -> approximate.add(match.key()));
+            for (int neighbour : exactNeighbours(query)) {
+                if (approximate.contains(key(neighbour))) {
+                    found++;
+                }
+            }
+        }
+        System.out.printf("recall@%d = %.4f (ef = %d)%n", K, (double) found / (RECALL_QUERIES * K), ef);
+    }
+
+    @Benchmark
+    public List<HnswIndex.Match> hnsw() {
+        return index.neighbours(queries[next++ & (queries.length - 1)], K, ef);
+    }
+
+    @Benchmark
+    public int[] exact() {
+        return exactNeighbours(queries[next++ & (queries.length - 1)]);
+    }
+
+    /**
+     * The {@value #K} documents with the highest cosine similarity, by scanning all vectors
+     */
+    private int[] exactNeighbours(String key) {
+        int self = Integer.parseInt(key.substring(6, key.length() - 3));
+        float[] query = vectors[self];
+        PriorityQueue<float[]> best = new PriorityQueue<>(K + 1, (a, b) -> Float.compare(a[0], b[0]));
+        for (int i = 0; i < vectors.length; i++) {
+            if (i == self) {
+                continue;
+            }
+            float score = 0;
+            for (int d = 0; d < DIMENSIONS; d++) {
+                score += query[d] * vectors[i][d];
+            }
+            if (best.size() < K || score > best.peek()[0]) {
+                best.add(new float[] {score, i});
+                if (best.size() > K) {
+                    best.poll();
+                }
+            }
+        }
+        return best.stream().mapToInt(entry -> (int) entry[1]).toArray();
+    }
+
+    private static String key(int document) {
+        return "/docs/" + document + ".md";
+    }
+}
@@ -0,0 +1,97 @@
+package net.tacia.backend.benchmark;
+
+import net.tacia.backend.service.search.SearchDocument;
+import net.tacia.backend.service.search.SearchIndex;
+import net.tacia.backend.service.search.SearchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of the full-text index over 100k generated documents. Words are drawn from a
+ * Zipf-like distribution, so common words match a large part of the corpus like real text.
+ * Sample mode reports percentiles (p0.99 is the target); queries rotate through single common,
+ * single rare and mixed multi-term queries.
+ * <pre>
+ * java -Xmx3g -cp target/test-classes:$(cat target/cp.txt) org.openjdk.jmh.Main SearchBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SearchBenchmark {
+
+    private static final int VOCABULARY = 30_000;
+    private static final int BODY_WORDS = 200;
+
+    @Param({"100000"})
+    public int documents;
+
+    @Param({"common", "rare", "mixed"})
+    public String queryType;
+
+    private SearchIndex index;
+    private String[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void buildIndex() {
+        Random random = new Random(42);
+        List<SearchDocument> corpus = new ArrayList<>(documents);
+        for (int i = 0; i < documents; i++) {
+            List<String> headings = List.of(words(random, 3), words(random, 3), words(random, 3));
+            List<String> tags = List.of("tag" + random.nextInt(200), "tag" + random.nextInt(200));
+            corpus.add(new SearchDocument("/docs/" + (i / 100) + "/page" + i + ".md", words(random, 3),
+                headings, tags, words(random, BODY_WORDS)));
+        }
+        index = new SearchIndex();
+        index.rebuild(corpus);
+
+        queries = new String[64];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = switch (queryType) {
+                case "common" -> word(random.nextInt(10));
+                case "rare" -> word(5_000 + random.nextInt(VOCABULARY - 5_000));
+                default -> word(random.nextInt(10)) + " " + word(100 + random.nextInt(1_000)) + " "
+                    + word(5_000 + random.nextInt(VOCABULARY - 5_000));
+            };
+        }
+    }
+
+    @Benchmark
+    public SearchResult search() {
+        String query = queries[next++ & (queries.length - 1)];
+        return index.search(query, 10);
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            // Zipf-like: rank = VOCABULARY^u, so low ranks are far more frequent
+            int rank = (int) Math.pow(VOCABULARY, random.nextDouble()) - 1;
+            text.append(word(rank)).append(i % 12 == 11 ? ".\n" : " ");
+        }
+        return text.toString();
+    }
+
+    private static String word(int rank) {
+        return "w" + Integer.toString(rank, 36);
+    }
+}
@@ -2,6 +2,11 @@ package net.tacia.backend.config;
 
 import net.tacia.backend.repository.ContentRepository;
 import net.tacia.backend.repository.FileSystemContentRepository;
+import net.tacia.backend.service.BatchExecutor;
+import net.tacia.backend.service.CompressedResponseCache;
+import net.tacia.backend.service.RenderedHtmlCache;
+import net.tacia.backend.service.RequestCoalescer;
+import net.tacia.backend.service.cache.BoundedCacheManager;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
@@ -16,4 +21,30 @@ public class TestConfig {
     public ContentRepository contentRepository() {
         return new FileSystemContentRepository(Paths.get("target/test-content"));
     }
+
+    @Bean
+    public CompressedResponseCache compressedResponseCache() {
+        return new CompressedResponseCache();
+    }
+
+    @Bean
+    public RenderedHtmlCache renderedHtmlCache() {
+        return new RenderedHtmlCache();
+    }
+
+    @Bean
+    public BoundedCacheManager cacheManager() {
+        return new BoundedCacheManager(100, 0,
+            CacheConfig.RELATED_DOCUMENTS_CACHE, CacheConfig.DOCUMENT_STRUCTURE_CACHE, CacheConfig.CONTENT_CACHE);
+    }
+
+    @Bean
+    public RequestCoalescer requestCoalescer() {
+        return new RequestCoalescer();
+    }
+
+    @Bean(destroyMethod = "close")
+    public BatchExecutor batchExecutor() {
+        return new BatchExecutor(4, 10);
+    }
 }
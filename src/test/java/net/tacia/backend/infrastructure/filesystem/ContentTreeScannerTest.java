@@ -0,0 +1,86 @@
+package net.tacia.backend.infrastructure.filesystem;
+
+import net.tacia.backend.repository.ContentTreeScanner;
+import net.tacia.backend.repository.FileSystemContentRepository;
+import net.tacia.backend.repository.FrontmatterReader;
+import net.tacia.backend.repository.MetadataCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentTreeScannerTest {
+
+    @TempDir
+    Path tempDir;
+    private Path contentRoot;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        contentRoot = tempDir.resolve("content");
+        for (int d = 0; d < 5; d++) {
+            Path dir = Files.createDirectories(contentRoot.resolve("dir" + d).resolve("nested" + d));
+            Files.writeString(dir.resolve("page.md"), "# Page");
+            for (int f = 0; f < 20; f++) {
+                Files.writeString(dir.getParent().resolve("file" + f + ".md"), "# File " + f);
+            }
+        }
+        // Large enough to be split into several chunks
+        Path large = Files.createDirectories(contentRoot.resolve("large"));
+        for (int f = 0; f < 700; f++) {
+            Files.writeString(large.resolve("generated" + f + ".md"), "# Generated " + f);
+        }
+        Files.createDirectories(large.resolve("empty"));
+    }
+
+    @Test
+    void shouldVisitEntriesInWalkFileTreeOrder() throws IOException {
+        List<Path> expected = new ArrayList<>();
+        Files.walkFileTree(contentRoot, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                expected.add(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                expected.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        try (ContentTreeScanner scanner = new ContentTreeScanner(4)) {
+            assertEquals(expected, scanner.scan(contentRoot, (path, attrs) -> path));
+            assertEquals(List.of(contentRoot.resolve("large/generated1.md")),
+                scanner.scan(contentRoot.resolve("large/generated1.md"), (path, attrs) -> path));
+            assertEquals(List.of(), scanner.scan(contentRoot.resolve("missing"), (path, attrs) -> path));
+        }
+    }
+
+    @Test
+    void shouldMatchSequentialResultsInRepository() {
+        try (ContentTreeScanner sequentialScanner = new ContentTreeScanner(1);
+             ContentTreeScanner parallelScanner = new ContentTreeScanner(8)) {
+            FileSystemContentRepository sequential = new FileSystemContentRepository(contentRoot,
+                new FrontmatterReader(), new MetadataCache(), sequentialScanner);
+            FileSystemContentRepository parallel = new FileSystemContentRepository(contentRoot,
+                new FrontmatterReader(), new MetadataCache(), parallelScanner);
+
+            assertEquals(sequential.findDescendants(""), parallel.findDescendants(""));
+            assertEquals(sequential.findDescendants("dir3"), parallel.findDescendants("dir3"));
+            assertEquals(sequential.getAllMarkdownFiles(), parallel.getAllMarkdownFiles());
+            assertEquals(5 * 23 + 702, parallel.findDescendants("").size());
+        }
+    }
+}
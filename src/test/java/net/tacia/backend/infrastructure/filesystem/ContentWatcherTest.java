@@ -0,0 +1,91 @@
+package net.tacia.backend.infrastructure.filesystem;
+
+import net.tacia.backend.model.ContentItem;
+import net.tacia.backend.repository.ContentChangeEvent;
+import net.tacia.backend.repository.ContentWatcher;
+import net.tacia.backend.repository.FileSystemContentRepository;
+import net.tacia.backend.repository.IndexedContentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentWatcherTest {
+
+    @TempDir
+    Path tempDir;
+    private Path contentRoot;
+    private IndexedContentRepository repository;
+    private ContentWatcher watcher;
+    private final List<ContentChangeEvent> events = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        contentRoot = tempDir.resolve("content");
+        write("guide/intro.md", "# Intro");
+        repository = new IndexedContentRepository(contentRoot);
+        watcher = new ContentWatcher(contentRoot, event -> {
+            repository.onContentChange(event);
+            events.add(event);
+        });
+        watcher.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        watcher.close();
+    }
+
+    @Test
+    void shouldApplyExternalChangesToIndex() throws Exception {
+        write("guide/setup.md", "---\norder: 1\n---\n# Setup");
+        // The file may be indexed empty on its creation, before the modification with its content
+        awaitTrue(() -> Integer.valueOf(1).equals(
+            repository.findByPath("guide/setup.md").map(ContentItem::order).orElse(null)));
+
+        Files.delete(contentRoot.resolve("guide/intro.md"));
+        awaitTrue(() -> !repository.exists("guide/intro.md"));
+
+        assertEquals(new FileSystemContentRepository(contentRoot).findChildren("guide"),
+            repository.findChildren("guide"));
+        assertTrue(events.stream().anyMatch(e -> e.path().equals("/guide/intro.md")
+            && e.kind() == ContentChangeEvent.Kind.DELETED));
+    }
+
+    @Test
+    void shouldWatchNewDirectories() throws Exception {
+        write("api/v1/reference.md", "# Reference");
+        awaitTrue(() -> repository.exists("api/v1/reference.md"));
+
+        // Files created in the new directory after it was registered are reported too
+        write("api/v1/changes.md", "# Changes");
+        awaitTrue(() -> repository.exists("api/v1/changes.md"));
+        awaitTrue(() -> watcher.getWatchedDirectoryCount() == 4);
+    }
+
+    private void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Condition not met within timeout, events: " + events);
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private void write(String relativePath, String content) throws IOException {
+        Path file = contentRoot.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,6 +1,7 @@
 package net.tacia.backend.infrastructure.filesystem;
 
 import net.tacia.backend.model.ContentItem;
+import net.tacia.backend.model.MarkdownDocument;
 import net.tacia.backend.repository.FileSystemContentRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,6 +12,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -145,4 +147,24 @@ class FileSystemContentRepositoryMetadataTest {
         content += "---\n# " + title;
         Files.write(file, content.getBytes(StandardCharsets.UTF_8));
     }
+
+    @Test
+    void shouldParseFrontmatterWithSameRulesForListingAndDocument() throws IOException {
+        // Given: frontmatter that is not valid YAML
+        Files.createDirectories(contentRoot);
+        Files.writeString(contentRoot.resolve("notes.md"), "---\ntitle: Notes: part 2\norder: 3\ntags: a, b\n---\n# Heading");
+
+        // When
+        ContentItem item = repository.findByPath("/notes.md").orElseThrow();
+        MarkdownDocument document = repository.readDocument("notes.md").orElseThrow();
+
+        // Then
+        assertEquals(3, item.order());
+        assertEquals(3, document.parsed().order());
+        assertEquals("Notes: part 2", item.metadata().get("title"));
+        assertEquals(List.of("a", "b"), item.metadata().get("tags"));
+        Map<String, Object> documentMetadata = new HashMap<>(document.parsed().metadata());
+        documentMetadata.remove("order");
+        assertEquals(documentMetadata, item.metadata());
+    }
 }
@@ -121,4 +121,22 @@ class FileSystemContentRepositoryTest {
         assertTrue(deleted);
         assertFalse(repository.exists("/toDelete.txt"));
     }
+
+    @Test
+    void shouldResolveContentFileLikeGetContent() throws IOException {
+        // Given
+        Files.createDirectories(contentRoot.resolve("docs"));
+        Files.writeString(contentRoot.resolve("docs/page.md"), "# Page");
+        Files.writeString(contentRoot.resolve("docs/notes.txt"), "notes");
+
+        // Then
+        for (String path : List.of("docs/page.md", "docs/page", "docs/notes.txt", "docs/missing")) {
+            Optional<Path> file = repository.getContentFile(path);
+            assertEquals(repository.getContent(path).isPresent(), file.isPresent(), path);
+            if (file.isPresent()) {
+                assertEquals(repository.getContent(path).get(), Files.readString(file.get()), path);
+            }
+        }
+        assertEquals(Optional.empty(), repository.getContentFile("docs"));
+    }
 }
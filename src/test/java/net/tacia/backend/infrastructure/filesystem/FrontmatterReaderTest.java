@@ -0,0 +1,92 @@
+package net.tacia.backend.infrastructure.filesystem;
+
+import net.tacia.backend.model.ContentItem;
+import net.tacia.backend.model.markdown.MarkdownScanner;
+import net.tacia.backend.repository.FileSystemContentRepository;
+import net.tacia.backend.repository.FrontmatterReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrontmatterReaderTest {
+
+    /** The frontmatter rules of MarkdownScanner, as a pattern matched against the whole document */
+    private static final Pattern FRONTMATTER_PATTERN = Pattern.compile("^---\\s*\\n([\\s\\S]*?)\\n---\\s*(?:\\n|\\z)");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldMatchPatternAndScannerOnEdgeCases() throws IOException {
+        List<String> documents = List.of(
+            "---\ntitle: Test\n---\n# Body",
+            "---\r\ntitle: Test\r\norder: 1\r\n---\r\nBody",
+            "---   \n\ntitle: Test\n---",
+            "---\n---\n# Empty frontmatter",
+            "---\n\n---x",
+            "---\n\n---x\nbody\n---\n",
+            "--- \n \n---",
+            "---\ntitle: No closing marker\n# Body",
+            "---title: Not frontmatter\n---",
+            "# No frontmatter\n---\ntitle: Test\n---",
+            "---\ntitle: Dashes\n----\nmore\n---",
+            "---\ntitle: Trailing space\n--- \t",
+            "---\ntitle: a\n--- x\nb: c\n---\r\nBody",
+            "---\ntitle: Ünïcödé ✓\n---\nBody",
+            "",
+            "--"
+        );
+
+        FrontmatterReader reader = new FrontmatterReader();
+        for (String document : documents) {
+            Matcher matcher = FRONTMATTER_PATTERN.matcher(document);
+            Optional<String> expected = matcher.find() ? Optional.of(matcher.group(1)) : Optional.empty();
+            Optional<String> actual = reader.read(new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)));
+            assertEquals(expected, actual, "Document: " + document.replace("\n", "\\n"));
+            assertEquals(Optional.ofNullable(MarkdownScanner.scan(document).frontmatter()), actual,
+                "Document: " + document.replace("\n", "\\n"));
+        }
+    }
+
+    @Test
+    void shouldIgnoreFrontmatterLongerThanLimit() throws IOException {
+        FrontmatterReader reader = new FrontmatterReader(64);
+        String document = "---\ndescription: " + "x".repeat(100) + "\n---\n# Body";
+
+        assertEquals(Optional.empty(), reader.read(new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8))));
+        assertEquals(64, reader.getBytesRead());
+    }
+
+    @Test
+    void shouldReadOnlyFrontmatterWhenListingDirectory() throws IOException {
+        Path contentRoot = tempDir.resolve("content");
+        Files.createDirectories(contentRoot);
+        String body = "Lorem ipsum dolor sit amet.\n".repeat(100_000); // ~2.8MB per document
+        int documents = 10;
+        for (int i = 0; i < documents; i++) {
+            String content = "---\norder: " + i + "\ntitle: Page " + i + "\n---\n# Page " + i + "\n" + body;
+            Files.write(contentRoot.resolve("page" + i + ".md"), content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        FrontmatterReader reader = new FrontmatterReader();
+        FileSystemContentRepository repository = new FileSystemContentRepository(contentRoot, reader);
+
+        List<ContentItem> children = repository.findChildren("/");
+
+        assertEquals(documents, children.size());
+        assertEquals("Page 3", children.get(3).metadata().get("title"));
+        long bytesPerDocument = reader.getBytesRead() / documents;
+        assertTrue(bytesPerDocument <= 4096, "Read " + bytesPerDocument + " bytes per document");
+    }
+}
@@ -0,0 +1,131 @@
+package net.tacia.backend.infrastructure.filesystem;
+
+import net.tacia.backend.repository.FileSystemContentRepository;
+import net.tacia.backend.repository.FrontmatterReader;
+import net.tacia.backend.repository.IndexSnapshot;
+import net.tacia.backend.repository.IndexedContentRepository;
+import net.tacia.backend.repository.MetadataCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexSnapshotTest {
+
+    private static final List<String> PATHS = List.of("", "guide", "guide/setup", "api", "index.md", "guide/intro.md");
+
+    @TempDir
+    Path tempDir;
+    private Path contentRoot;
+    private Path snapshotFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        contentRoot = tempDir.resolve("content");
+        snapshotFile = tempDir.resolve("state/index.snapshot");
+
+        write("index.md", "---\norder: 1\ntitle: Home\ndate: 2024-01-15\nweight: 1.5\ndraft: false\n---\n# Home");
+        write("guide/.metadata", "order: 2\ntitle: Guide\ntags: [a, b]\nauthor:\n  name: Ann\n  id: 12345678901\n");
+        write("guide/intro.md", "---\ntitle: Intro\nempty:\n---\n# Intro");
+        write("guide/setup/install.md", "---\norder: 3\n---\n# Install");
+        write("api/reference.md", "# Reference");
+    }
+
+    @Test
+    void shouldServeSnapshotWithoutReadingContent() throws IOException {
+        IndexedContentRepository original = new IndexedContentRepository(new FileSystemContentRepository(contentRoot));
+        assertEquals(9, original.writeSnapshot(snapshotFile));
+
+        FrontmatterReader reader = new FrontmatterReader();
+        IndexedContentRepository restored = new IndexedContentRepository(repository(reader), snapshotFile);
+
+        assertTrue(restored.isLoadedFromSnapshot());
+        assertEquals(0, reader.getBytesRead());
+        assertSameResults(original, restored);
+    }
+
+    @Test
+    void shouldReconcileOnlyChangedFiles() throws IOException {
+        new IndexedContentRepository(new FileSystemContentRepository(contentRoot)).writeSnapshot(snapshotFile);
+
+        Path changed = write("guide/intro.md", "---\ntitle: Changed\n---\n# Intro");
+        Files.setLastModifiedTime(changed, FileTime.from(Instant.now().plusSeconds(60)));
+        Path added = write("guide/added.md", "---\norder: 0\n---\n# Added");
+        Files.delete(contentRoot.resolve("api/reference.md"));
+
+        FrontmatterReader reader = new FrontmatterReader();
+        IndexedContentRepository restored = new IndexedContentRepository(repository(reader), snapshotFile);
+        assertEquals("Intro", restored.findByPath("guide/intro.md").orElseThrow().metadata().get("title"));
+        assertTrue(restored.exists("api/reference.md"));
+
+        restored.reconcile();
+
+        assertSameResults(new IndexedContentRepository(new FileSystemContentRepository(contentRoot)), restored);
+        assertEquals(Files.size(changed) + Files.size(added), reader.getBytesRead());
+    }
+
+    @Test
+    void shouldDiscardCorruptSnapshot() throws IOException {
+        IndexedContentRepository original = new IndexedContentRepository(new FileSystemContentRepository(contentRoot));
+        original.writeSnapshot(snapshotFile);
+        byte[] bytes = Files.readAllBytes(snapshotFile);
+        bytes[bytes.length / 2] ^= 0x5a;
+        Files.write(snapshotFile, bytes);
+
+        assertThrows(IndexSnapshot.InvalidSnapshotException.class, () -> IndexSnapshot.read(snapshotFile, contentRoot));
+        IndexedContentRepository restored = new IndexedContentRepository(repository(new FrontmatterReader()), snapshotFile);
+
+        assertFalse(restored.isLoadedFromSnapshot());
+        assertFalse(Files.exists(snapshotFile));
+        assertSameResults(original, restored);
+    }
+
+    @Test
+    void shouldRejectTruncatedAndMismatchedSnapshots() throws IOException {
+        new IndexedContentRepository(new FileSystemContentRepository(contentRoot)).writeSnapshot(snapshotFile);
+        byte[] bytes = Files.readAllBytes(snapshotFile);
+
+        Path truncated = tempDir.resolve("truncated.snapshot");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 20));
+        assertThrows(IndexSnapshot.InvalidSnapshotException.class, () -> IndexSnapshot.read(truncated, contentRoot));
+
+        Path otherVersion = tempDir.resolve("version.snapshot");
+        Files.write(otherVersion, ByteBuffer.wrap(bytes.clone()).putInt(4, 99).array());
+        IndexSnapshot.InvalidSnapshotException e = assertThrows(IndexSnapshot.InvalidSnapshotException.class,
+            () -> IndexSnapshot.read(otherVersion, contentRoot));
+        assertTrue(e.getMessage().contains("version"), e.getMessage());
+
+        assertThrows(IndexSnapshot.InvalidSnapshotException.class,
+            () -> IndexSnapshot.read(snapshotFile, tempDir.resolve("other")));
+        assertEquals(9, IndexSnapshot.read(snapshotFile, contentRoot).size());
+    }
+
+    private FileSystemContentRepository repository(FrontmatterReader reader) {
+        return new FileSystemContentRepository(contentRoot, reader, new MetadataCache());
+    }
+
+    private static void assertSameResults(IndexedContentRepository expected, IndexedContentRepository actual) {
+        for (String path : PATHS) {
+            assertEquals(expected.findChildren(path), actual.findChildren(path), "findChildren " + path);
+            assertEquals(expected.findByPath(path), actual.findByPath(path), "findByPath " + path);
+            assertEquals(expected.findDescendants(path), actual.findDescendants(path), "findDescendants " + path);
+        }
+    }
+
+    private Path write(String relativePath, String content) throws IOException {
+        Path file = contentRoot.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,249 @@
+package net.tacia.backend.infrastructure.filesystem;
+
+import net.tacia.backend.model.ContentItem;
+import net.tacia.backend.repository.ContentPage;
+import net.tacia.backend.repository.ContentRepository;
+import net.tacia.backend.repository.DirectoryListing;
+import net.tacia.backend.repository.FileSystemContentRepository;
+import net.tacia.backend.repository.IndexedContentRepository;
+import net.tacia.backend.repository.ListingCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexedContentRepositoryTest {
+
+    @TempDir
+    Path tempDir;
+    private Path contentRoot;
+    private FileSystemContentRepository fileSystemRepository;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        contentRoot = tempDir.resolve("content");
+        fileSystemRepository = new FileSystemContentRepository(contentRoot);
+
+        write("index.md", "---\norder: 1\ntitle: Home\n---\n# Home");
+        write("notes.txt", "plain text");
+        write(".hidden.md", "# Hidden");
+        write("guide/.metadata", "order: 2\ntitle: Guide\ntags: [a, b]");
+        write("guide/intro.md", "---\ntitle: Intro\n---\n# Intro");
+        write("guide/Advanced.md", "# Advanced");
+        write("guide/setup/install.md", "---\norder: 3\n---\n# Install");
+        write("api/.metadata", "title: API");
+        write("api/reference.markdown", "# Reference");
+    }
+
+    @Test
+    void shouldReturnSameResultsAsFileSystemRepository() {
+        IndexedContentRepository indexed = new IndexedContentRepository(contentRoot);
+
+        for (String path : List.of("", "/", "guide", "/guide/", "guide/setup", "api", "missing", "index.md")) {
+            assertEquals(fileSystemRepository.findChildren(path), indexed.findChildren(path), "findChildren " + path);
+            assertEquals(fileSystemRepository.findByPath(path), indexed.findByPath(path), "findByPath " + path);
+            assertEquals(fileSystemRepository.findDescendants(path), indexed.findDescendants(path), "findDescendants " + path);
+            assertEquals(fileSystemRepository.findDescendants(path), walk(fileSystemRepository, path), "walkDescendants " + path);
+            assertEquals(fileSystemRepository.findDescendants(path), walk(indexed, path), "walkDescendants " + path);
+            assertEquals(fileSystemRepository.exists(path), indexed.exists(path), "exists " + path);
+        }
+        assertEquals(fileSystemRepository.getAllMarkdownFiles(), indexed.getAllMarkdownFiles());
+    }
+
+    @Test
+    void shouldFollowSymbolicLinksLikeFileSystemRepository() throws IOException {
+        Path shared = tempDir.resolve("shared");
+        Files.createDirectories(shared.resolve("sub"));
+        Files.writeString(shared.resolve(".metadata"), "order: 1\ntitle: Shared");
+        Files.writeString(shared.resolve("linked.md"), "---\ntitle: Linked\n---\n# Linked");
+        Files.writeString(shared.resolve("sub/deep.md"), "# Deep");
+        Files.createSymbolicLink(contentRoot.resolve("guide/shared"), shared);
+        Files.createSymbolicLink(contentRoot.resolve("alias.md"), Path.of("index.md"));
+        Files.createSymbolicLink(contentRoot.resolve("broken.md"), Path.of("missing.md"));
+        IndexedContentRepository indexed = new IndexedContentRepository(contentRoot);
+
+        for (String path : List.of("", "guide", "guide/shared", "guide/shared/", "guide/shared/linked.md",
+                "guide/shared/sub", "guide/shared/missing.md", "alias.md", "broken.md")) {
+            assertEquals(fileSystemRepository.findChildren(path), indexed.findChildren(path), "findChildren " + path);
+            assertEquals(fileSystemRepository.findChildren(path, null, 100), indexed.findChildren(path, null, 100),
+                "findChildren page " + path);
+            assertEquals(fileSystemRepository.getListingVersion(path), indexed.getListingVersion(path),
+                "getListingVersion " + path);
+            assertEquals(fileSystemRepository.findListing(path).map(DirectoryListing::items),
+                indexed.findListing(path).map(DirectoryListing::items), "findListing " + path);
+            assertEquals(fileSystemRepository.findByPath(path), indexed.findByPath(path), "findByPath " + path);
+            assertEquals(fileSystemRepository.findDescendants(path), indexed.findDescendants(path), "findDescendants " + path);
+            assertEquals(fileSystemRepository.findDescendants(path), walk(indexed, path), "walkDescendants " + path);
+            assertEquals(fileSystemRepository.exists(path), indexed.exists(path), "exists " + path);
+        }
+        assertEquals(fileSystemRepository.getAllMarkdownFiles(), indexed.getAllMarkdownFiles());
+
+        // The linked directory is listed with the metadata of its target, the dangling link is not listed
+        ContentItem linked = indexed.findChildren("guide").get(0);
+        assertEquals("shared", linked.name());
+        assertEquals("directory", linked.type());
+        assertEquals("Shared", linked.metadata().get("title"));
+        assertTrue(indexed.findChildren("").stream().noneMatch(item -> item.name().equals("broken.md")));
+
+        // Changes under the link refresh the link rather than indexing entries under it
+        Files.writeString(shared.resolve("new.md"), "# New");
+        indexed.refresh("guide/shared/new.md");
+        assertEquals(fileSystemRepository.findChildren("guide/shared"), indexed.findChildren("guide/shared"));
+        assertEquals(fileSystemRepository.findDescendants(""), indexed.findDescendants(""));
+
+        // Links survive a snapshot
+        Path snapshot = tempDir.resolve("index.snapshot");
+        indexed.writeSnapshot(snapshot);
+        IndexedContentRepository loaded = new IndexedContentRepository(fileSystemRepository, snapshot);
+        assertTrue(loaded.isLoadedFromSnapshot());
+        assertEquals(fileSystemRepository.findChildren(""), loaded.findChildren(""));
+        assertEquals(fileSystemRepository.findChildren("guide"), loaded.findChildren("guide"));
+        assertEquals(fileSystemRepository.findDescendants(""), loaded.findDescendants(""));
+    }
+
+    @Test
+    void shouldServeLookupsWithoutReadingTheFileSystem() throws IOException {
+        IndexedContentRepository indexed = new IndexedContentRepository(contentRoot);
+        List<ContentItem> before = indexed.findChildren("guide");
+
+        // Changes made behind the repository's back are not visible until a refresh
+        Files.delete(contentRoot.resolve("guide/intro.md"));
+
+        assertEquals(before, indexed.findChildren("guide"));
+        assertTrue(indexed.findByPath("guide/intro.md").isPresent());
+
+        indexed.refresh("guide/intro.md");
+        assertEquals(fileSystemRepository.findChildren("guide"), indexed.findChildren("guide"));
+        assertFalse(indexed.exists("guide/intro.md"));
+    }
+
+    @Test
+    void shouldUpdateIndexOnWrites() throws IOException {
+        IndexedContentRepository indexed = new IndexedContentRepository(contentRoot);
+
+        indexed.saveContent("new/dir/page.md", "---\norder: 0\n---\n# Page");
+        indexed.delete("api");
+        write("guide/.metadata", "order: 9\ntitle: Guide");
+        indexed.refresh("guide/.metadata");
+
+        for (String path : List.of("", "new", "new/dir", "guide", "api")) {
+            assertEquals(fileSystemRepository.findChildren(path), indexed.findChildren(path), "findChildren " + path);
+            assertEquals(fileSystemRepository.findDescendants(path), indexed.findDescendants(path), "findDescendants " + path);
+        }
+        assertEquals(9, indexed.findByPath("guide").orElseThrow().order());
+    }
+
+    @Test
+    void shouldServeExistingEntriesWhileTheyAreRescanned() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            write("guide/page" + i + ".md", "# Page " + i);
+        }
+        IndexedContentRepository indexed = new IndexedContentRepository(contentRoot);
+        int listed = indexed.findChildren("guide").size();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> missing = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (!done.get() && missing.get() == null) {
+                if (indexed.findByPath("guide/page7.md").isEmpty()) {
+                    missing.set("guide/page7.md");
+                } else if (indexed.findChildren("guide").size() != listed) {
+                    missing.set("entries of guide");
+                }
+            }
+        });
+        reader.start();
+
+        // Saving a file and a change of the whole directory rescan them
+        for (int i = 0; i < 100 && missing.get() == null; i++) {
+            indexed.saveContent("guide/page7.md", "# Page 7, edit " + i);
+            indexed.refresh("guide");
+        }
+        done.set(true);
+        reader.join();
+
+        assertNull(missing.get(), () -> missing.get() + " was missing during a rescan");
+        assertEquals(fileSystemRepository.findChildren("guide"), indexed.findChildren("guide"));
+    }
+
+    @Test
+    void shouldPageThroughChildrenInListingOrder() throws IOException {
+        for (int i = 0; i < 12; i++) {
+            String order = i % 3 == 0 ? "order: " + (i % 2) + "\n" : "";
+            write("pages/page" + i + ".md", "---\n" + order + "title: Page " + i + "\n---\n");
+        }
+        write("pages/Page5.MD", "# Same name in another case");
+        write("pages/sub/.metadata", "order: 1");
+        write("pages/other/index.md", "# Other");
+        IndexedContentRepository indexed = new IndexedContentRepository(contentRoot);
+
+        for (ContentRepository repository : List.of(fileSystemRepository, indexed)) {
+            for (String path : List.of("pages", "", "guide")) {
+                List<ContentItem> paged = new ArrayList<>();
+                ListingCursor cursor = null;
+                do {
+                    ContentPage page = repository.findChildren(path, cursor, 4);
+                    assertTrue(page.items().size() <= 4);
+                    paged.addAll(page.items());
+                    cursor = page.next();
+                } while (cursor != null);
+                assertEquals(repository.findChildren(path), paged, "paged " + path);
+            }
+        }
+
+        // A cursor stays valid when the item it points at is removed
+        ContentPage first = indexed.findChildren("pages", null, 4);
+        List<ContentItem> all = indexed.findChildren("pages");
+        indexed.delete(first.items().get(3).path());
+        assertEquals(all.subList(4, 8), indexed.findChildren("pages", first.next(), 4).items());
+        assertEquals(List.of(), indexed.findChildren("missing", null, 4).items());
+    }
+
+    @Test
+    void shouldVersionListingsByTheirContent() throws IOException {
+        IndexedContentRepository indexed = new IndexedContentRepository(contentRoot);
+        String guide = indexed.getListingVersion("guide").orElseThrow();
+        String root = indexed.getListingVersion("").orElseThrow();
+
+        // Same content, same version, also for a new instance
+        assertEquals(guide, new IndexedContentRepository(contentRoot).getListingVersion("/guide/").orElseThrow());
+        assertNotEquals(guide, root);
+        assertEquals(Optional.empty(), indexed.getListingVersion("index.md"));
+        assertEquals(Optional.empty(), indexed.getListingVersion("missing"));
+
+        // Entries that are not listed do not change the version
+        indexed.saveContent("guide/notes.txt", "not listed");
+        assertEquals(guide, indexed.getListingVersion("guide").orElseThrow());
+
+        // A changed entry does, and so does its directory in the parent listing
+        indexed.saveContent("guide/intro.md", "---\ntitle: Changed\n---\n# Intro");
+        assertNotEquals(guide, indexed.getListingVersion("guide").orElseThrow());
+        assertNotEquals(root, indexed.getListingVersion("").orElseThrow());
+
+        String fileSystemVersion = fileSystemRepository.getListingVersion("guide").orElseThrow();
+        write("guide/added.md", "# Added");
+        assertNotEquals(fileSystemVersion, fileSystemRepository.getListingVersion("guide").orElseThrow());
+    }
+
+    private void write(String relativePath, String content) throws IOException {
+        Path file = contentRoot.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<ContentItem> walk(ContentRepository repository, String path) {
+        List<ContentItem> items = new ArrayList<>();
+        repository.walkDescendants(path, items::add);
+        return items;
+    }
+}
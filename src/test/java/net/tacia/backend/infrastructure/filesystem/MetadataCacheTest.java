@@ -0,0 +1,111 @@
+package net.tacia.backend.infrastructure.filesystem;
+
+import net.tacia.backend.model.ContentItem;
+import net.tacia.backend.model.MarkdownDocument;
+import net.tacia.backend.repository.FileSystemContentRepository;
+import net.tacia.backend.repository.FrontmatterReader;
+import net.tacia.backend.repository.MetadataCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetadataCacheTest {
+
+    @TempDir
+    Path tempDir;
+    private Path contentRoot;
+    private FrontmatterReader reader;
+    private MetadataCache cache;
+    private FileSystemContentRepository repository;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        contentRoot = tempDir.resolve("content");
+        write("guide/.metadata", "order: 1\ntitle: Guide");
+        write("guide/intro.md", "---\norder: 2\ntitle: Intro\n---\n# Intro");
+        write("guide/setup.md", "# Setup without frontmatter");
+
+        reader = new FrontmatterReader();
+        cache = new MetadataCache(100, 1024 * 1024);
+        repository = new FileSystemContentRepository(contentRoot, reader, cache);
+    }
+
+    @Test
+    void shouldServeRepeatedListingsFromCache() {
+        List<ContentItem> first = repository.findChildren("/");
+        first.addAll(repository.findChildren("guide"));
+        long bytesAfterFirstListing = reader.getBytesRead();
+        long missesAfterFirstListing = cache.getMissCount();
+
+        List<ContentItem> second = repository.findChildren("/");
+        second.addAll(repository.findChildren("guide"));
+
+        assertEquals(first, second);
+        assertEquals(bytesAfterFirstListing, reader.getBytesRead(), "No frontmatter should be read again");
+        assertEquals(missesAfterFirstListing, cache.getMissCount());
+        assertEquals(3, cache.getHitCount());
+    }
+
+    @Test
+    void shouldReloadChangedFiles() throws IOException {
+        assertEquals(2, repository.findByPath("guide/intro.md").orElseThrow().order());
+
+        Path file = write("guide/intro.md", "---\norder: 7\ntitle: Intro\n---\n# Intro");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(60)));
+
+        assertEquals(7, repository.findByPath("guide/intro.md").orElseThrow().order());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntries() throws IOException {
+        cache = new MetadataCache(2, 1024 * 1024);
+        repository = new FileSystemContentRepository(contentRoot, reader, cache);
+        write("guide/other.md", "---\ntitle: Other\n---");
+
+        repository.findChildren("guide");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    void shouldShareParsedDocumentBetweenListingAndDocument() throws IOException {
+        ContentItem listed = repository.findByPath("guide/intro.md").orElseThrow();
+        MarkdownDocument document = repository.readDocument("guide/intro.md").orElseThrow();
+
+        assertEquals(listed.order(), document.parsed().order());
+        assertEquals(listed.metadata().get("title"), document.parsed().title());
+        assertEquals(List.of("Intro"), document.parsed().headingTexts());
+        assertEquals("intro", document.parsed().toc().get(0).slug());
+        assertEquals("# Intro", document.body());
+
+        // The whole document replaces the frontmatter entry and serves both until the file changes
+        long misses = cache.getMissCount();
+        assertSame(document.parsed(), repository.readDocument("guide/intro").orElseThrow().parsed());
+        assertEquals(listed, repository.findByPath("guide/intro.md").orElseThrow());
+        assertEquals(misses, cache.getMissCount());
+
+        Path file = write("guide/intro.md", "---\norder: 7\n---\n# Changed");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(60)));
+
+        assertEquals(List.of("Changed"), repository.readDocument("guide/intro.md").orElseThrow().parsed().headingTexts());
+        assertEquals(7, repository.findByPath("guide/intro.md").orElseThrow().order());
+    }
+
+    private Path write(String relativePath, String content) throws IOException {
+        Path file = contentRoot.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
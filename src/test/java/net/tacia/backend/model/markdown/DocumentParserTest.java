@@ -0,0 +1,98 @@
+package net.tacia.backend.model.markdown;
+
+import net.tacia.backend.model.MarkdownDocument;
+import net.tacia.backend.model.ParsedDocument;
+import net.tacia.backend.model.TocEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentParserTest {
+
+    @Test
+    void shouldBuildTableOfContentsWithSectionOffsets() {
+        MarkdownDocument document = DocumentParser.read("""
+            ---
+            title: Guide
+            ---
+            Intro text
+            ## Install
+            Steps
+            ### Linux
+            apt
+            ### Windows
+            exe
+            # Usage
+            #### Deep
+            Text
+            ## Install
+            Again
+            """);
+        String body = document.body();
+        List<TocEntry> toc = document.parsed().toc();
+
+        assertEquals(List.of("Install", "Usage"), toc.stream().map(TocEntry::text).toList());
+        TocEntry install = toc.get(0);
+        assertEquals(2, install.level());
+        assertEquals("install", install.slug());
+        assertEquals(List.of("linux", "windows"), install.children().stream().map(TocEntry::slug).toList());
+        assertEquals("## Install\nSteps\n### Linux\napt\n### Windows\nexe\n", body.substring(install.start(), install.end()));
+        assertEquals("### Windows\nexe\n", section(document, "windows"));
+
+        // Headings skipping levels nest under the closest lower level; repeated slugs get a suffix
+        TocEntry usage = toc.get(1);
+        assertEquals(List.of("deep", "install-1"), usage.children().stream().map(TocEntry::slug).toList());
+        assertEquals(body.length(), usage.end());
+        assertEquals("## Install\nAgain", section(document, "install-1"));
+        assertTrue(document.parsed().section("missing").isEmpty());
+    }
+
+    @Test
+    void shouldLeaveHeadingLinesOfFencedCodeOutOfTableOfContents() {
+        MarkdownDocument document = DocumentParser.read("""
+            # Setup
+            ````sh
+            # not a heading
+            ```
+            # still code
+            ````
+            ## Run\r
+            ~~~~
+            ## code
+            ~~~
+            # code
+            ~~~~
+            ## After
+              ```
+            # unclosed
+            """);
+        List<TocEntry> toc = document.parsed().toc();
+
+        // The lines are listed as headings, and use up their anchors, but have no section
+        assertEquals(List.of("Setup", "not a heading", "still code", "Run", "code", "code", "After", "unclosed"),
+            document.parsed().headingTexts());
+        assertEquals(List.of("setup"), toc.stream().map(TocEntry::slug).toList());
+        assertEquals(List.of("run", "after"), toc.get(0).children().stream().map(TocEntry::slug).toList());
+        assertTrue(document.parsed().section("not-a-heading").isEmpty());
+        assertTrue(document.parsed().section("code").isEmpty());
+        assertEquals("## Run\r\n~~~~\n## code\n~~~\n# code\n~~~~\n", section(document, "run"));
+        assertEquals(document.body().length(), toc.get(0).children().get(1).end());
+    }
+
+    @Test
+    void shouldLeaveTableOfContentsOutWhenOnlyFrontmatterIsParsed() {
+        ParsedDocument parsed = DocumentParser.parseFrontmatter("title: Guide\norder: 2");
+
+        assertFalse(parsed.hasBody());
+        assertNull(parsed.toc());
+        assertEquals("Guide", parsed.title());
+        assertEquals(2, parsed.order());
+    }
+
+    private static String section(MarkdownDocument document, String slug) {
+        TocEntry entry = document.parsed().section(slug).orElseThrow();
+        return document.body().substring(entry.start(), entry.end());
+    }
+}
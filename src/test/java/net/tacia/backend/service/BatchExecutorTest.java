@@ -0,0 +1,96 @@
+package net.tacia.backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchExecutorTest {
+
+    private final BatchExecutor executor = new BatchExecutor(2, 100);
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void shouldReturnResultsInOrderOfItems() {
+        List<Integer> items = IntStream.range(0, 50).boxed().toList();
+
+        List<String> results = executor.map(items, item -> "item-" + item);
+
+        assertEquals(items.stream().map(item -> "item-" + item).toList(), results);
+        assertEquals(List.of(), executor.map(List.<Integer>of(), item -> "item-" + item));
+    }
+
+    @Test
+    void shouldRunItemsInParallelWithinBound() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        CountDownLatch started = new CountDownLatch(3);
+
+        List<Integer> results = executor.map(List.of(1, 2, 3), item -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            threads.add(Thread.currentThread().getName());
+            started.countDown();
+            try {
+                // All three items only get here if they run at the same time
+                assertTrue(started.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            running.decrementAndGet();
+            return item * 10;
+        });
+
+        assertEquals(List.of(10, 20, 30), results);
+        // The request thread and the two threads of the pool
+        assertEquals(3, maxRunning.get());
+        assertTrue(threads.contains(Thread.currentThread().getName()), threads.toString());
+        assertEquals(3, threads.size());
+    }
+
+    @Test
+    void shouldRunItemsOnRequestThreadWhenQueueIsFull() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        List<Integer> items = IntStream.range(0, 40).boxed().toList();
+
+        List<Integer> results = executor.map(items, item -> {
+            threads.add(Thread.currentThread().getName());
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return item;
+        });
+
+        // Two pool threads and eight queued items: the others ran on the request thread
+        assertEquals(items, results);
+        assertTrue(threads.contains(Thread.currentThread().getName()), threads.toString());
+        assertTrue(threads.size() <= 3, threads.toString());
+    }
+
+    @Test
+    void shouldThrowExceptionOfFailedItem() {
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> executor.map(List.of(1, 2, 3),
+            item -> {
+                if (item == 3) {
+                    throw new IllegalStateException("item 3");
+                }
+                return item;
+            }));
+
+        assertEquals("item 3", thrown.getMessage());
+    }
+}
@@ -0,0 +1,74 @@
+package net.tacia.backend.service;
+
+import net.tacia.backend.repository.ContentChangeEvent;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedResponseCacheTest {
+
+    @Test
+    void shouldServeCompressedBodyForTheSameVersionOnly() throws IOException {
+        CompressedResponseCache cache = new CompressedResponseCache();
+        CompressedResponseCache.Key key = key("docs/page.md", "\"v1\"");
+        byte[] body = "{\"markdown\":\"# Page\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(cache.get(key).isEmpty());
+        byte[] compressed = cache.put(key, body);
+
+        assertArrayEquals(body, gunzip(compressed));
+        assertSame(compressed, cache.get(key).orElseThrow());
+        assertTrue(cache.get(key("docs/page.md", "\"v2\"")).isEmpty());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    void shouldDropEntriesAffectedByAChange() {
+        CompressedResponseCache cache = new CompressedResponseCache();
+        byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+        cache.put(key("", "\"root\""), body);
+        cache.put(key("docs", "\"dir\""), body);
+        cache.put(key("docs/page.md", "\"page\""), body);
+        cache.put(key("other/page.md", "\"other\""), body);
+
+        cache.onContentChange(new ContentChangeEvent("/docs/page.md", ContentChangeEvent.Kind.MODIFIED));
+
+        // The document and the listings containing it are gone
+        assertTrue(cache.get(key("docs/page.md", "\"page\"")).isEmpty());
+        assertTrue(cache.get(key("docs", "\"dir\"")).isEmpty());
+        assertTrue(cache.get(key("", "\"root\"")).isEmpty());
+        assertTrue(cache.get(key("other/page.md", "\"other\"")).isPresent());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntriesOverTheSizeLimit() {
+        CompressedResponseCache cache = new CompressedResponseCache(2048);
+        byte[] body = new byte[200];
+        for (int i = 0; i < 20; i++) {
+            cache.put(key("page" + i + ".md", "\"v\""), body);
+            cache.get(key("page0.md", "\"v\""));
+        }
+
+        assertTrue(cache.getWeight() <= 2048);
+        assertTrue(cache.getEvictionCount() > 0);
+        assertTrue(cache.get(key("page0.md", "\"v\"")).isPresent());
+        assertTrue(cache.get(key("page1.md", "\"v\"")).isEmpty());
+    }
+
+    private static CompressedResponseCache.Key key(String path, String version) {
+        return new CompressedResponseCache.Key("content", path, "", version);
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package net.tacia.backend.service;
+
+import net.tacia.backend.api.dto.ContentMetadataDto;
+import net.tacia.backend.model.ParsedDocument.Heading;
+import net.tacia.backend.model.markdown.MarkdownScanner;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarkdownServiceTest {
+
+    /** Frontmatter as the regular expressions found it, which did not end at the end of the document */
+    private static final Pattern PREVIOUS_FRONTMATTER = Pattern.compile("^---\\s*\\n[\\s\\S]*?\\n---\\s*\\n");
+
+    private final MarkdownService markdownService = new MarkdownService();
+    private final RegexMarkdownProcessor reference = new RegexMarkdownProcessor();
+
+    @Test
+    void shouldExtractFrontmatterBodyAndHeadings() {
+        Map<String, Object> processed = markdownService.processMarkdown("""
+            ---
+            title: "Guide"
+            order: 3
+            weight: -1.5
+            draft: false
+            # comment
+            tags: [java, 'spring']
+            empty:
+            ---
+
+            # Intro
+            Text
+            ## [Setup](setup.md) steps
+            """);
+
+        ContentMetadataDto metadata = (ContentMetadataDto) processed.get("metadata");
+        assertEquals("Guide", metadata.getTitle());
+        assertEquals(3, metadata.getOrder());
+        assertEquals(-1.5, metadata.getProperties().get("weight"));
+        assertEquals(false, metadata.getProperties().get("draft"));
+        assertEquals(List.of("java", "spring"), metadata.getTags());
+        assertTrue(metadata.getProperties().containsKey("empty"));
+        assertNull(metadata.getProperties().get("empty"));
+        assertEquals("# Intro\nText\n## [Setup](setup.md) steps", processed.get("markdown"));
+        assertEquals(List.of("Intro", "Setup steps"), processed.get("headings"));
+    }
+
+    @Test
+    void shouldReportHeadingOffsetsInBody() {
+        MarkdownScanner.Result scanned = MarkdownScanner.scan("---\ntitle: A\n---\n# One\ntext\n### Two\n");
+
+        assertEquals("# One\ntext\n### Two", scanned.body());
+        assertEquals(List.of(new Heading(1, "One", 0, 5), new Heading(3, "Two", 11, 18)),
+            scanned.headings());
+    }
+
+    @Test
+    void shouldReadFrontmatterThatIsNotYaml() {
+        Map<String, Object> processed = markdownService.processMarkdown(
+            "---\ntitle: Notes: part 2\ntags: a, b\nquote: \"\n---\nText");
+
+        ContentMetadataDto metadata = (ContentMetadataDto) processed.get("metadata");
+        assertEquals("Notes: part 2", metadata.getTitle());
+        assertEquals(List.of("a", "b"), metadata.getTags());
+        assertEquals("\"", metadata.getProperties().get("quote"));
+        assertEquals("Text", processed.get("markdown"));
+    }
+
+    @Test
+    void shouldCloseFrontmatterAtEndOfDocument() {
+        Map<String, Object> processed = markdownService.processMarkdown("---\ntitle: Only frontmatter\n---");
+
+        assertEquals("Only frontmatter", ((ContentMetadataDto) processed.get("metadata")).getTitle());
+        assertEquals("", processed.get("markdown"));
+    }
+
+    @Test
+    void shouldProcessCornerCasesLikeRegularExpressions() {
+        List<String> documents = List.of(
+            "",
+            "No frontmatter\n# Heading",
+            "---\n---\nBody",
+            "---\n\n---\nBody",
+            "---  \r\ntitle: Windows\r\n---\r\n\r\n# Heading\r\nText\r\n",
+            "---\ntitle: Unclosed\n---",
+            "---\ntitle: a\n---x\ntags: b, c\n---   \n\nBody",
+            "----\ntitle: a\n---\n",
+            "---\ntags: \"[a, b]\"\nkey:value:more\nbad key: x\n---\n#\nNot a heading title\n#not\n#  x",
+            "---\nx a: b\n'q': 'single'\nlist: ['a' , \"b , , ]\n---\nBody",
+            "---\nbig: 99999999999\nneg: -0\ndec: 1.\nnul: NULL\nyes: True\n---\n",
+            "# [a](b) and [c](d [e](f)\n## [unclosed](x\n###   \t  spaced  \n\n#\t\n\nnext",
+            "---\n\n\ntitle: blank lines\n---\n# H"
+        );
+        for (String document : documents) {
+            assertSameResult(document);
+        }
+    }
+
+    @Test
+    void shouldProcessRandomDocumentsLikeRegularExpressions() {
+        String[] pieces = {"---", "-", "#", "# ", "\n", "\r\n", "\r", " ", "\t", ":", "key", "a", "[", "]", "(", ")",
+            "](", "'", "\"", ",", "1", "-2", ".5", "true", "null", "\u2028", "\u0085", "title: ", "tags: "};
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder document = new StringBuilder(random.nextBoolean() ? "---\n" : "");
+            int length = random.nextInt(40);
+            for (int j = 0; j < length; j++) {
+                document.append(pieces[random.nextInt(pieces.length)]);
+            }
+            assertSameResult(document.toString());
+        }
+    }
+
+    /**
+     * Compares the body and headings with the regular expressions. The metadata is not compared:
+     * frontmatter is now read as YAML first, like the listings always did.
+     */
+    private void assertSameResult(String markdown) {
+        Map<String, Object> actual = markdownService.processMarkdown(markdown);
+        if (MarkdownScanner.scan(markdown).hasFrontmatter() && !PREVIOUS_FRONTMATTER.matcher(markdown).find()) {
+            // Frontmatter closed at the end of the document, which the regular expressions missed
+            return;
+        }
+        Map<String, Object> expected;
+        try {
+            expected = reference.processMarkdown(markdown);
+        } catch (StringIndexOutOfBoundsException e) {
+            // A lone quote as a value, which the regular expressions failed on
+            return;
+        }
+        assertEquals(expected.get("markdown"), actual.get("markdown"), markdown);
+        assertEquals(expected.get("headings"), actual.get("headings"), markdown);
+    }
+}
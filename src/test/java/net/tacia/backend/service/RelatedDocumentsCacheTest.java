@@ -0,0 +1,90 @@
+package net.tacia.backend.service;
+
+import net.tacia.backend.api.dto.RelatedDocumentDto;
+import net.tacia.backend.service.cache.BoundedCache;
+import net.tacia.backend.service.search.SearchDocument;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RelatedDocumentsCacheTest {
+
+    private final AtomicInteger computations = new AtomicInteger();
+    private final RelatedDocumentsCache relatedDocuments = new RelatedDocumentsCache(
+        (documentPath, limit, skipCache) -> {
+            computations.incrementAndGet();
+            return List.of(new RelatedDocumentDto("/other/b.md", "B", 1.0));
+        },
+        new BoundedCache("relatedDocuments", 100, 0), new RequestCoalescer());
+
+    @Test
+    void shouldReportWhetherResultWasCached() {
+        RelatedDocumentsCache.Result first = relatedDocuments.find("docs/a.md", 5, false);
+        RelatedDocumentsCache.Result second = relatedDocuments.find("/docs/a", 5, false);
+        RelatedDocumentsCache.Result otherLimit = relatedDocuments.find("docs/a.md", 10, false);
+
+        assertFalse(first.fromCache());
+        assertTrue(second.fromCache());
+        assertEquals(first.documents(), second.documents());
+        assertFalse(otherLimit.fromCache());
+        assertEquals(2, computations.get());
+    }
+
+    @Test
+    void skipCache_shouldRecomputeAndRefreshCache() {
+        relatedDocuments.find("docs/a.md", 5, false);
+
+        assertFalse(relatedDocuments.find("docs/a.md", 5, true).fromCache());
+        assertEquals(2, computations.get());
+        assertTrue(relatedDocuments.find("docs/a.md", 5, false).fromCache());
+        assertEquals(2, computations.get());
+    }
+
+    @Test
+    void shouldInvalidateEntriesAffectedByChange() {
+        relatedDocuments.find("docs/a.md", 5, false);
+
+        // Outside the tree of the document and of its related documents
+        relatedDocuments.invalidate("/unrelated/c.md");
+        assertTrue(relatedDocuments.find("docs/a.md", 5, false).fromCache());
+
+        // In the directory of the document
+        relatedDocuments.invalidate("/docs/new.md");
+        assertFalse(relatedDocuments.find("docs/a.md", 5, false).fromCache());
+
+        // One of the related documents
+        relatedDocuments.documentsReplaced("/other/b.md", List.of());
+        assertFalse(relatedDocuments.find("docs/a.md", 5, false).fromCache());
+
+        // Everything
+        relatedDocuments.documentsRebuilt(List.of(new SearchDocument("/docs/a.md", "A", null, null, null)));
+        assertFalse(relatedDocuments.find("docs/a.md", 5, false).fromCache());
+        assertEquals(4, computations.get());
+    }
+
+    @Test
+    void shouldPassThroughEnginesThatAreNotCacheable() {
+        RelatedDocumentsCache uncached = new RelatedDocumentsCache(new RelatedDocumentsService() {
+            @Override
+            public List<RelatedDocumentDto> findRelatedDocuments(String documentPath, int limit, boolean skipCache) {
+                return List.of(new RelatedDocumentDto("/other/b" + computations.incrementAndGet(), "B", 1.0));
+            }
+
+            @Override
+            public boolean cacheable() {
+                return false;
+            }
+        }, new BoundedCache("relatedDocuments", 100, 0), new RequestCoalescer());
+
+        RelatedDocumentsCache.Result first = uncached.find("docs/a.md", 5, false);
+        RelatedDocumentsCache.Result second = uncached.find("docs/a.md", 5, false);
+
+        // Every request sees the current results of the engine
+        assertFalse(second.fromCache());
+        assertEquals("/other/b1", first.documents().get(0).path());
+        assertEquals("/other/b2", second.documents().get(0).path());
+    }
+}
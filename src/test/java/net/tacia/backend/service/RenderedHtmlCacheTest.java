@@ -0,0 +1,105 @@
+package net.tacia.backend.service;
+
+import net.tacia.backend.model.MarkdownDocument;
+import net.tacia.backend.model.markdown.DocumentParser;
+import net.tacia.backend.model.markdown.HeadingAnchors;
+import net.tacia.backend.repository.ContentChangeEvent;
+import net.tacia.backend.service.markdown.MarkdownHtmlRenderer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderedHtmlCacheTest {
+
+    private static final MarkdownDocument DOCUMENT = DocumentParser.read("""
+        ---
+        title: Guide
+        ---
+        # Setup
+        Text
+        ## Setup
+        ```java
+        # not a heading
+        ```
+        Setext
+        ------
+        ### [Links](x.md) & more
+        """);
+
+    @Test
+    void shouldRenderHeadingsWithTheAnchorsOfTheHeadingsList() {
+        String html = new RenderedHtmlCache().render(key("docs/guide.md", "\"v1\""), DOCUMENT);
+
+        List<String> anchors = HeadingAnchors.of(DOCUMENT.parsed().headings());
+        assertEquals(List.of("Setup", "Setup", "not a heading", "Links & more"), DOCUMENT.parsed().headingTexts());
+        assertEquals(List.of("setup", "setup-1", "not-a-heading", "links--more"), anchors);
+        assertTrue(html.contains("<h1 id=\"setup\">Setup</h1>"), html);
+        assertTrue(html.contains("<h2 id=\"setup-1\">Setup</h2>"), html);
+        assertTrue(html.contains("<h3 id=\"links--more\"><a href=\"x.md\">Links</a> &amp; more</h3>"), html);
+        // Not rendered as headings, or not in the list: no anchor
+        assertFalse(html.contains("id=\"not-a-heading\""), html);
+        assertTrue(html.contains("<h2>Setext</h2>"), html);
+        assertFalse(html.contains("title: Guide"), html);
+    }
+
+    @Test
+    void shouldRenderSectionWithTheAnchorsOfTheWholeDocument() {
+        RenderedHtmlCache cache = new RenderedHtmlCache();
+
+        String html = cache.render(new RenderedHtmlCache.Key("docs/guide.md", "\"v1\"", "links--more"), DOCUMENT);
+
+        assertTrue(html.startsWith("<h3 id=\"links--more\">"), html);
+        assertFalse(html.contains("<h1") || html.contains("<h2"), html);
+        assertEquals(1, cache.size());
+        assertThrows(IllegalArgumentException.class,
+            () -> cache.render(new RenderedHtmlCache.Key("docs/guide.md", "\"v1\"", "missing"), DOCUMENT));
+    }
+
+    @Test
+    void shouldRenderEachVersionOnce() {
+        RenderedHtmlCache cache = new RenderedHtmlCache();
+
+        String first = cache.render(key("docs/guide.md", "\"v1\""), DOCUMENT);
+
+        assertSame(first, cache.render(key("docs/guide.md", "\"v1\""), DOCUMENT));
+        assertNotSame(first, cache.render(key("docs/guide.md", "\"v2\""), DOCUMENT));
+        assertNotSame(first, cache.render(key("docs/guide.md", null), DOCUMENT));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void shouldDropEntriesAffectedByAChange() {
+        RenderedHtmlCache cache = new RenderedHtmlCache();
+        cache.render(key("docs/guide.md", "\"v1\""), DOCUMENT);
+        cache.render(key("other/guide.md", "\"v1\""), DOCUMENT);
+
+        cache.onContentChange(new ContentChangeEvent("/docs/guide.md", ContentChangeEvent.Kind.MODIFIED));
+
+        assertEquals(1, cache.size());
+        cache.render(key("docs/guide.md", "\"v1\""), DOCUMENT);
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntriesOverTheSizeLimit() {
+        RenderedHtmlCache cache = new RenderedHtmlCache(new MarkdownHtmlRenderer(), 4096);
+        for (int i = 0; i < 20; i++) {
+            cache.render(key("page" + i + ".md", "\"v\""), DOCUMENT);
+            cache.render(key("page0.md", "\"v\""), DOCUMENT);
+        }
+
+        assertTrue(cache.getWeight() <= 4096);
+        assertTrue(cache.getEvictionCount() > 0);
+        long hits = cache.getHitCount();
+        cache.render(key("page0.md", "\"v\""), DOCUMENT);
+        assertEquals(hits + 1, cache.getHitCount());
+    }
+
+    private static RenderedHtmlCache.Key key(String path, String version) {
+        return new RenderedHtmlCache.Key(path, version);
+    }
+}
@@ -0,0 +1,133 @@
+package net.tacia.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCoalescerTest {
+
+    private static final RequestCoalescer.Key KEY = new RequestCoalescer.Key("document", "docs/a.md", "\"v1\"");
+
+    @Test
+    void shouldComputeOnceForConcurrentRequests() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<String> first = executor.submit(() -> coalescer.execute(KEY, () -> {
+                computations.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "processed";
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            List<Future<String>> others = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                others.add(executor.submit(() -> coalescer.execute(KEY, () -> {
+                    computations.incrementAndGet();
+                    return "again";
+                })));
+            }
+            waitUntil(() -> coalescer.getCoalescedCount() == 7);
+            release.countDown();
+
+            assertEquals("processed", first.get(5, TimeUnit.SECONDS));
+            for (Future<String> other : others) {
+                assertEquals("processed", other.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, computations.get());
+            assertEquals(1, coalescer.getComputationCount());
+            assertEquals(0, coalescer.getInFlightCount());
+
+            // Nothing is kept once the computation is over
+            assertEquals("again", coalescer.execute(KEY, () -> "again"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldPropagateErrorToEveryWaiter() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> coalescer.execute(KEY, () -> {
+                started.countDown();
+                await(release);
+                throw new IllegalStateException("unreadable");
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<String> waiter = executor.submit(() -> coalescer.execute(KEY, () -> "unused"));
+            waitUntil(() -> coalescer.getCoalescedCount() == 1);
+            release.countDown();
+
+            for (Future<String> future : List.of(first, waiter)) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(IllegalStateException.class, e.getCause());
+                assertEquals("unreadable", e.getCause().getMessage());
+            }
+            assertEquals(0, coalescer.getInFlightCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldStopWaitingAfterTimeout() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(Duration.ofMillis(50));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> first = executor.submit(() -> coalescer.execute(KEY, () -> {
+                started.countDown();
+                await(release);
+                return "slow";
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            assertThrows(RequestCoalescer.WaitTimeoutException.class, () -> coalescer.execute(KEY, () -> "unused"));
+            assertEquals(1, coalescer.getTimeoutCount());
+            // Other keys are not affected
+            assertEquals("other", coalescer.execute(new RequestCoalescer.Key("document", "docs/b.md", ""), () -> "other"));
+
+            release.countDown();
+            assertEquals("slow", first.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package net.tacia.backend.service.cache;
+
+import org.springframework.cache.Cache;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedCacheTest {
+
+    @Test
+    void shouldStayWithinMaxSize() {
+        BoundedCache cache = new BoundedCache("test", 100, 0);
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key" + i, i);
+        }
+
+        assertEquals(100, cache.size());
+        assertEquals(900, cache.getEvictionCount());
+        assertEquals(999, cache.get("key999").get());
+    }
+
+    @Test
+    void shouldKeepFrequentlyUsedEntriesDuringScan() {
+        BoundedCache cache = new BoundedCache("test", 100, 0);
+        int popularMisses = 0;
+        int popularRequests = 0;
+        // Between two requests of a popular key, more keys than the cache holds are requested
+        // once, which would flush an LRU cache every time
+        for (int i = 0; i < 20_000; i++) {
+            if (i % 200 == 0) {
+                for (int p = 0; p < 50; p++) {
+                    popularRequests++;
+                    if (cache.get("popular" + p) == null) {
+                        popularMisses++;
+                        cache.put("popular" + p, p);
+                    }
+                }
+            }
+            if (cache.get("scan" + i) == null) {
+                cache.put("scan" + i, i);
+            }
+        }
+
+        assertTrue(popularMisses < popularRequests / 10, popularMisses + " misses of " + popularRequests);
+        assertEquals(100, cache.size());
+    }
+
+    @Test
+    void shouldExpireEntriesAfterTimeToLive() {
+        AtomicLong now = new AtomicLong();
+        BoundedCache cache = new BoundedCache("test", 10, 60, now::get);
+        cache.put("a", "A");
+        now.addAndGet(59_000_000_000L);
+        assertEquals("A", cache.get("a").get());
+        cache.put("b", "B");
+
+        now.addAndGet(1_000_000_000L);
+        assertNull(cache.get("a"));
+        assertEquals("B", cache.get("b").get());
+        assertEquals(1, cache.getExpirationCount());
+
+        // Entries are also dropped by the sweep of writes, without being looked up
+        now.addAndGet(60_000_000_000L);
+        cache.put("c", "C");
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getExpirationCount());
+    }
+
+    @Test
+    void shouldCountHitsAndMissesAndLoadMissingValues() {
+        BoundedCache cache = new BoundedCache("test", 10, 0);
+
+        assertEquals("A", cache.get("a", () -> "A"));
+        assertEquals("A", cache.get("a", () -> "other"));
+        assertNull(cache.get("b"));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    void shouldThrowUncheckedExceptionsOfLoaderAsIs() {
+        BoundedCache cache = new BoundedCache("test", 10, 0);
+
+        assertThrows(IllegalStateException.class,
+            () -> cache.get("a", () -> { throw new IllegalStateException("gone"); }));
+        assertThrows(Cache.ValueRetrievalException.class,
+            () -> cache.get("a", () -> { throw new IOException("failed"); }));
+        assertEquals(0, cache.size());
+    }
+}
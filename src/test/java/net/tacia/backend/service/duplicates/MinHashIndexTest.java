@@ -0,0 +1,118 @@
+package net.tacia.backend.service.duplicates;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinHashIndexTest {
+
+    @Test
+    void shouldEstimateSimilarityOfShingles() {
+        Random random = new Random(5);
+        List<String> original = words(random, 400);
+        List<String> edited = new ArrayList<>(original);
+        // Change one word in 40: about 7% of the three-word shingles differ
+        for (int i = 0; i < edited.size(); i += 40) {
+            edited.set(i, "edited" + i);
+        }
+        MinHashIndex index = new MinHashIndex();
+        index.put("/original.md", "Original", MinHashIndex.signature(original));
+        index.put("/edited.md", "Edited", MinHashIndex.signature(edited));
+        index.put("/other.md", "Other", MinHashIndex.signature(words(random, 400)));
+
+        float similarity = index.similarity("/original.md", "/edited.md");
+        double jaccard = (double) (398 - 3 * 10) / (398 + 3 * 10);
+        assertEquals(jaccard, similarity, 0.1);
+        assertTrue(index.similarity("/original.md", "/other.md") < 0.1);
+        assertEquals(0.0, index.similarity("/original.md", "/missing.md"), 0.0);
+    }
+
+    @Test
+    void shouldFindNearDuplicatesThroughBuckets() {
+        Random random = new Random(9);
+        MinHashIndex index = new MinHashIndex();
+        List<String> base = words(random, 300);
+        index.put("/guide/setup.md", "Setup", MinHashIndex.signature(base));
+        List<String> copy = new ArrayList<>(base);
+        copy.add("appendix");
+        index.put("/old/setup-copy.md", "Setup (copy)", MinHashIndex.signature(copy));
+        for (int i = 0; i < 200; i++) {
+            index.put("/docs/page" + i + ".md", "Page " + i, MinHashIndex.signature(words(random, 300)));
+        }
+
+        List<MinHashIndex.Match> duplicates = index.duplicatesOf("/guide/setup.md", 0.8f);
+
+        assertEquals(1, duplicates.size());
+        assertEquals("/old/setup-copy.md", duplicates.get(0).path());
+        assertEquals("Setup (copy)", duplicates.get(0).title());
+        assertTrue(duplicates.get(0).similarity() > 0.9);
+        assertEquals(List.of(), index.duplicatesOf("/docs/page1.md", 0.8f));
+        assertEquals(List.of(), index.duplicatesOf("/missing.md", 0.8f));
+    }
+
+    @Test
+    void shouldForgetRemovedAndReplacedDocuments() {
+        Random random = new Random(13);
+        List<String> text = words(random, 200);
+        MinHashIndex index = new MinHashIndex();
+        index.put("/a.md", "A", MinHashIndex.signature(text));
+        index.put("/dir/b.md", "B", MinHashIndex.signature(text));
+        index.put("/dir/sub/c.md", "C", MinHashIndex.signature(text));
+        index.put("/directory.md", "D", MinHashIndex.signature(text));
+        assertEquals(3, index.duplicatesOf("/a.md", 0.8f).size());
+
+        index.removeAtOrBelow("/dir");
+        index.put("/directory.md", "D", MinHashIndex.signature(words(random, 200)));
+
+        assertEquals(2, index.size());
+        assertEquals(List.of(), index.duplicatesOf("/a.md", 0.8f));
+
+        index.put("/e.md", "E", MinHashIndex.signature(text));
+        index.compact();
+
+        assertEquals(3, index.size());
+        assertEquals(List.of("/e.md"), index.duplicatesOf("/a.md", 0.8f).stream().map(MinHashIndex.Match::path).toList());
+    }
+
+    @Test
+    void shouldReplaceDocumentsInPlace() {
+        Random random = new Random(17);
+        List<String> text = words(random, 200);
+        MinHashIndex index = new MinHashIndex();
+        index.put("/a.md", "A", MinHashIndex.signature(text));
+        index.put("/b.md", "B", MinHashIndex.signature(words(random, 200)));
+
+        // Saving a document again and again does not take new slots
+        for (int i = 0; i < 1000; i++) {
+            index.put("/b.md", "B" + i, MinHashIndex.signature(words(random, 200)));
+        }
+        assertEquals(2, index.slots());
+        assertEquals(List.of(), index.duplicatesOf("/a.md", 0.8f));
+
+        index.put("/b.md", "B", MinHashIndex.signature(text));
+        assertEquals(2, index.slots());
+        assertEquals(List.of("/b.md"), index.duplicatesOf("/a.md", 0.8f).stream().map(MinHashIndex.Match::path).toList());
+        assertEquals("B", index.duplicatesOf("/a.md", 0.8f).get(0).title());
+    }
+
+    @Test
+    void shouldHandleShortDocuments() {
+        assertNull(MinHashIndex.signature(List.of()));
+        int[] one = MinHashIndex.signature(List.of("word"));
+        assertEquals(MinHashIndex.HASHES, one.length);
+        assertTrue(Arrays.equals(one, MinHashIndex.signature(List.of("word"))));
+    }
+
+    private static List<String> words(Random random, int count) {
+        List<String> words = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            words.add("w" + random.nextInt(2_000));
+        }
+        return words;
+    }
+}
@@ -0,0 +1,170 @@
+package net.tacia.backend.service.related;
+
+import net.tacia.backend.service.search.SearchDocument;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 32;
+
+    @Test
+    void shouldFindNearestNeighboursWithHighRecall() {
+        Random random = new Random(7);
+        List<float[]> vectors = clusteredVectors(random, 2_000);
+        HnswIndex index = new HnswIndex(DIMENSIONS, 8, 64, new Random(1));
+        for (int i = 0; i < vectors.size(); i++) {
+            index.put("v" + i, vectors.get(i));
+        }
+
+        assertEquals(2_000, index.size());
+        assertTrue(recallAt10(index, vectors, random) > 0.95);
+    }
+
+    @Test
+    void shouldNotReturnRemovedOrReplacedVectors() {
+        Random random = new Random(3);
+        List<float[]> vectors = clusteredVectors(random, 500);
+        HnswIndex index = new HnswIndex(DIMENSIONS, 8, 64, new Random(1));
+        for (int i = 0; i < vectors.size(); i++) {
+            index.put("v" + i, vectors.get(i));
+        }
+
+        assertTrue(index.remove("v1"));
+        assertFalse(index.remove("v1"));
+        index.put("v2", negate(vectors.get(2)));
+
+        assertEquals(499, index.size());
+        assertEquals(2, index.removedCount());
+        List<HnswIndex.Match> self = index.search(vectors.get(1), 5, 32);
+        assertFalse(self.stream().anyMatch(match -> match.key().equals("v1")));
+        assertFalse(index.search(vectors.get(2), 5, 32).stream().anyMatch(match -> match.key().equals("v2")));
+        assertEquals("v2", index.search(negate(vectors.get(2)), 1, 32).get(0).key());
+        assertFalse(index.neighbours("v3", 5, 32).stream().anyMatch(match -> match.key().equals("v3")));
+        assertEquals(List.of(), index.neighbours("v1", 5, 32));
+    }
+
+    @Test
+    void shouldKeepRecallAfterCompaction() {
+        Random random = new Random(11);
+        List<float[]> vectors = clusteredVectors(random, 1_000);
+        HnswIndex index = new HnswIndex(DIMENSIONS, 8, 64, new Random(1));
+        for (int i = 0; i < vectors.size(); i++) {
+            index.put("v" + i, vectors.get(i));
+        }
+        for (int i = 0; i < vectors.size(); i += 2) {
+            index.remove("v" + i);
+        }
+        assertTrue(index.needsCompaction());
+
+        HnswIndex compacted = index.compacted();
+
+        // The index itself is left as it was
+        assertEquals(500, index.removedCount());
+        assertEquals(500, compacted.size());
+        assertEquals(0, compacted.removedCount());
+        assertFalse(compacted.needsCompaction());
+        List<float[]> remaining = IntStream.range(0, vectors.size())
+            .mapToObj(i -> i % 2 == 1 ? vectors.get(i) : null)
+            .toList();
+        assertTrue(recallAt10(compacted, remaining, random) > 0.95);
+    }
+
+    @Test
+    void shouldHashSimilarDocumentsToSimilarVectors() {
+        HashingVectorizer vectorizer = new HashingVectorizer(256);
+        float[] a = vectorizer.vectorize(document("/a.md", "kubernetes deployment rollout replicas pods"));
+        float[] b = vectorizer.vectorize(document("/b.md", "kubernetes deployment replicas autoscaling"));
+        float[] c = vectorizer.vectorize(document("/c.md", "spring beans configuration properties"));
+        float[] empty = vectorizer.vectorize(document("/d.md", "the and of"));
+
+        assertEquals(1.0, dot(a, a), 1e-5);
+        assertTrue(dot(a, b) > 0.5);
+        assertTrue(dot(a, c) < 0.3);
+        assertEquals(0.0, dot(empty, empty), 1e-9);
+    }
+
+    /**
+     * Share of the exact 10 nearest neighbours (by dot product) found by the index
+     * @param vectors Indexed vectors by key number, {@code null} for vectors not in the index
+     */
+    private static double recallAt10(HnswIndex index, List<float[]> vectors, Random random) {
+        int found = 0;
+        int expected = 0;
+        for (int q = 0; q < 50; q++) {
+            float[] query = vectors.get(random.nextInt(vectors.size()));
+            if (query == null) {
+                continue;
+            }
+            List<String> exact = IntStream.range(0, vectors.size())
+                .filter(i -> vectors.get(i) != null)
+                .boxed()
+                .sorted(Comparator.comparingDouble(i -> -dot(query, vectors.get(i))))
+                .limit(10)
+                .map(i -> "v" + i)
+                .toList();
+            Set<String> approximate = new HashSet<>();
+            index.search(query, 10, 64).forEach(match -> approximate.add(match.key()));
+            expected += exact.size();
+            found += (int) exact.stream().filter(approximate::contains).count();
+        }
+        return (double) found / expected;
+    }
+
+    /**
+     * Unit vectors around 20 random centers
+     */
+    private static List<float[]> clusteredVectors(Random random, int count) {
+        List<float[]> centers = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            centers.add(randomVector(random, null, 0));
+        }
+        List<float[]> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            vectors.add(randomVector(random, centers.get(random.nextInt(centers.size())), 0.5f));
+        }
+        return vectors;
+    }
+
+    private static float[] randomVector(Random random, float[] center, float noise) {
+        float[] vector = new float[DIMENSIONS];
+        double norm = 0;
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (center != null ? center[i] : 0) + (float) random.nextGaussian() * (center != null ? noise / (float) Math.sqrt(DIMENSIONS) : 1);
+            norm += vector[i] * vector[i];
+        }
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] /= (float) Math.sqrt(norm);
+        }
+        return vector;
+    }
+
+    private static float[] negate(float[] vector) {
+        float[] negated = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            negated[i] = -vector[i];
+        }
+        return negated;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static SearchDocument document(String path, String body) {
+        return new SearchDocument(path, "", List.of(), List.of(), body);
+    }
+}
@@ -0,0 +1,93 @@
+package net.tacia.backend.service.related;
+
+import net.tacia.backend.service.search.SearchDocument;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TfIdfRelatedIndexTest {
+
+    @Test
+    void shouldRankDocumentsBySimilarText() {
+        TfIdfRelatedIndex index = new TfIdfRelatedIndex(5, Runnable::run);
+        index.rebuild(List.of(
+            document("/k8s/deploy.md", "First", "kubernetes deployment rollout pods replicas"),
+            document("/k8s/scale.md", "Second", "kubernetes pods replicas autoscaling"),
+            document("/ops/rollout.md", "Third", "deployment rollout strategy"),
+            document("/java/spring.md", "Fourth", "spring beans configuration")
+        ));
+
+        List<TfIdfRelatedIndex.Neighbour> related = index.neighbours("/k8s/deploy.md");
+
+        assertEquals(List.of("/k8s/scale.md", "/ops/rollout.md"), paths(related));
+        assertTrue(related.get(0).score() > related.get(1).score());
+        assertTrue(related.get(0).score() <= 1);
+        assertEquals("Second", related.get(0).title());
+        assertEquals(List.of(), index.neighbours("/java/spring.md"));
+        assertEquals(List.of(), index.neighbours("/missing.md"));
+    }
+
+    @Test
+    void shouldUpdateNeighboursWhenDocumentsChange() {
+        TfIdfRelatedIndex index = new TfIdfRelatedIndex(5, Runnable::run);
+        index.rebuild(List.of(
+            document("/a.md", "A", "alpha beta gamma"),
+            document("/b.md", "B", "alpha beta delta"),
+            document("/c.md", "C", "epsilon zeta"),
+            document("/dir/d.md", "D", "epsilon zeta eta")
+        ));
+        assertEquals(List.of("/b.md"), paths(index.neighbours("/a.md")));
+
+        index.replace(null, List.of(document("/b.md", "B", "epsilon zeta theta")));
+        index.replace(null, List.of(document("/e.md", "E", "alpha gamma iota")));
+
+        assertEquals(List.of("/e.md"), paths(index.neighbours("/a.md")));
+        assertTrue(paths(index.neighbours("/c.md")).contains("/b.md"));
+
+        index.replace("/dir", List.of());
+
+        assertEquals(4, index.size());
+        assertEquals(List.of(), index.neighbours("/dir/d.md"));
+        assertFalse(paths(index.neighbours("/c.md")).contains("/dir/d.md"));
+    }
+
+    @Test
+    void shouldMatchFullRebuildAfterIncrementalChanges() {
+        List<SearchDocument> documents = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            documents.add(document("/doc" + i + ".md", "Doc " + i,
+                "topic" + i % 7 + " area" + i % 5 + " word" + i % 11 + " word" + i % 3));
+        }
+        TfIdfRelatedIndex incremental = new TfIdfRelatedIndex(4, Runnable::run);
+        incremental.rebuild(documents.subList(0, 30));
+        for (int i = 30; i < 60; i++) {
+            incremental.replace(null, List.of(documents.get(i)));
+        }
+        for (int i = 0; i < 60; i += 9) {
+            documents.set(i, document("/doc" + i + ".md", "Doc " + i, "topic" + (i + 1) % 7 + " changed"));
+            incremental.replace(null, List.of(documents.get(i)));
+        }
+        incremental.replace("/doc5.md", List.of());
+        documents.remove(5);
+        // Refresh the vectors computed with older document frequencies
+        incremental.refresh();
+
+        TfIdfRelatedIndex full = new TfIdfRelatedIndex(4, Runnable::run);
+        full.rebuild(documents);
+
+        for (SearchDocument document : documents) {
+            assertEquals(full.neighbours(document.path()), incremental.neighbours(document.path()), document.path());
+        }
+    }
+
+    private static SearchDocument document(String path, String title, String body) {
+        return new SearchDocument(path, title, List.of(), List.of(), body);
+    }
+
+    private static List<String> paths(List<TfIdfRelatedIndex.Neighbour> neighbours) {
+        return neighbours.stream().map(TfIdfRelatedIndex.Neighbour::path).toList();
+    }
+}
@@ -0,0 +1,253 @@
+package net.tacia.backend.service.search;
+
+import net.tacia.backend.repository.ContentChangeEvent;
+import net.tacia.backend.repository.FileSystemContentRepository;
+import net.tacia.backend.service.MarkdownService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldRankTitleAndHeadingMatchesAboveBodyMatches() {
+        SearchIndex index = new SearchIndex();
+        index.rebuild(List.of(
+            document("/body.md", "Other", List.of("Intro"), List.of(), "Configure the deployment pipeline."),
+            document("/heading.md", "Another", List.of("Deployment"), List.of(), "Some text."),
+            document("/title.md", "Deployment guide", List.of(), List.of(), "Some text."),
+            document("/unrelated.md", "Unrelated", List.of(), List.of(), "Nothing to see.")
+        ));
+
+        SearchResult result = index.search("deployment", 10);
+
+        assertEquals(3, result.total());
+        assertEquals(List.of("/title.md", "/heading.md", "/body.md"), paths(result));
+        assertTrue(result.hits().get(0).score() > result.hits().get(1).score());
+    }
+
+    @Test
+    void shouldPreferRareTermsAndDocumentsMatchingMoreTerms() {
+        List<SearchDocument> documents = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            documents.add(document("/common" + i + ".md", "Page " + i, List.of(), List.of(), "java spring"));
+        }
+        documents.add(document("/rare.md", "Rare", List.of(), List.of(), "java kubernetes"));
+        documents.add(document("/both.md", "Both", List.of(), List.of(), "spring kubernetes java"));
+        SearchIndex index = new SearchIndex();
+        index.rebuild(documents);
+
+        SearchResult result = index.search("Kubernetes, Java!", 2);
+
+        assertEquals(22, result.total());
+        assertEquals(List.of("/rare.md", "/both.md"), paths(result));
+        assertEquals(SearchResult.EMPTY, index.search(" ?! ", 10));
+        assertEquals(0, index.search("missing", 10).total());
+    }
+
+    @Test
+    void shouldSearchTagsAndReturnThem() {
+        SearchIndex index = new SearchIndex();
+        index.rebuild(List.of(
+            document("/tagged.md", "Page", List.of(), List.of("Release-Notes", "ops"), "Text."),
+            document("/plain.md", "Page", List.of(), List.of(), "Release text.")
+        ));
+
+        SearchResult result = index.search("notes", 10);
+
+        assertEquals(List.of("/tagged.md"), paths(result));
+        assertEquals(List.of("Release-Notes", "ops"), result.hits().get(0).tags());
+    }
+
+    @Test
+    void shouldSplitTextIntoLowerCaseTerms() {
+        List<String> terms = new ArrayList<>();
+        int count = Tokenizer.tokenize("## Überblick: `Map<K,V>` [link](http://x.io/a_b) 3.14 日本語", terms::add);
+
+        assertEquals(List.of("überblick", "map", "k", "v", "link", "http", "x", "io", "a", "b", "3", "14", "日本語"), terms);
+        assertEquals(terms.size(), count);
+    }
+
+    @Test
+    void shouldReplaceUpdatedDocumentsAndDropDeletedOnes() {
+        SearchIndex index = new SearchIndex();
+        index.rebuild(List.of(
+            document("/a.md", "Alpha", List.of(), List.of(), "old text"),
+            document("/dir/b.md", "Beta", List.of(), List.of(), "old text"),
+            document("/dir/sub/c.md", "Gamma", List.of(), List.of(), "old text"),
+            document("/directory.md", "Delta", List.of(), List.of(), "old text")
+        ));
+
+        index.update(document("/a.md", "Alpha", List.of(), List.of(), "new text"));
+        index.delete("/dir");
+
+        assertEquals(List.of("/a.md"), paths(index.search("new", 10)));
+        assertEquals(List.of("/directory.md"), paths(index.search("old", 10)));
+        assertEquals(2, index.size());
+        assertEquals(0, index.search("gamma", 10).total());
+    }
+
+    @Test
+    void shouldMergeSmallSegments() {
+        SearchIndex index = new SearchIndex();
+        for (int i = 0; i < 25; i++) {
+            index.update(document("/doc" + i + ".md", "Page " + i, List.of(), List.of(), "shared word" + i));
+        }
+        for (int i = 0; i < 25; i += 2) {
+            index.update(document("/doc" + i + ".md", "Page " + i, List.of(), List.of(), "shared changed"));
+        }
+
+        assertEquals(25, index.size());
+        assertTrue(index.segmentCount() < SearchIndex.MERGE_FACTOR, "segments: " + index.segmentCount());
+        assertEquals(25, index.search("shared", 100).total());
+        assertEquals(13, index.search("changed", 100).total());
+        assertEquals(0, index.search("word4", 10).total());
+        assertEquals(List.of("/doc5.md"), paths(index.search("word5", 10)));
+    }
+
+    @Test
+    void shouldKeepResultsConsistentWhileWritersAndMergesRun() throws Exception {
+        int documentCount = 200;
+        ExecutorService mergeExecutor = Executors.newSingleThreadExecutor();
+        ExecutorService threads = Executors.newFixedThreadPool(6);
+        try {
+            SearchIndex index = new SearchIndex(mergeExecutor);
+            List<SearchDocument> documents = new ArrayList<>();
+            for (int i = 0; i < documentCount; i++) {
+                documents.add(document("/stable/doc" + i + ".md", "Page " + i, List.of(), List.of(), "stable version0"));
+            }
+            index.rebuild(documents);
+
+            AtomicBoolean done = new AtomicBoolean();
+            List<Future<?>> writers = new ArrayList<>();
+            for (int w = 0; w < 2; w++) {
+                int writer = w;
+                writers.add(threads.submit(() -> {
+                    for (int round = 1; round <= 300; round++) {
+                        // Every document is always indexed exactly once, in some version
+                        int doc = writer * documentCount / 2 + round % (documentCount / 2);
+                        index.update(document("/stable/doc" + doc + ".md", "Page " + doc, List.of(), List.of(),
+                            "stable version" + round));
+                        // Documents below /volatile come and go
+                        String path = "/volatile/w" + writer + "/doc" + round % 5 + ".md";
+                        if (round % 3 == 0) {
+                            index.delete("/volatile/w" + writer);
+                        } else {
+                            index.update(document(path, "Volatile", List.of(), List.of(), "volatile"));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < 4; r++) {
+                readers.add(threads.submit(() -> {
+                    while (!done.get()) {
+                        SearchResult result = index.search("stable", documentCount + 10);
+                        assertEquals(documentCount, result.total());
+                        Set<String> seen = new HashSet<>();
+                        for (SearchHit hit : result.hits()) {
+                            assertTrue(hit.path().startsWith("/stable/"), hit.path());
+                            assertTrue(seen.add(hit.path()), "duplicate hit " + hit.path());
+                        }
+                        SearchResult volatileResult = index.search("volatile", 100);
+                        assertTrue(volatileResult.total() <= 10, "hits: " + volatileResult.total());
+                        assertEquals(volatileResult.total(), volatileResult.hits().size());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS);
+            }
+            done.set(true);
+            for (Future<?> reader : readers) {
+                reader.get(60, TimeUnit.SECONDS);
+            }
+
+            mergeExecutor.shutdown();
+            assertTrue(mergeExecutor.awaitTermination(60, TimeUnit.SECONDS));
+            assertEquals(documentCount, index.search("stable", 10).total());
+            assertEquals(Set.of("/stable/doc0.md", "/stable/doc100.md"),
+                Set.copyOf(paths(index.search("version300", 10))));
+        } finally {
+            threads.shutdownNow();
+            mergeExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldIndexMarkdownDocumentsOfTheContentRoot() throws IOException {
+        write("guide/install.md", "---\ntitle: Installation\ntags: [setup, linux]\n---\n# Install\n\n## Requirements\n\nJava 17.");
+        write("guide/.drafts/secret.md", "# Secret installation");
+        write(".hidden.md", "# Hidden installation");
+        write("notes.txt", "installation");
+        SearchService service = new SearchService(new FileSystemContentRepository(tempDir), new MarkdownService());
+        assertFalse(service.isReady());
+
+        service.rebuild();
+
+        assertTrue(service.isReady());
+        assertEquals(1, service.size());
+        SearchHit hit = service.search("installation requirements", 10).hits().get(0);
+        assertEquals("/guide/install.md", hit.path());
+        assertEquals("Installation", hit.title());
+        assertEquals(List.of("setup", "linux"), hit.tags());
+        assertEquals(1, service.search("linux", 10).total());
+    }
+
+    @Test
+    void shouldReindexSavedAndDeletedDocuments() throws IOException {
+        write("guide/install.md", "# Install\n\nOld instructions.");
+        write("guide/upgrade.md", "# Upgrade\n\nSteps.");
+        try (SearchService service = new SearchService(new FileSystemContentRepository(tempDir), new MarkdownService())) {
+            service.rebuild();
+
+            write("guide/install.md", "# Install\n\nNew instructions.");
+            service.reindex("guide/install.md");
+            write("guide/config.md", "# Config\n\nMore instructions.");
+            service.onContentChange(new ContentChangeEvent("/guide/config.md", ContentChangeEvent.Kind.CREATED));
+
+            assertEquals(0, service.search("old", 10).total());
+            assertEquals(2, service.search("instructions", 10).total());
+
+            Files.delete(tempDir.resolve("guide/upgrade.md"));
+            service.onContentChange(new ContentChangeEvent("/guide/upgrade.md", ContentChangeEvent.Kind.DELETED));
+            assertEquals(0, service.search("steps", 10).total());
+
+            service.delete("guide");
+            assertEquals(0, service.size());
+        }
+    }
+
+    static SearchDocument document(String path, String title, List<String> headings, List<String> tags, String body) {
+        return new SearchDocument(path, title, headings, tags, body);
+    }
+
+    private static List<String> paths(SearchResult result) {
+        return result.hits().stream().map(SearchHit::path).toList();
+    }
+
+    private void write(String relativePath, String content) throws IOException {
+        Path file = tempDir.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
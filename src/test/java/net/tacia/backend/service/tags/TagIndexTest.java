@@ -0,0 +1,117 @@
+package net.tacia.backend.service.tags;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TagIndexTest {
+
+    @Test
+    void shouldListDocumentsHavingAllTags() {
+        TagIndex index = new TagIndex();
+        index.put("/java/streams.md", "Streams", List.of("Java", "collections"));
+        index.put("/java/spring.md", "Spring", List.of("java", "Spring", "web"));
+        index.put("/web/http.md", "HTTP", List.of("web"));
+        index.put("/untagged.md", "Untagged", List.of());
+
+        assertEquals(List.of("/java/spring.md", "/java/streams.md"),
+            index.documentsWithAll(List.of("JAVA")).stream().map(TaggedDocument::path).toList());
+        assertEquals(List.of(new TaggedDocument("/java/spring.md", "Spring", List.of("Java", "Spring", "web"))),
+            index.documentsWithAll(List.of("web", " java ")));
+        assertEquals(List.of(), index.documentsWithAll(List.of("java", "missing")));
+        assertEquals(List.of(), index.documentsWithAll(List.of()));
+        assertEquals(3, index.size());
+
+        assertEquals(List.of(
+            new TagCount("Java", 2),
+            new TagCount("web", 2),
+            new TagCount("collections", 1),
+            new TagCount("Spring", 1)
+        ), index.counts());
+    }
+
+    @Test
+    void shouldUpdateTagsOfReplacedAndRemovedDocuments() {
+        TagIndex index = new TagIndex();
+        index.put("/guide/a.md", "A", List.of("draft", "guide"));
+        index.put("/guide/b.md", "B", List.of("guide"));
+        index.put("/c.md", "C", List.of("draft"));
+
+        index.put("/guide/a.md", "A", List.of("guide"));
+        assertEquals(List.of("/c.md"),
+            index.documentsWithAll(List.of("draft")).stream().map(TaggedDocument::path).toList());
+
+        index.removeAtOrBelow("/guide");
+        assertEquals(List.of(), index.documentsWithAll(List.of("guide")));
+        assertEquals(List.of(new TagCount("draft", 1)), index.counts());
+
+        // Numbers of removed documents are reused
+        index.put("/d.md", "D", List.of("draft", 42));
+        assertEquals(List.of("/c.md", "/d.md"),
+            index.documentsWithAll(List.of("draft")).stream().map(TaggedDocument::path).toList());
+        assertEquals(List.of("/d.md"),
+            index.documentsWithAll(List.of("42")).stream().map(TaggedDocument::path).toList());
+    }
+
+    @Test
+    void shouldScoreTagOverlap() {
+        TagIndex index = new TagIndex();
+        index.put("/a.md", "A", List.of("java", "spring", "web"));
+        index.put("/b.md", "B", List.of("java", "spring"));
+        index.put("/c.md", "C", List.of("web", "css", "html", "design"));
+        index.put("/d.md", "D", List.of("rust"));
+
+        assertEquals(2f / 3, index.similarity("/a.md", "/b.md"), 1e-6);
+        assertEquals(1f / 6, index.similarity("/a.md", "/c.md"), 1e-6);
+        assertEquals(0.0, index.similarity("/a.md", "/d.md"), 0.0);
+        assertEquals(0.0, index.similarity("/a.md", "/missing.md"), 0.0);
+
+        List<TagIndex.Match> similar = index.similarTo("/a.md", 5);
+        assertEquals(List.of("/b.md", "/c.md"), similar.stream().map(TagIndex.Match::path).toList());
+        assertEquals(2f / 3, similar.get(0).similarity(), 1e-6);
+        assertEquals(List.of("/b.md"), index.similarTo("/a.md", 1).stream().map(TagIndex.Match::path).toList());
+        assertEquals(List.of(), index.similarTo("/d.md", 5));
+    }
+
+    @Test
+    void shouldMatchSetOperationsOfBitmaps() {
+        Random random = new Random(3);
+        // Sparse, dense and full chunks, and chunks switching kind as numbers are removed
+        int[] densities = {5, 2000, 5000, 65536};
+        for (int density : densities) {
+            DocBitmap bitmap = new DocBitmap();
+            DocBitmap other = new DocBitmap();
+            TreeSet<Integer> expected = new TreeSet<>();
+            TreeSet<Integer> expectedOther = new TreeSet<>();
+            for (int i = 0; i < density * 3; i++) {
+                int doc = random.nextInt(3 * 65536);
+                assertEquals(expected.add(doc), bitmap.add(doc));
+                int otherDoc = random.nextInt(3 * 65536);
+                otherDoc = random.nextBoolean() ? doc : otherDoc;
+                assertEquals(expectedOther.add(otherDoc), other.add(otherDoc));
+            }
+            for (int i = 0; i < density; i++) {
+                int doc = random.nextInt(3 * 65536);
+                assertEquals(expected.remove(doc), bitmap.remove(doc));
+            }
+
+            assertEquals(expected.size(), bitmap.cardinality());
+            assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), bitmap.toArray());
+            for (int i = 0; i < 1000; i++) {
+                int doc = random.nextInt(3 * 65536);
+                assertEquals(expected.contains(doc), bitmap.contains(doc));
+            }
+
+            TreeSet<Integer> common = new TreeSet<>(expected);
+            common.retainAll(expectedOther);
+            int[] commonDocs = common.stream().mapToInt(Integer::intValue).toArray();
+            assertArrayEquals(commonDocs, bitmap.and(other).toArray());
+            assertArrayEquals(commonDocs, other.and(bitmap).toArray());
+            assertEquals(common.size(), bitmap.and(other).cardinality());
+        }
+    }
+}